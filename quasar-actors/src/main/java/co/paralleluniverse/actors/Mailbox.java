@@ -19,6 +19,8 @@ import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.channels.SingleConsumerQueueChannel;
 import co.paralleluniverse.strands.queues.SingleConsumerArrayObjectQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerLinkedArrayObjectQueue;
+import co.paralleluniverse.strands.queues.SingleConsumerQueue;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -29,6 +31,8 @@ import java.util.concurrent.TimeUnit;
  */
 public final class Mailbox<Message> extends SingleConsumerQueueChannel<Message> {
     private transient Actor<?, ?> actor;
+    private transient SingleConsumerQueue.Cursor<Message>[] cursors;
+    private transient int cursorDepth;
 
     Mailbox(MailboxConfig config) {
         super(mailboxSize(config) > 0
@@ -64,13 +68,48 @@ public final class Mailbox<Message> extends SingleConsumerQueueChannel<Message>
     }
 
     public Object del(Object n) {
-        return queue().del(n);
+        final Object res = queue().del(n);
+        monitorReceived(1);
+        return res;
+    }
+
+    /**
+     * Deletes the message at the cursor's position.
+     */
+    void del(SingleConsumerQueue.Cursor<Object> cursor) {
+        cursor.del();
+        monitorReceived(1);
     }
 
     public Message value(Object n) {
         return queue().value(n);
     }
 
+    /**
+     * Returns a cursor, positioned before the first message, for the exclusive use of a single, possibly nested, selective
+     * receive. Cursors are reused, so that scanning the mailbox doesn't allocate; each call must be matched by a call to
+     * {@link #releaseCursor() releaseCursor} when the receive is done.
+     */
+    @SuppressWarnings("unchecked")
+    SingleConsumerQueue.Cursor<Message> acquireCursor() {
+        if (cursors == null)
+            cursors = new SingleConsumerQueue.Cursor[2];
+        else if (cursorDepth == cursors.length)
+            cursors = Arrays.copyOf(cursors, cursors.length * 2);
+
+        SingleConsumerQueue.Cursor<Message> cursor = cursors[cursorDepth];
+        if (cursor == null)
+            cursor = cursors[cursorDepth] = queue().cursor();
+        else
+            cursor.reset();
+        cursorDepth++;
+        return cursor;
+    }
+
+    void releaseCursor() {
+        cursorDepth--;
+    }
+
     @Override
     protected void sendSync(Message message) throws SuspendExecution {
         super.sendSync(message);
@@ -13,6 +13,7 @@
 package co.paralleluniverse.actors;
 
 import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.queues.SingleConsumerQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -52,73 +53,76 @@ public class SelectiveReceiveHelper<Message> {
         final long deadline = start + left;
 
         actor.monitorResetSkippedMessages();
-        Object n = null;
-        for (int i = 0;; i++) {
-            if (actor.flightRecorder != null)
-                actor.record(1, "Actor", "receive", "%s waiting for a message. %s", this, timeout > 0 ? "millis left: " + TimeUnit.MILLISECONDS.convert(left, TimeUnit.NANOSECONDS) : "");
-
-            mailbox.lock();
-            n = mailbox.succ(n);
-
-            if (n != null) {
-                mailbox.unlock();
-                final Object m = mailbox.value(n);
-                if (m == currentMessage) {
-                    mailbox.del(n);
-                    continue;
-                }
+        final SingleConsumerQueue.Cursor<Object> cursor = mailbox.acquireCursor();
+        try {
+            for (int i = 0;; i++) {
+                if (actor.flightRecorder != null)
+                    actor.record(1, "Actor", "receive", "%s waiting for a message. %s", this, timeout > 0 ? "millis left: " + TimeUnit.MILLISECONDS.convert(left, TimeUnit.NANOSECONDS) : "");
+
+                mailbox.lock();
+                if (cursor.next()) {
+                    mailbox.unlock();
+                    final Object m = cursor.value();
+                    if (m == currentMessage) {
+                        mailbox.del(cursor);
+                        continue;
+                    }
 
-                actor.record(1, "Actor", "receive", "Received %s <- %s", this, m);
-                actor.monitorAddMessage();
-                try {
-                    if (m instanceof LifecycleMessage) {
-                        mailbox.del(n);
-                        handleLifecycleMessage((LifecycleMessage) m);
-                    } else {
-                        final Message msg = (Message) m;
-                        currentMessage = msg;
-                        try {
-                            T res = proc.process(msg);
-                            if (res != null) {
-                                if (mailbox.value(n) == msg) // another call to receive from within the processor may have deleted n
-                                    mailbox.del(n);
-                                return res;
+                    actor.record(1, "Actor", "receive", "Received %s <- %s", this, m);
+                    actor.monitorAddMessage();
+                    try {
+                        if (m instanceof LifecycleMessage) {
+                            mailbox.del(cursor);
+                            handleLifecycleMessage((LifecycleMessage) m);
+                        } else {
+                            final Message msg = (Message) m;
+                            currentMessage = msg;
+                            try {
+                                T res = proc.process(msg);
+                                if (res != null) {
+                                    if (cursor.value() == msg) // another call to receive from within the processor may have deleted the message
+                                        mailbox.del(cursor);
+                                    return res;
+                                }
+                            } catch (Exception e) {
+                                if (cursor.value() == msg) // another call to receive from within the processor may have deleted the message
+                                    mailbox.del(cursor);
+                                throw e;
+                            } finally {
+                                currentMessage = null;
                             }
-                        } catch (Exception e) {
-                            if (mailbox.value(n) == msg) // another call to receive from within the processor may have deleted n
-                                mailbox.del(n);
-                            throw e;
-                        } finally {
-                            currentMessage = null;
+                            actor.monitorSkippedMessage();
                         }
-                        actor.monitorSkippedMessage();
-                    }
 
-                } catch (Exception e) {
-                    if (mailbox.value(n) == m) // another call to receive from within the processor may have deleted n
-                        mailbox.del(n);
-                    throw e;
-                }
-            } else {
-                try {
-                    if (unit == null)
-                        mailbox.await(i);
-                    else if (timeout > 0) {
-                        mailbox.await(i, left, TimeUnit.NANOSECONDS);
-
-                        now = System.nanoTime();
-                        left = deadline - now;
-                        if (left <= 0) {
-                            actor.record(1, "Actor", "receive", "%s timed out.", this);
-                            throw new TimeoutException();
+                    } catch (Exception e) {
+                        if (cursor.value() == m) // another call to receive from within the processor may have deleted the message
+                            mailbox.del(cursor);
+                        throw e;
+                    }
+                } else {
+                    cursor.reset();
+                    try {
+                        if (unit == null)
+                            mailbox.await(i);
+                        else if (timeout > 0) {
+                            mailbox.await(i, left, TimeUnit.NANOSECONDS);
+
+                            now = System.nanoTime();
+                            left = deadline - now;
+                            if (left <= 0) {
+                                actor.record(1, "Actor", "receive", "%s timed out.", this);
+                                throw new TimeoutException();
+                            }
+                        } else {
+                            return null;
                         }
-                    } else {
-                        return null;
+                    } finally {
+                        mailbox.unlock();
                     }
-                } finally {
-                    mailbox.unlock();
                 }
             }
+        } finally {
+            mailbox.releaseCursor();
         }
     }
 
@@ -0,0 +1,308 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.data.record;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Condition;
+import co.paralleluniverse.strands.SimpleConditionSynchronizer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import sun.misc.Unsafe;
+
+/**
+ * A bounded multi-producer, multi-consumer channel whose messages are records stored, in place, in a preallocated
+ * {@link RecordArray}, so that passing messages through the channel allocates no objects.
+ *
+ * Rather than passing records in and out, senders and receivers work with sequence numbers. A sender
+ * {@link #claim() claims} a slot, writes the message into the slot's record, obtained with
+ * {@link #get(RecordArray.Accessor, long) get}, and then {@link #publish(long) publishes} it. A receiver
+ * {@link #receive() receives} a published slot, reads the message from its record, and then
+ * {@link #release(long) releases} the slot so that it may be reused. The record returned by {@code get} is an accessor
+ * that must not be used once the slot has been published or released, and as slots are reused as is, a sender must
+ * set all of the fields it cares about.
+ * <pre>{@code
+ * final RecordArray.Accessor acc = channel.newAccessor(); // once per strand
+ * ...
+ * long seq = channel.claim();
+ * channel.get(acc, seq).set(PRICE, price);
+ * channel.publish(seq);
+ * ...
+ * long seq = channel.receive();
+ * double price = channel.get(acc, seq).get(PRICE);
+ * channel.release(seq);
+ * }</pre>
+ *
+ * Slots are managed as in Dmitry Vyukov's bounded MPMC queue: each carries a sequence number that tells senders when
+ * it is free, and receivers when it has been published.
+ *
+ * @author pron
+ */
+public class RecordChannel<R> {
+    private final RecordArray<R> records;
+    private final int capacity;
+    private final int mask;
+    private final long[] sequences;
+    private final Condition sync;
+    private final Condition sendersSync;
+    // the number of blocked receivers and senders, so that publish and release don't signal (and allocate an iterator
+    // over the conditions' waiters) when there are none
+    private final AtomicInteger waitingReceivers = new AtomicInteger();
+    private final AtomicInteger waitingSenders = new AtomicInteger();
+    private volatile boolean closed;
+    volatile int p001, p002, p003, p004, p005, p006, p007;
+    volatile long head; // next slot to be received
+    volatile long p101, p102, p103, p104, p105, p106, p107;
+    volatile long tail; // next slot to be claimed
+    volatile long p201, p202, p203, p204, p205, p206, p207;
+
+    /**
+     * @param recordType the type of the channel's messages
+     * @param capacity   the channel's capacity; will be rounded up to a power of 2, and no less than 2
+     */
+    public RecordChannel(RecordType<R> recordType, int capacity) {
+        this.capacity = nextPowerOfTwo(Math.max(capacity, 2));
+        this.mask = this.capacity - 1;
+        this.records = recordType.newArray(this.capacity);
+        this.sequences = new long[this.capacity];
+        for (int i = 0; i < this.capacity; i++)
+            sequences[i] = i;
+        this.sync = new SimpleConditionSynchronizer(this);
+        this.sendersSync = new SimpleConditionSynchronizer(this);
+    }
+
+    private static int nextPowerOfTwo(int v) {
+        assert v >= 0;
+        return 1 << (32 - Integer.numberOfLeadingZeros(v - 1));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns a new accessor to be passed to {@link #get(RecordArray.Accessor, long) get}. An accessor may only be used
+     * by one strand at a time.
+     */
+    public RecordArray.Accessor newAccessor() {
+        return records.newAccessor();
+    }
+
+    /**
+     * Returns the record in the slot with the given sequence number, which must have been claimed or received by the
+     * calling strand, and not yet published or released.
+     */
+    public Record<R> get(RecordArray.Accessor accessor, long sequence) {
+        return records.at(accessor, (int) sequence & mask);
+    }
+
+    /**
+     * Claims a free slot, if there is one.
+     *
+     * @return the slot's sequence number, or -1 if the channel is full or closed
+     */
+    public long tryClaim() {
+        if (closed)
+            return -1;
+        for (;;) {
+            final long t = tail;
+            final long seq = getSequence((int) t & mask);
+            if (seq == t) {
+                if (compareAndSetTail(t, t + 1))
+                    return t;
+            } else if (seq < t) // full
+                return -1;
+            // otherwise, another sender has claimed the slot; retry
+        }
+    }
+
+    /**
+     * Claims a free slot, blocking until one is available.
+     *
+     * @return the slot's sequence number, or -1 if the channel has been closed
+     */
+    public long claim() throws SuspendExecution, InterruptedException {
+        long seq = tryClaim();
+        if (seq >= 0 || closed)
+            return seq;
+        waitingSenders.incrementAndGet();
+        sendersSync.register();
+        try {
+            for (int i = 0;; i++) {
+                if ((seq = tryClaim()) >= 0 || closed)
+                    return seq;
+                sendersSync.await(i);
+            }
+        } finally {
+            sendersSync.unregister();
+            waitingSenders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Makes a slot claimed by {@link #claim() claim}, and written to, available to receivers.
+     */
+    public void publish(long sequence) {
+        setSequence((int) sequence & mask, sequence + 1); // volatile, so that it's not reordered with the read below
+        if (waitingReceivers.get() > 0)
+            sync.signalAll();
+    }
+
+    /**
+     * Receives a published slot, if there is one.
+     *
+     * @return the slot's sequence number, or -1 if there is no published slot
+     */
+    public long tryReceive() {
+        for (;;) {
+            final long h = head;
+            final long seq = getSequence((int) h & mask);
+            if (seq == h + 1) {
+                if (compareAndSetHead(h, h + 1))
+                    return h;
+            } else if (seq < h + 1) // empty, or the slot has not been published yet
+                return -1;
+            // otherwise, another receiver has received the slot; retry
+        }
+    }
+
+    /**
+     * Receives a published slot, blocking until one is available.
+     *
+     * @return the slot's sequence number, or -1 if the channel has been closed and all of its messages have been
+     *         received
+     */
+    public long receive() throws SuspendExecution, InterruptedException {
+        long seq = tryReceive();
+        if (seq >= 0)
+            return seq;
+        waitingReceivers.incrementAndGet();
+        sync.register();
+        try {
+            for (int i = 0;; i++) {
+                final boolean c = closed; // must be read BEFORE tryReceive()
+                if ((seq = tryReceive()) >= 0 || c)
+                    return seq;
+                sync.await(i);
+            }
+        } finally {
+            sync.unregister();
+            waitingReceivers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Receives a published slot, blocking until one is available or the timeout has elapsed.
+     *
+     * @return the slot's sequence number, or -1 if the timeout has elapsed, or the channel has been closed and all of
+     *         its messages have been received
+     */
+    public long receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        long seq = tryReceive();
+        if (seq >= 0 || timeout <= 0)
+            return seq;
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+        waitingReceivers.incrementAndGet();
+        sync.register();
+        try {
+            for (int i = 0;; i++) {
+                final boolean c = closed; // must be read BEFORE tryReceive()
+                if ((seq = tryReceive()) >= 0 || c)
+                    return seq;
+                sync.await(i, left, TimeUnit.NANOSECONDS);
+                left = deadline - System.nanoTime();
+                if (left <= 0)
+                    return -1;
+            }
+        } finally {
+            sync.unregister();
+            waitingReceivers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Frees a slot returned by {@link #receive() receive}, after its message has been read, so that senders may reuse
+     * it.
+     */
+    public void release(long sequence) {
+        setSequence((int) sequence & mask, sequence + capacity);
+        if (waitingSenders.get() > 0)
+            sendersSync.signalAll();
+    }
+
+    /**
+     * Closes the channel. Slots may no longer be claimed, but messages already published may still be received.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            sync.signalAll();
+            sendersSync.signalAll();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns an estimate of the number of messages in the channel.
+     */
+    public int size() {
+        final long s = tail - head;
+        return (int) (s < 0 ? 0 : s > capacity ? capacity : s);
+    }
+    ////////////////////////////////////////////////////////////////////////
+    private static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final int base;
+    private static final int shift;
+    private static final long headOffset;
+    private static final long tailOffset;
+
+    static {
+        try {
+            headOffset = UNSAFE.objectFieldOffset(RecordChannel.class.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset(RecordChannel.class.getDeclaredField("tail"));
+
+            base = UNSAFE.arrayBaseOffset(long[].class);
+            int scale = UNSAFE.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            shift = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private boolean compareAndSetTail(long expect, long update) {
+        return UNSAFE.compareAndSwapLong(this, tailOffset, expect, update);
+    }
+
+    private boolean compareAndSetHead(long expect, long update) {
+        return UNSAFE.compareAndSwapLong(this, headOffset, expect, update);
+    }
+
+    private static long byteOffset(int i) {
+        return ((long) i << shift) + base;
+    }
+
+    private long getSequence(int i) {
+        return UNSAFE.getLongVolatile(sequences, byteOffset(i));
+    }
+
+    private void setSequence(int i, long value) {
+        UNSAFE.putLongVolatile(sequences, byteOffset(i), value);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.data.record;
+
+import co.paralleluniverse.data.record.Field.*;
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class RecordChannelTest {
+    private static class Quote {
+        private int id;
+        private double price;
+        private String symbol;
+    }
+    private static final RecordType<Quote> rt = new RecordType<>();
+    private static final IntField<Quote> $id = rt.intField("id");
+    private static final DoubleField<Quote> $price = rt.doubleField("price");
+    private static final ObjectField<Quote, String> $symbol = rt.objectField("symbol", String.class);
+
+    @Test
+    public void testClaimAndReceive() throws Exception {
+        final RecordChannel<Quote> ch = new RecordChannel<>(rt, 4);
+        final RecordArray.Accessor acc = ch.newAccessor();
+
+        assertThat(ch.tryReceive(), is(-1L));
+        for (int i = 0; i < 4; i++) {
+            final long seq = ch.tryClaim();
+            assertThat(seq, is((long) i));
+            final Record<Quote> r = ch.get(acc, seq);
+            r.set($id, i);
+            r.set($price, i * 1.5);
+            r.set($symbol, "S" + i);
+            ch.publish(seq);
+        }
+        assertThat(ch.tryClaim(), is(-1L)); // full
+        assertThat(ch.size(), is(4));
+
+        for (int i = 0; i < 4; i++) {
+            final long seq = ch.tryReceive();
+            final Record<Quote> r = ch.get(acc, seq);
+            assertThat(r.get($id), is(i));
+            assertThat(r.get($price), is(i * 1.5));
+            assertThat(r.get($symbol), is("S" + i));
+            ch.release(seq);
+        }
+        assertThat(ch.tryReceive(), is(-1L));
+        assertThat(ch.tryClaim(), is(4L)); // the slots are reused
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final RecordChannel<Quote> ch = new RecordChannel<>(rt, 4);
+        final long seq = ch.tryClaim();
+        ch.publish(seq);
+        ch.close();
+
+        assertThat(ch.tryClaim(), is(-1L));
+        assertThat(ch.receive(), is(seq));
+        ch.release(seq);
+        assertThat(ch.receive(), is(-1L));
+        assertThat(ch.receive(10, TimeUnit.MILLISECONDS), is(-1L));
+    }
+
+    @Test
+    public void testFibers() throws Exception {
+        final int messages = 10000;
+        final RecordChannel<Quote> ch = new RecordChannel<>(rt, 16);
+
+        final Fiber<Long> consumer = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                final RecordArray.Accessor acc = ch.newAccessor();
+                long sum = 0;
+                int last = -1;
+                long seq;
+                while ((seq = ch.receive()) >= 0) {
+                    final Record<Quote> r = ch.get(acc, seq);
+                    final int id = r.get($id);
+                    assertThat(id, is(last + 1));
+                    assertThat(r.get($price), is((double) id));
+                    last = id;
+                    sum += id;
+                    ch.release(seq);
+                }
+                return sum;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                final RecordArray.Accessor acc = ch.newAccessor();
+                for (int i = 0; i < messages; i++) {
+                    final long seq = ch.claim();
+                    final Record<Quote> r = ch.get(acc, seq);
+                    r.set($id, i);
+                    r.set($price, (double) i);
+                    ch.publish(seq);
+                }
+                ch.close();
+            }
+        }).start();
+
+        producer.join();
+        assertThat(consumer.get(), is((long) messages * (messages - 1) / 2));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.actors;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.channels.Channel;
+import co.paralleluniverse.strands.channels.Channels;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Selective receive of a message that sits behind a deep backlog of messages the actor isn't interested in, so each
+ * receive scans the entire mailbox.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectiveReceiveBenchmark {
+    private static final Object FILLER = new Object();
+    private static final Object PING = new Object();
+    private static final Object STOP = new Object();
+    @Param({"10000"})
+    public int depth;
+    @Param({"16384", "-1"}) // bounded (array) and unbounded (linked-array) mailbox
+    public int mailboxSize;
+    private Channel<Object> replies;
+    private ActorRef<Object> actor;
+
+    @Setup
+    public void setup() throws Exception {
+        replies = Channels.newChannel(-1);
+        actor = new BasicActor<Object, Void>(new MailboxConfig(mailboxSize, OverflowPolicy.THROW)) {
+            @Override
+            protected Void doRun() throws SuspendExecution, InterruptedException {
+                for (;;) {
+                    final Object m = receive(new MessageProcessor<Object, Object>() {
+                        @Override
+                        public Object process(Object m) throws SuspendExecution, InterruptedException {
+                            return m != FILLER ? m : null;
+                        }
+                    });
+                    if (m == STOP)
+                        return null;
+                    replies.send(m);
+                }
+            }
+        }.spawn();
+        for (int i = 0; i < depth; i++)
+            actor.send(FILLER);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        actor.send(STOP);
+    }
+
+    @Benchmark
+    public Object selectiveReceive() throws Exception {
+        actor.send(PING);
+        return replies.receive();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers;
+
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Fiber lifecycle and scheduling: spawn/join, park/unpark ping-pong, and timed sleeps through the
+ * {@link FiberTimedScheduler}.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FiberBenchmark {
+    private static final int FIBERS = 1000;
+    private static final int ROUNDS = 10000;
+    private static final int SLEEPERS = 1000;
+
+    @Benchmark
+    @OperationsPerInvocation(FIBERS)
+    public void spawnJoin() throws Exception {
+        final Fiber[] fibers = new Fiber[FIBERS];
+        for (int i = 0; i < FIBERS; i++)
+            fibers[i] = new Fiber(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution {
+                }
+            }).start();
+        for (int i = 0; i < FIBERS; i++)
+            fibers[i].join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    public void parkUnparkPingPong() throws Exception {
+        final PingPong pp = new PingPong();
+        final Fiber ping = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution {
+                for (int i = 0; i < ROUNDS; i++) {
+                    pp.turn = 1;
+                    pp.pong.unpark();
+                    while (pp.turn != 0)
+                        Fiber.park();
+                }
+            }
+        });
+        pp.pong = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution {
+                for (int i = 0; i < ROUNDS; i++) {
+                    while (pp.turn != 1)
+                        Fiber.park();
+                    pp.turn = 0;
+                    ping.unpark();
+                }
+            }
+        });
+        pp.pong.start();
+        ping.start();
+        ping.join();
+        pp.pong.join();
+    }
+
+    private static class PingPong {
+        volatile int turn;
+        volatile Fiber pong;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLEEPERS)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void timedSleep() throws Exception {
+        final Fiber[] fibers = new Fiber[SLEEPERS];
+        for (int i = 0; i < SLEEPERS; i++)
+            fibers[i] = new Fiber(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    Fiber.sleep(1);
+                }
+            }).start();
+        for (int i = 0; i < SLEEPERS; i++)
+            fibers[i].join();
+    }
+}
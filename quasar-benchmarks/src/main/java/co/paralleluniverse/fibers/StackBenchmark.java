@@ -0,0 +1,74 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers;
+
+import co.paralleluniverse.strands.SuspendableCallable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Deep suspendable call chains through {@link Stack}: the cost of a call that doesn't suspend (pushMethod/popMethod
+ * only), and of a call that suspends and resumes at the bottom of the chain (which saves and restores every frame).
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StackBenchmark {
+    private static final int CALLS = 10000;
+    @Param({"1", "10", "100"})
+    public int depth;
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int callChain() throws Exception {
+        return run(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int callChainYield() throws Exception {
+        return run(true);
+    }
+
+    private int run(final boolean yield) throws Exception {
+        return new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution {
+                int sum = 0;
+                for (int i = 0; i < CALLS; i++)
+                    sum += recurse(depth, i, yield);
+                return sum;
+            }
+        }).start().get();
+    }
+
+    static int recurse(int depth, int x, boolean yield) throws SuspendExecution {
+        if (depth == 0) {
+            if (yield)
+                Fiber.yield();
+            return x;
+        }
+        final int res = recurse(depth - 1, x, yield);
+        return res + 1;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link QueueChannel#sendBatch(Object[], int, int) sendBatch}/{@link QueueChannel#receiveBatch(Object[], int)
+ * receiveBatch} between a producer fiber and a consumer fiber, for several batch sizes. A batch of 1 is equivalent to
+ * plain {@code send}/{@code receive}.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChannelBatchBenchmark {
+    private static final int MESSAGES = 102400;
+    private static final Object MESSAGE = new Object();
+    @Param({"1", "16", "128"})
+    public int batch;
+    @Param({"1024", "-1"})
+    public int mailboxSize;
+    @Param({"true", "false"})
+    public boolean singleConsumer;
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int sendReceiveBatch() throws Exception {
+        final QueueChannel<Object> channel = (QueueChannel<Object>) Channels.newChannel(mailboxSize, OverflowPolicy.BLOCK, false, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                final Object[] ms = new Object[batch];
+                int received = 0;
+                int n;
+                while ((n = channel.receiveBatch(ms, batch)) > 0)
+                    received += n;
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                final Object[] ms = new Object[batch];
+                Arrays.fill(ms, MESSAGE);
+                for (int i = 0; i < MESSAGES; i += batch)
+                    channel.sendBatch(ms, 0, batch);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+}
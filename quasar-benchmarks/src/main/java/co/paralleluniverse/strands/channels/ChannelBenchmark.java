@@ -0,0 +1,268 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Send/receive between a producer fiber and a consumer fiber, for each of the queue configurations
+ * {@link Channels#newChannel(int, OverflowPolicy, boolean, boolean) Channels.newChannel} and its primitive counterparts
+ * ({@link Channels#newIntChannel(int, OverflowPolicy, boolean, boolean) Channels.newIntChannel} etc.) support.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChannelBenchmark {
+    private static final int MESSAGES = 100000;
+    private static final Object MESSAGE = new Object();
+    /**
+     * type:mailboxSize:policy:singleProducer:singleConsumer
+     */
+    @Param({
+        "object:0:BLOCK:false:true", // TransferChannel
+        "object:1:BLOCK:false:true", // BoxQueue
+        "object:1:BLOCK:false:false",
+        "object:1:DISPLACE:false:true",
+        "object:1024:BLOCK:false:true", // SingleConsumerArrayObjectQueue
+        "object:1024:BLOCK:false:false", // MultiConsumerArrayObjectQueue
+        "object:1024:DISPLACE:false:true", // CircularObjectBuffer
+        "object:1024:DISPLACE:true:true",
+        "object:1024:DISPLACE:false:false", // MultiConsumerArrayObjectQueue, displacing
+        "object:-1:BLOCK:false:true", // SingleConsumerLinkedArrayObjectQueue
+        "object:-1:BLOCK:false:false", // MultiConsumerLinkedArrayObjectQueue
+        "int:1024:BLOCK:false:true", // SingleConsumerArrayIntQueue
+        "int:1024:BLOCK:false:false", // MultiConsumerArrayIntQueue
+        "int:1024:DISPLACE:false:true", // CircularIntBuffer
+        "int:1024:DISPLACE:true:true",
+        "int:1024:DISPLACE:false:false", // MultiConsumerArrayIntQueue, displacing
+        "int:-1:BLOCK:false:true", // SingleConsumerLinkedArrayIntQueue
+        "long:1024:BLOCK:false:true",
+        "long:1024:BLOCK:false:false",
+        "long:1024:DISPLACE:false:true",
+        "long:1024:DISPLACE:true:true",
+        "long:1024:DISPLACE:false:false",
+        "long:-1:BLOCK:false:true",
+        "float:1024:BLOCK:false:true",
+        "float:1024:BLOCK:false:false",
+        "float:1024:DISPLACE:false:true",
+        "float:1024:DISPLACE:true:true",
+        "float:1024:DISPLACE:false:false",
+        "float:-1:BLOCK:false:true",
+        "double:1024:BLOCK:false:true",
+        "double:1024:BLOCK:false:false",
+        "double:1024:DISPLACE:false:true",
+        "double:1024:DISPLACE:true:true",
+        "double:1024:DISPLACE:false:false",
+        "double:-1:BLOCK:false:true",
+    })
+    public String config;
+    private String type;
+    private int mailboxSize;
+    private OverflowPolicy policy;
+    private boolean singleProducer;
+    private boolean singleConsumer;
+
+    @Setup
+    public void setup() {
+        final String[] cfg = config.split(":");
+        type = cfg[0];
+        mailboxSize = Integer.parseInt(cfg[1]);
+        policy = OverflowPolicy.valueOf(cfg[2]);
+        singleProducer = Boolean.parseBoolean(cfg[3]);
+        singleConsumer = Boolean.parseBoolean(cfg[4]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int sendReceive() throws Exception {
+        switch (type) {
+            case "int":
+                return sendReceiveInt();
+            case "long":
+                return sendReceiveLong();
+            case "float":
+                return sendReceiveFloat();
+            case "double":
+                return sendReceiveDouble();
+            default:
+                return sendReceiveObject();
+        }
+    }
+
+    private int sendReceiveObject() throws Exception {
+        final Channel<Object> channel = Channels.newChannel(mailboxSize, policy, singleProducer, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int received = 0;
+                while (channel.receive() != null)
+                    received++; // DISPLACE channels may lose messages
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < MESSAGES; i++)
+                    channel.send(MESSAGE);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+
+    private int sendReceiveInt() throws Exception {
+        final IntChannel channel = Channels.newIntChannel(mailboxSize, policy, singleProducer, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int received = 0;
+                try {
+                    for (;;) {
+                        channel.receiveInt();
+                        received++;
+                    }
+                } catch (ReceivePort.EOFException e) {
+                }
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < MESSAGES; i++)
+                    channel.send(i);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+
+    private int sendReceiveLong() throws Exception {
+        final LongChannel channel = Channels.newLongChannel(mailboxSize, policy, singleProducer, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int received = 0;
+                try {
+                    for (;;) {
+                        channel.receiveLong();
+                        received++;
+                    }
+                } catch (ReceivePort.EOFException e) {
+                }
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < MESSAGES; i++)
+                    channel.send((long) i);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+
+    private int sendReceiveFloat() throws Exception {
+        final FloatChannel channel = Channels.newFloatChannel(mailboxSize, policy, singleProducer, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int received = 0;
+                try {
+                    for (;;) {
+                        channel.receiveFloat();
+                        received++;
+                    }
+                } catch (ReceivePort.EOFException e) {
+                }
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < MESSAGES; i++)
+                    channel.send((float) i);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+
+    private int sendReceiveDouble() throws Exception {
+        final DoubleChannel channel = Channels.newDoubleChannel(mailboxSize, policy, singleProducer, singleConsumer);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int received = 0;
+                try {
+                    for (;;) {
+                        channel.receiveDouble();
+                        received++;
+                    }
+                } catch (ReceivePort.EOFException e) {
+                }
+                return received;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < MESSAGES; i++)
+                    channel.send((double) i);
+                channel.close();
+            }
+        }).start();
+
+        producer.join();
+        return consumer.get();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Ping-pong between two fibers over a pair of channels, where every receive finds its channel empty, with each
+ * {@link ChannelWaitStrategy}.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChannelWaitStrategyBenchmark {
+    private static final int ROUND_TRIPS = 10000;
+    private static final Object MESSAGE = new Object();
+    @Param({"park", "spinYieldPark", "adaptive"})
+    public String strategy;
+
+    private QueueChannel<Object> newChannel() {
+        final QueueChannel<Object> ch = (QueueChannel<Object>) Channels.newChannel(16, OverflowPolicy.BLOCK);
+        switch (strategy) {
+            case "spinYieldPark":
+                ch.setWaitStrategy(ChannelWaitStrategy.spinYieldPark(1000, 10));
+                break;
+            case "adaptive":
+                ch.setWaitStrategy(ChannelWaitStrategy.adaptive(1000, 10));
+                break;
+        }
+        return ch;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUND_TRIPS)
+    public void pingPong() throws Exception {
+        final QueueChannel<Object> ping = newChannel();
+        final QueueChannel<Object> pong = newChannel();
+
+        final Fiber ponger = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                Object m;
+                while ((m = ping.receive()) != null)
+                    pong.send(m);
+            }
+        }).start();
+
+        final Fiber pinger = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < ROUND_TRIPS; i++) {
+                    ping.send(MESSAGE);
+                    pong.receive();
+                }
+                ping.close();
+            }
+        }).start();
+
+        pinger.join();
+        ponger.join();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A five-stage (map, filter, map, filter, map) pipeline, with the stages fused into receive-port views, and with a
+ * fiber and a channel per stage.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipelineBenchmark {
+    private static final int MESSAGES = 100000;
+    private static final Function<Long, Long> INC = new Function<Long, Long>() {
+        @Override
+        public Long apply(Long x) {
+            return x + 1;
+        }
+    };
+    private static final Predicate<Long> ALL = new Predicate<Long>() {
+        @Override
+        public boolean apply(Long x) {
+            return x >= 0;
+        }
+    };
+
+    private static Channel<Long> newChannel() {
+        return Channels.newChannel(64, OverflowPolicy.BLOCK);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long fused() throws Exception {
+        final Channel<Long> source = newChannel();
+        final ReceivePort<Long> out = Channels.map(Channels.filter(Channels.map(Channels.filter(Channels.map(source, INC), ALL), INC), ALL), INC);
+        return run(source, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long unfused() throws Exception {
+        final Channel<Long> source = newChannel();
+        ReceivePort<Long> out = source;
+        for (int i = 0; i < 5; i++)
+            out = stage(out, i % 2 == 0 ? INC : null, i % 2 == 1 ? ALL : null);
+        return run(source, out);
+    }
+
+    private static ReceivePort<Long> stage(final ReceivePort<Long> in, final Function<Long, Long> f, final Predicate<Long> pred) {
+        final Channel<Long> out = newChannel();
+        new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                Long m;
+                while ((m = in.receive()) != null) {
+                    if (f != null)
+                        out.send(f.apply(m));
+                    else if (pred.apply(m))
+                        out.send(m);
+                }
+                out.close();
+            }
+        }).start();
+        return out;
+    }
+
+    private static long run(final Channel<Long> source, final ReceivePort<Long> out) throws Exception {
+        final Fiber<Long> consumer = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                long sum = 0;
+                Long m;
+                while ((m = out.receive()) != null)
+                    sum += m;
+                return sum;
+            }
+        }).start();
+        for (long i = 0; i < MESSAGES; i++)
+            source.send(i);
+        source.close();
+        return consumer.get();
+    }
+}
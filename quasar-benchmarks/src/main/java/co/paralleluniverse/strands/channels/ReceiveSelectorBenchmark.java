@@ -0,0 +1,74 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A send to one of many channels followed by a select over all of them, with a one-shot {@link Selector} and with a
+ * {@link ReceiveSelector}.
+ *
+ * @author pron
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReceiveSelectorBenchmark {
+    private static final Object MESSAGE = new Object();
+    @Param({"4", "64"})
+    public int ports;
+    private List<Channel<Object>> channels;
+    private ReceiveSelector<Object> receiveSelector;
+    private int next;
+
+    @Setup
+    public void setup() {
+        channels = new ArrayList<>(ports);
+        for (int i = 0; i < ports; i++)
+            channels.add(Channels.<Object>newChannel(16, OverflowPolicy.THROW, false, false));
+        receiveSelector = new ReceiveSelector<>(channels);
+    }
+
+    private Channel<Object> nextChannel() {
+        final Channel<Object> ch = channels.get(next);
+        next = (next + 1) % ports;
+        return ch;
+    }
+
+    @Benchmark
+    public Object selector() throws Exception {
+        nextChannel().send(MESSAGE);
+        final List<SelectAction<Object>> actions = new ArrayList<>(ports);
+        for (Channel<Object> ch : channels)
+            actions.add(Selector.<Object>receive(ch));
+        return Selector.select(actions).message();
+    }
+
+    @Benchmark
+    public Object receiveSelector() throws Exception {
+        nextChannel().send(MESSAGE);
+        return receiveSelector.select().message();
+    }
+}
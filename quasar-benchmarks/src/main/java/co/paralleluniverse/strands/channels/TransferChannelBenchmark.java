@@ -0,0 +1,67 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rendezvous between sender and receiver threads over a {@link TransferChannel}, where they mostly meet in the
+ * elimination arena. Sends and receives are timed so that neither side is left blocked when the other stops at the end
+ * of an iteration.
+ *
+ * @author pron
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferChannelBenchmark {
+    private static final Object MESSAGE = new Object();
+    private final TransferChannel<Object> channel = new TransferChannel<>();
+
+    @Benchmark
+    @Group("pair")
+    @GroupThreads(1)
+    public boolean pairSend() throws Exception {
+        return channel.send(MESSAGE, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("pair")
+    @GroupThreads(1)
+    public Object pairReceive() throws Exception {
+        return channel.receive(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public boolean contendedSend() throws Exception {
+        return channel.send(MESSAGE, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public Object contendedReceive() throws Exception {
+        return channel.receive(10, TimeUnit.MILLISECONDS);
+    }
+}
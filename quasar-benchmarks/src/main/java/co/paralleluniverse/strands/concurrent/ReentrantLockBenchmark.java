@@ -0,0 +1,70 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.concurrent;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Contention on a strand {@link ReentrantLock} by many fibers.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReentrantLockBenchmark {
+    private static final int ACQUISITIONS = 100000;
+    @Param({"1", "2", "8", "64"})
+    public int fibers;
+    @Param({"false", "true"})
+    public boolean fair;
+
+    @Benchmark
+    @OperationsPerInvocation(ACQUISITIONS)
+    public long lockUnlock() throws Exception {
+        final ReentrantLock lock = new ReentrantLock(fair);
+        final long[] counter = new long[1];
+        final int perFiber = ACQUISITIONS / fibers;
+
+        final Fiber[] fs = new Fiber[fibers];
+        for (int i = 0; i < fibers; i++)
+            fs[i] = new Fiber(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution {
+                    for (int j = 0; j < perFiber; j++) {
+                        lock.lock();
+                        try {
+                            counter[0]++;
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            }).start();
+        for (Fiber f : fs)
+            f.join();
+        return counter[0];
+    }
+}
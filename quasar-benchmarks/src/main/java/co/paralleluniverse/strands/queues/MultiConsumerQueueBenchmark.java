@@ -0,0 +1,83 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One producer thread and many consumer threads sharing a queue: {@link ArrayQueue}, whose consumers spin on the slot
+ * until its value is written, against the sequence-numbered {@link MultiConsumerArrayObjectQueue} and the unbounded
+ * {@link MultiConsumerLinkedArrayObjectQueue}.
+ *
+ * @author pron
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MultiConsumerQueueBenchmark {
+    private static final int MESSAGES = 1000000;
+    private static final int CAPACITY = 1024;
+    private static final Object MESSAGE = new Object();
+    @Param({"ArrayQueue", "MultiConsumerArrayQueue", "MultiConsumerLinkedArrayQueue"})
+    public String queue;
+    @Param({"1", "2", "4", "8", "16", "64"})
+    public int consumers;
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int enqPoll() throws Exception {
+        final BasicQueue<Object> q;
+        if ("ArrayQueue".equals(queue))
+            q = new ArrayQueue<Object>(CAPACITY);
+        else if ("MultiConsumerArrayQueue".equals(queue))
+            q = new MultiConsumerArrayObjectQueue<Object>(CAPACITY);
+        else
+            q = new MultiConsumerLinkedArrayObjectQueue<Object>();
+        final AtomicInteger remaining = new AtomicInteger(MESSAGES);
+
+        final Thread[] ts = new Thread[consumers];
+        for (int i = 0; i < consumers; i++) {
+            ts[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (remaining.get() > 0) {
+                        if (q.poll() != null)
+                            remaining.decrementAndGet();
+                        else
+                            Thread.yield();
+                    }
+                }
+            });
+            ts[i].start();
+        }
+
+        for (int i = 0; i < MESSAGES; i++) {
+            while (!q.enq(MESSAGE))
+                Thread.yield();
+        }
+
+        for (Thread t : ts)
+            t.join();
+        return remaining.get();
+    }
+}
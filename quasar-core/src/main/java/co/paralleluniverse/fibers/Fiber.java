@@ -1482,6 +1482,10 @@ public class Fiber<V> extends Strand implements Joinable<V>, Serializable, Futur
         boolean res = clazz.isAnnotationPresent(Instrumented.class);
         if (!res)
             res = isInstrumented0(clazz); // a second chance
+        if (!res)
+            res = Retransform.isLambdaProxy(clazz); // lambda proxies only forward to the (instrumented) lambda body
+        if (!res)
+            res = Retransform.isDeferred(clazz); // will be instrumented when first run in a fiber
         return res;
     }
 
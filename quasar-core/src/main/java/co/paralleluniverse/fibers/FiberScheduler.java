@@ -117,7 +117,10 @@ public class FiberScheduler {
         return fjPool;
     }
 
-    FiberTimedScheduler getTimer() {
+    /**
+     * The scheduler's timer, which wakes up fibers from timed parks, and may also run short timer commands.
+     */
+    public FiberTimedScheduler getTimer() {
         return timer;
     }
 
@@ -99,6 +99,42 @@ public class FiberTimedScheduler {
         return t;
     }
 
+    /**
+     * Schedules a command to run once, on the timer thread, after the given delay. The command must be short and must
+     * not block, as it holds up the timer.
+     *
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public Future<Void> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        ScheduledFutureTask t = new ScheduledFutureTask(command, triggerTime(delay, unit), 0);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Schedules a command to run periodically, on the timer thread, first after {@code initialDelay}, and then at
+     * {@code initialDelay + n * period}, until the returned future is cancelled. Trigger times are computed from the
+     * initial one, so they don't drift with the timer's latency. If the timer falls behind by more than a period, the
+     * missed runs are skipped, and the command runs once, at the next trigger time. The same task object is rescheduled
+     * for each run. The command must be short and must not block, as it holds up the timer.
+     *
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException if period less than or equal to zero
+     */
+    public Future<Void> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        ScheduledFutureTask t = new ScheduledFutureTask(command, triggerTime(initialDelay, unit), unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
     private void work() {
         try {
             int counter = 0;
@@ -113,7 +149,7 @@ public class FiberTimedScheduler {
                                 Thread.sleep(BACKPRESSURE_PAUSE_MS);
                             delay = now() - task.time;
                         }
-                        if (monitor != null)
+                        if (monitor != null && task.fiber != null)
                             monitor.timedParkLatency(delay);
 
                         run(task);
@@ -147,12 +183,36 @@ public class FiberTimedScheduler {
     }
 
     private void run(ScheduledFutureTask task) {
+        if (task.command != null) {
+            runCommand(task);
+            return;
+        }
         try {
             final Fiber fiber = task.fiber;
             fiber.unpark(task.blocker);
         } catch (Exception e) {
         }
     }
+
+    private void runCommand(ScheduledFutureTask task) {
+        try {
+            task.command.run();
+        } catch (Throwable e) {
+            task.cancel(false); // like ScheduledThreadPoolExecutor, don't run a failed periodic command again
+            Thread.UncaughtExceptionHandler h = worker.getUncaughtExceptionHandler();
+            if (h != null)
+                h.uncaughtException(worker, e);
+            return;
+        }
+        if (task.period > 0 && !task.isCancelled() && !isShutdown()) {
+            final long now = now();
+            long next = task.time + task.period;
+            if (next - now <= 0) // fallen behind; skip the missed runs
+                next += ((now - next) / task.period + 1) * task.period;
+            task.reschedule(next);
+            delayedExecute(task);
+        }
+    }
     /**
      * Sequence number to break scheduling ties, and in turn to
      * guarantee FIFO order among tied entries.
@@ -169,15 +229,18 @@ public class FiberTimedScheduler {
     private class ScheduledFutureTask implements Delayed, Future<Void> {
         final Fiber<?> fiber;
         final Object blocker;
+        final Runnable command; // run instead of unparking a fiber
+        final long period; // for periodic commands; 0 otherwise
         
         /**
          * Sequence number to break ties FIFO
          */
-        private final long sequenceNumber;
+        private long sequenceNumber;
         /**
-         * The time the task is enabled to execute in nanoTime units
+         * The time the task is enabled to execute in nanoTime units.
+         * Only changed, for periodic commands, while the task is not in the queue.
          */
-        final long time;
+        long time;
         private volatile boolean cancelled = false;
         long delay;
 
@@ -187,6 +250,22 @@ public class FiberTimedScheduler {
         ScheduledFutureTask(Fiber<?> fiber, Object blocker, long ns) {
             this.fiber = fiber;
             this.blocker = blocker;
+            this.command = null;
+            this.period = 0;
+            this.time = ns;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        ScheduledFutureTask(Runnable command, long ns, long period) {
+            this.fiber = null;
+            this.blocker = null;
+            this.command = command;
+            this.period = period;
+            this.time = ns;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        void reschedule(long ns) {
             this.time = ns;
             this.sequenceNumber = sequencer.getAndIncrement();
         }
@@ -242,7 +321,7 @@ public class FiberTimedScheduler {
 
         @Override
         public String toString() {
-            return "Timeout(" + blocker + ')';
+            return command != null ? ("Timer(" + command + ')') : ("Timeout(" + blocker + ')');
         }
     }
 
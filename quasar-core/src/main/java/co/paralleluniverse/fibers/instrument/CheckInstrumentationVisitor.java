@@ -51,7 +51,7 @@ public class CheckInstrumentationVisitor extends ClassVisitor {
     private boolean alreadyInstrumented;
 
     public CheckInstrumentationVisitor(SuspendableClassifier classifier) {
-        super(Opcodes.ASM4);
+        super(Opcodes.ASM5);
         this.classifier = classifier;
     }
 
@@ -100,7 +100,7 @@ public class CheckInstrumentationVisitor extends ClassVisitor {
         classEntry.set(name, desc, suspendable);
 
         if (suspendable == null) // look for @Suspendable annotation
-            return new MethodVisitor(Opcodes.ASM4) {
+            return new MethodVisitor(Opcodes.ASM5) {
                 private boolean susp = false;
 
                 @Override
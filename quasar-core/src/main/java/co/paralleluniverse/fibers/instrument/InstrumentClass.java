@@ -34,9 +34,12 @@ import static co.paralleluniverse.fibers.instrument.Classes.isYieldMethod;
 import co.paralleluniverse.fibers.instrument.MethodDatabase.ClassEntry;
 import co.paralleluniverse.fibers.instrument.MethodDatabase.SuspendableType;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -57,21 +60,35 @@ public class InstrumentClass extends ClassVisitor {
     
     private final MethodDatabase db;
     private boolean forceInstrumentation;
+    private final boolean deferInstrumentation;
     private String className;
+    private boolean isInterface;
     private ClassEntry classEntry;
     private boolean alreadyInstrumented;
     private ArrayList<MethodNode> methods;
+    private final Set<String> finalFields = new HashSet<String>();
 
     public InstrumentClass(ClassVisitor cv, MethodDatabase db, boolean forceInstrumentation) {
-        super(Opcodes.ASM4, cv);
+        this(cv, db, forceInstrumentation, false);
+    }
+
+    /**
+     * @param deferInstrumentation if {@code true}, suspendable methods are not instrumented, but only trapped, so that
+     *                             the class is instrumented (by retransformation) the first time one of them is called in
+     *                             a fiber. See {@link LazyInstrumentation}.
+     */
+    public InstrumentClass(ClassVisitor cv, MethodDatabase db, boolean forceInstrumentation, boolean deferInstrumentation) {
+        super(Opcodes.ASM5, cv);
         this.db = db;
         this.classifier = db.getClassifier();
         this.forceInstrumentation = forceInstrumentation;
+        this.deferInstrumentation = deferInstrumentation;
     }
 
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         this.className = name;
+        this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
         this.classEntry = db.getOrCreateClassEntry(className, superName);
         classEntry.setInterfaces(interfaces);
 
@@ -98,6 +115,13 @@ public class InstrumentClass extends ClassVisitor {
         return super.visitAnnotation(desc, visible);
     }
 
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        if ((access & Opcodes.ACC_FINAL) != 0)
+            finalFields.add(name);
+        return super.visitField(access, name, desc, signature, value);
+    }
+
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
         final SuspendableType markedSuspendable = classifier.isSuspendable(className, classEntry.getSuperName(), classEntry.getInterfaces(), name, desc, signature, exceptions);
@@ -120,7 +144,7 @@ public class InstrumentClass extends ClassVisitor {
                 methods.add(mn);
                 return mn; // this causes the mn to be initialized
             } else { // look for @Suspendable annotation
-                return new MethodVisitor(Opcodes.ASM4, mn) {
+                return new MethodVisitor(Opcodes.ASM5, mn) {
                     private boolean susp = false;
                     private boolean commited = false;
 
@@ -156,7 +180,7 @@ public class InstrumentClass extends ClassVisitor {
                         else {
                             MethodVisitor _mv = makeOutMV(mn);
                             _mv = new JSRInlinerAdapter(_mv, access, name, desc, signature, exceptions);
-                            mn.accept(new MethodVisitor(Opcodes.ASM4, _mv) {
+                            mn.accept(new MethodVisitor(Opcodes.ASM5, _mv) {
                                 @Override
                                 public void visitEnd() {
                                     // don't call visitEnd on MV
@@ -181,7 +205,17 @@ public class InstrumentClass extends ClassVisitor {
             if (alreadyInstrumented && !forceInstrumentation) {
                 for (MethodNode mn : methods)
                     mn.accept(makeOutMV(mn));
+            } else if (deferInstrumentation && !forceInstrumentation) {
+                if (db.isDebug())
+                    db.log(LogLevel.INFO, "Deferring instrumentation of %s", className);
+                classEntry.setDeferred(true);
+
+                for (MethodNode mn : methods) {
+                    final MethodVisitor outMV = makeOutMV(mn);
+                    mn.accept(mn.name.charAt(0) == '<' ? outMV : LazyInstrumentation.trapping(outMV, className, isInterface, mn.access, mn.name, mn.desc));
+                }
             } else {
+                classEntry.setDeferred(false);
                 if (!alreadyInstrumented) {
                     super.visitAnnotation(ALREADY_INSTRUMENTED_NAME, true);
                     classEntry.setInstrumented(true);
@@ -197,7 +231,12 @@ public class InstrumentClass extends ClassVisitor {
                         if (im.collectCodeBlocks()) {
                             if (mn.name.charAt(0) == '<')
                                 throw new UnableToInstrumentException("special method", className, mn.name, mn.desc);
-                            im.accept(outMV, hasAnnotation(mn));
+                            if (im.isTrivialDelegate(finalFields)) {
+                                if (db.isDebug())
+                                    db.log(LogLevel.INFO, "Method %s#%s%s is a trivial delegate and needs no frame", className, mn.name, mn.desc);
+                                mn.accept(outMV);
+                            } else
+                                im.accept(outMV, hasAnnotation(mn));
                         } else
                             mn.accept(outMV);
                     } catch (AnalyzerException ex) {
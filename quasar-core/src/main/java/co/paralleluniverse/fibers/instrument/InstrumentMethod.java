@@ -49,17 +49,21 @@ import static co.paralleluniverse.fibers.instrument.Classes.isBlockingCall;
 import static co.paralleluniverse.fibers.instrument.Classes.isYieldMethod;
 import co.paralleluniverse.fibers.instrument.MethodDatabase.SuspendableType;
 import static co.paralleluniverse.fibers.instrument.MethodDatabase.isInvocationHandlerInvocation;
+import static co.paralleluniverse.fibers.instrument.MethodDatabase.isLambdaMetafactory;
 import static co.paralleluniverse.fibers.instrument.MethodDatabase.isMethodHandleInvocation;
 import static co.paralleluniverse.fibers.instrument.MethodDatabase.isReflectInvocation;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
 import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodInsnNode;
@@ -147,8 +151,15 @@ class InstrumentMethod {
                             } else if (susp)
                                 db.log(LogLevel.DEBUG, "Method call at instruction %d to %s#%s%s is suspendable", i, min.owner, min.name, min.desc);
                         }
-                    } else // invoke dynamic
-                        db.log(LogLevel.DEBUG, "InvokeDynamic Method call at instruction %d to is assumed suspendable", i);
+                    } else { // invoke dynamic
+                        final InvokeDynamicInsnNode idin = (InvokeDynamicInsnNode) in;
+                        if (isLambdaMetafactory(idin.bsm.getOwner())) {
+                            // the call site only creates the lambda object; the lambda body, if suspendable, is instrumented on its own
+                            db.log(LogLevel.DEBUG, "Lambda creation at instruction %d is not suspendable", i);
+                            continue;
+                        }
+                        db.log(LogLevel.DEBUG, "InvokeDynamic Method call at instruction %d to %s%s is assumed suspendable", i, idin.name, idin.desc);
+                    }
 
                     if (susp) {
                         FrameInfo fi = addCodeBlock(f, i);
@@ -177,6 +188,67 @@ class InstrumentMethod {
         return numCodeBlocks > 1;
     }
 
+    /**
+     * Tests whether this method is a trivial delegate: a single suspendable call, preceded only by loads of locals,
+     * constants and final fields of this class, and followed only by a return.
+     * Such a method needs no frame of its own. When the fiber is resumed, re-running it from the start reaches the very
+     * same call with the very same arguments, so, just like a reflection frame, it simply forwards the call to the
+     * resumed callee.
+     * Must be called after {@link #collectCodeBlocks() collectCodeBlocks}.
+     *
+     * @param finalFields the names of this class's final fields
+     */
+    public boolean isTrivialDelegate(Set<String> finalFields) {
+        if (numCodeBlocks != 2 || !mn.tryCatchBlocks.isEmpty())
+            return false;
+        if (mn.name.charAt(0) == '<' || (mn.access & Opcodes.ACC_SYNCHRONIZED) != 0)
+            return false;
+
+        final int callIdx = codeBlocks[1].endInstruction;
+        final MethodInsnNode call = getMethodInsn(codeBlocks[1]);
+        if (call == null || isYieldMethod(call.owner, call.name) || isReflectInvocation(call.owner, call.name))
+            return false;
+
+        boolean returned = false;
+        for (int i = 0, n = mn.instructions.size(); i < n; i++) {
+            final AbstractInsnNode in = mn.instructions.get(i);
+            final int opcode = in.getOpcode();
+            if (opcode < 0 || i == callIdx)
+                continue; // label, line number or frame
+            if (returned)
+                return false;
+            if (i < callIdx) {
+                if (!isReplayable(in, finalFields))
+                    return false;
+            } else {
+                if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+                    returned = true;
+                else if (opcode != Opcodes.CHECKCAST && opcode != Opcodes.POP && opcode != Opcodes.POP2)
+                    return false;
+            }
+        }
+        return returned;
+    }
+
+    // instructions that produce the same values when re-run on resume, and have no side effects
+    private boolean isReplayable(AbstractInsnNode in, Set<String> finalFields) {
+        final int opcode = in.getOpcode();
+        switch (opcode) {
+            case Opcodes.GETFIELD:
+            case Opcodes.GETSTATIC:
+                final FieldInsnNode fin = (FieldInsnNode) in;
+                return fin.owner.equals(className) && finalFields.contains(fin.name);
+            case Opcodes.CHECKCAST:
+            case Opcodes.LDC:
+            case Opcodes.BIPUSH:
+            case Opcodes.SIPUSH:
+                return true;
+            default:
+                return (opcode >= Opcodes.ACONST_NULL && opcode <= Opcodes.DCONST_1)
+                        || (opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD);
+        }
+    }
+
     public void accept(MethodVisitor mv, boolean hasAnnotation) {
         db.log(LogLevel.INFO, "Instrumenting method %s#%s%s", className, mn.name, mn.desc);
 
@@ -204,8 +276,8 @@ class InstrumentMethod {
         Label[][] refInvokeTryCatch = new Label[numCodeBlocks - 1][];
         for (int i = 1; i < numCodeBlocks; i++) {
             FrameInfo fi = codeBlocks[i];
-            MethodInsnNode min = (MethodInsnNode) (mn.instructions.get(fi.endInstruction));
-            if (isReflectInvocation(min.owner, min.name)) {
+            MethodInsnNode min = getMethodInsn(fi);
+            if (min != null && isReflectInvocation(min.owner, min.name)) {
                 Label[] ls = new Label[3];
                 for (int k = 0; k < 3; k++)
                     ls[k] = new Label();
@@ -239,7 +311,7 @@ class InstrumentMethod {
 
         mv.visitTryCatchBlock(lMethodStart, lMethodEnd, lCatchAll, null);
 
-        mv.visitMethodInsn(Opcodes.INVOKESTATIC, STACK_NAME, "getStack", "()L" + STACK_NAME + ";");
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, STACK_NAME, "getStack", "()L" + STACK_NAME + ";", false);
         mv.visitInsn(Opcodes.DUP);
         mv.visitVarInsn(Opcodes.ASTORE, lvarStack);
 
@@ -250,7 +322,7 @@ class InstrumentMethod {
 
         emitStoreResumed(mv, true); // we'll assume we have been resumed
 
-        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "nextMethodEntry", "()I");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "nextMethodEntry", "()I", false);
         mv.visitTableSwitchInsn(1, numCodeBlocks - 1, lMethodStart, lMethodCalls);
 
         mv.visitLabel(lMethodStart);
@@ -262,8 +334,8 @@ class InstrumentMethod {
         for (int i = 1; i < numCodeBlocks; i++) {
             FrameInfo fi = codeBlocks[i];
 
-            MethodInsnNode min = (MethodInsnNode) (mn.instructions.get(fi.endInstruction));
-            if (isYieldMethod(min.owner, min.name)) { // special case - call to yield
+            MethodInsnNode min = getMethodInsn(fi); // null for invokedynamic call sites
+            if (min != null && isYieldMethod(min.owner, min.name)) { // special case - call to yield
                 if (min.getOpcode() != Opcodes.INVOKESTATIC)
                     throw new UnableToInstrumentException("invalid call to suspending method.", className, mn.name, mn.desc);
 
@@ -307,7 +379,7 @@ class InstrumentMethod {
                 if (DUAL)
                     mv.visitLabel(lbl);
 
-                if (isReflectInvocation(min.owner, min.name)) {
+                if (min != null && isReflectInvocation(min.owner, min.name)) {
                     // We catch the InvocationTargetException and unwrap it if it wraps a SuspendExecution exception.
                     Label[] ls = refInvokeTryCatch[i - 1];
                     final Label startTry = ls[0];
@@ -322,7 +394,7 @@ class InstrumentMethod {
                     mv.visitLabel(endTry);     // }
                     mv.visitJumpInsn(Opcodes.GOTO, endCatch);
                     mv.visitLabel(startCatch); // catch(InvocationTargetException ex) {
-                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/reflect/InvocationTargetException", "getCause", "()Ljava/lang/Throwable;");
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/reflect/InvocationTargetException", "getCause", "()Ljava/lang/Throwable;", false);
                     mv.visitVarInsn(Opcodes.ASTORE, lvarInvocationExceptionCause); // Throwable t = ex.getCause();
                     mv.visitVarInsn(Opcodes.ALOAD, lvarInvocationExceptionCause);
                     mv.visitTypeInsn(Opcodes.INSTANCEOF, EXCEPTION_NAME);
@@ -355,6 +427,11 @@ class InstrumentMethod {
         mv.visitEnd();
     }
 
+    private MethodInsnNode getMethodInsn(FrameInfo fi) {
+        final AbstractInsnNode in = mn.instructions.get(fi.endInstruction);
+        return in.getType() == AbstractInsnNode.METHOD_INSN ? (MethodInsnNode) in : null;
+    }
+
     private FrameInfo addCodeBlock(Frame f, int end) {
         if (++numCodeBlocks == codeBlocks.length) {
             FrameInfo[] newArray = new FrameInfo[numCodeBlocks * 2];
@@ -522,7 +599,7 @@ class InstrumentMethod {
         }
 
         mv.visitVarInsn(Opcodes.ALOAD, lvarStack);
-        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "popMethod", "()V");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "popMethod", "()V", false);
 
         if (DUAL)
             mv.visitLabel(lbl);
@@ -537,7 +614,7 @@ class InstrumentMethod {
         mv.visitVarInsn(Opcodes.ALOAD, lvarStack);
         emitConst(mv, idx);
         emitConst(mv, fi.numSlots);
-        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "pushMethod", "(II)V");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "pushMethod", "(II)V", false);
 
         // store operand stack
         for (int i = f.getStackSize(); i-- > 0;) {
@@ -618,7 +695,7 @@ class InstrumentMethod {
 
     private void emitPostRestore(MethodVisitor mv) {
         mv.visitVarInsn(Opcodes.ALOAD, lvarStack);
-        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "postRestore", "()V");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "postRestore", "()V", false);
     }
 
     private void emitPreemptionPoint(MethodVisitor mv, int type) {
@@ -639,7 +716,7 @@ class InstrumentMethod {
             default:
                 throw new AssertionError("Unsupported type: " + type);
         }
-        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "preemptionPoint", "(I)V");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "preemptionPoint", "(I)V", false);
     }
 
     private void emitStoreValue(MethodVisitor mv, BasicValue v, int lvarStack, int idx) throws InternalError, IndexOutOfBoundsException {
@@ -672,7 +749,7 @@ class InstrumentMethod {
 
         mv.visitVarInsn(Opcodes.ALOAD, lvarStack);
         emitConst(mv, idx);
-        mv.visitMethodInsn(Opcodes.INVOKESTATIC, STACK_NAME, "push", desc);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, STACK_NAME, "push", desc, false);
     }
 
     private void emitRestoreValue(MethodVisitor mv, BasicValue v, int lvarStack, int idx) {
@@ -682,39 +759,39 @@ class InstrumentMethod {
         switch (v.getType().getSort()) {
             case Type.OBJECT:
                 String internalName = v.getType().getInternalName();
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getObject", "(I)Ljava/lang/Object;");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getObject", "(I)Ljava/lang/Object;", false);
                 if (!internalName.equals("java/lang/Object")) {  // don't cast to Object ;)
                     mv.visitTypeInsn(Opcodes.CHECKCAST, internalName);
                 }
                 break;
             case Type.ARRAY:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getObject", "(I)Ljava/lang/Object;");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getObject", "(I)Ljava/lang/Object;", false);
                 mv.visitTypeInsn(Opcodes.CHECKCAST, v.getType().getDescriptor());
                 break;
             case Type.BYTE:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I", false);
                 mv.visitInsn(Opcodes.I2B);
                 break;
             case Type.SHORT:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I", false);
                 mv.visitInsn(Opcodes.I2S);
                 break;
             case Type.CHAR:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I", false);
                 mv.visitInsn(Opcodes.I2C);
                 break;
             case Type.BOOLEAN:
             case Type.INT:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getInt", "(I)I", false);
                 break;
             case Type.FLOAT:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getFloat", "(I)F");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getFloat", "(I)F", false);
                 break;
             case Type.LONG:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getLong", "(I)J");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getLong", "(I)J", false);
                 break;
             case Type.DOUBLE:
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getDouble", "(I)D");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STACK_NAME, "getDouble", "(I)D", false);
                 break;
             default:
                 throw new InternalError("Unexpected type: " + v.getType());
@@ -0,0 +1,538 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import static co.paralleluniverse.fibers.instrument.Classes.ANNOTATION_DESC;
+import static co.paralleluniverse.fibers.instrument.Classes.isAllowedToBlock;
+import static co.paralleluniverse.fibers.instrument.Classes.isBlockingCall;
+import static co.paralleluniverse.fibers.instrument.Classes.isYieldMethod;
+import co.paralleluniverse.fibers.instrument.MethodDatabase.ClassEntry;
+import co.paralleluniverse.fibers.instrument.MethodDatabase.SuspendableType;
+import static co.paralleluniverse.fibers.instrument.MethodDatabase.isInvocationHandlerInvocation;
+import static co.paralleluniverse.fibers.instrument.MethodDatabase.isLambdaMetafactory;
+import static co.paralleluniverse.fibers.instrument.MethodDatabase.isMethodHandleInvocation;
+import static co.paralleluniverse.fibers.instrument.MethodDatabase.isReflectInvocation;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+
+/**
+ * Verifies, offline, that the classes on a classpath can be properly run in fibers, and produces a report of all
+ * problematic suspendable call sites, along with suspendable-call coverage metrics.
+ * <p/>
+ * The verifier finds:
+ * <ul>
+ * <li>calls to suspendable methods from methods that aren't suspendable (and so will never be instrumented),</li>
+ * <li>calls to suspendable methods from classes that have not been instrumented, when verifying classes that
+ * are expected to have been instrumented ahead of time (by {@link InstrumentationTask}),</li>
+ * <li>suspendable calls made while holding a monitor (in {@code synchronized} methods or blocks), as determined by a
+ * control-flow analysis of each method,</li>
+ * <li>calls to thread-blocking JDK APIs from suspendable methods.</li>
+ * </ul>
+ * Call sites other than lambda creation in {@code invokedynamic} instructions are assumed to be suspendable in
+ * suspendable methods, as they are by the instrumentation.
+ * <p/>
+ * A classpath that passes verification can be run without {@code co.paralleluniverse.fibers.verifyInstrumentation}.
+ * <p/>
+ * Usage: {@code InstrumentationVerifier [-aot] [-m] [-b] [-x exclusions-file] classpath-entry...}, where {@code -aot}
+ * requires all classes with suspendable methods to be instrumented, and {@code -m}/{@code -b} tolerate
+ * monitors/blocking calls the same way the {@code m}/{@code b} agent options do. The exclusions file lists the methods,
+ * one {@code internal/class/Name#method} per line, whose call sites are known to only be reached by threads and are
+ * not checked; lines starting with {@code #} are comments. The process exits with status 1 if any intolerable problem
+ * is found.
+ *
+ * @author pron
+ */
+public class InstrumentationVerifier {
+    private static final String CLASSFILE_SUFFIX = ".class";
+    private final MethodDatabase db;
+    private final SuspendableClassifier classifier;
+    private boolean aheadOfTime;
+    private final Set<String> excluded = new HashSet<String>();
+    private final Report report = new Report();
+
+    public InstrumentationVerifier(ClassLoader classLoader) {
+        this.db = new MethodDatabase(classLoader, DefaultSuspendableClassifier.instance());
+        this.classifier = db.getClassifier();
+    }
+
+    public static void main(String args[]) throws Exception {
+        final List<File> entries = new ArrayList<File>();
+        boolean aot = false;
+        boolean allowMonitors = false;
+        boolean allowBlocking = false;
+        final List<String> exclusions = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            switch (arg) {
+                case "-aot":
+                    aot = true;
+                    break;
+                case "-m":
+                    allowMonitors = true;
+                    break;
+                case "-b":
+                    allowBlocking = true;
+                    break;
+                case "-x":
+                    exclusions.addAll(readExclusions(new File(args[++i])));
+                    break;
+                default:
+                    for (String path : arg.split(File.pathSeparator)) {
+                        if (!path.isEmpty())
+                            entries.add(new File(path));
+                    }
+            }
+        }
+
+        final URL[] urls = new URL[entries.size()];
+        for (int i = 0; i < urls.length; i++)
+            urls[i] = entries.get(i).toURI().toURL();
+
+        final InstrumentationVerifier verifier = new InstrumentationVerifier(new URLClassLoader(urls, InstrumentationVerifier.class.getClassLoader()));
+        verifier.setAheadOfTime(aot);
+        verifier.setAllowMonitors(allowMonitors);
+        verifier.setAllowBlocking(allowBlocking);
+        verifier.exclude(exclusions);
+        for (File entry : entries)
+            verifier.verify(entry);
+
+        final Report report = verifier.getReport();
+        report.print(System.out);
+        System.exit(report.hasErrors() ? 1 : 0);
+    }
+
+    /**
+     * Whether classes containing suspendable methods are expected to have been instrumented ahead of time, rather than
+     * by the Java agent.
+     */
+    public void setAheadOfTime(boolean aheadOfTime) {
+        this.aheadOfTime = aheadOfTime;
+    }
+
+    public void setAllowMonitors(boolean allowMonitors) {
+        db.setAllowMonitors(allowMonitors);
+    }
+
+    public void setAllowBlocking(boolean allowBlocking) {
+        db.setAllowBlocking(allowBlocking);
+    }
+
+    /**
+     * Excludes the call sites in the given methods, each given as {@code internal/class/Name#method}, from
+     * verification.
+     */
+    public void exclude(Iterable<String> methods) {
+        for (String m : methods)
+            excluded.add(m);
+    }
+
+    private static List<String> readExclusions(File file) throws IOException {
+        final List<String> exclusions = new ArrayList<String>();
+        try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+            for (String line; (line = r.readLine()) != null;) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    exclusions.add(line);
+            }
+        }
+        return exclusions;
+    }
+
+    public void setLog(Log log) {
+        db.setLog(log);
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Verifies all classes in the given directory or jar file.
+     */
+    public void verify(File file) throws IOException {
+        if (file.isDirectory()) {
+            for (File f : file.listFiles())
+                verify(f);
+        } else if (file.getName().endsWith(CLASSFILE_SUFFIX)) {
+            try (InputStream is = new FileInputStream(file)) {
+                verify(is);
+            }
+        } else if (file.getName().endsWith(".jar")) {
+            try (JarFile jar = new JarFile(file)) {
+                for (Enumeration<JarEntry> es = jar.entries(); es.hasMoreElements();) {
+                    final JarEntry e = es.nextElement();
+                    if (e.getName().endsWith(CLASSFILE_SUFFIX)) {
+                        try (InputStream is = jar.getInputStream(e)) {
+                            verify(is);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies a single class file.
+     */
+    public void verify(InputStream classFile) throws IOException {
+        final ClassNode cn = new ClassNode();
+        new ClassReader(classFile).accept(cn, ClassReader.SKIP_FRAMES);
+        verify(cn);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verify(ClassNode cn) {
+        if (cn.name.equals(Classes.COROUTINE_NAME) || cn.name.startsWith(Classes.COROUTINE_NAME + '$'))
+            return; // never instrumented
+        final String[] interfaces = ((List<String>) cn.interfaces).toArray(new String[cn.interfaces.size()]);
+        final ClassEntry entry = new ClassEntry(cn.superName);
+        entry.setInterfaces(interfaces);
+
+        final List<MethodNode> methods = (List<MethodNode>) cn.methods;
+        boolean hasSuspendables = false;
+        for (MethodNode mn : methods) {
+            SuspendableType st = classifier.isSuspendable(cn.name, cn.superName, interfaces, mn.name, mn.desc, mn.signature,
+                    ((List<String>) mn.exceptions).toArray(new String[mn.exceptions.size()]));
+            if (st == null)
+                st = hasAnnotation(mn.visibleAnnotations, ANNOTATION_DESC) ? SuspendableType.SUSPENDABLE : SuspendableType.NON_SUSPENDABLE;
+            entry.set(mn.name, mn.desc, st);
+            hasSuspendables |= (st == SuspendableType.SUSPENDABLE && (mn.access & Opcodes.ACC_ABSTRACT) == 0);
+        }
+        db.recordSuspendableMethods(cn.name, entry);
+
+        final boolean instrumented = hasAnnotation(cn.visibleAnnotations, InstrumentClass.ALREADY_INSTRUMENTED_NAME);
+        report.classes++;
+        if (hasSuspendables)
+            report.classesWithSuspendables++;
+        if (instrumented)
+            report.instrumentedClasses++;
+
+        for (MethodNode mn : methods) {
+            if ((mn.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0 && !excluded.contains(cn.name + '#' + mn.name))
+                verifyMethod(cn.name, mn, entry.check(mn.name, mn.desc) == SuspendableType.SUSPENDABLE, instrumented);
+        }
+    }
+
+    private void verifyMethod(String className, MethodNode mn, boolean suspendable, boolean instrumented) {
+        if (suspendable)
+            report.suspendableMethods++;
+
+        final boolean synchronizedMethod = (mn.access & Opcodes.ACC_SYNCHRONIZED) != 0;
+        final int[] monitors = monitorDepths(className, mn);
+        int line = -1;
+
+        int i = 0;
+        for (AbstractInsnNode in = mn.instructions.getFirst(); in != null; in = in.getNext(), i++) {
+            switch (in.getType()) {
+                case AbstractInsnNode.LINE:
+                    line = ((LineNumberNode) in).line;
+                    break;
+                case AbstractInsnNode.METHOD_INSN:
+                    final MethodInsnNode min = (MethodInsnNode) in;
+                    final String callee = min.owner + "#" + min.name + min.desc;
+                    if (isSuspendableCall(min)) {
+                        report.suspendableCallSites++;
+                        if (!suspendable)
+                            report.add(IssueType.UNINSTRUMENTED_CALLER, className, mn, line, callee);
+                        else if (aheadOfTime && !instrumented)
+                            report.add(IssueType.NOT_INSTRUMENTED, className, mn, line, callee);
+                        if (synchronizedMethod || monitors[i] > 0)
+                            report.add(IssueType.MONITOR, className, mn, line, callee);
+                    } else if (suspendable && isBlockingCall(min) >= 0 && !isAllowedToBlock(className, mn.name))
+                        report.add(IssueType.BLOCKING, className, mn, line, callee);
+                    break;
+                case AbstractInsnNode.INVOKE_DYNAMIC_INSN:
+                    final InvokeDynamicInsnNode idin = (InvokeDynamicInsnNode) in;
+                    if (suspendable && !isLambdaMetafactory(idin.bsm.getOwner())) {
+                        // the instrumentation assumes such a call site is suspendable
+                        final String dynCallee = "invokedynamic " + idin.name + idin.desc;
+                        report.suspendableCallSites++;
+                        if (aheadOfTime && !instrumented)
+                            report.add(IssueType.NOT_INSTRUMENTED, className, mn, line, dynCallee);
+                        if (synchronizedMethod || monitors[i] > 0)
+                            report.add(IssueType.MONITOR, className, mn, line, dynCallee);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Computes the number of monitors held (by {@code monitorenter} instructions in the method) on entry to each
+     * instruction, following the method's normal and exceptional control flow. Where paths with different numbers of
+     * monitors meet, the larger is taken.
+     */
+    static int[] monitorDepths(String className, MethodNode mn) {
+        final int n = mn.instructions.size();
+        final int[] depth = new int[n];
+        int enters = 0;
+        for (AbstractInsnNode in = mn.instructions.getFirst(); in != null; in = in.getNext()) {
+            if (in.getOpcode() == Opcodes.MONITORENTER)
+                enters++;
+        }
+        if (enters == 0)
+            return depth;
+
+        final List<List<Integer>> successors = new ArrayList<List<Integer>>(n);
+        final List<List<Integer>> handlers = new ArrayList<List<Integer>>(n);
+        for (int i = 0; i < n; i++) {
+            successors.add(new ArrayList<Integer>(2));
+            handlers.add(new ArrayList<Integer>(1));
+        }
+        try {
+            new Analyzer(new BasicInterpreter()) {
+                @Override
+                protected void newControlFlowEdge(int insn, int successor) {
+                    successors.get(insn).add(successor);
+                }
+
+                @Override
+                protected boolean newControlFlowExceptionEdge(int insn, int successor) {
+                    handlers.get(insn).add(successor);
+                    return true;
+                }
+            }.analyze(className, mn);
+        } catch (AnalyzerException e) {
+            // e.g. JSR instructions in old class files; fall back to counting monitors in instruction order
+            int monitors = 0;
+            int i = 0;
+            for (AbstractInsnNode in = mn.instructions.getFirst(); in != null; in = in.getNext(), i++) {
+                depth[i] = monitors;
+                if (in.getOpcode() == Opcodes.MONITORENTER)
+                    monitors++;
+                else if (in.getOpcode() == Opcodes.MONITOREXIT && monitors > 0)
+                    monitors--;
+            }
+            return depth;
+        }
+
+        Arrays.fill(depth, -1); // unreached
+        final Deque<Integer> work = new ArrayDeque<Integer>();
+        depth[0] = 0;
+        work.add(0);
+        while (!work.isEmpty()) {
+            final int i = work.poll();
+            final int op = mn.instructions.get(i).getOpcode();
+            final int out = Math.max(0, Math.min(enters,
+                    depth[i] + (op == Opcodes.MONITORENTER ? 1 : op == Opcodes.MONITOREXIT ? -1 : 0)));
+            for (int s : successors.get(i)) {
+                if (out > depth[s]) {
+                    depth[s] = out;
+                    work.add(s);
+                }
+            }
+            for (int h : handlers.get(i)) { // an exception thrown by the instruction leaves the monitors as they were
+                if (depth[i] > depth[h]) {
+                    depth[h] = depth[i];
+                    work.add(h);
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (depth[i] < 0)
+                depth[i] = 0;
+        }
+        return depth;
+    }
+
+    private boolean isSuspendableCall(MethodInsnNode min) {
+        if (isYieldMethod(min.owner, min.name))
+            return true;
+        if (isReflectInvocation(min.owner, min.name) || isMethodHandleInvocation(min.owner, min.name) || isInvocationHandlerInvocation(min.owner, min.name))
+            return false; // can't tell; these are only a problem if the target is suspendable, and that's checked at runtime
+        if (min.name.charAt(0) == '<')
+            return false;
+        final SuspendableType st = db.isMethodSuspendable(min.owner, min.name, min.desc, min.getOpcode());
+        return st == SuspendableType.SUSPENDABLE || st == SuspendableType.SUSPENDABLE_SUPER;
+    }
+
+    private static boolean hasAnnotation(List<?> annotations, String desc) {
+        if (annotations != null) {
+            for (Object o : annotations) {
+                if (((AnnotationNode) o).desc.equals(desc))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public enum IssueType {
+        /**
+         * A suspendable method is called by a method that isn't suspendable, and so will never be instrumented.
+         */
+        UNINSTRUMENTED_CALLER,
+        /**
+         * A suspendable method is called from a class that was expected to be instrumented ahead of time, but wasn't.
+         */
+        NOT_INSTRUMENTED,
+        /**
+         * A suspendable method is called while holding a monitor.
+         */
+        MONITOR,
+        /**
+         * A suspendable method makes a thread-blocking call.
+         */
+        BLOCKING
+    }
+
+    public static final class Issue {
+        private final IssueType type;
+        private final String className;
+        private final String methodName;
+        private final String methodDesc;
+        private final int line;
+        private final String callee;
+
+        Issue(IssueType type, String className, String methodName, String methodDesc, int line, String callee) {
+            this.type = type;
+            this.className = className;
+            this.methodName = methodName;
+            this.methodDesc = methodDesc;
+            this.line = line;
+            this.callee = callee;
+        }
+
+        public IssueType getType() {
+            return type;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public String getMethodDesc() {
+            return methodDesc;
+        }
+
+        /**
+         * The source line of the call site, or {@code -1} if unknown.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getCallee() {
+            return callee;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + className + "#" + methodName + methodDesc + (line >= 0 ? " (line " + line + ")" : "") + " calls " + callee;
+        }
+    }
+
+    /**
+     * The result of an instrumentation verification.
+     */
+    public final class Report {
+        private final List<Issue> issues = new ArrayList<Issue>();
+        private final int[] counts = new int[IssueType.values().length];
+        int classes;
+        int classesWithSuspendables;
+        int instrumentedClasses;
+        int suspendableMethods;
+        int suspendableCallSites;
+
+        void add(IssueType type, String className, MethodNode mn, int line, String callee) {
+            issues.add(new Issue(type, className, mn.name, mn.desc, line, callee));
+            counts[type.ordinal()]++;
+        }
+
+        public List<Issue> getIssues() {
+            return Collections.unmodifiableList(issues);
+        }
+
+        public int getIssueCount(IssueType type) {
+            return counts[type.ordinal()];
+        }
+
+        public int getClassCount() {
+            return classes;
+        }
+
+        public int getSuspendableMethodCount() {
+            return suspendableMethods;
+        }
+
+        public int getSuspendableCallSiteCount() {
+            return suspendableCallSites;
+        }
+
+        /**
+         * The fraction of suspendable call sites that are instrumented, i.e., that don't reside in non-suspendable methods
+         * (or in classes that should have been, but weren't, instrumented ahead of time).
+         */
+        public double getCoverage() {
+            if (suspendableCallSites == 0)
+                return 1.0;
+            return 1.0 - (double) (getIssueCount(IssueType.UNINSTRUMENTED_CALLER) + getIssueCount(IssueType.NOT_INSTRUMENTED)) / suspendableCallSites;
+        }
+
+        /**
+         * Whether the report contains problems that are not tolerated by the verifier's settings.
+         */
+        public boolean hasErrors() {
+            return getIssueCount(IssueType.UNINSTRUMENTED_CALLER) > 0
+                    || getIssueCount(IssueType.NOT_INSTRUMENTED) > 0
+                    || (getIssueCount(IssueType.MONITOR) > 0 && !db.isAllowMonitors())
+                    || (getIssueCount(IssueType.BLOCKING) > 0 && !db.isAllowBlocking());
+        }
+
+        public void print(PrintStream out) {
+            out.println("QUASAR INSTRUMENTATION VERIFICATION REPORT");
+            out.println("classes: " + classes + " (with suspendable methods: " + classesWithSuspendables + ", instrumented: " + instrumentedClasses + ")");
+            out.println("suspendable methods: " + suspendableMethods);
+            out.println("suspendable call sites: " + suspendableCallSites);
+            out.println(String.format("instrumented call site coverage: %.2f%%", getCoverage() * 100));
+            for (IssueType type : IssueType.values())
+                out.println(type + ": " + getIssueCount(type));
+            for (Issue issue : issues)
+                out.println(issue);
+        }
+    }
+}
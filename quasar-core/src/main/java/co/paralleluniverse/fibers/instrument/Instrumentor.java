@@ -71,21 +71,25 @@ final class Instrumentor {
     }
     
     public byte[] instrumentClass(String className, byte[] data) {
-        return instrumentClass(className, new ClassReader(data));
+        return instrumentClass(className, data, false);
+    }
+
+    public byte[] instrumentClass(String className, byte[] data, boolean defer) {
+        return instrumentClass(className, new ClassReader(data), defer);
     }
     
     public byte[] instrumentClass(String className, FileInputStream fis) throws IOException {
-        return instrumentClass(className, new ClassReader(fis));
+        return instrumentClass(className, new ClassReader(fis), false);
     }
     
-    private byte[] instrumentClass(String className, ClassReader r) {
+    private byte[] instrumentClass(String className, ClassReader r, boolean defer) {
         final ClassWriter cw = new DBClassWriter(db, r);
         ClassVisitor cv = (check && EXAMINED_CLASS == null) ? new CheckClassAdapter(cw) : cw;
 
         if (EXAMINED_CLASS != null && className.startsWith(EXAMINED_CLASS))
             cv = new TraceClassVisitor(cv, new PrintWriter(System.out));
 
-        final InstrumentClass ic = new InstrumentClass(cv, db, false);
+        final InstrumentClass ic = new InstrumentClass(cv, db, false, defer);
         r.accept(ic, ClassReader.SKIP_FRAMES);
         final byte[] transformed = cw.toByteArray();
 
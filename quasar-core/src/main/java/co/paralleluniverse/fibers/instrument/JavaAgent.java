@@ -99,6 +99,7 @@ public class JavaAgent {
 
         final Instrumentor instrumentor = new Instrumentor(Thread.currentThread().getContextClassLoader(), DefaultSuspendableClassifier.instance());
         boolean checkArg = false;
+        boolean lazy = false;
         active = true;
 
         if (agentArguments != null) {
@@ -124,8 +125,12 @@ public class JavaAgent {
                         instrumentor.setAllowBlocking(true);
                         break;
 
+                    case 'l':
+                        lazy = true;
+                        break;
+
                     default:
-                        throw new IllegalStateException("Usage: vdmc (verbose, debug, allow monitors, check class)");
+                        throw new IllegalStateException("Usage: vdmcbl (verbose, debug, allow monitors, check class, allow blocking, lazy)");
                 }
             }
         }
@@ -147,7 +152,7 @@ public class JavaAgent {
         Retransform.db = instrumentor.getMethodDatabase();
         Retransform.classLoaders = classLoaders;
 
-        instrumentation.addTransformer(new Transformer(instrumentor), true);
+        instrumentation.addTransformer(new Transformer(instrumentor, lazy), true);
     }
 
     public static boolean isActive() {
@@ -156,9 +161,11 @@ public class JavaAgent {
 
     private static class Transformer implements ClassFileTransformer {
         private final Instrumentor instrumentor;
+        private final boolean lazy;
 
-        public Transformer(Instrumentor instrumentor) {
+        public Transformer(Instrumentor instrumentor, boolean lazy) {
             this.instrumentor = instrumentor;
+            this.lazy = lazy;
         }
 
         @Override
@@ -171,6 +178,8 @@ public class JavaAgent {
                 return null;
             if (MethodDatabase.isJavaCore(className))
                 return null;
+            if (className.equals(LazyInstrumentation.NAME))
+                return null;
 
             final MethodDatabase db = instrumentor.getMethodDatabase();
             instrumentor.log(LogLevel.INFO, "TRANSFORM: %s %s", className, (db.getClassEntry(className) != null && db.getClassEntry(className).requiresInstrumentation()) ? "request" : "");
@@ -180,7 +189,8 @@ public class JavaAgent {
             classLoaders.add(new WeakReference<ClassLoader>(loader));
 
             try {
-                final byte[] tranformed = instrumentor.instrumentClass(className, classfileBuffer);
+                // when lazy, classes are fully instrumented only when retransformed
+                final byte[] tranformed = instrumentor.instrumentClass(className, classfileBuffer, lazy && classBeingRedefined == null);
 
                 Retransform.afterTransform(className, classBeingRedefined, tranformed);
 
@@ -0,0 +1,108 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import static co.paralleluniverse.fibers.instrument.Classes.STACK_NAME;
+import java.lang.instrument.UnmodifiableClassException;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Support for lazy instrumentation (the agent's {@code l} option).
+ *
+ * When running lazily, the agent doesn't instrument classes as they're loaded. Instead, each suspendable method is
+ * prefixed with a small trap, which, when the method is called inside a fiber, retransforms the class (this time
+ * instrumenting it in full), and then calls the method again, non-virtually, so that the call runs the instrumented
+ * code. The trap's frames don't push anything onto the fiber stack, so, just like reflection frames, they simply
+ * forward the call when the fiber is resumed.
+ *
+ * @author pron
+ */
+public final class LazyInstrumentation {
+    static final String NAME = Type.getInternalName(LazyInstrumentation.class);
+
+    /**
+     * Called by an uninstrumented suspendable method when it's first run in a fiber.
+     * Instruments the method's class; the trap then re-invokes the method, non-virtually, so that the call runs the
+     * instrumented code of the very same method.
+     * This method must not be called directly.
+     *
+     * @param clazz the method's declaring class
+     */
+    public static void trap(Class<?> clazz) {
+        instrument(clazz);
+    }
+
+    static void instrument(Class<?> clazz) {
+        if (Retransform.isInstrumented(clazz))
+            return;
+        synchronized (clazz) {
+            if (Retransform.isInstrumented(clazz))
+                return;
+            final MethodDatabase db = Retransform.getMethodDB();
+            if (db != null)
+                db.log(LogLevel.INFO, "Lazily instrumenting %s", clazz.getName());
+            try {
+                Retransform.retransform(clazz);
+            } catch (UnmodifiableClassException e) {
+                throw new RuntimeException("Class " + clazz.getName() + " cannot be instrumented", e);
+            }
+        }
+    }
+
+    /**
+     * Wraps a method visitor so that the trap is emitted at the start of the method's code.
+     */
+    static MethodVisitor trapping(MethodVisitor mv, final String className, final boolean isInterface, final int access, final String name, final String desc) {
+        return new MethodVisitor(Opcodes.ASM5, mv) {
+            @Override
+            public void visitCode() {
+                super.visitCode();
+                emitTrap(this.mv, className, isInterface, access, name, desc);
+            }
+        };
+    }
+
+    // if (Stack.getStack() != null) { trap(Foo.class); return Foo.name(args...); }
+    // The re-invocation is an invokespecial (or invokestatic), so it calls this method rather than an override of it.
+    private static void emitTrap(MethodVisitor mv, String className, boolean isInterface, int access, String name, String desc) {
+        final boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        final Type[] args = Type.getArgumentTypes(desc);
+        final Type ret = Type.getReturnType(desc);
+        final Label lBody = new Label();
+
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, STACK_NAME, "getStack", "()L" + STACK_NAME + ";", false);
+        mv.visitJumpInsn(Opcodes.IFNULL, lBody); // not in a fiber
+
+        mv.visitLdcInsn(Type.getObjectType(className));
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, NAME, "trap", "(Ljava/lang/Class;)V", false);
+
+        int var = 0;
+        if (!isStatic)
+            mv.visitVarInsn(Opcodes.ALOAD, var++);
+        for (Type arg : args) {
+            mv.visitVarInsn(arg.getOpcode(Opcodes.ILOAD), var);
+            var += arg.getSize();
+        }
+        mv.visitMethodInsn(isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKESPECIAL, className, name, desc, isInterface);
+        mv.visitInsn(ret.getOpcode(Opcodes.IRETURN));
+
+        mv.visitLabel(lBody);
+    }
+
+    private LazyInstrumentation() {
+    }
+}
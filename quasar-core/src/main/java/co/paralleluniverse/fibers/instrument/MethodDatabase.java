@@ -468,6 +468,10 @@ public class MethodDatabase implements Log {
         return className.equals("java/lang/invoke/MethodHandle") && methodName.startsWith("invoke");
     }
 
+    public static boolean isLambdaMetafactory(String bootstrapOwner) {
+        return bootstrapOwner.equals("java/lang/invoke/LambdaMetafactory");
+    }
+
     public static boolean isJavaCore(String className) {
         return className.startsWith("java/") || className.startsWith("javax/")
                 || className.startsWith("sun/") || className.startsWith("com/sun/");
@@ -488,6 +492,7 @@ public class MethodDatabase implements Log {
         private final String superName;
         private boolean instrumented;
         private volatile boolean requiresInstrumentation;
+        private volatile boolean deferred;
 
         public ClassEntry(String superName) {
             this.superName = superName;
@@ -563,13 +568,21 @@ public class MethodDatabase implements Log {
         public void setInstrumented(boolean instrumented) {
             this.instrumented = instrumented;
         }
+
+        public boolean isDeferred() {
+            return deferred;
+        }
+
+        public void setDeferred(boolean deferred) {
+            this.deferred = deferred;
+        }
     }
 
     public static class ExtractSuperClass extends ClassVisitor {
         String superClass;
 
         public ExtractSuperClass() {
-            super(Opcodes.ASM4);
+            super(Opcodes.ASM5);
         }
 
         @Override
@@ -52,6 +52,29 @@ public class Retransform {
         return clazz.isAnnotationPresent(Instrumented.class);
     }
 
+    /**
+     * Tests whether the given class is a proxy generated by {@code LambdaMetafactory}.
+     * Such classes are never instrumented, but as they simply delegate to the lambda's body, they needn't be.
+     */
+    public static boolean isLambdaProxy(Class clazz) {
+        return clazz.isSynthetic() && isLambdaProxy(clazz.getName());
+    }
+
+    /**
+     * Tests whether the given class has been loaded by the agent in lazy mode, and will be instrumented once any of its
+     * suspendable methods is called in a fiber.
+     */
+    public static boolean isDeferred(Class clazz) {
+        if (db == null)
+            return false;
+        final MethodDatabase.ClassEntry ce = db.getClassEntry(clazz.getName().replace('.', '/'));
+        return ce != null && ce.isDeferred();
+    }
+
+    static boolean isLambdaProxy(String className) {
+        return className.contains("$$Lambda$");
+    }
+
     public static boolean isInstrumented(String className) {
         for (Iterator<WeakReference<ClassLoader>> it = classLoaders.iterator(); it.hasNext();) {
             final WeakReference<ClassLoader> ref = it.next();
@@ -75,7 +98,9 @@ public class Retransform {
 
     public static boolean isWaiver(String className, String methodName) {
         if (className.startsWith("java.lang.reflect")
-                || className.startsWith("sun.reflect"))
+                || className.startsWith("sun.reflect")
+                || isLambdaProxy(className)
+                || className.equals(LazyInstrumentation.class.getName()))
             return true;
         return waivers.contains(new Pair<String, String>(className, methodName));
     }
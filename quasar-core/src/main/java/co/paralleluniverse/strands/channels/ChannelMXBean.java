@@ -0,0 +1,49 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+/**
+ * Counts are for the last monitoring interval.
+ *
+ * @author pron
+ */
+public interface ChannelMXBean {
+    void refresh();
+
+    long getMessagesSent();
+
+    long getMessagesReceived();
+
+    int getQueueLength();
+
+    long getDropped();
+
+    long getDisplaced();
+
+    long getThrown();
+
+    long getBackoffs();
+
+    long getBlocked();
+
+    /**
+     * The mean time, in nanoseconds, sampled messages have spent in the channel.
+     */
+    long getMeanSojournTime();
+
+    /**
+     * The maximum time, in nanoseconds, a sampled message has spent in the channel.
+     */
+    long getMaxSojournTime();
+}
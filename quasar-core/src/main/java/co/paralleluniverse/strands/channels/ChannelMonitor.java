@@ -0,0 +1,106 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects statistics about a {@link QueueChannel}: the number of messages sent and received, the number of times each
+ * overflow policy has been applied, and a sample of the time messages spend in the channel.
+ *
+ * A message's time in the channel is sampled by remembering, for one sent message at a time, the time it was sent and
+ * the number of messages ahead of it in the queue, and then counting down the received messages until it is received.
+ * The number of messages ahead is not read from the queue, which may take time proportional to its length, but is
+ * estimated from the counts of messages sent and received. With multiple consumers, or when messages are displaced, the
+ * sampled message may be misidentified, so the sample is only an estimate.
+ *
+ * A monitor may only be set on one channel.
+ *
+ * @see Channels#newChannelMonitor(String, co.paralleluniverse.common.monitoring.MonitorType)
+ * @see QueueChannel#setMonitor(ChannelMonitor)
+ * @author pron
+ */
+public abstract class ChannelMonitor {
+    private static final int SAMPLE_PERIOD = 64; // one in SAMPLE_PERIOD sends starts a sample, if none is in flight
+    private QueueChannel<?> channel;
+    private final AtomicLong sampleStart = new AtomicLong(); // 0 if no sample is in flight
+    private final AtomicInteger sampleCountdown = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong(); // approximate number of messages in the channel
+
+    void setChannel(QueueChannel<?> channel) {
+        if (this.channel != null && this.channel != channel)
+            throw new IllegalStateException("Monitor " + this + " is already set on channel " + this.channel);
+        this.channel = channel;
+    }
+
+    /**
+     * The monitored channel's queue length.
+     */
+    protected int getQueueLength() {
+        return channel != null ? channel.getQueueLength() : 0;
+    }
+
+    final void sent(int n) {
+        messagesSent(n);
+        queued.addAndGet(n);
+        if (sampleStart.get() == 0 && ThreadLocalRandom.current().nextInt(SAMPLE_PERIOD) == 0)
+            startSample();
+    }
+
+    final void received(int n) {
+        messagesReceived(n);
+        queued.addAndGet(-n);
+        final long start = sampleStart.get();
+        if (start != 0 && sampleCountdown.addAndGet(-n) <= 0 && sampleStart.compareAndSet(start, 0))
+            messageSojourn(System.nanoTime() - start);
+    }
+
+    final void overflow(OverflowPolicy policy) {
+        overflowPolicyApplied(policy);
+        if (policy == OverflowPolicy.DISPLACE)
+            queued.decrementAndGet(); // the displaced message will never be received
+    }
+
+    private synchronized void startSample() {
+        if (sampleStart.get() != 0)
+            return;
+        final long ahead = queued.get(); // the sampled message is the last in the queue
+        if (ahead <= 0)
+            return;
+        sampleCountdown.set((int) Math.min(ahead, Integer.MAX_VALUE));
+        final long now = System.nanoTime();
+        sampleStart.set(now != 0 ? now : 1);
+    }
+
+    protected abstract void messagesSent(int n);
+
+    protected abstract void messagesReceived(int n);
+
+    /**
+     * Called when the channel applies its overflow policy, i.e., once for every send that finds the channel full,
+     * however many times it then retries. {@link OverflowPolicy#DISPLACE DISPLACE} is only reported for channels
+     * backed by a circular buffer (single-consumer channels).
+     */
+    protected abstract void overflowPolicyApplied(OverflowPolicy policy);
+
+    /**
+     * Called with the time, in nanoseconds, a sampled message has spent in the channel.
+     */
+    protected abstract void messageSojourn(long nanos);
+
+    public abstract void unregister();
+}
@@ -0,0 +1,140 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Determines how a receiver waits for a message when it finds a {@link QueueChannel} empty. By default, the receiver
+ * parks right away. With a wait strategy, it first busy-spins, polling the channel, for a number of iterations, then
+ * yields a number of times, and only then parks. When messages arrive in quick succession, this saves the cost of
+ * parking and unparking the receiver, at the cost of the CPU time spent spinning.
+ *
+ * An adaptive strategy adjusts the number of spins to the intervals between message arrivals: whenever a message
+ * arrives while the receiver is spinning or yielding, the number of spins is doubled (up to the maximum), and whenever
+ * the receiver ends up parking, it is halved, though never below a small floor, so that the strategy can always find
+ * its way back to spinning when the arrival rate picks up.
+ *
+ * A strategy keeps statistics of how often receivers have got their message in each stage. As it also keeps the
+ * adaptive state, a strategy instance must not be shared by more than one channel.
+ *
+ * @see QueueChannel#setWaitStrategy(ChannelWaitStrategy)
+ * @author pron
+ */
+public class ChannelWaitStrategy {
+    private static final int MIN_ADAPTIVE_SPINS = 16;
+    private final int maxSpins;
+    private final int yields;
+    private final boolean adaptive;
+    private int spins; // racy, but it's only a heuristic
+    private final AtomicLong spinHits = new AtomicLong();
+    private final AtomicLong yieldHits = new AtomicLong();
+    private final AtomicLong parks = new AtomicLong();
+
+    /**
+     * Returns a strategy that spins {@code spins} times, yields {@code yields} times, and then parks.
+     */
+    public static ChannelWaitStrategy spinYieldPark(int spins, int yields) {
+        return new ChannelWaitStrategy(spins, yields, false);
+    }
+
+    /**
+     * Returns a strategy that spins up to {@code maxSpins} times, adapting the number of spins to the rate of message
+     * arrival, yields {@code yields} times, and then parks.
+     */
+    public static ChannelWaitStrategy adaptive(int maxSpins, int yields) {
+        return new ChannelWaitStrategy(maxSpins, yields, true);
+    }
+
+    ChannelWaitStrategy(int spins, int yields, boolean adaptive) {
+        if (spins < 0 || yields < 0)
+            throw new IllegalArgumentException("spins and yields must not be negative");
+        this.maxSpins = spins;
+        this.yields = yields;
+        this.adaptive = adaptive;
+        this.spins = spins;
+    }
+
+    /**
+     * The number of times the receiver will spin.
+     */
+    public int getSpins() {
+        return spins;
+    }
+
+    public int getYields() {
+        return yields;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * The number of times a receiver has got a message (or found the channel closed) while spinning.
+     */
+    public long getSpinHits() {
+        return spinHits.get();
+    }
+
+    /**
+     * The number of times a receiver has got a message (or found the channel closed) while yielding.
+     */
+    public long getYieldHits() {
+        return yieldHits.get();
+    }
+
+    /**
+     * The number of times a receiver has gone on to park.
+     */
+    public long getParks() {
+        return parks.get();
+    }
+
+    public void resetStats() {
+        spinHits.set(0);
+        yieldHits.set(0);
+        parks.set(0);
+    }
+
+    void spun() {
+        spinHits.incrementAndGet();
+        grow();
+    }
+
+    void yielded() {
+        yieldHits.incrementAndGet();
+        grow(); // the message arrived shortly after we stopped spinning
+    }
+
+    void parked() {
+        parks.incrementAndGet();
+        if (adaptive)
+            spins = Math.max(Math.min(MIN_ADAPTIVE_SPINS, maxSpins), spins >> 1);
+    }
+
+    private void grow() {
+        if (adaptive) {
+            final int s = spins;
+            if (s < maxSpins)
+                spins = Math.min(maxSpins, Math.max(MIN_ADAPTIVE_SPINS, s << 1));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelWaitStrategy{" + "spins: " + spins + ", yields: " + yields + ", adaptive: " + adaptive
+                + ", spinHits: " + spinHits + ", yieldHits: " + yieldHits + ", parks: " + parks + '}';
+    }
+}
@@ -13,7 +13,10 @@
  */
 package co.paralleluniverse.strands.channels;
 
-import co.paralleluniverse.strands.queues.ArrayQueue;
+import co.paralleluniverse.common.monitoring.MonitorType;
+import co.paralleluniverse.common.util.Function2;
+import co.paralleluniverse.fibers.DefaultFiberScheduler;
+import co.paralleluniverse.fibers.FiberScheduler;
 import co.paralleluniverse.strands.queues.BasicQueue;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerDoubleQueue;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerFloatQueue;
@@ -25,6 +28,18 @@ import co.paralleluniverse.strands.queues.CircularFloatBuffer;
 import co.paralleluniverse.strands.queues.CircularIntBuffer;
 import co.paralleluniverse.strands.queues.CircularLongBuffer;
 import co.paralleluniverse.strands.queues.CircularObjectBuffer;
+import co.paralleluniverse.strands.queues.ConcurrentPriorityDoubleQueue;
+import co.paralleluniverse.strands.queues.ConcurrentPriorityFloatQueue;
+import co.paralleluniverse.strands.queues.ConcurrentPriorityIntQueue;
+import co.paralleluniverse.strands.queues.ConcurrentPriorityLongQueue;
+import co.paralleluniverse.strands.queues.ConcurrentPriorityQueue;
+import co.paralleluniverse.strands.queues.MappedFileQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayDoubleQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayFloatQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayIntQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayLongQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayObjectQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerLinkedArrayObjectQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerArrayDoubleQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerArrayFloatQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerArrayIntQueue;
@@ -35,6 +50,15 @@ import co.paralleluniverse.strands.queues.SingleConsumerLinkedArrayFloatQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerLinkedArrayIntQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerLinkedArrayLongQueue;
 import co.paralleluniverse.strands.queues.SingleConsumerLinkedArrayObjectQueue;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -58,18 +82,17 @@ public final class Channels {
         final BasicQueue<Message> queue;
         if (mailboxSize < 0) {
             if (!singleConsumer)
-                throw new UnsupportedOperationException("Unbounded queue with multiple consumers is unsupported");
-            queue = new SingleConsumerLinkedArrayObjectQueue<Message>();
+                queue = new MultiConsumerLinkedArrayObjectQueue<Message>();
+            else
+                queue = new SingleConsumerLinkedArrayObjectQueue<Message>();
         } else if (mailboxSize == 1)
             queue = new BoxQueue<Message>(policy == OverflowPolicy.DISPLACE, singleConsumer);
-        else if (policy == OverflowPolicy.DISPLACE) {
-            if (!singleConsumer)
-                throw new UnsupportedOperationException("Channel with DISPLACE policy configuration is not supported for multiple consumers");
+        else if (!singleConsumer)
+            queue = new MultiConsumerArrayObjectQueue<Message>(mailboxSize, policy == OverflowPolicy.DISPLACE);
+        else if (policy == OverflowPolicy.DISPLACE)
             queue = new CircularObjectBuffer<Message>(mailboxSize, singleProducer);
-        } else if (singleConsumer)
-            queue = new SingleConsumerArrayObjectQueue<Message>(mailboxSize);
         else
-            queue = new ArrayQueue<Message>(mailboxSize);
+            queue = new SingleConsumerArrayObjectQueue<Message>(mailboxSize);
 
 
         return new QueueObjectChannel(queue, policy, singleConsumer);
@@ -83,20 +106,47 @@ public final class Channels {
         return newChannel(mailboxSize, mailboxSize == 0 ? OverflowPolicy.BLOCK : defaultPolicy);
     }
 
+    /**
+     * Creates a channel of byte arrays whose messages are stored in a memory-mapped file, so that they survive a crash
+     * of the process, and may be received by another process on the same host that opens the same file. If the file
+     * exists, the channel will contain all messages left in it.
+     *
+     * @param file     the channel's file
+     * @param capacity the size of the file's ring buffer, in bytes
+     * @see MappedFileChannel
+     */
+    public static MappedFileChannel newMappedFileChannel(File file, int capacity, OverflowPolicy policy) throws IOException {
+        return new MappedFileChannel(new MappedFileQueue(file, capacity), policy);
+    }
+
+    /**
+     * Creates a channel of byte arrays whose messages are stored in a memory-mapped file, which polls the file for
+     * messages sent (and room made) by other processes at the given interval.
+     *
+     * @param file         the channel's file
+     * @param capacity     the size of the file's ring buffer, in bytes
+     * @param pollInterval how often blocked senders and receivers check the file for changes made by other processes
+     * @see MappedFileChannel
+     */
+    public static MappedFileChannel newMappedFileChannel(File file, int capacity, OverflowPolicy policy, long pollInterval, TimeUnit unit) throws IOException {
+        return new MappedFileChannel(new MappedFileQueue(file, capacity), policy, pollInterval, unit);
+    }
+
     ///
     public static IntChannel newIntChannel(int mailboxSize, OverflowPolicy policy, boolean singleProducer, boolean singleConsumer) {
-        if (!singleConsumer)
-            throw new UnsupportedOperationException("Primitive queue with multiple consumers is unsupported");
-
         final BasicSingleConsumerIntQueue queue;
-        if (mailboxSize < 0) {
+        if (!singleConsumer) {
+            if (mailboxSize < 0)
+                throw new UnsupportedOperationException("Unbounded primitive queue with multiple consumers is unsupported");
+            queue = new MultiConsumerArrayIntQueue(mailboxSize, policy == OverflowPolicy.DISPLACE);
+        } else if (mailboxSize < 0) {
             queue = new SingleConsumerLinkedArrayIntQueue();
         } else if (policy == OverflowPolicy.DISPLACE) {
             queue = new CircularIntBuffer(mailboxSize, singleProducer);
         } else
             queue = new SingleConsumerArrayIntQueue(mailboxSize);
 
-        return new QueueIntChannel(queue, policy);
+        return new QueueIntChannel(queue, policy, singleConsumer);
     }
 
     public static IntChannel newIntChannel(int mailboxSize, OverflowPolicy policy) {
@@ -107,20 +157,35 @@ public final class Channels {
         return newIntChannel(mailboxSize, defaultPolicy);
     }
 
+    /**
+     * Creates a single-consumer channel whose messages are stored off-heap, in the given direct (or memory-mapped)
+     * buffer. The channel's capacity is the largest power of 2 number of {@code int}s that fit in the buffer.
+     */
+    public static IntChannel newIntChannel(ByteBuffer buffer, OverflowPolicy policy, boolean singleProducer) {
+        final BasicSingleConsumerIntQueue queue;
+        if (policy == OverflowPolicy.DISPLACE)
+            queue = new CircularIntBuffer(buffer, singleProducer);
+        else
+            queue = new SingleConsumerArrayIntQueue(buffer);
+
+        return new QueueIntChannel(queue, policy, true);
+    }
+
     ///
     public static LongChannel newLongChannel(int mailboxSize, OverflowPolicy policy, boolean singleProducer, boolean singleConsumer) {
-        if (!singleConsumer)
-            throw new UnsupportedOperationException("Primitive queue with multiple consumers is unsupported");
-
         final BasicSingleConsumerLongQueue queue;
-        if (mailboxSize < 0) {
+        if (!singleConsumer) {
+            if (mailboxSize < 0)
+                throw new UnsupportedOperationException("Unbounded primitive queue with multiple consumers is unsupported");
+            queue = new MultiConsumerArrayLongQueue(mailboxSize, policy == OverflowPolicy.DISPLACE);
+        } else if (mailboxSize < 0) {
             queue = new SingleConsumerLinkedArrayLongQueue();
         } else if (policy == OverflowPolicy.DISPLACE) {
             queue = new CircularLongBuffer(mailboxSize, singleProducer);
         } else
             queue = new SingleConsumerArrayLongQueue(mailboxSize);
 
-        return new QueueLongChannel(queue, policy);
+        return new QueueLongChannel(queue, policy, singleConsumer);
     }
 
     public static LongChannel newLongChannel(int mailboxSize, OverflowPolicy policy) {
@@ -131,20 +196,35 @@ public final class Channels {
         return newLongChannel(mailboxSize, defaultPolicy);
     }
 
+    /**
+     * Creates a single-consumer channel whose messages are stored off-heap, in the given direct (or memory-mapped)
+     * buffer. The channel's capacity is the largest power of 2 number of {@code long}s that fit in the buffer.
+     */
+    public static LongChannel newLongChannel(ByteBuffer buffer, OverflowPolicy policy, boolean singleProducer) {
+        final BasicSingleConsumerLongQueue queue;
+        if (policy == OverflowPolicy.DISPLACE)
+            queue = new CircularLongBuffer(buffer, singleProducer);
+        else
+            queue = new SingleConsumerArrayLongQueue(buffer);
+
+        return new QueueLongChannel(queue, policy, true);
+    }
+
     ///
     public static FloatChannel newFloatChannel(int mailboxSize, OverflowPolicy policy, boolean singleProducer, boolean singleConsumer) {
-        if (!singleConsumer)
-            throw new UnsupportedOperationException("Primitive queue with multiple consumers is unsupported");
-
         final BasicSingleConsumerFloatQueue queue;
-        if (mailboxSize < 0) {
+        if (!singleConsumer) {
+            if (mailboxSize < 0)
+                throw new UnsupportedOperationException("Unbounded primitive queue with multiple consumers is unsupported");
+            queue = new MultiConsumerArrayFloatQueue(mailboxSize, policy == OverflowPolicy.DISPLACE);
+        } else if (mailboxSize < 0) {
             queue = new SingleConsumerLinkedArrayFloatQueue();
         } else if (policy == OverflowPolicy.DISPLACE) {
             queue = new CircularFloatBuffer(mailboxSize, singleProducer);
         } else
             queue = new SingleConsumerArrayFloatQueue(mailboxSize);
 
-        return new QueueFloatChannel(queue, policy);
+        return new QueueFloatChannel(queue, policy, singleConsumer);
     }
 
     public static FloatChannel newFloatChannel(int mailboxSize, OverflowPolicy policy) {
@@ -155,20 +235,35 @@ public final class Channels {
         return newFloatChannel(mailboxSize, defaultPolicy);
     }
 
+    /**
+     * Creates a single-consumer channel whose messages are stored off-heap, in the given direct (or memory-mapped)
+     * buffer. The channel's capacity is the largest power of 2 number of {@code float}s that fit in the buffer.
+     */
+    public static FloatChannel newFloatChannel(ByteBuffer buffer, OverflowPolicy policy, boolean singleProducer) {
+        final BasicSingleConsumerFloatQueue queue;
+        if (policy == OverflowPolicy.DISPLACE)
+            queue = new CircularFloatBuffer(buffer, singleProducer);
+        else
+            queue = new SingleConsumerArrayFloatQueue(buffer);
+
+        return new QueueFloatChannel(queue, policy, true);
+    }
+
     ///
     public static DoubleChannel newDoubleChannel(int mailboxSize, OverflowPolicy policy, boolean singleProducer, boolean singleConsumer) {
-        if (!singleConsumer)
-            throw new UnsupportedOperationException("Primitive queue with multiple consumers is unsupported");
-
         final BasicSingleConsumerDoubleQueue queue;
-        if (mailboxSize < 0) {
+        if (!singleConsumer) {
+            if (mailboxSize < 0)
+                throw new UnsupportedOperationException("Unbounded primitive queue with multiple consumers is unsupported");
+            queue = new MultiConsumerArrayDoubleQueue(mailboxSize, policy == OverflowPolicy.DISPLACE);
+        } else if (mailboxSize < 0) {
             queue = new SingleConsumerLinkedArrayDoubleQueue();
         } else if (policy == OverflowPolicy.DISPLACE) {
             queue = new CircularDoubleBuffer(mailboxSize, singleProducer);
         } else
             queue = new SingleConsumerArrayDoubleQueue(mailboxSize);
 
-        return new QueueDoubleChannel(queue, policy);
+        return new QueueDoubleChannel(queue, policy, singleConsumer);
     }
 
     public static DoubleChannel newDoubleChannel(int mailboxSize, OverflowPolicy policy) {
@@ -179,6 +274,92 @@ public final class Channels {
         return newDoubleChannel(mailboxSize, defaultPolicy);
     }
 
+    /**
+     * Creates a single-consumer channel whose messages are stored off-heap, in the given direct (or memory-mapped)
+     * buffer. The channel's capacity is the largest power of 2 number of {@code double}s that fit in the buffer.
+     */
+    public static DoubleChannel newDoubleChannel(ByteBuffer buffer, OverflowPolicy policy, boolean singleProducer) {
+        final BasicSingleConsumerDoubleQueue queue;
+        if (policy == OverflowPolicy.DISPLACE)
+            queue = new CircularDoubleBuffer(buffer, singleProducer);
+        else
+            queue = new SingleConsumerArrayDoubleQueue(buffer);
+
+        return new QueueDoubleChannel(queue, policy, true);
+    }
+
+    ///
+    /**
+     * Creates a channel that delivers its messages in priority order: the least message, according to the given
+     * comparator, is received first, and messages of equal priority are received in the order they were sent. The
+     * channel may have multiple consumers, and is backed by a concurrent skip list, so senders and receivers don't
+     * contend on a lock.
+     *
+     * @param mailboxSize the channel's capacity, or -1 for an unbounded channel
+     * @param policy      the overflow policy; {@link OverflowPolicy#DISPLACE DISPLACE} is not supported
+     * @param comparator  the messages' priority order, or {@code null} for their natural ordering
+     */
+    public static <Message> Channel<Message> newPriorityChannel(int mailboxSize, OverflowPolicy policy, Comparator<? super Message> comparator) {
+        checkPriorityChannel(mailboxSize, policy);
+        return new QueueObjectChannel<Message>(new ConcurrentPriorityQueue<Message>(mailboxSize < 0 ? -1 : mailboxSize, comparator), policy, false);
+    }
+
+    /**
+     * Creates a channel that delivers its messages, which must be {@link Comparable}, in their natural order.
+     *
+     * @see #newPriorityChannel(int, OverflowPolicy, Comparator)
+     */
+    public static <Message extends Comparable<? super Message>> Channel<Message> newPriorityChannel(int mailboxSize, OverflowPolicy policy) {
+        return newPriorityChannel(mailboxSize, policy, null);
+    }
+
+    /**
+     * Creates a single-consumer channel that delivers its messages in ascending order.
+     *
+     * @see #newPriorityChannel(int, OverflowPolicy, Comparator)
+     */
+    public static IntChannel newPriorityIntChannel(int mailboxSize, OverflowPolicy policy) {
+        checkPriorityChannel(mailboxSize, policy);
+        return new QueueIntChannel(new ConcurrentPriorityIntQueue(mailboxSize < 0 ? -1 : mailboxSize), policy, true);
+    }
+
+    /**
+     * Creates a single-consumer channel that delivers its messages in ascending order.
+     *
+     * @see #newPriorityChannel(int, OverflowPolicy, Comparator)
+     */
+    public static LongChannel newPriorityLongChannel(int mailboxSize, OverflowPolicy policy) {
+        checkPriorityChannel(mailboxSize, policy);
+        return new QueueLongChannel(new ConcurrentPriorityLongQueue(mailboxSize < 0 ? -1 : mailboxSize), policy, true);
+    }
+
+    /**
+     * Creates a single-consumer channel that delivers its messages in ascending order.
+     *
+     * @see #newPriorityChannel(int, OverflowPolicy, Comparator)
+     */
+    public static FloatChannel newPriorityFloatChannel(int mailboxSize, OverflowPolicy policy) {
+        checkPriorityChannel(mailboxSize, policy);
+        return new QueueFloatChannel(new ConcurrentPriorityFloatQueue(mailboxSize < 0 ? -1 : mailboxSize), policy, true);
+    }
+
+    /**
+     * Creates a single-consumer channel that delivers its messages in ascending order.
+     *
+     * @see #newPriorityChannel(int, OverflowPolicy, Comparator)
+     */
+    public static DoubleChannel newPriorityDoubleChannel(int mailboxSize, OverflowPolicy policy) {
+        checkPriorityChannel(mailboxSize, policy);
+        return new QueueDoubleChannel(new ConcurrentPriorityDoubleQueue(mailboxSize < 0 ? -1 : mailboxSize), policy, true);
+    }
+
+    private static void checkPriorityChannel(int mailboxSize, OverflowPolicy policy) {
+        if (mailboxSize == 0)
+            throw new IllegalArgumentException("A priority channel cannot have size 0");
+        if (policy == OverflowPolicy.DISPLACE)
+            throw new IllegalArgumentException("Cannot use policy " + policy + " for a priority channel");
+    }
+
     ///
     public static <Message> ReceivePort<Message> newTickerConsumerFor(Channel<Message> channel) {
         return TickerChannelConsumer.newFor((QueueChannel<Message>) channel);
@@ -200,6 +381,180 @@ public final class Channels {
         return TickerChannelConsumer.newFor((QueueDoubleChannel) channel);
     }
 
+    ////////////////////
+    // Timers: ports that receive ticks from a scheduler's timer. The ticks are written into a single-slot channel that
+    // keeps only the latest, so a slow receiver gets the latest tick rather than a backlog, and the ports may be used in
+    // a select. Closing a port stops its timer.
+    /**
+     * Returns a port that receives the value {@code 1} once the given delay has elapsed, and is then closed.
+     */
+    public static LongReceivePort timer(long delay, TimeUnit unit) {
+        return timer(DefaultFiberScheduler.getInstance(), delay, unit);
+    }
+
+    /**
+     * Returns a port that receives the value {@code 1} once the given delay has elapsed, and is then closed.
+     *
+     * @param scheduler the scheduler whose timer will deliver the tick
+     */
+    public static LongReceivePort timer(FiberScheduler scheduler, long delay, TimeUnit unit) {
+        final QueueLongChannel channel = newTickChannel();
+        final TickTask task = new TickTask(channel, System.nanoTime(), 0);
+        task.setFuture(scheduler.getTimer().schedule(task, delay, unit));
+        return channel;
+    }
+
+    /**
+     * Returns a port that receives a tick every {@code period}. Tick {@code n} is due {@code n * period} after the
+     * ticker is created, and the value received is the number of the latest tick that was due when it was delivered.
+     * Ticks don't drift with the timer's latency, and if ticks are missed, because the timer has fallen behind or the
+     * receiver hasn't kept up, they are coalesced: the receiver gets the latest, and can tell how many it has missed by
+     * the gap in tick numbers.
+     */
+    public static LongReceivePort ticker(long period, TimeUnit unit) {
+        return ticker(DefaultFiberScheduler.getInstance(), period, unit);
+    }
+
+    /**
+     * Returns a port that receives a tick every {@code period}.
+     *
+     * @param scheduler the scheduler whose timer will deliver the ticks
+     * @see #ticker(long, TimeUnit)
+     */
+    public static LongReceivePort ticker(FiberScheduler scheduler, long period, TimeUnit unit) {
+        final long p = unit.toNanos(period);
+        if (p <= 0)
+            throw new IllegalArgumentException("period must be positive: " + period + " " + unit);
+        final QueueLongChannel channel = newTickChannel();
+        final TickTask task = new TickTask(channel, System.nanoTime(), p);
+        task.setFuture(scheduler.getTimer().scheduleAtFixedRate(task, p, p, TimeUnit.NANOSECONDS));
+        return channel;
+    }
+
+    private static QueueLongChannel newTickChannel() {
+        return (QueueLongChannel) newLongChannel(1, OverflowPolicy.DISPLACE, true, true);
+    }
+
+    ////////////////////
+    // Transformations: views that apply a transformation to messages as they are received or sent, without a queue or
+    // a strand of their own. Transformed receive ports cannot be used in a select.
+    /**
+     * Returns a receive port that applies {@code f}, which must not return {@code null}, to the messages received from
+     * {@code channel}.
+     */
+    public static <S, T> ReceivePort<T> map(ReceivePort<S> channel, Function<? super S, ? extends T> f) {
+        return new MappingReceivePort<>(channel, f);
+    }
+
+    /**
+     * Returns a receive port that only receives those messages of {@code channel} that satisfy the predicate; the rest
+     * are discarded.
+     */
+    public static <M> ReceivePort<M> filter(ReceivePort<M> channel, Predicate<? super M> pred) {
+        return new FilteringReceivePort<>(channel, pred);
+    }
+
+    /**
+     * Returns a receive port that maps each message of {@code channel} to a port, and receives all of the messages of
+     * each such port, until it's closed, in turn. The returned port must only be used by a single receiver.
+     */
+    public static <S, T> ReceivePort<T> flatMap(ReceivePort<S> channel, Function<? super S, ? extends ReceivePort<? extends T>> f) {
+        return new FlatMappingReceivePort<>(channel, f);
+    }
+
+    /**
+     * Returns a receive port that receives a message from each of the given ports, and combines them with {@code f}.
+     * The returned port is closed as soon as any of the ports is, and must only be used by a single receiver.
+     */
+    public static <M> ReceivePort<M> zip(List<? extends ReceivePort<?>> channels, Function<Object[], ? extends M> f) {
+        return new ZippingReceivePort<>(channels, f);
+    }
+
+    public static <S1, S2, M> ReceivePort<M> zip(ReceivePort<S1> c1, ReceivePort<S2> c2, final Function2<? super S1, ? super S2, ? extends M> f) {
+        return new ZippingReceivePort<>(Arrays.asList(c1, c2), new Function<Object[], M>() {
+            @Override
+            public M apply(Object[] ms) {
+                return f.apply((S1) ms[0], (S2) ms[1]);
+            }
+        });
+    }
+
+    /**
+     * Returns a receive port that yields a single message once {@code channel} is closed: the result of folding all of
+     * its messages with {@code f}, starting with {@code init}. The returned port must only be used by a single receiver.
+     */
+    public static <S, T> ReceivePort<T> fold(ReceivePort<S> channel, T init, Function2<T, ? super S, T> f) {
+        return new FoldingReceivePort<>(channel, init, f);
+    }
+
+    /**
+     * Returns a receive port that receives no more than {@code count} messages from {@code channel}, and is then
+     * closed (without closing {@code channel}).
+     */
+    public static <M> ReceivePort<M> take(ReceivePort<M> channel, long count) {
+        return new TakeReceivePort<>(channel, count);
+    }
+
+    /**
+     * Returns a send port that applies {@code f} to messages before sending them to {@code channel}.
+     */
+    public static <S, T> SendPort<S> mapSend(SendPort<T> channel, Function<? super S, ? extends T> f) {
+        return new MappingSendPort<>(channel, f);
+    }
+
+    /**
+     * Returns a send port that only sends to {@code channel} those messages that satisfy the predicate; the rest are
+     * discarded.
+     */
+    public static <M> SendPort<M> filterSend(SendPort<M> channel, Predicate<? super M> pred) {
+        return new FilteringSendPort<>(channel, pred);
+    }
+
+    ////////////////////
+    // Rate limiting
+    /**
+     * Returns a send port that sends messages to {@code channel} at a rate of no more than {@code permitsPerSecond},
+     * allowing bursts of up to {@code burst} messages after a period of inactivity. A sender that exceeds the rate is
+     * parked until its message may be sent; {@code trySend} fails instead. If {@code channel} is a {@link QueueChannel},
+     * the returned port may be used in a select.
+     */
+    public static <M> SendPort<M> rateLimited(SendPort<M> channel, double permitsPerSecond, int burst) {
+        return new RateLimitedSendPort<M>(channel, null, permitsPerSecond, burst);
+    }
+
+    /**
+     * Returns a send port that limits the rate of messages sent to {@code channel} separately for each key (e.g. each
+     * tenant), as returned by {@code key}: messages with any one key are sent at a rate of no more than
+     * {@code permitsPerSecond}, with bursts of up to {@code burst}. Senders with the same key are given permits in the
+     * order they arrive, and don't hold up senders with other keys.
+     *
+     * @see #rateLimited(SendPort, double, int)
+     */
+    public static <M> SendPort<M> rateLimited(SendPort<M> channel, Function<? super M, ?> key, double permitsPerSecond, int burst) {
+        if (key == null)
+            throw new NullPointerException("key");
+        return new RateLimitedSendPort<M>(channel, key, permitsPerSecond, burst);
+    }
+
+    /**
+     * Creates a monitor, to be {@link QueueChannel#setMonitor(ChannelMonitor) set} on a channel or an actor's mailbox,
+     * that exposes the channel's statistics under the given name.
+     *
+     * @return the monitor, or {@code null} if {@code monitorType} is {@link MonitorType#NONE NONE}
+     */
+    public static ChannelMonitor newChannelMonitor(String name, MonitorType monitorType) {
+        switch (monitorType) {
+            case JMX:
+                return new JMXChannelMonitor(name);
+            case METRICS:
+                return new MetricsChannelMonitor(name);
+            case NONE:
+                return null;
+            default:
+                throw new RuntimeException("Unsupported monitor type: " + monitorType);
+        }
+    }
+
     private Channels() {
     }
 }
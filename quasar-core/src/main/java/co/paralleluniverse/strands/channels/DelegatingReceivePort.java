@@ -0,0 +1,44 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+/**
+ * A receive port that transforms the messages of another port.
+ *
+ * @author pron
+ */
+abstract class DelegatingReceivePort<S, T> implements ReceivePort<T> {
+    protected final ReceivePort<S> target;
+
+    DelegatingReceivePort(ReceivePort<S> target) {
+        if (target == null)
+            throw new IllegalArgumentException("target can't be null");
+        this.target = target;
+    }
+
+    @Override
+    public void close() {
+        target.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return target.isClosed();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + target + '}';
+    }
+}
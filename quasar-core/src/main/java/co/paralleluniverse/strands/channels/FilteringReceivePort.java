@@ -0,0 +1,63 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Predicate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author pron
+ */
+class FilteringReceivePort<M> extends DelegatingReceivePort<M, M> {
+    private final Predicate<? super M> pred;
+
+    FilteringReceivePort(ReceivePort<M> target, Predicate<? super M> pred) {
+        super(target);
+        this.pred = pred;
+    }
+
+    @Override
+    public M receive() throws SuspendExecution, InterruptedException {
+        for (;;) {
+            final M m = target.receive();
+            if (m == null || pred.apply(m))
+                return m;
+        }
+    }
+
+    @Override
+    public M tryReceive() {
+        for (;;) {
+            final M m = target.tryReceive();
+            if (m == null || pred.apply(m))
+                return m;
+        }
+    }
+
+    @Override
+    public M receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+        for (;;) {
+            final M m = target.receive(left, TimeUnit.NANOSECONDS);
+            if (m == null || pred.apply(m))
+                return m;
+            left = deadline - System.nanoTime();
+            if (left <= 0)
+                return null;
+        }
+    }
+}
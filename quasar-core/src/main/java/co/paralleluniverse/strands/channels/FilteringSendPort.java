@@ -0,0 +1,63 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Predicate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages that don't satisfy the predicate are discarded, and count as sent.
+ *
+ * @author pron
+ */
+class FilteringSendPort<M> implements SendPort<M> {
+    private final SendPort<M> target;
+    private final Predicate<? super M> pred;
+
+    FilteringSendPort(SendPort<M> target, Predicate<? super M> pred) {
+        this.target = target;
+        this.pred = pred;
+    }
+
+    @Override
+    public void send(M message) throws SuspendExecution, InterruptedException {
+        if (pred.apply(message))
+            target.send(message);
+    }
+
+    @Override
+    public boolean send(M message, long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (pred.apply(message))
+            return target.send(message, timeout, unit);
+        return true;
+    }
+
+    @Override
+    public boolean trySend(M message) {
+        if (pred.apply(message))
+            return target.trySend(message);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        target.close();
+    }
+
+    @Override
+    public String toString() {
+        return "FilteringSendPort{" + target + '}';
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Must only be used by a single receiver.
+ *
+ * @author pron
+ */
+class FlatMappingReceivePort<S, T> extends DelegatingReceivePort<S, T> {
+    private final Function<? super S, ? extends ReceivePort<? extends T>> f;
+    private ReceivePort<? extends T> current;
+
+    FlatMappingReceivePort(ReceivePort<S> target, Function<? super S, ? extends ReceivePort<? extends T>> f) {
+        super(target);
+        this.f = f;
+    }
+
+    @Override
+    public T receive() throws SuspendExecution, InterruptedException {
+        for (;;) {
+            if (current != null) {
+                final T m = current.receive();
+                if (m != null)
+                    return m;
+                current = null; // closed
+            }
+            final S s = target.receive();
+            if (s == null)
+                return null;
+            current = f.apply(s);
+        }
+    }
+
+    @Override
+    public T tryReceive() {
+        for (;;) {
+            if (current != null) {
+                final T m = current.tryReceive();
+                if (m != null)
+                    return m;
+                if (!current.isClosed())
+                    return null;
+                current = null;
+            }
+            final S s = target.tryReceive();
+            if (s == null)
+                return null;
+            current = f.apply(s);
+        }
+    }
+
+    @Override
+    public T receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (unit == null)
+            return receive();
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+        for (;;) {
+            if (current != null) {
+                final T m = current.receive(left, TimeUnit.NANOSECONDS);
+                if (m != null)
+                    return m;
+                if (!current.isClosed())
+                    return null; // timeout
+                current = null;
+            } else {
+                final S s = target.receive(left, TimeUnit.NANOSECONDS);
+                if (s == null)
+                    return null;
+                current = f.apply(s);
+            }
+            left = deadline - System.nanoTime();
+            if (left <= 0)
+                return null;
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return current == null && target.isClosed();
+    }
+}
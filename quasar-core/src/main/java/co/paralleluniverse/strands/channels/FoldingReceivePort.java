@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.common.util.Function2;
+import co.paralleluniverse.fibers.SuspendExecution;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds all of the messages of the target port, and yields the result once the target is closed. Must only be used by
+ * a single receiver.
+ *
+ * @author pron
+ */
+class FoldingReceivePort<S, T> extends DelegatingReceivePort<S, T> {
+    private final Function2<T, ? super S, T> f;
+    private T acc;
+    private boolean done;
+
+    FoldingReceivePort(ReceivePort<S> target, T init, Function2<T, ? super S, T> f) {
+        super(target);
+        this.f = f;
+        this.acc = init;
+    }
+
+    @Override
+    public T receive() throws SuspendExecution, InterruptedException {
+        if (done)
+            return null;
+        S m;
+        while ((m = target.receive()) != null)
+            acc = f.apply(acc, m);
+        return result();
+    }
+
+    @Override
+    public T tryReceive() {
+        if (done)
+            return null;
+        S m;
+        while ((m = target.tryReceive()) != null)
+            acc = f.apply(acc, m);
+        return target.isClosed() ? result() : null;
+    }
+
+    @Override
+    public T receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (done)
+            return null;
+        if (unit == null)
+            return receive();
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+        for (;;) {
+            final S m = target.receive(left, TimeUnit.NANOSECONDS);
+            if (m == null)
+                return target.isClosed() ? result() : null;
+            acc = f.apply(acc, m);
+            left = deadline - System.nanoTime();
+            if (left <= 0)
+                return null;
+        }
+    }
+
+    private T result() {
+        done = true;
+        final T res = acc;
+        acc = null;
+        return res;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return done;
+    }
+}
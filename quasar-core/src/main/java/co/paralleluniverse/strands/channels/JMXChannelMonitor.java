@@ -0,0 +1,214 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.common.monitoring.MonitoringServices;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import jsr166e.LongAdder;
+import jsr166e.LongMaxUpdater;
+
+/**
+ *
+ * @author pron
+ */
+class JMXChannelMonitor extends ChannelMonitor implements NotificationListener, ChannelMXBean {
+    private final String mbeanName;
+    private boolean registered;
+    private final LongAdder sentCounter = new LongAdder();
+    private final LongAdder receivedCounter = new LongAdder();
+    private final LongAdder droppedCounter = new LongAdder();
+    private final LongAdder displacedCounter = new LongAdder();
+    private final LongAdder thrownCounter = new LongAdder();
+    private final LongAdder backoffsCounter = new LongAdder();
+    private final LongAdder blockedCounter = new LongAdder();
+    private final LongAdder sojournSamplesCounter = new LongAdder();
+    private final LongAdder sojournTimeCounter = new LongAdder();
+    private final LongMaxUpdater maxSojournTimeCounter = new LongMaxUpdater();
+    private long sent;
+    private long received;
+    private long dropped;
+    private long displaced;
+    private long thrown;
+    private long backoffs;
+    private long blocked;
+    private long meanSojournTime;
+    private long maxSojournTime;
+
+    public JMXChannelMonitor(String name) {
+        this.mbeanName = "co.paralleluniverse:type=Channels,name=" + name;
+        registerMBean();
+    }
+
+    @SuppressWarnings({"CallToPrintStackTrace", "CallToThreadDumpStack"})
+    protected void registerMBean() {
+        try {
+            final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName mxbeanName = new ObjectName(mbeanName);
+            mbs.registerMBean(this, mxbeanName);
+            this.registered = true;
+        } catch (InstanceAlreadyExistsException ex) {
+            throw new RuntimeException(ex);
+        } catch (MBeanRegistrationException ex) {
+            ex.printStackTrace();
+        } catch (NotCompliantMBeanException ex) {
+            throw new AssertionError(ex);
+        } catch (MalformedObjectNameException ex) {
+            throw new AssertionError(ex);
+        }
+        MonitoringServices.getInstance().addPerfNotificationListener(this, mbeanName);
+    }
+
+    @SuppressWarnings({"CallToPrintStackTrace", "CallToThreadDumpStack"})
+    @Override
+    public void unregister() {
+        try {
+            if (registered) {
+                MonitoringServices.getInstance().removePerfNotificationListener(this);
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(mbeanName));
+            }
+            this.registered = false;
+        } catch (InstanceNotFoundException ex) {
+            ex.printStackTrace();
+        } catch (MBeanRegistrationException ex) {
+            ex.printStackTrace();
+        } catch (MalformedObjectNameException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if ("perfTimer".equals(notification.getType()))
+            refresh();
+    }
+
+    @Override
+    public void refresh() {
+        if (registered)
+            collectAndResetCounters();
+    }
+
+    private void collectAndResetCounters() {
+        sent = sentCounter.sumThenReset();
+        received = receivedCounter.sumThenReset();
+        dropped = droppedCounter.sumThenReset();
+        displaced = displacedCounter.sumThenReset();
+        thrown = thrownCounter.sumThenReset();
+        backoffs = backoffsCounter.sumThenReset();
+        blocked = blockedCounter.sumThenReset();
+
+        final long samples = sojournSamplesCounter.sumThenReset();
+        final long sojournTime = sojournTimeCounter.sumThenReset();
+        meanSojournTime = samples != 0L ? sojournTime / samples : 0L;
+        maxSojournTime = maxSojournTimeCounter.maxThenReset();
+    }
+
+    @Override
+    protected void messagesSent(int n) {
+        sentCounter.add(n);
+    }
+
+    @Override
+    protected void messagesReceived(int n) {
+        receivedCounter.add(n);
+    }
+
+    @Override
+    protected void overflowPolicyApplied(OverflowPolicy policy) {
+        switch (policy) {
+            case DROP:
+                droppedCounter.increment();
+                break;
+            case DISPLACE:
+                displacedCounter.increment();
+                break;
+            case THROW:
+                thrownCounter.increment();
+                break;
+            case BACKOFF:
+                backoffsCounter.increment();
+                break;
+            case BLOCK:
+                blockedCounter.increment();
+                break;
+        }
+    }
+
+    @Override
+    protected void messageSojourn(long nanos) {
+        sojournSamplesCounter.increment();
+        sojournTimeCounter.add(nanos);
+        maxSojournTimeCounter.update(nanos);
+    }
+
+    @Override
+    public long getMessagesSent() {
+        return sent;
+    }
+
+    @Override
+    public long getMessagesReceived() {
+        return received;
+    }
+
+    @Override
+    public int getQueueLength() {
+        return super.getQueueLength();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public long getDisplaced() {
+        return displaced;
+    }
+
+    @Override
+    public long getThrown() {
+        return thrown;
+    }
+
+    @Override
+    public long getBackoffs() {
+        return backoffs;
+    }
+
+    @Override
+    public long getBlocked() {
+        return blocked;
+    }
+
+    @Override
+    public long getMeanSojournTime() {
+        return meanSojournTime;
+    }
+
+    @Override
+    public long getMaxSojournTime() {
+        return maxSojournTime;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.queues.MappedFileQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A channel of byte arrays whose messages are stored in a {@link MappedFileQueue}, i.e. in a memory-mapped file, so
+ * that they survive a crash of the process, and may be passed to another process on the same host that has opened the
+ * same file.
+ *
+ * Senders and receivers in the same process are woken up by one another as in any other channel. As there's no way for
+ * another process to wake them, though, blocked receivers (and blocked senders, when the overflow policy is
+ * {@link OverflowPolicy#BLOCK BLOCK}) also poll the file, by default every {@link #DEFAULT_POLL_INTERVAL_MILLIS}
+ * milliseconds, or at the interval given to the constructor. Likewise,
+ * a {@link Selector} waiting on this channel is only woken up by senders in the same process, and should be given a
+ * timeout if messages are sent by other processes.
+ *
+ * Only one receiver, across all processes, may receive from the channel, and closing the channel closes it in all of
+ * them. Closing the channel does not release the file's mapping, as the receiver may still be draining it; once the
+ * channel is no longer used, {@link #unmap() unmap} releases it.
+ *
+ * @author pron
+ */
+public class MappedFileChannel extends QueueChannel<byte[]> {
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 10;
+    private final MappedFileQueue fileQueue;
+    private final long pollNanos;
+
+    /**
+     * @param pollInterval how often blocked senders and receivers check the file for changes made by other processes
+     */
+    public MappedFileChannel(MappedFileQueue queue, OverflowPolicy policy, long pollInterval, TimeUnit unit) {
+        super(queue, policy, true);
+        if (policy == OverflowPolicy.DISPLACE)
+            throw new IllegalArgumentException("DISPLACE is not supported by a " + getClass().getSimpleName());
+        if (pollInterval <= 0)
+            throw new IllegalArgumentException("pollInterval must be positive: " + pollInterval);
+        this.fileQueue = queue;
+        this.pollNanos = unit.toNanos(pollInterval);
+    }
+
+    public MappedFileChannel(MappedFileQueue queue, OverflowPolicy policy) {
+        this(queue, policy, DEFAULT_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public MappedFileQueue getQueue() {
+        return fileQueue;
+    }
+
+    /**
+     * Writes the channel's messages to the disk.
+     */
+    public void force() {
+        fileQueue.force();
+    }
+
+    @Override
+    public void close() {
+        fileQueue.close();
+        super.close();
+    }
+
+    /**
+     * Releases the file's mapping. The channel must not be used, by any strand, once this method has been called.
+     *
+     * @see MappedFileQueue#unmap()
+     */
+    public void unmap() {
+        fileQueue.unmap();
+    }
+
+    @Override
+    boolean isSendClosed() {
+        return super.isSendClosed() || fileQueue.isClosed();
+    }
+
+    @Override
+    void onQueueFull(int iter, boolean timed, long nanos) throws SuspendExecution, InterruptedException, TimeoutException {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            sendersSync.await(iter, timed ? Math.min(nanos, pollNanos) : pollNanos, TimeUnit.NANOSECONDS);
+        } else
+            super.onQueueFull(iter, timed, nanos);
+    }
+
+    @Override
+    public byte[] receive() throws SuspendExecution, InterruptedException {
+        for (;;) {
+            final byte[] m = super.receive(pollNanos, TimeUnit.NANOSECONDS);
+            if (m != null || isClosed())
+                return m;
+        }
+    }
+
+    @Override
+    public byte[] receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (unit == null)
+            return receive();
+        if (timeout <= 0)
+            return super.receive(timeout, unit);
+
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            final long left = deadline - System.nanoTime();
+            if (left <= 0)
+                return null;
+            final byte[] m = super.receive(Math.min(left, pollNanos), TimeUnit.NANOSECONDS);
+            if (m != null || isClosed())
+                return m;
+        }
+    }
+
+    @Override
+    public int receiveBatch(byte[][] messages, int max) throws SuspendExecution, InterruptedException {
+        if (max <= 0)
+            return 0;
+        final byte[] m = receive();
+        if (m == null)
+            return 0;
+        messages[0] = m;
+        int n = 1;
+        byte[] m1;
+        while (n < max && (m1 = tryReceive()) != null)
+            messages[n++] = m1;
+        return n;
+    }
+}
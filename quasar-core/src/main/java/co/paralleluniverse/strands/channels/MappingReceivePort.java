@@ -0,0 +1,50 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author pron
+ */
+class MappingReceivePort<S, T> extends DelegatingReceivePort<S, T> {
+    private final Function<? super S, ? extends T> f;
+
+    MappingReceivePort(ReceivePort<S> target, Function<? super S, ? extends T> f) {
+        super(target);
+        this.f = f;
+    }
+
+    @Override
+    public T receive() throws SuspendExecution, InterruptedException {
+        return map(target.receive());
+    }
+
+    @Override
+    public T tryReceive() {
+        return map(target.tryReceive());
+    }
+
+    @Override
+    public T receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        return map(target.receive(timeout, unit));
+    }
+
+    private T map(S m) {
+        return m != null ? f.apply(m) : null;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Function;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author pron
+ */
+class MappingSendPort<S, T> implements SendPort<S> {
+    private final SendPort<T> target;
+    private final Function<? super S, ? extends T> f;
+
+    MappingSendPort(SendPort<T> target, Function<? super S, ? extends T> f) {
+        this.target = target;
+        this.f = f;
+    }
+
+    @Override
+    public void send(S message) throws SuspendExecution, InterruptedException {
+        target.send(f.apply(message));
+    }
+
+    @Override
+    public boolean send(S message, long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        return target.send(f.apply(message), timeout, unit);
+    }
+
+    @Override
+    public boolean trySend(S message) {
+        return target.trySend(f.apply(message));
+    }
+
+    @Override
+    public void close() {
+        target.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappingSendPort{" + target + '}';
+    }
+}
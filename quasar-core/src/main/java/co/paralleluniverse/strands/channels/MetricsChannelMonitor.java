@@ -0,0 +1,101 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.common.monitoring.Metrics;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ *
+ * @author pron
+ */
+class MetricsChannelMonitor extends ChannelMonitor {
+    private final String name;
+    private final Meter sent;
+    private final Meter received;
+    private final Meter dropped;
+    private final Meter displaced;
+    private final Meter thrown;
+    private final Meter backoffs;
+    private final Meter blocked;
+    private final Histogram sojournTime;
+
+    public MetricsChannelMonitor(String name) {
+        this.name = name;
+        this.sent = Metrics.meter(metric("messagesSent"));
+        this.received = Metrics.meter(metric("messagesReceived"));
+        this.dropped = Metrics.meter(metric("dropped"));
+        this.displaced = Metrics.meter(metric("displaced"));
+        this.thrown = Metrics.meter(metric("thrown"));
+        this.backoffs = Metrics.meter(metric("backoffs"));
+        this.blocked = Metrics.meter(metric("blocked"));
+        this.sojournTime = Metrics.histogram(metric("sojournTime"));
+        Metrics.register(metric("queueLength"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueueLength();
+            }
+        });
+    }
+
+    protected final String metric(String metricName) {
+        return name("co.paralleluniverse", "channels", name, metricName);
+    }
+
+    @Override
+    public void unregister() {
+        for (String m : new String[]{"messagesSent", "messagesReceived", "dropped", "displaced", "thrown", "backoffs", "blocked", "sojournTime", "queueLength"})
+            Metrics.remove(metric(m));
+    }
+
+    @Override
+    protected void messagesSent(int n) {
+        sent.mark(n);
+    }
+
+    @Override
+    protected void messagesReceived(int n) {
+        received.mark(n);
+    }
+
+    @Override
+    protected void overflowPolicyApplied(OverflowPolicy policy) {
+        switch (policy) {
+            case DROP:
+                dropped.mark();
+                break;
+            case DISPLACE:
+                displaced.mark();
+                break;
+            case THROW:
+                thrown.mark();
+                break;
+            case BACKOFF:
+                backoffs.mark();
+                break;
+            case BLOCK:
+                blocked.mark();
+                break;
+        }
+    }
+
+    @Override
+    protected void messageSojourn(long nanos) {
+        sojournTime.update(nanos);
+    }
+}
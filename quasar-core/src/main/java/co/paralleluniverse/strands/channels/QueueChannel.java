@@ -22,8 +22,11 @@ import co.paralleluniverse.strands.SimpleConditionSynchronizer;
 import co.paralleluniverse.strands.Strand;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicQueue;
+import co.paralleluniverse.strands.queues.BasicSingleConsumerQueue;
 import co.paralleluniverse.strands.queues.CircularBuffer;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayQueue;
 import co.paralleluniverse.strands.queues.QueueCapacityExceededException;
+import java.lang.ref.WeakReference;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -33,12 +36,16 @@ import java.util.concurrent.TimeoutException;
  */
 public abstract class QueueChannel<Message> implements Channel<Message>, Selectable<Message>, java.io.Serializable {
     private static final int MAX_SEND_RETRIES = 10;
+    private static final int DEADLINE_CHECK_SPINS = 64; // how often a timed spin-wait reads the clock; a power of 2
     final Condition sync;
     final Condition sendersSync;
     final BasicQueue<Message> queue;
     final OverflowPolicy overflowPolicy;
     private volatile boolean sendClosed;
     private boolean receiveClosed;
+    private ChannelWaitStrategy waitStrategy;
+    private ChannelMonitor monitor;
+    private transient volatile WeakReference<ReceiveSelector.Key<Message>> selectionKey; // weak, so that an abandoned selector may be collected
 
     protected QueueChannel(BasicQueue<Message> queue, OverflowPolicy overflowPolicy, boolean singleConsumer) {
         this.queue = queue;
@@ -55,27 +62,89 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
         return queue.capacity();
     }
 
+    /**
+     * Sets the strategy receivers use to wait for messages when they find the channel empty, or {@code null} (the
+     * default) for them to park right away. Must be called before the channel is used.
+     */
+    public void setWaitStrategy(ChannelWaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public ChannelWaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
     protected Condition sync() {
         verifySync();
         return sync;
     }
 
+    /**
+     * Called after each message is sent.
+     */
     protected void signalReceivers() {
+        monitorSent(1);
+        notifySelector();
         sync.signalAll();
     }
 
     protected void signalAndTryToExecNow() {
+        monitorSent(1);
+        notifySelector();
         if (sync instanceof OwnedSynchronizer)
             ((OwnedSynchronizer) sync).signalAndTryToExecNow();
         else
             sync.signalAll();
     }
 
+    /**
+     * Called after each message is received.
+     */
     void signalSenders() {
+        monitorReceived(1);
         if (overflowPolicy == OverflowPolicy.BLOCK)
             sendersSync.signal();
     }
 
+    /**
+     * Sets a monitor that will collect statistics about the channel, replacing, and unregistering, the current one, if
+     * any. Pass {@code null} to stop monitoring the channel.
+     *
+     * @see Channels#newChannelMonitor(String, co.paralleluniverse.common.monitoring.MonitorType)
+     */
+    public void setMonitor(ChannelMonitor monitor) {
+        if (monitor != null)
+            monitor.setChannel(this);
+        final ChannelMonitor old = this.monitor;
+        this.monitor = monitor;
+        if (old != null && old != monitor)
+            old.unregister();
+    }
+
+    public ChannelMonitor getMonitor() {
+        return monitor;
+    }
+
+    private void monitorSent(int n) {
+        final ChannelMonitor mon = monitor;
+        if (mon != null) {
+            mon.sent(n);
+            // a displacing queue that holds more than its capacity has lost (or is about to lose) its oldest element
+            if (overflowPolicy == OverflowPolicy.DISPLACE && queue.size() > queue.capacity())
+                mon.overflow(OverflowPolicy.DISPLACE);
+        }
+    }
+
+    /**
+     * Records received messages with the channel's monitor, if it has one. Must be called by subclasses that remove
+     * messages from the queue other than through the receive methods.
+     */
+    protected final void monitorReceived(int n) {
+        final ChannelMonitor mon = monitor;
+        if (mon != null)
+            mon.received(n);
+    }
+
     @Override
     public Object register(SelectAction<Message> action) {
         if (action.isData()) {
@@ -123,6 +192,35 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
             sync.unregister();
     }
 
+    /**
+     * Gives a {@link ReceiveSelector} a standing registration with this channel. The channel only holds the key weakly,
+     * so a selector that is dropped without being closed loses its registration once it is garbage collected.
+     *
+     * @return {@code false} if the channel is already registered with another selector
+     */
+    synchronized boolean setSelectionKey(ReceiveSelector.Key<Message> key) {
+        final WeakReference<ReceiveSelector.Key<Message>> ref = selectionKey;
+        if (ref != null && ref.get() != null)
+            return false;
+        selectionKey = new WeakReference<>(key);
+        return true;
+    }
+
+    synchronized void clearSelectionKey(ReceiveSelector.Key<?> key) {
+        final WeakReference<ReceiveSelector.Key<Message>> ref = selectionKey;
+        if (ref != null && ref.get() == key)
+            selectionKey = null;
+    }
+
+    private void notifySelector() {
+        final WeakReference<ReceiveSelector.Key<Message>> ref = selectionKey;
+        if (ref != null) {
+            final ReceiveSelector.Key<Message> key = ref.get();
+            if (key != null)
+                key.ready();
+        }
+    }
+
     public void sendNonSuspendable(Message message) throws QueueCapacityExceededException {
         if (isSendClosed())
             return;
@@ -172,12 +270,14 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
         try {
             int i = 0;
 
-            final long deadline = timed ? System.nanoTime() : 0L;
+            final long deadline = timed ? System.nanoTime() + nanos : 0L;
 
             while (!queue.enq(message)) {
                 if (isSendClosed())
                     return true;
                 onQueueFull(i++, timed, nanos);
+                if (overflowPolicy == OverflowPolicy.DROP)
+                    return true;
 
                 if (timed) {
                     nanos = deadline - System.nanoTime();
@@ -198,7 +298,51 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
         return true;
     }
 
+    /**
+     * Sends a range of messages, enqueueing as many as the queue has room for at once, and signaling the receivers once
+     * per such batch rather than once per message. When the queue is full, the overflow policy is applied just as in
+     * {@link #send(Object) send}, except that {@link OverflowPolicy#DROP DROP} drops all remaining messages.
+     */
+    public void sendBatch(Message[] messages, int offset, int length) throws SuspendExecution, InterruptedException {
+        for (int i = 0; i < length; i++) {
+            if (messages[offset + i] == null)
+                throw new IllegalArgumentException("message is null");
+        }
+        if (isSendClosed())
+            return;
+        if (overflowPolicy == OverflowPolicy.BLOCK)
+            sendersSync.register();
+        try {
+            int sent = 0;
+            int i = 0;
+            for (;;) {
+                final int n = queue.enqAll(messages, offset + sent, length - sent);
+                sent += n;
+                if (n > 0) {
+                    monitorSent(n);
+                    notifySelector();
+                    sync.signalAll();
+                }
+                if (sent == length || isSendClosed())
+                    return;
+                if (n > 0)
+                    i = 0; // the queue has drained since the last overflow; start over
+                onQueueFull(i++, false, 0);
+                if (overflowPolicy == OverflowPolicy.DROP)
+                    return;
+            }
+        } catch (TimeoutException e) {
+            throw new AssertionError(e);
+        } finally {
+            if (overflowPolicy == OverflowPolicy.BLOCK)
+                sendersSync.unregister();
+        }
+    }
+
     void onQueueFull(int iter, boolean timed, long nanos) throws SuspendExecution, InterruptedException, TimeoutException {
+        final ChannelMonitor mon = monitor;
+        if (mon != null && iter == 0)
+            mon.overflow(overflowPolicy);
         switch (overflowPolicy) {
             case DROP:
                 return;
@@ -224,7 +368,8 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
     public void close() {
         if (!sendClosed) {
             sendClosed = true;
-            signalReceivers();
+            notifySelector();
+            sync.signalAll();
             if (sendersSync != null)
                 sendersSync.signalAll();
         }
@@ -268,6 +413,7 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
 
         Message m;
         boolean closed;
+        spinWait();
         sync.register();
         for (int i = 0;; i++) {
             closed = isSendClosed(); // must be read BEFORE queue.poll()
@@ -287,6 +433,42 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
         return m;
     }
 
+    /**
+     * Receives all available messages, up to {@code max}, blocking until at least one is available.
+     * The messages are stored at the beginning of {@code messages}.
+     *
+     * @return the number of messages received, or 0 if the channel has been closed
+     */
+    public int receiveBatch(Message[] messages, int max) throws SuspendExecution, InterruptedException {
+        if (receiveClosed)
+            return 0;
+
+        int n;
+        boolean closed;
+        spinWait();
+        sync.register();
+        try {
+            for (int i = 0;; i++) {
+                closed = isSendClosed(); // must be read BEFORE queue.drainTo()
+                if ((n = queue.drainTo(messages, max)) > 0)
+                    break;
+                if (closed) {
+                    setReceiveClosed();
+                    return 0;
+                }
+
+                sync.await(i);
+            }
+        } finally {
+            sync.unregister();
+        }
+
+        monitorReceived(n);
+        if (overflowPolicy == OverflowPolicy.BLOCK)
+            sendersSync.signalAll();
+        return n;
+    }
+
     @Override
     public Message receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
         if (receiveClosed)
@@ -301,6 +483,7 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
 
         Message m;
         boolean closed;
+        spinWait(true, deadline);
         sync.register();
         try {
             for (int i = 0;; i++) {
@@ -312,11 +495,11 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
                     return null;
                 }
 
-                sync.await(i, left, TimeUnit.NANOSECONDS);
-
                 left = deadline - System.nanoTime();
                 if (left <= 0)
                     return null;
+
+                sync.await(i, left, TimeUnit.NANOSECONDS);
             }
         } finally {
             sync.unregister();
@@ -343,6 +526,54 @@ public abstract class QueueChannel<Message> implements Channel<Message>, Selecta
         }
     }
 
+    /**
+     * Spins and yields, as directed by the wait strategy, until a message is available or the channel is closed.
+     * Called by receivers before they register with {@link #sync} to park, so that senders don't signal them while
+     * they spin.
+     */
+    final void spinWait() throws SuspendExecution {
+        spinWait(false, 0);
+    }
+
+    /**
+     * Like {@link #spinWait()}, but, if {@code timed}, stops once {@code deadline} (a {@link System#nanoTime() nanoTime})
+     * has passed, without adapting the strategy.
+     */
+    final void spinWait(boolean timed, long deadline) throws SuspendExecution {
+        final ChannelWaitStrategy ws = waitStrategy;
+        if (ws == null || hasMessages())
+            return;
+        final int spins = ws.getSpins();
+        for (int i = 0; i < spins; i++) {
+            if (hasMessages() || isSendClosed()) {
+                ws.spun();
+                return;
+            }
+            if (timed && (i & (DEADLINE_CHECK_SPINS - 1)) == 0 && System.nanoTime() - deadline >= 0)
+                return;
+        }
+        for (int i = 0; i < ws.getYields(); i++) {
+            Strand.yield();
+            if (hasMessages() || isSendClosed()) {
+                ws.yielded();
+                return;
+            }
+            if (timed && System.nanoTime() - deadline >= 0)
+                return;
+        }
+        ws.parked();
+    }
+
+    private boolean hasMessages() {
+        if (queue instanceof BasicSingleConsumerQueue)
+            return ((BasicSingleConsumerQueue<Message>) queue).hasNext();
+        if (queue instanceof CircularBuffer)
+            return ((CircularBuffer<Message>) queue).hasNext();
+        if (queue instanceof MultiConsumerArrayQueue)
+            return ((MultiConsumerArrayQueue<Message>) queue).hasNext();
+        return queue.size() > 0;
+    }
+
     private void verifySync() {
         if (sync == null)
             throw new IllegalStateException("Owning strand has not been set");
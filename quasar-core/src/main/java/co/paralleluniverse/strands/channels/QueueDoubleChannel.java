@@ -16,6 +16,7 @@ package co.paralleluniverse.strands.channels;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerDoubleQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayDoubleQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -24,6 +25,10 @@ import java.util.concurrent.TimeoutException;
  * @author pron
  */
 public class QueueDoubleChannel extends QueuePrimitiveChannel<Double> implements DoubleChannel {
+    public QueueDoubleChannel(BasicSingleConsumerDoubleQueue queue, OverflowPolicy policy, boolean singleConsumer) {
+        super(queue, policy, singleConsumer);
+    }
+
     public QueueDoubleChannel(BasicSingleConsumerDoubleQueue queue, OverflowPolicy policy) {
         super(queue, policy);
     }
@@ -32,8 +37,12 @@ public class QueueDoubleChannel extends QueuePrimitiveChannel<Double> implements
     public double receiveDouble() throws SuspendExecution, InterruptedException {
         if (isClosed())
             throw new EOFException();
-        awaitItem();
-        final double m = queue().pollDouble();
+        final double m;
+        if (singleConsumer) {
+            awaitItem();
+            m = queue().pollDouble();
+        } else
+            m = mcQueue().pollDouble(awaitIndex());
         signalSenders();
         return m;
     }
@@ -42,9 +51,17 @@ public class QueueDoubleChannel extends QueuePrimitiveChannel<Double> implements
     public double receiveDouble(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
         if (isClosed())
             throw new EOFException();
-        if (!awaitItem(timeout, unit))
-            throw new TimeoutException();
-        final double m = queue().pollDouble();
+        final double m;
+        if (singleConsumer) {
+            if (!awaitItem(timeout, unit))
+                throw new TimeoutException();
+            m = queue().pollDouble();
+        } else {
+            final int n = awaitIndex(timeout, unit);
+            if (n < 0)
+                throw new TimeoutException();
+            m = mcQueue().pollDouble(n);
+        }
         signalSenders();
         return m;
     }
@@ -80,6 +97,11 @@ public class QueueDoubleChannel extends QueuePrimitiveChannel<Double> implements
         return true;
     }
 
+    @Override
+    MultiConsumerArrayDoubleQueue mcQueue() {
+        return (MultiConsumerArrayDoubleQueue) queue;
+    }
+
     @Override
     protected BasicSingleConsumerDoubleQueue queue() {
         return (BasicSingleConsumerDoubleQueue) queue;
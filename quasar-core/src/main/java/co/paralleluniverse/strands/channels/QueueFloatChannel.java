@@ -16,6 +16,7 @@ package co.paralleluniverse.strands.channels;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerFloatQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayFloatQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -24,6 +25,10 @@ import java.util.concurrent.TimeoutException;
  * @author pron
  */
 public class QueueFloatChannel extends QueuePrimitiveChannel<Float> implements FloatChannel {
+    public QueueFloatChannel(BasicSingleConsumerFloatQueue queue, OverflowPolicy policy, boolean singleConsumer) {
+        super(queue, policy, singleConsumer);
+    }
+
     public QueueFloatChannel(BasicSingleConsumerFloatQueue queue, OverflowPolicy policy) {
         super(queue, policy);
     }
@@ -32,8 +37,12 @@ public class QueueFloatChannel extends QueuePrimitiveChannel<Float> implements F
     public float receiveFloat() throws SuspendExecution, InterruptedException {
         if (isClosed())
             throw new EOFException();
-        awaitItem();
-        final float m = queue().pollFloat();
+        final float m;
+        if (singleConsumer) {
+            awaitItem();
+            m = queue().pollFloat();
+        } else
+            m = mcQueue().pollFloat(awaitIndex());
         signalSenders();
         return m;
     }
@@ -42,9 +51,17 @@ public class QueueFloatChannel extends QueuePrimitiveChannel<Float> implements F
     public float receiveFloat(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
         if (isClosed())
             throw new EOFException();
-        if (!awaitItem(timeout, unit))
-            throw new TimeoutException();
-        final float m = queue().pollFloat();
+        final float m;
+        if (singleConsumer) {
+            if (!awaitItem(timeout, unit))
+                throw new TimeoutException();
+            m = queue().pollFloat();
+        } else {
+            final int n = awaitIndex(timeout, unit);
+            if (n < 0)
+                throw new TimeoutException();
+            m = mcQueue().pollFloat(n);
+        }
         signalSenders();
         return m;
     }
@@ -80,6 +97,11 @@ public class QueueFloatChannel extends QueuePrimitiveChannel<Float> implements F
         return true;
     }
 
+    @Override
+    MultiConsumerArrayFloatQueue mcQueue() {
+        return (MultiConsumerArrayFloatQueue) queue;
+    }
+
     @Override
     protected BasicSingleConsumerFloatQueue queue() {
         return (BasicSingleConsumerFloatQueue) queue;
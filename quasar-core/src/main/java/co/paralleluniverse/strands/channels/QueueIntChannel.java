@@ -16,6 +16,7 @@ package co.paralleluniverse.strands.channels;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerIntQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayIntQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -24,6 +25,10 @@ import java.util.concurrent.TimeoutException;
  * @author pron
  */
 public class QueueIntChannel extends QueuePrimitiveChannel<Integer> implements IntChannel {
+    public QueueIntChannel(BasicSingleConsumerIntQueue queue, OverflowPolicy policy, boolean singleConsumer) {
+        super(queue, policy, singleConsumer);
+    }
+
     public QueueIntChannel(BasicSingleConsumerIntQueue queue, OverflowPolicy policy) {
         super(queue, policy);
     }
@@ -32,8 +37,12 @@ public class QueueIntChannel extends QueuePrimitiveChannel<Integer> implements I
     public int receiveInt() throws SuspendExecution, InterruptedException {
         if (isClosed())
             throw new EOFException();
-        awaitItem();
-        final int m = queue().pollInt();
+        final int m;
+        if (singleConsumer) {
+            awaitItem();
+            m = queue().pollInt();
+        } else
+            m = mcQueue().pollInt(awaitIndex());
         signalSenders();
         return m;
     }
@@ -42,9 +51,17 @@ public class QueueIntChannel extends QueuePrimitiveChannel<Integer> implements I
     public int receiveInt(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
         if (isClosed())
             throw new EOFException();
-        if (!awaitItem(timeout, unit))
-            throw new TimeoutException();
-        final int m = queue().pollInt();
+        final int m;
+        if (singleConsumer) {
+            if (!awaitItem(timeout, unit))
+                throw new TimeoutException();
+            m = queue().pollInt();
+        } else {
+            final int n = awaitIndex(timeout, unit);
+            if (n < 0)
+                throw new TimeoutException();
+            m = mcQueue().pollInt(n);
+        }
         signalSenders();
         return m;
     }
@@ -80,6 +97,11 @@ public class QueueIntChannel extends QueuePrimitiveChannel<Integer> implements I
         return true;
     }
 
+    @Override
+    MultiConsumerArrayIntQueue mcQueue() {
+        return (MultiConsumerArrayIntQueue) queue;
+    }
+
     @Override
     protected BasicSingleConsumerIntQueue queue() {
         return (BasicSingleConsumerIntQueue) queue;
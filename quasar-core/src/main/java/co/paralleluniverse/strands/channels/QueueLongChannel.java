@@ -16,6 +16,7 @@ package co.paralleluniverse.strands.channels;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerLongQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayLongQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -24,6 +25,10 @@ import java.util.concurrent.TimeoutException;
  * @author pron
  */
 public class QueueLongChannel extends QueuePrimitiveChannel<Long> implements LongChannel {
+    public QueueLongChannel(BasicSingleConsumerLongQueue queue, OverflowPolicy policy, boolean singleConsumer) {
+        super(queue, policy, singleConsumer);
+    }
+
     public QueueLongChannel(BasicSingleConsumerLongQueue queue, OverflowPolicy policy) {
         super(queue, policy);
     }
@@ -32,8 +37,12 @@ public class QueueLongChannel extends QueuePrimitiveChannel<Long> implements Lon
     public long receiveLong() throws SuspendExecution, InterruptedException {
         if (isClosed())
             throw new EOFException();
-        awaitItem();
-        final long m = queue().pollLong();
+        final long m;
+        if (singleConsumer) {
+            awaitItem();
+            m = queue().pollLong();
+        } else
+            m = mcQueue().pollLong(awaitIndex());
         signalSenders();
         return m;
     }
@@ -42,9 +51,17 @@ public class QueueLongChannel extends QueuePrimitiveChannel<Long> implements Lon
     public long receiveLong(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
         if (isClosed())
             throw new EOFException();
-        if (!awaitItem(timeout, unit))
-            throw new TimeoutException();
-        final long m = queue().pollLong();
+        final long m;
+        if (singleConsumer) {
+            if (!awaitItem(timeout, unit))
+                throw new TimeoutException();
+            m = queue().pollLong();
+        } else {
+            final int n = awaitIndex(timeout, unit);
+            if (n < 0)
+                throw new TimeoutException();
+            m = mcQueue().pollLong(n);
+        }
         signalSenders();
         return m;
     }
@@ -80,6 +97,11 @@ public class QueueLongChannel extends QueuePrimitiveChannel<Long> implements Lon
         return true;
     }
 
+    @Override
+    MultiConsumerArrayLongQueue mcQueue() {
+        return (MultiConsumerArrayLongQueue) queue;
+    }
+
     @Override
     protected BasicSingleConsumerLongQueue queue() {
         return (BasicSingleConsumerLongQueue) queue;
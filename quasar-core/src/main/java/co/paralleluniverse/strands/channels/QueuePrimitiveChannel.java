@@ -18,18 +18,27 @@ import co.paralleluniverse.strands.Strand;
 import co.paralleluniverse.strands.Stranded;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.BasicSingleConsumerQueue;
+import co.paralleluniverse.strands.queues.MultiConsumerArrayQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Single consumer!
+ * Single consumer, unless the queue is a {@link MultiConsumerArrayQueue}.
  *
  * @author pron
  */
 public class QueuePrimitiveChannel<Message> extends QueueChannel<Message> implements Stranded {
     private Strand owner;
+    final boolean singleConsumer;
+
+    public QueuePrimitiveChannel(BasicSingleConsumerQueue<Message> queue, OverflowPolicy policy, boolean singleConsumer) {
+        super(queue, policy, singleConsumer);
+        if (!singleConsumer && !(queue instanceof MultiConsumerArrayQueue))
+            throw new IllegalArgumentException("Queue " + queue + " does not support multiple consumers");
+        this.singleConsumer = singleConsumer;
+    }
 
     public QueuePrimitiveChannel(BasicSingleConsumerQueue<Message> queue, OverflowPolicy policy) {
-        super(queue, policy, true);
+        this(queue, policy, true);
     }
 
     @Override
@@ -55,6 +64,7 @@ public class QueuePrimitiveChannel<Message> extends QueueChannel<Message> implem
     boolean awaitItem() throws SuspendExecution, InterruptedException {
         maybeSetCurrentStrandAsOwner();
         Object n;
+        spinWait();
         sync.register();
         for (int i = 0; !queue().hasNext(); i++) {
             if (isSendClosed()) {
@@ -79,6 +89,7 @@ public class QueuePrimitiveChannel<Message> extends QueueChannel<Message> implem
         long left = unit.toNanos(timeout);
         final long deadline = System.nanoTime() + left;
 
+        spinWait(true, deadline);
         sync.register();
         try {
             for (int i = 0; !queue().hasNext(); i++) {
@@ -86,11 +97,12 @@ public class QueuePrimitiveChannel<Message> extends QueueChannel<Message> implem
                     setReceiveClosed();
                     throw new EOFException();
                 }
-                sync.await(i, left, TimeUnit.NANOSECONDS);
 
                 left = deadline - System.nanoTime();
                 if (left <= 0)
                     return false;
+
+                sync.await(i, left, TimeUnit.NANOSECONDS);
             }
         } finally {
             sync.unregister();
@@ -98,6 +110,75 @@ public class QueuePrimitiveChannel<Message> extends QueueChannel<Message> implem
         return true;
     }
 
+    /**
+     * Waits for an element and claims it. Used when there are multiple consumers.
+     *
+     * @return the claimed element's index in the {@link MultiConsumerArrayQueue}
+     */
+    int awaitIndex() throws SuspendExecution, InterruptedException {
+        final MultiConsumerArrayQueue<Message> q = mcQueue();
+        int n;
+        boolean closed;
+        spinWait();
+        sync.register();
+        try {
+            for (int i = 0;; i++) {
+                closed = isSendClosed(); // must be read BEFORE q.pollIndex()
+                if ((n = q.pollIndex()) >= 0)
+                    return n;
+                if (closed) {
+                    setReceiveClosed();
+                    throw new EOFException();
+                }
+                sync.await(i);
+            }
+        } finally {
+            sync.unregister();
+        }
+    }
+
+    /**
+     * Like {@link #awaitIndex()}, but returns -1 if the timeout has elapsed.
+     */
+    int awaitIndex(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (unit == null)
+            return awaitIndex();
+        final MultiConsumerArrayQueue<Message> q = mcQueue();
+        if (timeout <= 0)
+            return q.pollIndex();
+
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+
+        int n;
+        boolean closed;
+        spinWait(true, deadline);
+        sync.register();
+        try {
+            for (int i = 0;; i++) {
+                closed = isSendClosed(); // must be read BEFORE q.pollIndex()
+                if ((n = q.pollIndex()) >= 0)
+                    return n;
+                if (closed) {
+                    setReceiveClosed();
+                    throw new EOFException();
+                }
+
+                left = deadline - System.nanoTime();
+                if (left <= 0)
+                    return -1;
+
+                sync.await(i, left, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            sync.unregister();
+        }
+    }
+
+    MultiConsumerArrayQueue<Message> mcQueue() {
+        return (MultiConsumerArrayQueue<Message>) queue;
+    }
+
     protected BasicSingleConsumerQueue<Message> queue() {
         return (BasicSingleConsumerQueue<Message>) queue;
     }
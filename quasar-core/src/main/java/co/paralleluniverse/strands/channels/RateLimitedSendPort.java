@@ -0,0 +1,245 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.DefaultFiberScheduler;
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.FiberTimedScheduler;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Strand;
+import com.google.common.base.Function;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A send port that limits the rate of messages sent to its target with a token bucket, or, if given a key function,
+ * with a separate token bucket for each key.
+ *
+ * A sender that finds no permit available reserves the next one, and parks until the permit's time, so it uses the
+ * fiber timer (for fibers) and doesn't poll; senders are given permits in the order they arrive. A permit is taken
+ * before the message is sent, so if the target then blocks, the sender waits for it as well.
+ *
+ * The port may be used in a {@link Selector select} if its target is a {@link QueueChannel}. While no permit is
+ * available, the selecting strand is woken by a timer command when the next one is due.
+ *
+ * @see Channels#rateLimited(SendPort, double, int)
+ * @see Channels#rateLimited(SendPort, Function, double, int)
+ * @author pron
+ */
+class RateLimitedSendPort<Message> implements SendPort<Message>, Selectable<Message> {
+    private static final int SWEEP_PERIOD = 1024; // sends between sweeps of idle keyed buckets
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final SendPort<Message> target;
+    private final double permitsPerSecond;
+    private final int burst;
+    private final TokenBucket bucket; // null if keyed
+    private final Function<? super Message, ?> key;
+    private final ConcurrentHashMap<Object, TokenBucket> buckets;
+    private final AtomicInteger sweepCountdown = new AtomicInteger(SWEEP_PERIOD);
+
+    RateLimitedSendPort(SendPort<Message> target, Function<? super Message, ?> key, double permitsPerSecond, int burst) {
+        this.target = target;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.key = key;
+        if (key == null) {
+            this.bucket = new TokenBucket(permitsPerSecond, burst);
+            this.buckets = null;
+        } else {
+            new TokenBucket(permitsPerSecond, burst); // validate arguments
+            this.bucket = null;
+            this.buckets = new ConcurrentHashMap<>();
+        }
+    }
+
+    @Override
+    public void send(Message message) throws SuspendExecution, InterruptedException {
+        final TokenBucket b = bucket(message);
+        final long reservation = b.reserve(System.nanoTime(), Long.MAX_VALUE);
+        awaitPermit(b, reservation);
+        target.send(message);
+    }
+
+    @Override
+    public boolean send(Message message, long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        final TokenBucket b = bucket(message);
+        final long start = System.nanoTime();
+        final long nanos = unit.toNanos(timeout);
+        final long reservation = b.reserve(start, nanos);
+        if (reservation == TokenBucket.NO_PERMIT)
+            return false;
+        awaitPermit(b, reservation);
+        final boolean sent = target.send(message, nanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+        if (!sent)
+            b.cancel(reservation);
+        return sent;
+    }
+
+    @Override
+    public boolean trySend(Message message) {
+        final TokenBucket b = bucket(message);
+        final long reservation = b.reserve(System.nanoTime(), 0);
+        if (reservation == TokenBucket.NO_PERMIT)
+            return false;
+        if (target.trySend(message))
+            return true;
+        b.cancel(reservation);
+        return false;
+    }
+
+    private void awaitPermit(TokenBucket b, long reservation) throws SuspendExecution, InterruptedException {
+        final long until = b.availableAt(reservation);
+        for (long left = until - System.nanoTime(); left > 0; left = until - System.nanoTime()) {
+            Strand.parkNanos(this, left);
+            if (Strand.interrupted()) {
+                b.cancel(reservation);
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        target.close();
+    }
+
+    private TokenBucket bucket(Message message) {
+        if (bucket != null)
+            return bucket;
+        final Object k = key.apply(message);
+        TokenBucket b = buckets.get(k);
+        if (b == null) {
+            final TokenBucket b1 = new TokenBucket(permitsPerSecond, burst);
+            b = buckets.putIfAbsent(k, b1);
+            if (b == null)
+                b = b1;
+        }
+        if (sweepCountdown.decrementAndGet() == 0) {
+            sweepCountdown.set(SWEEP_PERIOD);
+            sweep();
+        }
+        return b;
+    }
+
+    /**
+     * Removes the buckets of keys that haven't been used for a while, as they are full, and so equivalent to new ones.
+     * A sender that has just looked up a bucket as it's being removed may take a permit from it, in which case the next
+     * sender with the same key starts with a full bucket, so the limit may be exceeded by one burst in that rare race.
+     */
+    private void sweep() {
+        final long idleSince = System.nanoTime() - IDLE_NANOS;
+        for (Iterator<Map.Entry<Object, TokenBucket>> it = buckets.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<Object, TokenBucket> e = it.next();
+            if (e.getValue().isFullSince(idleSince))
+                buckets.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    int bucketCount() {
+        return buckets != null ? buckets.size() : 1;
+    }
+
+    ////////////////////
+    @Override
+    public Object register(SelectAction<Message> action) {
+        if (!(target instanceof QueueChannel))
+            throw new UnsupportedOperationException("A rate-limited port can only be selected if its target is a QueueChannel");
+        return new Registration(action, ((QueueChannel<Message>) target).register(action));
+    }
+
+    @Override
+    public boolean tryNow(Object token) {
+        final Registration r = (Registration) token;
+        final SelectAction<Message> action = (SelectAction<Message>) r.action;
+        if (!action.lease())
+            return false;
+        final TokenBucket b = bucket(action.message());
+        final long reservation = b.reserve(System.nanoTime(), 0);
+        if (reservation == TokenBucket.NO_PERMIT) {
+            action.returnLease();
+            r.wakeAt(b.nextAvailable());
+            return false;
+        }
+        if (!target.trySend(action.message())) {
+            b.cancel(reservation);
+            action.returnLease();
+            return false; // the target will wake the selector when it has room
+        }
+        action.setItem(null);
+        action.won();
+        return true;
+    }
+
+    @Override
+    public void unregister(Object token) {
+        if (token == null)
+            return;
+        final Registration r = (Registration) token;
+        r.cancelWakeup();
+        ((QueueChannel<Message>) target).unregister(r.targetToken);
+    }
+
+    private static FiberTimedScheduler timerFor(Strand strand) {
+        return strand.isFiber() ? ((Fiber) strand).getScheduler().getTimer() : DefaultFiberScheduler.getInstance().getTimer();
+    }
+
+    /**
+     * A select action's registration, which wakes the selector when a permit becomes available.
+     */
+    private static class Registration implements Runnable {
+        final SelectAction<?> action;
+        final Object targetToken;
+        private Future<Void> wakeup;
+        private long wakeupTime;
+        private volatile boolean fired;
+
+        Registration(SelectAction<?> action, Object targetToken) {
+            this.action = action;
+            this.targetToken = targetToken;
+        }
+
+        void wakeAt(long time) {
+            if (wakeup != null) {
+                if (!fired && wakeupTime - time <= 0)
+                    return; // a wakeup is already due by then
+                wakeup.cancel(false);
+            }
+            fired = false;
+            wakeupTime = time;
+            final Strand waiter = action.selector().getWaiter();
+            wakeup = timerFor(waiter).schedule(this, time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        void cancelWakeup() {
+            if (wakeup != null)
+                wakeup.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            fired = true;
+            action.selector().signal();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitedSendPort{" + target + ", permitsPerSecond: " + permitsPerSecond + ", burst: " + burst
+                + (key != null ? ", keyed" : "") + '}';
+    }
+}
@@ -14,26 +14,27 @@
 package co.paralleluniverse.strands.channels;
 
 import co.paralleluniverse.fibers.SuspendExecution;
-import static co.paralleluniverse.strands.channels.Selector.*;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * A receive port that receives messages from a group of ports.
+ *
+ * The group keeps a standing registration (see {@link ReceiveSelector}) with its channels, so that each receive only
+ * tries the channels that have messages, rather than registering with, and polling, all of them. As a channel may only
+ * have one standing registration at a time, a channel in a group that is still registered is polled on every receive by
+ * any other group it is added to. Closing the group releases the registrations right away, but does not close the
+ * ports; a group that is dropped without being closed releases them only once it has been garbage collected.
  *
  * @author pron
  */
 public class ReceivePortGroup<Message> implements ReceivePort<Message> {
-    private final Collection<ReceivePort<? extends Message>> ports;
-    private final Selector<Message> selector;
+    private final ReceiveSelector<Message> selector;
+    private volatile boolean closed;
 
-    public ReceivePortGroup(Collection<ReceivePort<? extends Message>> ports) {
-        this.ports = ports;
-        ArrayList<SelectAction<Message>> actions = new ArrayList<>(ports.size());
-        for (ReceivePort<? extends Message> port : ports)
-            actions.add(receive(port));
-        this.selector = new Selector<>(false, actions);
+    public ReceivePortGroup(Collection<? extends ReceivePort<? extends Message>> ports) {
+        this.selector = new ReceiveSelector<>(ports);
     }
 
     public ReceivePortGroup(ReceivePort<? extends Message>... ports) {
@@ -42,23 +43,25 @@ public class ReceivePortGroup<Message> implements ReceivePort<Message> {
 
     @Override
     public Message tryReceive() {
-        for (ReceivePort<? extends Message> port : ports) {
-            Message m = port.tryReceive();
-            if (m != null)
-                return m;
-        }
+        if (closed)
+            return null;
+        SelectAction<Message> sa = selector.trySelect();
+        if (sa != null)
+            return sa.message();
         return null;
     }
 
     @Override
     public Message receive() throws SuspendExecution, InterruptedException {
-        selector.reset();
+        if (closed)
+            return null;
         return selector.select().message();
     }
 
     @Override
     public Message receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
-        selector.reset();
+        if (closed)
+            return null;
         SelectAction<Message> sa = selector.select(timeout, unit);
         if (sa != null)
             return sa.message();
@@ -67,11 +70,14 @@ public class ReceivePortGroup<Message> implements ReceivePort<Message> {
 
     @Override
     public void close() {
-        throw new UnsupportedOperationException();
+        if (!closed) {
+            closed = true;
+            selector.close();
+        }
     }
 
     @Override
     public boolean isClosed() {
-        return false;
+        return closed;
     }
 }
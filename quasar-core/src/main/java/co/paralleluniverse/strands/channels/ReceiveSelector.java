@@ -0,0 +1,232 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Strand;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import sun.misc.Unsafe;
+
+/**
+ * A reusable selector over a fixed set of receive ports, for strands that repeatedly select over many ports.
+ *
+ * Unlike {@link Selector#select(SelectAction[]) Selector.select}, which registers with all of the ports, and then
+ * unregisters from all of them, on every call, a {@code ReceiveSelector} keeps a standing registration with each
+ * {@link QueueChannel} it selects from, which notifies the selector whenever a message is sent to it. The selector
+ * keeps the notified ports in a ready queue, so a call to {@link #select() select} only tries the ports that are ready,
+ * in the order they have become ready, which also makes the selection fair. Ports that are not queue channels (or
+ * that are already registered with another {@code ReceiveSelector}) are registered on each call, and tried on each
+ * call, as with a {@link Selector}.
+ *
+ * A closed port is always ready, and will be returned by every call to {@code select} (with a {@code null} message).
+ *
+ * Only one strand may select at a time. The standing registrations are released by {@link #close() close}, or, if the
+ * selector is abandoned without being closed, once it is garbage collected, as the channels only hold them weakly.
+ *
+ * @author pron
+ */
+public class ReceiveSelector<Message> {
+    private final Key<Message>[] keys;
+    private final List<SelectAction<Message>> polled; // ports with no standing registration
+    private final Selector<Message> selector; // shared by all actions, so that only one of them completes in each selection
+    private final Queue<Key<Message>> ready = new ConcurrentLinkedQueue<>();
+    private volatile Strand waiter;
+
+    public ReceiveSelector(Collection<? extends ReceivePort<? extends Message>> ports) {
+        final List<SelectAction<Message>> actions = new ArrayList<>(ports.size());
+        final List<Key<Message>> ks = new ArrayList<>(ports.size());
+        this.polled = new ArrayList<>();
+        for (ReceivePort<? extends Message> port : ports) {
+            final SelectAction<Message> sa = new SelectAction<>((ReceivePort<Message>) port, null);
+            actions.add(sa);
+            final Key<Message> key = new Key<>(this, sa);
+            if (port instanceof QueueChannel && ((QueueChannel<Message>) port).setSelectionKey(key))
+                ks.add(key);
+            else
+                polled.add(sa);
+        }
+        this.keys = ks.toArray(new Key[ks.size()]);
+        this.selector = new Selector<>(false, polled);
+        for (Key<Message> key : keys)
+            key.action.setSelector(selector);
+        for (int i = 0; i < actions.size(); i++)
+            actions.get(i).setIndex(i);
+        for (Key<Message> key : keys)
+            key.ready(); // the port may already hold messages
+    }
+
+    public ReceiveSelector(ReceivePort<? extends Message>... ports) {
+        this(Arrays.asList(ports));
+    }
+
+    /**
+     * Receives a message from any of the ports, if one is available.
+     *
+     * @return the action for the port that has been received from, holding the received message, or {@code null} if
+     *         no message is available
+     */
+    public SelectAction<Message> trySelect() {
+        selector.reset();
+        for (int n = keys.length; n > 0; n--) {
+            final Key<Message> key = ready.poll();
+            if (key == null)
+                break;
+            if (tryKey(key))
+                return key.action;
+        }
+        for (int i = 0; i < polled.size(); i++) {
+            final SelectAction<Message> sa = polled.get(i);
+            final ReceivePort<Message> port = (ReceivePort<Message>) sa.port;
+            final Message m = port.tryReceive();
+            if (m != null || port.isClosed()) {
+                sa.setItem(m);
+                return sa;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Receives a message from any of the ports, blocking until one is available.
+     *
+     * @return the action for the port that has been received from, holding the received message
+     */
+    public SelectAction<Message> select() throws InterruptedException, SuspendExecution {
+        return select(-1, null);
+    }
+
+    /**
+     * Receives a message from any of the ports, blocking until one is available or the timeout has elapsed.
+     *
+     * @return the action for the port that has been received from, holding the received message, or {@code null} if
+     *         the timeout has elapsed
+     */
+    public SelectAction<Message> select(long timeout, TimeUnit unit) throws InterruptedException, SuspendExecution {
+        if (timeout == 0 && unit != null)
+            return trySelect();
+
+        final boolean timed = (timeout > 0 && unit != null);
+        long lastTime = timed ? System.nanoTime() : 0L;
+        long nanos = timed ? unit.toNanos(timeout) : 0L;
+
+        selector.reset();
+        selector.selectInit();
+        this.waiter = Strand.currentStrand();
+        try {
+            SelectAction<Message> res = selector.register();
+            if (res != null)
+                return res;
+            for (;;) {
+                Key<Message> key;
+                while ((key = ready.poll()) != null) {
+                    if (tryKey(key))
+                        return key.action;
+                    if (selector.hasWinner())
+                        break; // one of the polled ports has won
+                }
+                if ((res = selector.tryRegistered()) != null)
+                    return res;
+
+                if (timed) {
+                    if (nanos <= 0)
+                        return null;
+                    Strand.parkNanos(selector, nanos);
+                    final long now = System.nanoTime();
+                    nanos -= now - lastTime;
+                    lastTime = now;
+                } else
+                    Strand.park(selector);
+
+                if (Strand.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            this.waiter = null;
+            selector.unregister();
+        }
+    }
+
+    private boolean tryKey(Key<Message> key) {
+        key.queued = 0; // must be cleared BEFORE trying the port, so that a concurrent send re-queues the key
+        if (key.action.port.tryNow(key.action)) {
+            key.requeue(); // the port may hold more messages; requeueing it at the tail keeps the selection fair
+            return true;
+        }
+        if (selector.hasWinner())
+            key.requeue(); // we've lost the selection to another port, so this one hasn't been tried
+        return false;
+    }
+
+    /**
+     * Releases the selector's standing registrations with its ports. The ports themselves are not closed.
+     */
+    public void close() {
+        for (Key<Message> key : keys)
+            ((QueueChannel<?>) key.action.port).clearSelectionKey(key);
+        ready.clear();
+    }
+
+    /**
+     * A standing registration of a {@link ReceiveSelector} with a {@link QueueChannel}.
+     */
+    static final class Key<Message> {
+        final ReceiveSelector<Message> selector;
+        final SelectAction<Message> action;
+        volatile int queued; // 1 if the key is in the ready queue
+
+        Key(ReceiveSelector<Message> selector, SelectAction<Message> action) {
+            this.selector = selector;
+            this.action = action;
+        }
+
+        /**
+         * Called by the channel after a message has been sent to it or it has been closed.
+         */
+        void ready() {
+            if (requeue()) {
+                final Strand w = selector.waiter;
+                if (w != null)
+                    Strand.unpark(w, selector.selector);
+            }
+        }
+
+        boolean requeue() {
+            if (queued != 0 || !casQueued(0, 1))
+                return false;
+            selector.ready.offer(this);
+            return true;
+        }
+        private static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+        private static final long queuedOffset;
+
+        static {
+            try {
+                queuedOffset = UNSAFE.objectFieldOffset(Key.class.getDeclaredField("queued"));
+            } catch (Exception ex) {
+                throw new Error(ex);
+            }
+        }
+
+        private boolean casQueued(int expected, int update) {
+            return UNSAFE.compareAndSwapInt(this, queuedOffset, expected, update);
+        }
+    }
+}
@@ -100,6 +100,7 @@ public class Selector<Message> {
     private Strand waiter;
     private final List<SelectAction<Message>> actions;
     private final boolean priority;
+    private int lastRegistered = -1;
 
     Selector(boolean priority, List<SelectAction<Message>> actions) {
         this.id = selectorId.incrementAndGet();
@@ -114,7 +115,7 @@ public class Selector<Message> {
         }
     }
 
-    private void selectInit() {
+    void selectInit() {
         this.waiter = Strand.currentStrand();
 
         if (!priority)
@@ -160,42 +161,16 @@ public class Selector<Message> {
         long lastTime = timed ? System.nanoTime() : 0L;
         long nanos = timed ? unit.toNanos(timeout) : 0L;
 
-        final int n = actions.size();
-        SelectAction<Message> res = null;
-
-        // register
-        int lastRegistered = -1;
-        for (int i = 0; i < n; i++) {
-            SelectAction<Message> sa = actions.get(i);
-
-            sa.token = sa.port.register(sa);
-            lastRegistered = i;
-            if (sa.isDone()) {
-                assert winner == sa;
-                res = sa;
-                break;
-            } else {
-                Object w = winner;
-                if (w != null & w != LEASED)
-                    break;
-            }
-        }
+        SelectAction<Message> res = register();
 
         // try
         if (res == null) {
-            tryloop:
             for (;;) {
                 if (timed && nanos <= 0)
                     break;
 
-                for (int i = 0; i <= lastRegistered; i++) {
-                    SelectAction<Message> sa = actions.get(i);
-
-                    if (sa.port.tryNow(sa.token)) {
-                        res = sa;
-                        break tryloop;
-                    }
-                }
+                if ((res = tryRegistered()) != null)
+                    break;
 
                 if (timed) {
                     long now = System.nanoTime();
@@ -207,13 +182,58 @@ public class Selector<Message> {
             }
         }
 
-        // unregister
+        unregister();
+        return res;
+    }
+
+    /**
+     * Registers the actions with their ports, stopping if an action completes upon registration, or if the selector
+     * has otherwise been won.
+     *
+     * @return the action that has completed upon registration, or {@code null}
+     */
+    SelectAction<Message> register() {
+        final int n = actions.size();
+        lastRegistered = -1;
+        for (int i = 0; i < n; i++) {
+            SelectAction<Message> sa = actions.get(i);
+
+            sa.token = sa.port.register(sa);
+            lastRegistered = i;
+            if (sa.isDone()) {
+                assert winner == sa;
+                return sa;
+            } else {
+                Object w = winner;
+                if (w != null & w != LEASED)
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tries to complete each of the registered actions.
+     *
+     * @return the action that has completed, or {@code null}
+     */
+    SelectAction<Message> tryRegistered() {
+        for (int i = 0; i <= lastRegistered; i++) {
+            SelectAction<Message> sa = actions.get(i);
+
+            if (sa.port.tryNow(sa.token))
+                return sa;
+        }
+        return null;
+    }
+
+    void unregister() {
         for (int i = 0; i <= lastRegistered; i++) {
             SelectAction sa = actions.get(i);
             sa.port.unregister(sa.token);
             sa.token = null; // for GC
         }
-        return res;
+        lastRegistered = -1;
     }
     private volatile StackTraceElement st[];
 
@@ -259,6 +279,11 @@ public class Selector<Message> {
         waiter.unpark(this);
     }
 
+    boolean hasWinner() {
+        final Object w = winner;
+        return w != null & w != LEASED;
+    }
+
     public SelectAction<?> getWinner() {
         return (SelectAction<?>) winner;
     }
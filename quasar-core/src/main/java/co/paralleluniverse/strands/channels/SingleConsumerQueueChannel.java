@@ -66,6 +66,7 @@ public class SingleConsumerQueueChannel<Message> extends QueueChannel<Message> i
     Object receiveNode() throws SuspendExecution, InterruptedException {
         maybeSetCurrentStrandAsOwner();
         Object n;
+        spinWait();
         sync.register();
         for (int i = 0; (n = queue().pk()) == null; i++) {
             if (isSendClosed()) {
@@ -91,6 +92,7 @@ public class SingleConsumerQueueChannel<Message> extends QueueChannel<Message> i
         long left = unit.toNanos(timeout);
         final long deadline = System.nanoTime() + left;
         
+        spinWait(true, deadline);
         sync.register();
         try {
             for (int i = 0; (n = queue().pk()) == null; i++) {
@@ -98,11 +100,12 @@ public class SingleConsumerQueueChannel<Message> extends QueueChannel<Message> i
                     setReceiveClosed();
                     throw new EOFException();
                 }
-                sync.await(i, left, TimeUnit.NANOSECONDS);
 
                 left = deadline - System.nanoTime();
                 if (left <= 0)
                     return null;
+
+                sync.await(i, left, TimeUnit.NANOSECONDS);
             }
         } finally {
             sync.unregister();
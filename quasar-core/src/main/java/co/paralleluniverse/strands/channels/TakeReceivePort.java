@@ -0,0 +1,94 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author pron
+ */
+class TakeReceivePort<M> extends DelegatingReceivePort<M, M> {
+    private final AtomicLong left;
+
+    TakeReceivePort(ReceivePort<M> target, long count) {
+        super(target);
+        if (count < 0)
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        this.left = new AtomicLong(count);
+    }
+
+    @Override
+    public M receive() throws SuspendExecution, InterruptedException {
+        if (!reserve())
+            return null;
+        M m = null;
+        try {
+            m = target.receive();
+            return m;
+        } finally {
+            commit(m);
+        }
+    }
+
+    @Override
+    public M tryReceive() {
+        if (!reserve())
+            return null;
+        M m = null;
+        try {
+            m = target.tryReceive();
+            return m;
+        } finally {
+            commit(m);
+        }
+    }
+
+    @Override
+    public M receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (!reserve())
+            return null;
+        M m = null;
+        try {
+            m = target.receive(timeout, unit);
+            return m;
+        } finally {
+            commit(m);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return left.get() <= 0 || target.isClosed();
+    }
+
+    // a message is reserved before it's received, so that concurrent receivers don't take more than count messages
+    private boolean reserve() {
+        for (;;) {
+            final long n = left.get();
+            if (n <= 0)
+                return false;
+            if (left.compareAndSet(n, n - 1))
+                return true;
+        }
+    }
+
+    // called whether the receive has returned or thrown
+    private void commit(M m) {
+        if (m == null)
+            left.incrementAndGet(); // nothing received; return the reservation
+    }
+}
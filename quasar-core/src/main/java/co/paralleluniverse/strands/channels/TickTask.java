@@ -0,0 +1,62 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import java.util.concurrent.Future;
+
+/**
+ * The timer command behind {@link Channels#timer(long, java.util.concurrent.TimeUnit) Channels.timer} and
+ * {@link Channels#ticker(long, java.util.concurrent.TimeUnit) Channels.ticker}. Each run writes a tick into a
+ * single-slot displacing channel, so an unreceived tick is replaced by the next one, and allocates nothing.
+ *
+ * @author pron
+ */
+class TickTask implements Runnable {
+    private final QueueLongChannel channel;
+    private final long start;  // tick n is due at start + n * period
+    private final long period; // 0 for a one-shot timer
+    private volatile Future<Void> future;
+
+    TickTask(QueueLongChannel channel, long start, long period) {
+        this.channel = channel;
+        this.start = start;
+        this.period = period;
+    }
+
+    void setFuture(Future<Void> future) {
+        this.future = future;
+        if (channel.isSendClosed())
+            future.cancel(false);
+    }
+
+    @Override
+    public void run() {
+        if (channel.isSendClosed()) { // the port has been closed by its receiver
+            final Future<Void> f = future;
+            if (f != null)
+                f.cancel(false);
+            return;
+        }
+        if (period == 0) {
+            channel.trySend(1L);
+            channel.close();
+        } else
+            channel.trySend((System.nanoTime() - start) / period); // the number of the latest tick that is due
+    }
+
+    @Override
+    public String toString() {
+        return "TickTask{" + (period == 0 ? "timer" : ("period: " + period + "ns")) + '}';
+    }
+}
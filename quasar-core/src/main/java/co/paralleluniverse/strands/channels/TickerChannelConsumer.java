@@ -55,6 +55,12 @@ public class TickerChannelConsumer<Message> implements ReceivePort<Message>, Sel
     void attemptReceive() throws SuspendExecution, InterruptedException {
         if (isClosed())
             throw new EOFException();
+        if (consumer.hasNext()) {
+            // a ticker that keeps up never joins the channel's waiters, so that senders only need to signal those that
+            // are actually blocked
+            consumer.poll0();
+            return;
+        }
         final Condition sync = channel.sync;
         sync.register();
         try {
@@ -74,6 +80,10 @@ public class TickerChannelConsumer<Message> implements ReceivePort<Message>, Sel
     void attemptReceive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
         if (isClosed())
             throw new EOFException();
+        if (consumer.hasNext()) {
+            consumer.poll0();
+            return;
+        }
         final Condition sync = channel.sync;
         long left = unit.toNanos(timeout);
         final long deadline = System.nanoTime() + left;
@@ -99,6 +109,14 @@ public class TickerChannelConsumer<Message> implements ReceivePort<Message>, Sel
         return consumer.lastIndexRead();
     }
 
+    /**
+     * Returns the number of messages this consumer has missed because it had fallen more than the channel's capacity
+     * behind the senders.
+     */
+    public final long getLostMessageCount() {
+        return consumer.lostCount();
+    }
+
     @Override
     public Message tryReceive() {
         if (!consumer.hasNext())
@@ -128,6 +146,29 @@ public class TickerChannelConsumer<Message> implements ReceivePort<Message>, Sel
         }
     }
 
+    /**
+     * Receives all available messages, up to {@code max}, blocking until at least one is available.
+     * The messages are stored at the beginning of {@code messages}.
+     *
+     * @return the number of messages received, or 0 if the channel has been closed
+     */
+    public int receiveBatch(Message[] messages, int max) throws SuspendExecution, InterruptedException {
+        if (max <= 0)
+            return 0;
+        try {
+            attemptReceive();
+        } catch (EOFException e) {
+            return 0;
+        }
+        int n = 0;
+        messages[n++] = (Message) consumer.getAndClearReadValue();
+        while (n < max && consumer.hasNext()) {
+            consumer.poll0();
+            messages[n++] = (Message) consumer.getAndClearReadValue();
+        }
+        return n;
+    }
+
     @Override
     public void close() {
         setReceiveClosed();
@@ -0,0 +1,89 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket, implemented as a generic cell rate algorithm: rather than counting tokens, it keeps the theoretical
+ * arrival time (TAT) of the next permit, and a permit is available when the TAT is no more than the burst tolerance in
+ * the future. Permits are reserved with a single CAS, in the order they are requested, so a strand that must wait for a
+ * permit knows precisely until when.
+ *
+ * @author pron
+ */
+class TokenBucket {
+    static final long NO_PERMIT = Long.MIN_VALUE;
+    private final long interval;  // nanos between permits
+    private final long tolerance; // (burst - 1) * interval
+    private final AtomicLong tat;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0)
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        if (burst < 1)
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        this.interval = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.tolerance = (burst - 1) * interval;
+        this.tat = new AtomicLong(System.nanoTime()); // a full bucket
+    }
+
+    /**
+     * Reserves a permit, if it will be available no later than {@code maxWait} nanoseconds from {@code now}.
+     *
+     * @return the reservation, to be passed to {@link #availableAt(long) availableAt} or {@link #cancel(long) cancel},
+     *         or {@link #NO_PERMIT}
+     */
+    long reserve(long now, long maxWait) {
+        for (;;) {
+            final long t = tat.get();
+            final long start = t - now > 0 ? t : now;
+            if (start - tolerance - now > maxWait)
+                return NO_PERMIT;
+            final long next = start + interval;
+            if (tat.compareAndSet(t, next))
+                return next;
+        }
+    }
+
+    /**
+     * The time (in {@link System#nanoTime() nanoTime}) at which the reserved permit becomes available.
+     */
+    long availableAt(long reservation) {
+        return reservation - interval - tolerance;
+    }
+
+    /**
+     * The time (in {@link System#nanoTime() nanoTime}) at which the next permit will become available, if it is not
+     * reserved by then.
+     */
+    long nextAvailable() {
+        return tat.get() - tolerance;
+    }
+
+    /**
+     * Returns an unused permit to the bucket, unless more permits have been reserved since, in which case it's lost.
+     */
+    void cancel(long reservation) {
+        tat.compareAndSet(reservation, reservation - interval);
+    }
+
+    /**
+     * Whether the bucket has been full, i.e. no permits have been taken from it that it hasn't recovered, since
+     * {@code time}.
+     */
+    boolean isFullSince(long time) {
+        return tat.get() - time <= 0;
+    }
+}
@@ -1,64 +1,206 @@
 /*
  * Quasar: lightweight threads and actors for the JVM.
  * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
- * 
+ *
  * This program and the accompanying materials are dual-licensed under
  * either the terms of the Eclipse Public License v1.0 as published by
  * the Eclipse Foundation
- *  
+ *
  *   or (per the licensee's choosing)
- *  
+ *
  * under the terms of the GNU Lesser General Public License version 3.0
  * as published by the Free Software Foundation.
  */
 package co.paralleluniverse.strands.channels;
 
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
 import co.paralleluniverse.fibers.SuspendExecution;
-import java.util.Collection;
-import java.util.concurrent.CopyOnWriteArraySet;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.queues.QueueCapacityExceededException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
+import sun.misc.Unsafe;
 
 /**
+ * A send port that forwards each message to all of its subscribers.
+ *
+ * A message is first offered to all subscribers without blocking, so that subscribers with room for it get it right
+ * away, and only then is it sent, in turn, to those that were full, each according to its own overflow policy. A
+ * subscriber that blocks, then, delays the publisher, but not the delivery of the message to the other subscribers.
+ * If a subscriber throws a {@link QueueCapacityExceededException}, the message is still sent to the rest, and the
+ * exception is thrown at the end.
+ *
+ * A topic may also be created with a shared ring buffer, which {@link #subscribe() ticker subscribers} read
+ * concurrently, each at its own pace, so that a message is stored once no matter how many of them there are. The ring
+ * never blocks the publisher; a ticker subscriber that falls behind by more than the ring's size loses the oldest
+ * messages (see {@link TickerChannelConsumer#getLostMessageCount()}).
  *
  * @author pron
  */
 public class Topic<Message> implements SendPort<Message> {
-    private final Collection<SendPort<? super Message>> subscribers;
+    private static final SendPort[] NO_SUBSCRIBERS = new SendPort[0];
+    private volatile SendPort<? super Message>[] subscribers; // copy-on-write
+    private final QueueChannel<Message> ring;
     private volatile boolean sendClosed;
 
     public Topic() {
-        this.subscribers = new CopyOnWriteArraySet<>();
+        this(0);
+    }
+
+    /**
+     * Creates a topic with a shared ring buffer.
+     *
+     * @param ringSize the size of the ring buffer read by the {@link #subscribe() ticker subscribers} (rounded up to a
+     *                 power of 2), or 0 for a topic that only supports subscribing send ports
+     */
+    public Topic(int ringSize) {
+        this.subscribers = NO_SUBSCRIBERS;
+        this.ring = ringSize > 0 ? (QueueChannel<Message>) Channels.<Message>newChannel(Math.max(ringSize, 2), OverflowPolicy.DISPLACE, false, true) : null;
     }
 
     public void subscribe(SendPort<? super Message> sub) {
-        subscribers.add(sub);
+        for (;;) {
+            final SendPort<? super Message>[] subs = subscribers;
+            for (SendPort<? super Message> s : subs) {
+                if (s.equals(sub))
+                    return;
+            }
+            final SendPort<? super Message>[] newSubs = Arrays.copyOf(subs, subs.length + 1);
+            newSubs[subs.length] = sub;
+            if (casSubscribers(subs, newSubs))
+                return;
+        }
     }
 
     public void unsubscribe(SendPort<? super Message> sub) {
-        subscribers.remove(sub);
+        for (;;) {
+            final SendPort<? super Message>[] subs = subscribers;
+            int index = -1;
+            for (int i = 0; i < subs.length; i++) {
+                if (subs[i].equals(sub)) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0)
+                return;
+            final SendPort<? super Message>[] newSubs = Arrays.copyOf(subs, subs.length - 1);
+            System.arraycopy(subs, index + 1, newSubs, index, subs.length - index - 1);
+            if (casSubscribers(subs, newSubs))
+                return;
+        }
+    }
+
+    /**
+     * Returns a new ticker subscriber, which receives all messages published to the topic from now on, from the
+     * topic's shared ring buffer. The topic must have been created with a ring buffer.
+     */
+    public ReceivePort<Message> subscribe() {
+        if (ring == null)
+            throw new IllegalStateException("Topic " + this + " has no ring buffer");
+        final TickerChannelConsumer<Message> sub = (TickerChannelConsumer<Message>) TickerChannelConsumer.newFor(ring);
+        sub.consumer.skipToTail(); // don't replay the messages already in the ring
+        return sub;
     }
 
     @Override
     public void send(Message message) throws SuspendExecution, InterruptedException {
-        if(sendClosed)
-            return;
-        for (SendPort<? super Message> sub : subscribers)
-            sub.send(message);
+        send0(message, false, 0);
     }
 
+    /**
+     * Sends a message to all subscribers, waiting no longer than the timeout for each of those that are full.
+     *
+     * @return {@code true} if the message has been sent to all subscribers; {@code false} if the timeout has elapsed
+     *         before it could be sent to some of them
+     */
     @Override
     public boolean send(Message message, long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
-        throw new UnsupportedOperationException();
+        return send0(message, true, unit.toNanos(timeout));
     }
 
-    
+    /**
+     * Sends a message to all subscribers that have room for it.
+     *
+     * @return {@code true} if the message has been sent to all subscribers; {@code false} if some of them were full
+     */
     @Override
     public boolean trySend(Message message) {
-        throw new UnsupportedOperationException();
+        if (sendClosed)
+            return true;
+        if (ring != null)
+            ring.trySend(message);
+        boolean res = true;
+        for (SendPort<? super Message> sub : subscribers)
+            res &= sub.trySend(message);
+        return res;
+    }
+
+    private boolean send0(Message message, boolean timed, long nanos) throws SuspendExecution, InterruptedException {
+        if (sendClosed)
+            return true;
+        if (ring != null)
+            ring.trySend(message); // never fails
+        final SendPort<? super Message>[] subs = subscribers;
+        final int[] full = offer(subs, message);
+        if (full == null)
+            return true;
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean res = true;
+        boolean overflow = false;
+        for (int i : full) {
+            final SendPort<? super Message> sub = subs[i];
+            try {
+                if (timed)
+                    res &= sub.send(message, Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+                else
+                    sub.send(message);
+            } catch (QueueCapacityExceededException e) {
+                overflow = true;
+            }
+        }
+        if (overflow)
+            throw new QueueCapacityExceededException();
+        return res;
+    }
+
+    /**
+     * Offers the message to all subscribers without blocking.
+     *
+     * @return the indices of the subscribers that were full, or {@code null} if there were none
+     */
+    private int[] offer(SendPort<? super Message>[] subs, Message message) {
+        int[] full = null;
+        int nFull = 0;
+        for (int i = 0; i < subs.length; i++) {
+            if (!subs[i].trySend(message)) {
+                if (full == null)
+                    full = new int[subs.length - i];
+                full[nFull++] = i;
+            }
+        }
+        return full != null ? Arrays.copyOf(full, nFull) : null;
     }
 
     @Override
     public void close() {
         sendClosed = true;
+        if (ring != null)
+            ring.close();
+    }
+    private static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final long subscribersOffset;
+
+    static {
+        try {
+            subscribersOffset = UNSAFE.objectFieldOffset(Topic.class.getDeclaredField("subscribers"));
+        } catch (Exception ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private boolean casSubscribers(SendPort<? super Message>[] expected, SendPort<? super Message>[] update) {
+        return UNSAFE.compareAndSwapObject(this, subscribersOffset, expected, update);
     }
 }
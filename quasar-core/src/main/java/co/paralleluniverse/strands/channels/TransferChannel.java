@@ -28,6 +28,15 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * A channel with no buffer, where each send is matched with a receive.
+ *
+ * Before enqueueing a node and waiting to be matched, a strand that finds no waiter of the opposite mode in the queue
+ * tries to meet one in a small elimination arena: it takes an offer of the opposite mode from one of the arena's slots
+ * if there is one, and otherwise (if it is a thread, on a multiprocessor) places its own offer in a free slot and spins
+ * for a short while, waiting for a partner. A sender and receiver that arrive at the same time thus exchange the message
+ * without going through the queue, and without contending on its head and tail. As a result, the channel does not
+ * guarantee that concurrent senders (or concurrent receivers) are matched in FIFO order. Fibers never wait in the arena,
+ * as spinning would hold up their scheduler thread, but they do take the offers of waiting threads.
  *
  * @author Doug Lea
  * @author pron
@@ -211,6 +220,19 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
      * two to avoid useless sweeps when removing trailing nodes.
      */
     static final int SWEEP_THRESHOLD = 32;
+    /**
+     * The number of slots in the elimination arena. Must be a power of two.
+     */
+    private static final int ARENA_SIZE = Math.max(1, Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() / 2)));
+    /**
+     * Arena slots are spaced this many (log2) array elements apart, so that they don't share cache lines.
+     */
+    private static final int ARENA_SLOT_SHIFT = 4;
+    /**
+     * The number of times a thread spins, waiting for its offer in the arena to be taken, before withdrawing it and
+     * enqueueing a node.
+     */
+    private static final int ARENA_SPINS = FRONT_SPINS;
 
     /**
      * Queue nodes. Uses Object, not E, for items to allow forgetting
@@ -374,6 +396,10 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
      * The number of apparent failures to unsplice removed nodes
      */
     private transient volatile int sweepVotes;
+    /**
+     * The elimination arena; null until the first offer is placed
+     */
+    private transient volatile Object[] arena;
 
     // CAS methods for fields
     private boolean casTail(Node cmp, Node val) {
@@ -406,6 +432,9 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
         if (haveData && (e == null))
             throw new NullPointerException();
         Object item = tryMatch(null, e, haveData);
+        if (item != NO_MATCH)
+            return item;
+        item = eliminate(e, haveData, false);
         if (item != NO_MATCH)
             return item;
         return e;
@@ -434,8 +463,13 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
             if (item != NO_MATCH)
                 return item;
 
-            if (s == null)
+            if (s == null) {
+                if ((item = eliminate(e, haveData, MP && !Strand.currentStrand().isFiber())) != NO_MATCH)
+                    return item;
+                if (haveData && sendClosed)
+                    return null;              // closed while we were in the arena; drop the message, as send does
                 s = new Node(e, haveData);
+            }
             Node pred = tryAppend(s, haveData);
             if (pred == null)
                 continue retry;           // lost race vs opposite mode
@@ -451,6 +485,75 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
         }
     }
 
+    /**
+     * Tries to match with a strand of the opposite mode through the elimination arena.
+     *
+     * @param e the item or null for take
+     * @param haveData true if this is a put, else a take
+     * @param canWait true if, finding no offer to take, the caller may place its own and spin waiting for a partner
+     * @return the matched item (null for a put), or NO_MATCH
+     */
+    private Object eliminate(Message e, boolean haveData, boolean canWait) {
+        Object[] a = arena;
+        if (a == null) {
+            if (!canWait)
+                return NO_MATCH;          // no offers have ever been placed
+            a = initArena();
+        }
+
+        // take an offer of the opposite mode
+        for (int i = 0; i < ARENA_SIZE; i++) {
+            final Node p = getSlot(a, i);
+            if (p != null && p.isData != haveData) {
+                final Object item = p.item;
+                if (item != p && (item != null) == p.isData && p.casItem(item, e)) {
+                    casSlot(a, i, p, null);
+                    return item;
+                }
+            }
+        }
+        if (!canWait)
+            return NO_MATCH;
+
+        // place an offer in a free slot, and wait for it to be taken
+        final int start = ThreadLocalRandom.current().nextInt(ARENA_SIZE);
+        for (int j = 0; j < ARENA_SIZE; j++) {
+            final int i = (start + j) & (ARENA_SIZE - 1);
+            if (getSlot(a, i) != null)
+                continue;
+            final Node s = new Node(e, haveData);
+            if (!casSlot(a, i, null, s))
+                continue;
+            Object item = s.item;
+            for (int spins = ARENA_SPINS; item == e && spins > 0; spins--)
+                item = s.item;
+            if (item == e && s.casItem(e, s))
+                item = NO_MATCH;          // withdrawn
+            else
+                item = s.item;            // taken (possibly just as we were withdrawing)
+            casSlot(a, i, s, null);       // unless the taker has already cleared it
+            return item;
+        }
+        return NO_MATCH;
+    }
+
+    private Object[] initArena() {
+        final Object[] a = new Object[ARENA_SIZE << ARENA_SLOT_SHIFT];
+        return UNSAFE.compareAndSwapObject(this, arenaOffset, null, a) ? a : arena;
+    }
+
+    private static Node getSlot(Object[] a, int i) {
+        return (Node) UNSAFE.getObjectVolatile(a, slotOffset(i));
+    }
+
+    private static boolean casSlot(Object[] a, int i, Node cmp, Node val) {
+        return UNSAFE.compareAndSwapObject(a, slotOffset(i), cmp, val);
+    }
+
+    private static long slotOffset(int i) {
+        return ((long) (i << ARENA_SLOT_SHIFT) << arenaShift) + arenaBase;
+    }
+
     private Token xfer0(SelectAction<Message> e) {
         final boolean haveData = e.isData();
         Node s = null;                        // the node to append, if needed
@@ -799,6 +902,9 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
     private static final long headOffset;
     private static final long tailOffset;
     private static final long sweepVotesOffset;
+    private static final long arenaOffset;
+    private static final long arenaBase;
+    private static final int arenaShift;
 
     static {
         try {
@@ -807,6 +913,12 @@ public class TransferChannel<Message> implements Channel<Message>, Selectable<Me
             headOffset = UNSAFE.objectFieldOffset(k.getDeclaredField("head"));
             tailOffset = UNSAFE.objectFieldOffset(k.getDeclaredField("tail"));
             sweepVotesOffset = UNSAFE.objectFieldOffset(k.getDeclaredField("sweepVotes"));
+            arenaOffset = UNSAFE.objectFieldOffset(k.getDeclaredField("arena"));
+            arenaBase = UNSAFE.arrayBaseOffset(Object[].class);
+            final int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            arenaShift = 31 - Integer.numberOfLeadingZeros(scale);
         } catch (Exception e) {
             throw new Error(e);
         }
@@ -0,0 +1,91 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.google.common.base.Function;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives a message from each of the ports in turn, and combines them. A partially received combination is kept
+ * across calls to {@code tryReceive} and timed {@code receive}. Must only be used by a single receiver.
+ *
+ * @author pron
+ */
+class ZippingReceivePort<M> implements ReceivePort<M> {
+    private final ReceivePort<?>[] targets;
+    private final Function<Object[], ? extends M> f;
+    private final Object[] head;
+
+    ZippingReceivePort(List<? extends ReceivePort<?>> targets, Function<Object[], ? extends M> f) {
+        this.targets = targets.toArray(new ReceivePort<?>[targets.size()]);
+        this.f = f;
+        this.head = new Object[this.targets.length];
+    }
+
+    @Override
+    public M receive() throws SuspendExecution, InterruptedException {
+        for (int i = 0; i < targets.length; i++) {
+            if (head[i] == null && (head[i] = targets[i].receive()) == null)
+                return null; // closed
+        }
+        return combine();
+    }
+
+    @Override
+    public M tryReceive() {
+        for (int i = 0; i < targets.length; i++) {
+            if (head[i] == null && (head[i] = targets[i].tryReceive()) == null)
+                return null;
+        }
+        return combine();
+    }
+
+    @Override
+    public M receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        if (unit == null)
+            return receive();
+        long left = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + left;
+        for (int i = 0; i < targets.length; i++) {
+            if (head[i] == null && (head[i] = targets[i].receive(left, TimeUnit.NANOSECONDS)) == null)
+                return null;
+            left = deadline - System.nanoTime();
+        }
+        return combine();
+    }
+
+    private M combine() {
+        final Object[] ms = Arrays.copyOf(head, head.length);
+        Arrays.fill(head, null);
+        return f.apply(ms);
+    }
+
+    @Override
+    public void close() {
+        for (ReceivePort<?> port : targets)
+            port.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        for (int i = 0; i < targets.length; i++) {
+            if (head[i] == null && targets[i].isClosed())
+                return true;
+        }
+        return false;
+    }
+}
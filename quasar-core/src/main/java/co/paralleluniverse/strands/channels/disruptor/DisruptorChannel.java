@@ -0,0 +1,186 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.disruptor;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+
+/**
+ * A channel over an LMAX Disruptor {@link RingBuffer} of preallocated events, whose publishers and consumers may be
+ * fibers. A publisher {@link #claim() claims} a sequence, fills in the event {@link #get(long) at} that sequence, and
+ * then {@link #publish(long) publishes} it; if the buffer is full, {@code claim} blocks the strand until the consumers
+ * have freed a slot.
+ *
+ * Events are received through {@link DisruptorReceiveChannel}s, each receiving all published events in order. A
+ * consumer may depend on other consumers, in which case it only receives an event after they have all finished
+ * processing it:
+ * <pre>{@code
+ * DisruptorChannel<Event> ch = new DisruptorChannel<>(Event.FACTORY, 1024, true);
+ * DisruptorReceiveChannel<Event> journal = ch.newReceiveChannel();
+ * DisruptorReceiveChannel<Event> replicate = ch.newReceiveChannel();
+ * DisruptorReceiveChannel<Event> process = ch.newReceiveChannel(journal, replicate);
+ * }</pre>
+ *
+ * All consumers must be created before events are published.
+ *
+ * @author pron
+ */
+public class DisruptorChannel<Message> {
+    private final RingBuffer<Message> buffer;
+    private final StrandBlockingWaitStrategy waitStrategy;
+    private final boolean singleProducer;
+    private final Sequence end = new Sequence(Long.MAX_VALUE); // the last sequence published before the channel was closed
+    private volatile boolean closed;
+
+    /**
+     * @param factory        creates the buffer's events
+     * @param bufferSize     the number of events in the buffer; must be a power of 2
+     * @param singleProducer whether events will only be claimed and published by a single strand
+     */
+    public DisruptorChannel(EventFactory<Message> factory, int bufferSize, boolean singleProducer) {
+        this.waitStrategy = new StrandBlockingWaitStrategy();
+        this.singleProducer = singleProducer;
+        this.buffer = singleProducer
+                ? RingBuffer.createSingleProducer(factory, bufferSize, waitStrategy)
+                : RingBuffer.createMultiProducer(factory, bufferSize, waitStrategy);
+    }
+
+    /**
+     * Creates a consumer receiving the events published to this channel, each after all of the given consumers have
+     * processed it.
+     */
+    public DisruptorReceiveChannel<Message> newReceiveChannel(DisruptorReceiveChannel<?>... dependsOn) {
+        final Sequence[] dependentSequences = new Sequence[dependsOn.length];
+        for (int i = 0; i < dependsOn.length; i++) {
+            if (dependsOn[i].channel() != this)
+                throw new IllegalArgumentException("Consumer " + dependsOn[i] + " does not belong to this channel");
+            dependentSequences[i] = dependsOn[i].sequence();
+        }
+        return new DisruptorReceiveChannel<Message>(this,
+                new ProcessingSequenceBarrier(buffer, !singleProducer, waitStrategy, end, dependentSequences));
+    }
+
+    /**
+     * Claims the next sequence in the buffer, blocking until there's a free slot.
+     *
+     * @return the claimed sequence, or -1 if the channel is closed
+     */
+    public long claim() throws SuspendExecution, InterruptedException {
+        return claim(1);
+    }
+
+    /**
+     * Claims the next {@code n} sequences in the buffer, blocking until there are enough free slots.
+     *
+     * @return the highest claimed sequence, or -1 if the channel is closed (including while waiting for free slots)
+     */
+    public long claim(int n) throws SuspendExecution, InterruptedException {
+        if (closed)
+            return -1;
+        return waitStrategy.next(buffer, n, this);
+    }
+
+    /**
+     * Claims the next sequence in the buffer if there's a free slot.
+     *
+     * @return the claimed sequence, or -1 if the buffer is full or the channel is closed
+     */
+    public long tryClaim() {
+        return tryClaim(1);
+    }
+
+    /**
+     * Claims the next {@code n} sequences in the buffer if there are enough free slots.
+     *
+     * @return the highest claimed sequence, or -1 if the buffer is full or the channel is closed
+     */
+    public long tryClaim(int n) {
+        if (closed)
+            return -1;
+        try {
+            return buffer.tryNext(n);
+        } catch (InsufficientCapacityException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the event at the given sequence.
+     */
+    public Message get(long sequence) {
+        return buffer.get(sequence);
+    }
+
+    /**
+     * Publishes the event at the given claimed sequence to the consumers.
+     */
+    public void publish(long sequence) {
+        buffer.publish(sequence);
+    }
+
+    /**
+     * Publishes the events at the given range of claimed sequences to the consumers.
+     */
+    public void publish(long lo, long hi) {
+        buffer.publish(lo, hi);
+    }
+
+    public int getBufferSize() {
+        return buffer.getBufferSize();
+    }
+
+    /**
+     * The number of published events that have not yet been processed by all consumers.
+     */
+    public long size() {
+        return buffer.getBufferSize() - buffer.remainingCapacity();
+    }
+
+    /**
+     * Closes the channel: no more sequences may be claimed, and consumers will receive the events that have already
+     * been published, after which they will be closed. The channel must only be closed after all claimed sequences have
+     * been published.
+     */
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        end.set(buffer.getCursor());
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    RingBuffer<Message> buffer() {
+        return buffer;
+    }
+
+    StrandBlockingWaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    long end() {
+        return end.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DisruptorChannel{" + "bufferSize: " + buffer.getBufferSize() + ", cursor: " + buffer.getCursor() + (closed ? ", closed" : "") + '}';
+    }
+}
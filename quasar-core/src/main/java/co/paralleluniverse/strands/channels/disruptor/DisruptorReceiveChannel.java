@@ -1,58 +1,71 @@
 /*
- * To change this template, choose Tools | Templates
- * and open the template in the editor.
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
  */
 package co.paralleluniverse.strands.channels.disruptor;
 
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.channels.ReceivePort;
-import com.lmax.disruptor.AbstractSequencer;
 import com.lmax.disruptor.AlertException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
-import com.lmax.disruptor.Sequencer;
-import com.lmax.disruptor.WaitStrategy;
-import java.lang.reflect.Field;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
+ * A consumer of a {@link DisruptorChannel}, receiving all events published to the channel, in order. Must only be used
+ * by a single strand.
  *
+ * The events are not copied out of the ring buffer, so a received event remains valid, and may be modified for the
+ * benefit of dependent consumers, until the next call to {@code receive}, which releases it (along with any events
+ * received before it) back to the channel.
+ *
+ * @see DisruptorChannel#newReceiveChannel(DisruptorReceiveChannel[])
  * @author pron
  */
 public class DisruptorReceiveChannel<Message> implements ReceivePort<Message> {
-    private final SequenceBarrier barrier;
+    private final DisruptorChannel<Message> channel;
     private final RingBuffer<Message> buffer;
-    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final ProcessingSequenceBarrier barrier;
+    private final Sequence sequence; // the last sequence released
+    private long received; // the last sequence received
     private long availableSequence;
     private volatile boolean closed;
 
-    public DisruptorReceiveChannel(RingBuffer<Message> buffer, Sequence... dependentSequences) {
-        this.buffer = buffer;
-        final Sequencer sequencer = getSequencer(buffer);
-        final WaitStrategy waitStrategy = getWaitStrategy(sequencer);
-        final Sequence cursor = getCursor(sequencer);
-
-        if (!(waitStrategy instanceof StrandBlockingWaitStrategy))
-            throw new IllegalArgumentException("Channel can only be created from RingBuffer with StrandBlockingWaitStrategy");
-        this.barrier = new ProcessingSequenceBarrier(sequencer, waitStrategy, cursor, dependentSequences);
-        barrier.clearAlert();
+    DisruptorReceiveChannel(DisruptorChannel<Message> channel, ProcessingSequenceBarrier barrier) {
+        this.channel = channel;
+        this.buffer = channel.buffer();
+        this.barrier = barrier;
+        this.received = buffer.getCursor();
+        this.availableSequence = received;
+        this.sequence = new Sequence(received);
+        buffer.addGatingSequences(sequence);
     }
 
     @Override
     public Message receive() throws SuspendExecution, InterruptedException {
         if (closed)
             return null;
-        long nextSequence = sequence.get() + 1L;
+        release();
+        final long nextSequence = received + 1L;
         while (nextSequence > availableSequence) {
             try {
                 availableSequence = barrier.waitFor1(nextSequence);
-            } catch (AlertException ex) {
-                // ???
+            } catch (AlertException e) {
+                return null;
             }
         }
-        Message message = buffer.get(nextSequence);
-        return message;
+        received = nextSequence;
+        return buffer.get(nextSequence);
     }
 
     @Override
@@ -64,99 +77,122 @@ public class DisruptorReceiveChannel<Message> implements ReceivePort<Message> {
 
         if (closed)
             return null;
-        try {
-            long nextSequence = sequence.get() + 1L;
-            if (nextSequence > availableSequence) {
-                final long start = System.nanoTime();
-                long left = unit.toNanos(timeout);
-                final long deadline = start + unit.toNanos(timeout);
-                while (nextSequence > availableSequence) {
-                    try {
-                        availableSequence = barrier.waitFor1(nextSequence, left, TimeUnit.NANOSECONDS);
-                    } catch (AlertException ex) {
-                        // ???
-                    }
-                    if (nextSequence > availableSequence) {
-                        left = deadline - System.nanoTime();
-                        if (left <= 0)
-                            return null;
-                    }
+        release();
+        final long nextSequence = received + 1L;
+        if (nextSequence > availableSequence) {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long left = unit.toNanos(timeout);
+            while (nextSequence > availableSequence) {
+                try {
+                    availableSequence = barrier.waitFor1(nextSequence, left, TimeUnit.NANOSECONDS);
+                } catch (AlertException e) {
+                    return null;
+                } catch (TimeoutException e) {
+                    return null;
+                }
+                if (nextSequence > availableSequence) {
+                    left = deadline - System.nanoTime();
+                    if (left <= 0)
+                        return null;
                 }
             }
-            Message message = buffer.get(nextSequence);
-            return message;
-        } catch (TimeoutException e) {
-            return null;
         }
+        received = nextSequence;
+        return buffer.get(nextSequence);
     }
 
     @Override
     public Message tryReceive() {
         if (closed)
             return null;
-        long nextSequence = sequence.get() + 1L;
-        if (nextSequence > availableSequence)
-            return null;
+        release();
+        final long nextSequence = received + 1L;
+        if (nextSequence > availableSequence) {
+            try {
+                availableSequence = barrier.tryWaitFor(nextSequence);
+            } catch (AlertException e) {
+                return null;
+            }
+            if (nextSequence > availableSequence)
+                return null;
+        }
+        received = nextSequence;
         return buffer.get(nextSequence);
     }
 
-    private static Sequencer getSequencer(RingBuffer<?> buffer) {
-        try {
-            return (Sequencer) sequencerField.get(buffer);
-        } catch (IllegalArgumentException ex) {
-            throw new AssertionError(ex);
-        } catch (IllegalAccessException ex) {
-            throw new Error(ex);
+    /**
+     * Receives a batch of consecutive events, blocking until at least one is available. All available events, up to
+     * the length of the given array, are received at once, with a single read of the producer's and dependent
+     * consumers' sequences.
+     *
+     * @param messages the array to fill with the received events
+     * @return the number of events received, or 0 if the channel has been closed
+     */
+    public int receive(Message[] messages) throws SuspendExecution, InterruptedException {
+        if (closed)
+            return 0;
+        release();
+        final long nextSequence = received + 1L;
+        while (nextSequence > availableSequence) {
+            try {
+                availableSequence = barrier.waitFor1(nextSequence);
+            } catch (AlertException e) {
+                return 0;
+            }
         }
+        final int n = (int) Math.min(messages.length, availableSequence - received);
+        for (int i = 0; i < n; i++)
+            messages[i] = buffer.get(nextSequence + i);
+        received += n;
+        return n;
     }
 
-    private static Sequence getCursor(Sequencer sequencer) {
-        try {
-            return (Sequence) cursorField.get(sequencer);
-        } catch (IllegalArgumentException ex) {
-            throw new AssertionError(ex);
-        } catch (IllegalAccessException ex) {
-            throw new Error(ex);
+    /**
+     * Releases all received events back to the channel, without waiting for the next call to {@code receive}.
+     */
+    public void release() {
+        if (received > sequence.get() && !closed) {
+            sequence.setVolatile(received);
+            channel.waitStrategy().signalAllWhenBlocking(); // wake publishers and dependent consumers
         }
     }
 
-    private static WaitStrategy getWaitStrategy(Sequencer sequencer) {
-        try {
-            return (WaitStrategy) waitStrategyField.get(sequencer);
-        } catch (IllegalArgumentException ex) {
-            throw new AssertionError(ex);
-        } catch (IllegalAccessException ex) {
-            throw new Error(ex);
-        }
+    /**
+     * The sequence of the last received event.
+     */
+    public long getSequence() {
+        return received;
     }
 
+    /**
+     * Closes this consumer. It will no longer hold up publishers, and consumers depending on it will no longer wait
+     * for it.
+     */
     @Override
     public void close() {
-        this.closed = true;
+        if (closed)
+            return;
+        closed = true;
+        buffer.removeGatingSequence(sequence);
+        sequence.setVolatile(Long.MAX_VALUE);
+        barrier.alert();
     }
 
     @Override
     public boolean isClosed() {
-        return closed;
+        return closed || received >= channel.end();
     }
-    private static final Field sequencerField;
-    private static final Field cursorField;
-    private static final Field waitStrategyField;
 
-    static {
-        try {
-            sequencerField = RingBuffer.class.getDeclaredField("sequencer");
-            sequencerField.setAccessible(true);
+    DisruptorChannel<Message> channel() {
+        return channel;
+    }
 
-            cursorField = AbstractSequencer.class.getDeclaredField("cursor");
-            cursorField.setAccessible(true);
+    Sequence sequence() {
+        return sequence;
+    }
 
-            waitStrategyField = AbstractSequencer.class.getDeclaredField("waitStrategy");
-            waitStrategyField.setAccessible(true);
-        } catch (NoSuchFieldException ex) {
-            throw new AssertionError(ex);
-        } catch (SecurityException ex) {
-            throw new Error(ex);
-        }
+    @Override
+    public String toString() {
+        return "DisruptorReceiveChannel{" + "sequence: " + received + (closed ? ", closed" : "") + '}';
     }
 }
@@ -31,32 +31,38 @@ package co.paralleluniverse.strands.channels.disruptor;
 import co.paralleluniverse.fibers.SuspendExecution;
 import com.lmax.disruptor.AlertException;
 import com.lmax.disruptor.FixedSequenceGroup;
+import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
-import com.lmax.disruptor.Sequencer;
-import com.lmax.disruptor.WaitStrategy;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
- * {@link SequenceBarrier} handed out for gating {@link EventProcessor}s on a cursor sequence and optional dependent {@link EventProcessor}(s),
- * using the given WaitStrategy.
+ * {@link SequenceBarrier} for gating a consumer on a ring buffer's published sequences and optional dependent
+ * consumers' sequences, using a {@link StrandBlockingWaitStrategy}. The barrier is also alerted once the sequence
+ * waited for is past the buffer's {@code end}, i.e., the last sequence published before the publisher was closed.
  */
 final class ProcessingSequenceBarrier implements SequenceBarrier {
     private final StrandBlockingWaitStrategy waitStrategy;
-    private final Sequence dependentSequence;
+    private final Sequence dependentSequence; // null if none
+    private final Sequence end;
     private volatile boolean alerted = false;
-    private final Sequence cursorSequence;
-    private final Sequencer sequencer;
-
-    public ProcessingSequenceBarrier(final Sequencer sequencer,
-            final WaitStrategy waitStrategy,
-            final Sequence cursorSequence,
+    private final RingBuffer<?> buffer;
+    private final boolean multiProducer;
+    private long sequence; // the sequence being waited for; only accessed by the consumer
+
+    public ProcessingSequenceBarrier(final RingBuffer<?> buffer,
+            final boolean multiProducer,
+            final StrandBlockingWaitStrategy waitStrategy,
+            final Sequence end,
             final Sequence[] dependentSequences) {
-        this.sequencer = sequencer;
-        this.waitStrategy = (StrandBlockingWaitStrategy) waitStrategy;
-        this.cursorSequence = cursorSequence;
+        this.buffer = buffer;
+        this.multiProducer = multiProducer;
+        this.waitStrategy = waitStrategy;
+        this.end = end;
         if (0 == dependentSequences.length) {
-            dependentSequence = cursorSequence;
+            dependentSequence = null;
+        } else if (1 == dependentSequences.length) {
+            dependentSequence = dependentSequences[0];
         } else {
             dependentSequence = new FixedSequenceGroup(dependentSequences);
         }
@@ -71,32 +77,58 @@ final class ProcessingSequenceBarrier implements SequenceBarrier {
     @Override
     public long waitFor1(long sequence)
             throws AlertException, InterruptedException, SuspendExecution {
+        this.sequence = sequence;
         checkAlert();
 
-        long availableSequence = waitStrategy.waitFor1(sequence, cursorSequence, dependentSequence, this);
+        long availableSequence = waitStrategy.waitFor1(sequence, buffer, dependentSequence, this);
 
         if (availableSequence < sequence)
             return availableSequence;
 
-        return sequencer.getHighestPublishedSequence(sequence, availableSequence);
+        return getHighestPublishedSequence(sequence, availableSequence);
     }
 
     @Override
     public long waitFor1(long sequence, long timeout, TimeUnit unit)
             throws AlertException, InterruptedException, SuspendExecution, TimeoutException {
+        this.sequence = sequence;
         checkAlert();
 
-        long availableSequence = waitStrategy.waitFor1(sequence, cursorSequence, dependentSequence, this, timeout, unit);
+        long availableSequence = waitStrategy.waitFor1(sequence, buffer, dependentSequence, this, timeout, unit);
 
         if (availableSequence < sequence)
             return availableSequence;
 
-        return sequencer.getHighestPublishedSequence(sequence, availableSequence);
+        return getHighestPublishedSequence(sequence, availableSequence);
+    }
+
+    /**
+     * Returns the highest available sequence without waiting, which is less than {@code sequence} if it is not yet
+     * available.
+     */
+    long tryWaitFor(long sequence) throws AlertException {
+        this.sequence = sequence;
+        checkAlert();
+
+        if (!StrandBlockingWaitStrategy.isAvailable(sequence, buffer, dependentSequence))
+            return sequence - 1;
+
+        return getHighestPublishedSequence(sequence, StrandBlockingWaitStrategy.getAvailable(buffer, dependentSequence));
+    }
+
+    private long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        if (!multiProducer)
+            return availableSequence;
+        for (long s = lowerBound; s <= availableSequence; s++) {
+            if (!buffer.isPublished(s))
+                return s - 1;
+        }
+        return availableSequence;
     }
 
     @Override
     public long getCursor() {
-        return dependentSequence.get();
+        return dependentSequence != null ? dependentSequence.get() : buffer.getCursor();
     }
 
     @Override
@@ -117,8 +149,8 @@ final class ProcessingSequenceBarrier implements SequenceBarrier {
 
     @Override
     public void checkAlert() throws AlertException {
-        if (alerted) {
+        if (alerted || sequence > end.get()) {
             throw AlertException.INSTANCE;
         }
     }
-}
\ No newline at end of file
+}
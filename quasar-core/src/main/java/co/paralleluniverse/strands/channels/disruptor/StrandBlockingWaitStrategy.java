@@ -31,16 +31,22 @@ package co.paralleluniverse.strands.channels.disruptor;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.SimpleConditionSynchronizer;
 import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.WaitStrategy;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Blocking strategy that uses a lock and condition variable for {@link EventProcessor}s waiting on a barrier.
+ * Blocking strategy that uses a condition variable for strands waiting on a barrier or for free capacity in the ring
+ * buffer. Publishers, and consumers releasing events, signal the condition, but only when strands are waiting on it.
  */
 public final class StrandBlockingWaitStrategy implements WaitStrategy {
-    private final SimpleConditionSynchronizer processorNotifyCondition = new SimpleConditionSynchronizer(this);
+    private final SimpleConditionSynchronizer condition = new SimpleConditionSynchronizer(this);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile int fence;
 
     @Override
     public long waitFor(long sequence, Sequence cursorSequence, Sequence dependentSequence, com.lmax.disruptor.SequenceBarrier barrier)
@@ -48,58 +54,98 @@ public final class StrandBlockingWaitStrategy implements WaitStrategy {
         throw new UnsupportedOperationException();
     }
 
-    public long waitFor1(long sequence, Sequence cursorSequence, Sequence dependentSequence, com.lmax.disruptor.SequenceBarrier barrier)
+    /**
+     * Waits until {@code sequence} has been published to the buffer and processed by the dependent sequence (if not
+     * {@code null}), and returns the highest sequence that may be available.
+     */
+    long waitFor1(long sequence, RingBuffer<?> buffer, Sequence dependentSequence, com.lmax.disruptor.SequenceBarrier barrier)
             throws AlertException, InterruptedException, SuspendExecution {
-        long availableSequence;
-        if ((availableSequence = cursorSequence.get()) < sequence) {
-            processorNotifyCondition.register();
+        if (!isAvailable(sequence, buffer, dependentSequence)) {
+            register();
             try {
-                for (int i = 0; (availableSequence = cursorSequence.get()) < sequence; i++) {
+                for (int i = 0; !isAvailable(sequence, buffer, dependentSequence); i++) {
                     barrier.checkAlert();
-                    processorNotifyCondition.await(i);
+                    condition.await(i);
                 }
             } finally {
-                processorNotifyCondition.unregister();
+                unregister();
             }
         }
-
-        while ((availableSequence = dependentSequence.get()) < sequence) {
-            barrier.checkAlert();
-        }
-
-        return availableSequence;
+        return getAvailable(buffer, dependentSequence);
     }
 
-    public long waitFor1(long sequence, Sequence cursorSequence, Sequence dependentSequence, com.lmax.disruptor.SequenceBarrier barrier, long timeout, TimeUnit unit)
+    long waitFor1(long sequence, RingBuffer<?> buffer, Sequence dependentSequence, com.lmax.disruptor.SequenceBarrier barrier, long timeout, TimeUnit unit)
             throws AlertException, InterruptedException, SuspendExecution, TimeoutException {
-        long availableSequence;
-        if ((availableSequence = cursorSequence.get()) < sequence) {
+        if (!isAvailable(sequence, buffer, dependentSequence)) {
             long left = unit.toNanos(timeout);
             final long deadline = System.nanoTime() + left;
 
-            processorNotifyCondition.register();
+            register();
             try {
-                for (int i=0; (availableSequence = cursorSequence.get()) < sequence; i++) {
+                for (int i = 0; !isAvailable(sequence, buffer, dependentSequence); i++) {
                     barrier.checkAlert();
-                    processorNotifyCondition.await(i, left, TimeUnit.NANOSECONDS);
+                    condition.await(i, left, TimeUnit.NANOSECONDS);
                     left = deadline - System.nanoTime();
-                    if (left <= 0)
+                    if (left <= 0 && !isAvailable(sequence, buffer, dependentSequence))
                         throw new TimeoutException();
                 }
             } finally {
-                processorNotifyCondition.unregister();
+                unregister();
             }
         }
+        return getAvailable(buffer, dependentSequence);
+    }
+
+    static boolean isAvailable(long sequence, RingBuffer<?> buffer, Sequence dependentSequence) {
+        return buffer.isPublished(sequence) && (dependentSequence == null || dependentSequence.get() >= sequence);
+    }
+
+    static long getAvailable(RingBuffer<?> buffer, Sequence dependentSequence) {
+        final long cursor = buffer.getCursor();
+        return dependentSequence != null ? Math.min(cursor, dependentSequence.get()) : cursor;
+    }
 
-        while ((availableSequence = dependentSequence.get()) < sequence) {
-            barrier.checkAlert();
+    /**
+     * Claims the next {@code n} sequences of the buffer, waiting for the consumers to free enough capacity, or for
+     * {@code channel} to be closed.
+     *
+     * @return the highest claimed sequence, or -1 if the channel has been closed
+     */
+    long next(RingBuffer<?> buffer, int n, DisruptorChannel<?> channel) throws InterruptedException, SuspendExecution {
+        try {
+            return buffer.tryNext(n);
+        } catch (InsufficientCapacityException e) {
+        }
+        register();
+        try {
+            for (int i = 0;; i++) {
+                try {
+                    return buffer.tryNext(n);
+                } catch (InsufficientCapacityException e) {
+                }
+                if (channel.isClosed()) // read after registering, so that close() is sure to wake us if it comes later
+                    return -1;
+                condition.await(i);
+            }
+        } finally {
+            unregister();
         }
+    }
+
+    private void register() {
+        waiters.incrementAndGet();
+        condition.register();
+    }
 
-        return availableSequence;
+    private void unregister() {
+        condition.unregister();
+        waiters.decrementAndGet();
     }
 
     @Override
     public void signalAllWhenBlocking() {
-        processorNotifyCondition.signalAll();
+        fence = 0; // the cursor may have been set with an ordered store; don't let the read of waiters overtake it
+        if (waiters.get() > 0)
+            condition.signalAll();
     }
 }
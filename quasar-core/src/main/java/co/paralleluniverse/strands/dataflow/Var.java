@@ -0,0 +1,448 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.dataflow;
+
+import co.paralleluniverse.common.util.Function2;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.channels.DelayedVal;
+import com.google.common.base.Function;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A dataflow variable: a cell holding a value that may change over time.
+ *
+ * A source var is {@link #set(Object) set} directly. A derived var's value is computed by a function from the values
+ * of its input vars (sources or other derived vars), and is recomputed when they change:
+ * <pre>{@code
+ * Var<Double> price = new Var<>();
+ * Var<Double> rate = new Var<>(1.0);
+ * Var<Double> converted = Var.combine(price, rate, new Function2<Double, Double, Double>() {
+ *     public Double apply(Double p, Double r) {
+ *         return p * r;
+ *     }
+ * });
+ * }</pre>
+ *
+ * Derived vars are recomputed lazily: setting a source only marks the vars that depend on it as stale, and a stale var
+ * is recomputed when its value is requested. A var is only recomputed if at least one of its inputs has actually
+ * changed, and its dependents are only considered changed if the recomputed value is not {@link Object#equals(Object)
+ * equal} to the previous one; setting a source to a value equal to its current one does nothing at all.
+ *
+ * Strands may wait for a var's {@link #getNext() next value}. Vars with waiting strands are recomputed eagerly when a
+ * source is set, in topological order, so that each is recomputed once, after all of its inputs. Propagation is
+ * glitch-free: a derived var's function never sees a mix of old and new input values, and a waiting strand is never
+ * woken by an intermediate value.
+ *
+ * Vars that are connected to one another, directly or indirectly, by dependencies share a lock, which is held while
+ * derived values are computed, so the functions must be fast and must not block. Unconnected vars do not contend.
+ * A derived var is only weakly referenced by its inputs, so it is garbage collected once it is no longer in use.
+ *
+ * @author pron
+ */
+public class Var<T> {
+    private volatile Graph graph; // the lock guarding the state of this var and of all vars connected to it
+    private final Var<?>[] inputs; // null for a source
+    private final Function<Object[], ? extends T> f;
+    private final int rank; // the length of the longest path from a source; a var's rank is greater than its inputs'
+    private final List<WeakReference<Var<?>>> dependents = new ArrayList<>();
+    private final long[] inputVersions; // the versions of the inputs when the value was last computed
+    private T value;
+    private long version; // incremented whenever the value changes; 0 if there is no value yet
+    private boolean stale;
+    private DelayedVal<Void> next; // non-null when strands are waiting for the value to change
+
+    /**
+     * Creates a source var with no value.
+     */
+    public Var() {
+        this.inputs = null;
+        this.f = null;
+        this.rank = 0;
+        this.inputVersions = null;
+        this.graph = new Graph();
+    }
+
+    /**
+     * Creates a source var with the given value.
+     */
+    public Var(T value) {
+        this();
+        this.value = value;
+        this.version = 1;
+    }
+
+    private Var(Var<?>[] inputs, Function<Object[], ? extends T> f) {
+        this.inputs = inputs.clone();
+        this.f = f;
+        this.inputVersions = new long[inputs.length];
+        int r = 0;
+        for (Var<?> in : this.inputs)
+            r = Math.max(r, in.rank);
+        this.rank = r + 1;
+        this.stale = true;
+        final Graph g = Graph.lockAndMerge(this.inputs);
+        try {
+            this.graph = g;
+            for (Var<?> in : this.inputs)
+                in.dependents.add(new WeakReference<Var<?>>(this));
+        } finally {
+            g.unlock();
+        }
+    }
+
+    /**
+     * Returns a var whose value is computed by applying {@code f} to the values of the given vars, passed in an array in
+     * the same order as the vars in the list.
+     */
+    public static <R> Var<R> combine(List<? extends Var<?>> inputs, Function<Object[], ? extends R> f) {
+        if (inputs.isEmpty())
+            throw new IllegalArgumentException("A derived var must have at least one input");
+        return new Var<R>(inputs.toArray(new Var<?>[inputs.size()]), f);
+    }
+
+    /**
+     * Returns a var whose value is computed by applying {@code f} to the value of {@code a}.
+     */
+    public static <A, R> Var<R> map(Var<A> a, final Function<? super A, ? extends R> f) {
+        return new Var<R>(new Var<?>[]{a}, new Function<Object[], R>() {
+            @Override
+            public R apply(Object[] xs) {
+                return f.apply((A) xs[0]);
+            }
+        });
+    }
+
+    /**
+     * Returns a var whose value is computed by applying {@code f} to the values of {@code a} and {@code b}.
+     */
+    public static <A, B, R> Var<R> combine(Var<A> a, Var<B> b, final Function2<? super A, ? super B, ? extends R> f) {
+        return new Var<R>(new Var<?>[]{a, b}, new Function<Object[], R>() {
+            @Override
+            public R apply(Object[] xs) {
+                return f.apply((A) xs[0], (B) xs[1]);
+            }
+        });
+    }
+
+    /**
+     * Sets the value of a source var. Vars depending on it are marked as stale, and those with strands waiting for
+     * their next value are recomputed.
+     *
+     * @throws IllegalStateException if this is a derived var
+     */
+    public void set(T value) {
+        if (inputs != null)
+            throw new IllegalStateException("Cannot set a derived var");
+        final List<DelayedVal<Void>> changed;
+        final Graph g = lock();
+        try {
+            if (version != 0 && Objects.equals(value, this.value))
+                return;
+            this.value = value;
+            this.version++;
+            changed = propagate();
+        } finally {
+            g.unlock();
+        }
+        for (DelayedVal<Void> d : changed)
+            d.set(null);
+    }
+
+    /**
+     * Returns the var's value, waiting for it to be set if it has no value yet. A derived var has a value once all of
+     * its inputs do.
+     *
+     * @throws RuntimeException if thrown by a derived var's function
+     */
+    public T get() throws SuspendExecution, InterruptedException {
+        DelayedVal<Void> d;
+        while ((d = awaitChange(0)) != null)
+            d.get();
+        return currentValue();
+    }
+
+    /**
+     * Waits for the var's value to change, and returns the new value. If the var has changed more than once by the time
+     * the waiting strand runs, the latest value is returned.
+     *
+     * @throws RuntimeException if thrown by a derived var's function
+     */
+    public T getNext() throws SuspendExecution, InterruptedException {
+        final long v = currentVersion();
+        DelayedVal<Void> d;
+        while ((d = awaitChange(v)) != null)
+            d.get();
+        return currentValue();
+    }
+
+    /**
+     * Waits for the var's value to change, up to the given timeout, and returns the new value.
+     *
+     * @throws TimeoutException if the value has not changed before the timeout elapsed
+     */
+    public T getNext(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException, TimeoutException {
+        final long v = currentVersion();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        DelayedVal<Void> d;
+        while ((d = awaitChange(v)) != null) {
+            final long left = deadline - System.nanoTime();
+            if (left <= 0)
+                throw new TimeoutException();
+            d.get(left, TimeUnit.NANOSECONDS);
+        }
+        return currentValue();
+    }
+
+    /**
+     * Returns the var's value, or {@code null} if it has no value yet, without waiting.
+     */
+    public T tryGet() {
+        return currentValue();
+    }
+
+    /**
+     * Whether the var has a value.
+     */
+    public boolean isSet() {
+        return currentVersion() != 0;
+    }
+
+    private T currentValue() {
+        final Graph g = lock();
+        try {
+            refresh();
+            return value;
+        } finally {
+            g.unlock();
+        }
+    }
+
+    private long currentVersion() {
+        final Graph g = lock();
+        try {
+            refresh();
+            return version;
+        } finally {
+            g.unlock();
+        }
+    }
+
+    /**
+     * Returns {@code null} if the version is no longer {@code v}, or else the DelayedVal that will be set when it
+     * changes.
+     */
+    private DelayedVal<Void> awaitChange(long v) {
+        final Graph g = lock();
+        try {
+            refresh();
+            if (version != v)
+                return null;
+            if (next == null)
+                next = new DelayedVal<>();
+            return next;
+        } finally {
+            g.unlock();
+        }
+    }
+
+    /**
+     * Acquires the lock of this var's graph.
+     *
+     * @return the locked graph, which must be unlocked by the caller
+     */
+    private Graph lock() {
+        for (;;) {
+            final Graph g = graph.root();
+            g.lock();
+            if (g.isRoot()) {
+                graph = g;
+                return g;
+            }
+            g.unlock(); // the graph has been merged into another while we were waiting for it
+        }
+    }
+
+    /**
+     * Brings the var's value up to date, first bringing its inputs up to date. Must be called under the lock.
+     */
+    private void refresh() {
+        if (!stale)
+            return;
+        boolean ready = true;
+        boolean changed = false;
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i].refresh();
+            ready &= inputs[i].version != 0;
+            changed |= inputs[i].version != inputVersions[i];
+        }
+        if (ready && changed) {
+            final Object[] args = new Object[inputs.length];
+            for (int i = 0; i < inputs.length; i++)
+                args[i] = inputs[i].value;
+            final T v = f.apply(args); // if this throws, the var remains stale
+            for (int i = 0; i < inputs.length; i++)
+                inputVersions[i] = inputs[i].version;
+            if (version == 0 || !Objects.equals(v, value)) {
+                value = v;
+                version++;
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Marks all the vars depending on this source as stale, and recomputes those with waiting strands, in topological
+     * order. Must be called under the lock.
+     *
+     * @return the DelayedVals of the vars whose value has changed, to be set once the lock is released
+     */
+    private List<DelayedVal<Void>> propagate() {
+        final List<Var<?>> observed = new ArrayList<>();
+        markDependentsStale(observed);
+
+        final List<DelayedVal<Void>> changed = new ArrayList<>(observed.size() + 1);
+        if (next != null)
+            changed.add(takeNext());
+
+        Collections.sort(observed, BY_RANK);
+        for (Var<?> x : observed) {
+            final long v = x.version;
+            try {
+                x.refresh();
+            } catch (RuntimeException e) {
+                // the waiting strands will recompute the var, and get the exception
+                changed.add(x.takeNext());
+                continue;
+            }
+            if (x.version != v)
+                changed.add(x.takeNext());
+        }
+        return changed;
+    }
+
+    private void markDependentsStale(List<Var<?>> observed) {
+        for (Iterator<WeakReference<Var<?>>> it = dependents.iterator(); it.hasNext();) {
+            final Var<?> x = it.next().get();
+            if (x == null) {
+                it.remove();
+                continue;
+            }
+            if (x.stale)
+                continue; // a stale var's dependents are all stale
+            x.stale = true;
+            if (x.next != null)
+                observed.add(x);
+            x.markDependentsStale(observed);
+        }
+    }
+
+    private DelayedVal<Void> takeNext() {
+        final DelayedVal<Void> d = next;
+        next = null;
+        return d;
+    }
+
+    private static final Comparator<Var<?>> BY_RANK = new Comparator<Var<?>>() {
+        @Override
+        public int compare(Var<?> x, Var<?> y) {
+            return Integer.compare(x.rank, y.rank);
+        }
+    };
+
+    @Override
+    public String toString() {
+        final Graph g = lock();
+        try {
+            return "Var{" + (version != 0 ? ("value: " + value) : "unset") + (stale ? " (stale)" : "") + '}';
+        } finally {
+            g.unlock();
+        }
+    }
+
+    /**
+     * The lock shared by a connected set of vars. When a derived var connects vars of different graphs, the graphs are
+     * merged, union-find style, by pointing all but one of them at the remaining one, whose lock then guards all of
+     * their vars. A graph's lock is only meaningful while it is a root, so it must be checked to still be one once
+     * acquired.
+     */
+    private static final class Graph extends ReentrantLock {
+        private static final AtomicLong idGen = new AtomicLong();
+        private final long id = idGen.incrementAndGet(); // graphs are locked in order of their ids, to avoid deadlock
+        private volatile Graph parent; // non-null once this graph has been merged into another
+
+        boolean isRoot() {
+            return parent == null;
+        }
+
+        Graph root() {
+            Graph g = this;
+            for (Graph p; (p = g.parent) != null;)
+                g = p;
+            return g;
+        }
+
+        /**
+         * Locks the graphs of all the given vars, merges them into one, and returns it, locked.
+         */
+        static Graph lockAndMerge(Var<?>[] vars) {
+            for (;;) {
+                final List<Graph> roots = new ArrayList<>(vars.length);
+                for (Var<?> v : vars) {
+                    final Graph r = v.graph.root();
+                    if (!roots.contains(r))
+                        roots.add(r);
+                }
+                Collections.sort(roots, BY_ID);
+
+                boolean allRoots = true;
+                int locked = 0;
+                while (allRoots && locked < roots.size()) {
+                    final Graph r = roots.get(locked++);
+                    r.lock();
+                    allRoots = r.isRoot(); // it may have been merged into another graph while we were waiting for it
+                }
+                if (!allRoots) {
+                    for (int i = 0; i < locked; i++)
+                        roots.get(i).unlock();
+                    continue;
+                }
+
+                final Graph root = roots.get(0);
+                for (int i = 1; i < roots.size(); i++) {
+                    final Graph r = roots.get(i);
+                    r.parent = root;
+                    r.unlock();
+                }
+                return root;
+            }
+        }
+
+        private static final Comparator<Graph> BY_ID = new Comparator<Graph>() {
+            @Override
+            public int compare(Graph x, Graph y) {
+                return Long.compare(x.id, y.id);
+            }
+        };
+    }
+}
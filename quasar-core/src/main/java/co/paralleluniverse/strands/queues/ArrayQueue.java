@@ -55,25 +55,48 @@ public class ArrayQueue<E> implements BasicQueue<E> {
     public boolean enq(E item) {
         if (item == null)
             throw new IllegalArgumentException("null values not allowed");
-        final long i = preEnq();
+        final long i = preEnq(1);
         if (i < 0)
             return false;
         set((int) i & mask, item);
         return true;
     }
 
-    private long preEnq() {
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (elements[offset + i] == null)
+                throw new IllegalArgumentException("null values not allowed");
+        }
+        int n = Math.min(length, capacity);
+        long t;
+        while ((t = preEnq(n)) < 0) {
+            n = Math.min(n - 1, (int) (capacity - (tail - head)));
+            if (n <= 0)
+                return 0;
+        }
+        for (int i = 0; i < n; i++)
+            set((int) (t + i) & mask, elements[offset + i]);
+        return n;
+    }
+
+    /**
+     * Claims {@code n} consecutive slots with a single CAS.
+     *
+     * @return the position of the first slot, or -1 if there isn't room for {@code n} elements
+     */
+    private long preEnq(int n) {
         long t, w;
         do {
             t = tail;
-            w = t - capacity; // "wrap point"
+            w = t + n - capacity; // "wrap point"
 
-            if (cachedHead <= w) {
+            if (cachedHead < w) {
                 cachedHead = head; // only time a producer reads head. for this, head needs to be volatile. can we do better?
-                if (cachedHead <= w)
+                if (cachedHead < w)
                     return -1;
             }
-        } while (!compareAndSetTail(t, t + 1));
+        } while (!compareAndSetTail(t, t + n));
         return t;
     }
 
@@ -95,6 +118,15 @@ public class ArrayQueue<E> implements BasicQueue<E> {
         return v;
     }
 
+    @Override
+    public int drainTo(E[] array, int max) {
+        int n = 0;
+        E e;
+        while (n < max && (e = poll()) != null)
+            array[n++] = e;
+        return n;
+    }
+
     @Override
     public int size() {
         return (int) (tail - head);
@@ -23,6 +23,20 @@ public interface BasicQueue<E> {
     boolean enq(E element);
 
     E poll();
+
+    /**
+     * Enqueues elements from an array, for as long as there is room in the queue.
+     *
+     * @return the number of elements enqueued
+     */
+    int enqAll(E[] elements, int offset, int length);
+
+    /**
+     * Removes up to {@code max} elements, storing them at the beginning of {@code array}.
+     *
+     * @return the number of elements removed
+     */
+    int drainTo(E[] array, int max);
     
     int size();
 }
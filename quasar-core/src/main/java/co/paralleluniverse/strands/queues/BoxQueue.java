@@ -63,6 +63,16 @@ public class BoxQueue<E> implements BasicQueue<E> {
         }
         return v;
     }
+
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        return Queues.enqAll(this, elements, offset, length);
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
     //////////
     static final Unsafe unsafe = UtilUnsafe.getUnsafe();
     private static final long valueOffset;
@@ -58,27 +58,38 @@ public abstract class CircularBuffer<E> implements BasicQueue<E> {
     }
 
     final long preEnq() {
+        return preEnq(1);
+    }
+
+    /**
+     * Claims {@code n} consecutive slots, with a single CAS if there are multiple producers.
+     */
+    final long preEnq(int n) {
         long t;
 
         if (singleProducer) {
             t = tail;
-            tail++; // orderedSetTail(t + 1); // 
+            tail = t + n; // orderedSetTail(t + n); // 
         } else {
             do {
                 t = tail;
-            } while (!casTail(t, t + 1));
+            } while (!casTail(t, t + n));
         }
         return t;
     }
 
     final void postEnq() {
+        postEnq(1);
+    }
+
+    final void postEnq(int n) {
         if (singleProducer)
-            lastWritten++;
+            lastWritten += n;
         else {
             long w;
             do {
                 w = lastWritten;
-            } while (!casLastWritten(w, w + 1));
+            } while (!casLastWritten(w, w + n));
         }
     }
 
@@ -90,6 +101,18 @@ public abstract class CircularBuffer<E> implements BasicQueue<E> {
         return consumer.poll();
     }
 
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        for (int i = 0; i < length; i++)
+            enq(elements[offset + i]);
+        return length;
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return consumer.drainTo(array, max);
+    }
+
     @Override
     public int size() {
         return consumer.size();
@@ -103,11 +126,34 @@ public abstract class CircularBuffer<E> implements BasicQueue<E> {
 
     public abstract class Consumer {
         long head;
+        private long lost;
+
+        protected Consumer() {
+            // start at the oldest element still in the buffer, so that the elements overwritten before this consumer
+            // was created are not counted as lost
+            this.head = Math.max(0, tail - capacity);
+        }
+
+        /**
+         * Skips all elements currently in the buffer, so that this consumer reads only those enqueued from now on.
+         * Must be called before the consumer is shared with other threads.
+         */
+        public final void skipToTail() {
+            this.head = tail;
+        }
 
         public final long lastIndexRead() {
             return head - 1;
         }
 
+        /**
+         * Returns the number of elements this consumer has missed because they had been overwritten by producers
+         * before it got to read them.
+         */
+        public final long lostCount() {
+            return lost;
+        }
+
         public final boolean hasNext() {
             return tail > head;
         }
@@ -126,6 +172,7 @@ public abstract class CircularBuffer<E> implements BasicQueue<E> {
                     return;
                 }
                 // tail has overtaken us
+                lost += oldest + headStart - head;
                 head = oldest + headStart; // < tail
                 if (attempt > 30)
                     throw new RuntimeException("Can't catch up with producer");
@@ -148,6 +195,15 @@ public abstract class CircularBuffer<E> implements BasicQueue<E> {
             return v;
         }
 
+        public int drainTo(E[] array, int max) {
+            int n = 0;
+            while (n < max && hasNext()) {
+                poll0();
+                array[n++] = getAndClearReadValue();
+            }
+            return n;
+        }
+
         public E getAndClearReadValue() {
             final E v = getValue();
             clearValue(); // for gc
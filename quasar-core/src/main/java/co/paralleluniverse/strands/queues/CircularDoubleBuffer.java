@@ -13,6 +13,8 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
@@ -22,6 +24,14 @@ public class CircularDoubleBuffer extends CircularDWordBuffer<Double> implements
         super(size, singleProducer);
     }
 
+    /**
+     * Creates a buffer whose elements are stored off-heap, in the given direct (or memory-mapped) buffer.
+     * The capacity is the largest power of 2 number of elements that fit in the byte buffer.
+     */
+    public CircularDoubleBuffer(ByteBuffer buffer, boolean singleProducer) {
+        super(buffer, singleProducer);
+    }
+
     @Override
     public boolean enq(Double elem) {
         return enq(elem.doubleValue());
@@ -38,6 +48,34 @@ public class CircularDoubleBuffer extends CircularDWordBuffer<Double> implements
         return ((DoubleConsumer) consumer).pollDouble();
     }
 
+    /**
+     * Enqueues all elements of an array range, claiming their slots at once.
+     *
+     * @return {@code length}
+     */
+    public int enqAll(double[] elements, int offset, int length) {
+        final long t = preEnq(length);
+        for (int i = 0; i < length; i++)
+            setRaw(t + i, Double.doubleToRawLongBits(elements[offset + i]));
+        postEnq(length);
+        return length;
+    }
+
+    /**
+     * Removes up to {@code max} elements, storing them at the beginning of {@code array}.
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(double[] array, int max) {
+        final DoubleConsumer c = (DoubleConsumer) consumer;
+        int n = 0;
+        while (n < max && c.hasNext()) {
+            c.poll0();
+            array[n++] = c.getDoubleValue();
+        }
+        return n;
+    }
+
     @Override
     public DoubleConsumer newConsumer() {
         return new DoubleConsumer();
@@ -13,6 +13,8 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
@@ -22,6 +24,14 @@ public class CircularFloatBuffer extends CircularWordBuffer<Float> implements Ba
         super(size, singleProducer);
     }
 
+    /**
+     * Creates a buffer whose elements are stored off-heap, in the given direct (or memory-mapped) buffer.
+     * The capacity is the largest power of 2 number of elements that fit in the byte buffer.
+     */
+    public CircularFloatBuffer(ByteBuffer buffer, boolean singleProducer) {
+        super(buffer, singleProducer);
+    }
+
     @Override
     public boolean enq(Float elem) {
         return enq(elem.floatValue());
@@ -38,6 +48,34 @@ public class CircularFloatBuffer extends CircularWordBuffer<Float> implements Ba
         return ((FloatConsumer) consumer).pollFloat();
     }
 
+    /**
+     * Enqueues all elements of an array range, claiming their slots at once.
+     *
+     * @return {@code length}
+     */
+    public int enqAll(float[] elements, int offset, int length) {
+        final long t = preEnq(length);
+        for (int i = 0; i < length; i++)
+            setRaw(t + i, Float.floatToRawIntBits(elements[offset + i]));
+        postEnq(length);
+        return length;
+    }
+
+    /**
+     * Removes up to {@code max} elements, storing them at the beginning of {@code array}.
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(float[] array, int max) {
+        final FloatConsumer c = (FloatConsumer) consumer;
+        int n = 0;
+        while (n < max && c.hasNext()) {
+            c.poll0();
+            array[n++] = c.getFloatValue();
+        }
+        return n;
+    }
+
     @Override
     public FloatConsumer newConsumer() {
         return new FloatConsumer();
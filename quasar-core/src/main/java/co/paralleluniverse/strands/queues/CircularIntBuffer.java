@@ -13,6 +13,8 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
@@ -22,6 +24,14 @@ public class CircularIntBuffer extends CircularWordBuffer<Integer> implements Ba
         super(size, singleProducer);
     }
 
+    /**
+     * Creates a buffer whose elements are stored off-heap, in the given direct (or memory-mapped) buffer.
+     * The capacity is the largest power of 2 number of elements that fit in the byte buffer.
+     */
+    public CircularIntBuffer(ByteBuffer buffer, boolean singleProducer) {
+        super(buffer, singleProducer);
+    }
+
     @Override
     public boolean enq(Integer elem) {
         return enq(elem.intValue());
@@ -38,6 +48,34 @@ public class CircularIntBuffer extends CircularWordBuffer<Integer> implements Ba
         return ((IntConsumer)consumer).pollInt();
     }
 
+    /**
+     * Enqueues all elements of an array range, claiming their slots at once.
+     *
+     * @return {@code length}
+     */
+    public int enqAll(int[] elements, int offset, int length) {
+        final long t = preEnq(length);
+        for (int i = 0; i < length; i++)
+            setRaw(t + i, elements[offset + i]);
+        postEnq(length);
+        return length;
+    }
+
+    /**
+     * Removes up to {@code max} elements, storing them at the beginning of {@code array}.
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(int[] array, int max) {
+        final IntConsumer c = (IntConsumer) consumer;
+        int n = 0;
+        while (n < max && c.hasNext()) {
+            c.poll0();
+            array[n++] = c.getIntValue();
+        }
+        return n;
+    }
+
     @Override
     public IntConsumer newConsumer() {
         return new IntConsumer();
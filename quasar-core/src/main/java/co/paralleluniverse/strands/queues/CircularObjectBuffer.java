@@ -33,6 +33,15 @@ public class CircularObjectBuffer<E> extends CircularBuffer<E> {
         return true;
     }
 
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        final long t = preEnq(length);
+        for (int i = 0; i < length; i++)
+            orderedSet((int) (t + i) & mask, elements[offset + i]);
+        postEnq(length);
+        return length;
+    }
+
     @Override
     public Consumer newConsumer() {
         return new ObjectConsumer();
@@ -13,16 +13,33 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
  */
 abstract class CircularWordBuffer<E> extends CircularBuffer<E> {
-    private final int[] array;
+    private final Object array; // null if off-heap
+    private final long base; // address of the first element, relative to array
+    private final ByteBuffer buffer; // keeps the off-heap memory reachable
 
     public CircularWordBuffer(int size, boolean singleProducer) {
         super(size, singleProducer);
         this.array = new int[capacity];
+        this.base = UNSAFE.arrayBaseOffset(int[].class);
+        this.buffer = null;
+    }
+
+    /**
+     * @param buffer a direct buffer, which will hold the buffer's elements; the capacity is the largest power of 2
+     *               number of elements that fit in it
+     */
+    public CircularWordBuffer(ByteBuffer buffer, boolean singleProducer) {
+        super(OffHeapBuffers.capacity(buffer, 4), singleProducer);
+        this.array = null;
+        this.base = OffHeapBuffers.address(buffer, 4);
+        this.buffer = buffer;
     }
 
     void enqRaw(int elem) {
@@ -31,12 +48,16 @@ abstract class CircularWordBuffer<E> extends CircularBuffer<E> {
         postEnq();
     }
 
+    void setRaw(long index, int elem) {
+        orderedSet((int) index & mask, elem);
+    }
+
     abstract class WordConsumer extends Consumer {
         private int value;
 
         @Override
         protected void grabValue(int index) {
-            value = array[index];
+            value = UNSAFE.getInt(array, byteOffset(index));
         }
 
         @Override
@@ -48,23 +69,8 @@ abstract class CircularWordBuffer<E> extends CircularBuffer<E> {
         }
     }
     //////////////////////////
-    private static final int base;
-    private static final int shift;
-
-    static {
-        try {
-            base = UNSAFE.arrayBaseOffset(int[].class);
-            int scale = UNSAFE.arrayIndexScale(int[].class);
-            if ((scale & (scale - 1)) != 0)
-                throw new Error("data type scale not a power of two");
-            shift = 31 - Integer.numberOfLeadingZeros(scale);
-        } catch (Exception ex) {
-            throw new Error(ex);
-        }
-    }
-
-    private static long byteOffset(int i) {
-        return ((long) i << shift) + base;
+    private long byteOffset(int i) {
+        return base + ((long) i << 2);
     }
 
     private void orderedSet(int i, int value) {
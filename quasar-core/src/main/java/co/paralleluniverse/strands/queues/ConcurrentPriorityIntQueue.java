@@ -0,0 +1,35 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+/**
+ * A {@link ConcurrentPriorityQueue} of {@code int}s, returned in ascending order.
+ *
+ * @author pron
+ */
+public class ConcurrentPriorityIntQueue extends ConcurrentPriorityQueue<Integer> implements BasicSingleConsumerIntQueue {
+    public ConcurrentPriorityIntQueue(int capacity) {
+        super(capacity, null);
+    }
+
+    @Override
+    public boolean enq(int element) {
+        return enq(Integer.valueOf(element));
+    }
+
+    @Override
+    public int pollInt() {
+        return poll();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import co.paralleluniverse.concurrent.util.ConcurrentSkipListSet;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A multi-producer, multi-consumer queue that returns its elements in priority order, with elements of equal priority
+ * returned in the order they were enqueued. It is backed by a concurrent skip list, so producers and consumers don't
+ * contend on a lock, and each element is wrapped in a skip-list entry tagged with an enqueue sequence number. The
+ * queue may be bounded or unbounded.
+ *
+ * @author pron
+ */
+public class ConcurrentPriorityQueue<E> implements BasicSingleConsumerQueue<E> {
+    private final int capacity;
+    private final ConcurrentSkipListSet<Entry<E>> sls;
+    private final AtomicLong sequencer = new AtomicLong();
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * @param capacity   the queue's capacity, or -1 for an unbounded queue
+     * @param comparator the elements' priority order (the least element is dequeued first), or {@code null} for their
+     *                   natural ordering
+     */
+    public ConcurrentPriorityQueue(int capacity, final Comparator<? super E> comparator) {
+        if (capacity == 0 || capacity < -1)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        this.capacity = capacity;
+        this.sls = new ConcurrentSkipListSet<Entry<E>>(new Comparator<Entry<E>>() {
+            @Override
+            public int compare(Entry<E> x, Entry<E> y) {
+                final int c = comparator != null ? comparator.compare(x.value, y.value) : ((Comparable<? super E>) x.value).compareTo(y.value);
+                if (c != 0)
+                    return c;
+                return x.seq < y.seq ? -1 : (x.seq == y.seq ? 0 : 1);
+            }
+        });
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean enq(E element) {
+        if (element == null)
+            throw new NullPointerException();
+        if (capacity > 0) {
+            if (count.incrementAndGet() > capacity) {
+                count.decrementAndGet();
+                return false;
+            }
+        } else
+            count.incrementAndGet();
+        sls.add(new Entry<E>(element, sequencer.getAndIncrement()));
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final Entry<E> e = sls.pollFirst();
+        if (e == null)
+            return null;
+        count.decrementAndGet();
+        return e.value;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !sls.isEmpty();
+    }
+
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        return Queues.enqAll(this, elements, offset, length);
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    private static final class Entry<E> {
+        final E value;
+        final long seq;
+
+        Entry(E value, long seq) {
+            this.value = value;
+            this.seq = seq;
+        }
+    }
+}
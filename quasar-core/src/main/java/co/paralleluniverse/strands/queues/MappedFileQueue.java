@@ -0,0 +1,390 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import sun.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A multi-producer, single-consumer queue of byte arrays, kept in a ring buffer in a memory-mapped file.
+ *
+ * The queue's state, including its head and tail, lives entirely in the file, so the queue survives the crash of the
+ * process using it (its contents are written to disk by the OS, or when {@link #force() force} is called), and it may
+ * be opened by several processes on the same host at once, any number of which may enqueue, but only one of which may
+ * poll.
+ *
+ * Each element is stored as a record made of its length followed by its bytes, padded to 8 bytes. A producer claims
+ * room for a record with a CAS of the tail, marks it as reserved by writing its size, copies its bytes, and then
+ * publishes the record by writing its length. The consumer zeroes each record after reading it, so that a record is
+ * never visible before it's been published.
+ *
+ * A producer that dies after claiming a record but before publishing it would block the queue, so the consumer skips a
+ * record that has remained unpublished for longer than the queue's <i>abandon timeout</i>. A reserved record is skipped
+ * by its size; a record whose producer died before even marking it is all zeros, and the consumer skips to the next
+ * marked record. The timeout must be much longer than any enqueue could take, as a producer that is merely slow, and
+ * publishes its record after it has been skipped, would corrupt the queue.
+ *
+ * {@link #poll() poll} copies each element into a new array; {@link #poll(Reader) poll(Reader)} lets the consumer read
+ * it in place instead.
+ *
+ * The file stays mapped until {@link #unmap() unmap} is called (or the queue is garbage collected).
+ *
+ * @author pron
+ */
+public class MappedFileQueue implements BasicSingleConsumerQueue<byte[]> {
+    private static final int MAGIC = 0x51554c47; // "QULG"
+    // header layout; each of the mutable fields is on its own cache line
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    static final int TAIL_OFFSET = 64;
+    private static final int HEAD_OFFSET = 128;
+    private static final int ENQUEUED_OFFSET = 192;
+    private static final int CLOSED_OFFSET = 256;
+    static final int HEADER_SIZE = 320;
+    private static final int RECORD_HEADER_SIZE = 4;
+    private static final int PADDING = -1; // a record length marking the end of the ring
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer view; // used by the consumer only
+    private final long address; // of the file's beginning
+    private final long data; // address of the ring
+    private final int capacity; // in bytes
+    private final int mask;
+    private final long abandonTimeout; // in nanoseconds
+    private long dequeued; // number of elements polled; used by the consumer only
+    private long stalledAt = -1; // the position of the unpublished record the consumer is waiting for; consumer only
+    private long stalledSince; // consumer only
+
+    /**
+     * Opens a queue file, creating it if it doesn't exist, with an abandon timeout of 10 seconds.
+     *
+     * @param file     the queue file
+     * @param capacity the size of the ring buffer in bytes, which will be rounded up to a power of 2; if the file
+     *                 already exists, it must have been created with the same capacity
+     */
+    public MappedFileQueue(File file, int capacity) throws IOException {
+        this(file, capacity, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a queue file, creating it if it doesn't exist.
+     *
+     * @param file           the queue file
+     * @param capacity       the size of the ring buffer in bytes, which will be rounded up to a power of 2; if the
+     *                       file already exists, it must have been created with the same capacity
+     * @param abandonTimeout how long the consumer waits for a claimed record to be published before it skips it
+     * @param unit           the unit of {@code abandonTimeout}
+     */
+    public MappedFileQueue(File file, int capacity, long abandonTimeout, TimeUnit unit) throws IOException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        if (abandonTimeout <= 0)
+            throw new IllegalArgumentException("abandonTimeout must be positive: " + abandonTimeout);
+        this.file = file;
+        this.abandonTimeout = unit.toNanos(abandonTimeout);
+        this.capacity = nextPowerOfTwo(Math.max(capacity, 8));
+        this.mask = this.capacity - 1;
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final boolean created = raf.length() == 0;
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity);
+            this.view = buffer.asReadOnlyBuffer();
+            this.address = OffHeapBuffers.address(buffer, 8);
+            this.data = address + HEADER_SIZE;
+
+            if (created) {
+                UNSAFE.putInt(address + CAPACITY_OFFSET, this.capacity);
+                UNSAFE.putIntVolatile(null, address + MAGIC_OFFSET, MAGIC);
+            } else {
+                if (UNSAFE.getIntVolatile(null, address + MAGIC_OFFSET) != MAGIC)
+                    throw new IOException("File " + file + " is not a queue file");
+                final int fileCapacity = UNSAFE.getInt(address + CAPACITY_OFFSET);
+                if (fileCapacity != this.capacity)
+                    throw new IOException("File " + file + " has capacity " + fileCapacity + " rather than " + this.capacity);
+            }
+        } finally {
+            raf.close(); // the mapping remains valid
+        }
+        this.dequeued = getLongVolatile(ENQUEUED_OFFSET) - countRecords();
+    }
+
+    private static int nextPowerOfTwo(int v) {
+        assert v >= 0;
+        return 1 << (32 - Integer.numberOfLeadingZeros(v - 1));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the queue's capacity in bytes rather than in elements, as the number of elements it can hold depends on
+     * their lengths.
+     *
+     * @see #byteCapacity()
+     */
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The size of the ring buffer, in bytes. Each element takes up its length plus 4, rounded up to a multiple of 8.
+     */
+    public int byteCapacity() {
+        return capacity;
+    }
+
+    private static int recordSize(int length) {
+        return (RECORD_HEADER_SIZE + length + 7) & ~7;
+    }
+
+    @Override
+    public boolean enq(byte[] element) {
+        if (element == null)
+            throw new IllegalArgumentException("null values not allowed");
+        final int size = recordSize(element.length);
+        if (size > capacity / 2)
+            throw new IllegalArgumentException("Element of length " + element.length + " is too large for a queue of " + capacity + " bytes");
+
+        long t, p;
+        int padding;
+        do {
+            t = getLongVolatile(TAIL_OFFSET);
+            p = t & mask;
+            padding = p + size > capacity ? (int) (capacity - p) : 0; // the record can't wrap around
+            if (t + padding + size - getLongVolatile(HEAD_OFFSET) > capacity)
+                return false;
+        } while (!UNSAFE.compareAndSwapLong(null, address + TAIL_OFFSET, t, t + padding + size));
+
+        if (padding > 0) {
+            UNSAFE.putOrderedInt(null, data + p, PADDING);
+            p = 0;
+        }
+        UNSAFE.putIntVolatile(null, data + p, -size); // reserved; must be visible before any of the element's bytes
+        UNSAFE.copyMemory(element, BYTE_ARRAY_BASE, null, data + p + RECORD_HEADER_SIZE, element.length);
+        UNSAFE.putIntVolatile(null, data + p, element.length + 1); // length is stored + 1 so that 0 means unpublished
+        addEnqueued();
+        return true;
+    }
+
+    @Override
+    public byte[] poll() {
+        final long h = next();
+        if (h < 0)
+            return null;
+        final long p = h & mask;
+        final byte[] element = new byte[UNSAFE.getInt(data + p) - 1];
+        UNSAFE.copyMemory(null, data + p + RECORD_HEADER_SIZE, element, BYTE_ARRAY_BASE, element.length);
+        release(h, element.length);
+        return element;
+    }
+
+    /**
+     * Reads the element at the head of the queue in place, without copying it, and then removes it.
+     *
+     * @param reader is passed a read-only buffer whose remaining bytes are the element's; the buffer may only be used
+     *               until {@code read} returns, after which the element's room in the queue is reused
+     * @return {@code false} if the queue is empty
+     */
+    public boolean poll(Reader reader) {
+        final long h = next();
+        if (h < 0)
+            return false;
+        final long p = h & mask;
+        final int length = UNSAFE.getInt(data + p) - 1;
+        final int position = HEADER_SIZE + (int) p + RECORD_HEADER_SIZE;
+        view.clear();
+        view.position(position);
+        view.limit(position + length);
+        try {
+            reader.read(view);
+        } finally {
+            release(h, length);
+        }
+        return true;
+    }
+
+    /**
+     * Consumes an element of a {@link MappedFileQueue} in place.
+     *
+     * @see MappedFileQueue#poll(Reader)
+     */
+    public interface Reader {
+        void read(ByteBuffer element);
+    }
+
+    /**
+     * Returns the head position of the next published record, skipping the padding at the end of the ring and any
+     * abandoned records, or -1 if there is none.
+     */
+    private long next() {
+        for (;;) {
+            final long h = getLongVolatile(HEAD_OFFSET);
+            final long p = h & mask;
+            final int len = UNSAFE.getIntVolatile(null, data + p);
+            if (len > 0) {
+                stalledAt = -1;
+                return h;
+            }
+            if (len == PADDING) {
+                UNSAFE.setMemory(data + p, capacity - p, (byte) 0);
+                UNSAFE.putLongVolatile(null, address + HEAD_OFFSET, h + capacity - p);
+                continue;
+            }
+            // the record is unpublished; if it hasn't been claimed either, the queue is empty
+            if ((len == 0 && h == getLongVolatile(TAIL_OFFSET)) || !isAbandoned(h))
+                return -1;
+            skipAbandoned(h, len);
+        }
+    }
+
+    /**
+     * Tells whether the unpublished record at {@code h} has been waited for longer than the abandon timeout.
+     */
+    private boolean isAbandoned(long h) {
+        final long now = System.nanoTime();
+        if (h != stalledAt) {
+            stalledAt = h;
+            stalledSince = now;
+            return false;
+        }
+        return now - stalledSince > abandonTimeout;
+    }
+
+    private void skipAbandoned(long h, int len) {
+        long next;
+        if (len < 0) { // reserved
+            UNSAFE.setMemory(data + (h & mask), -len, (byte) 0);
+            next = h - len;
+        } else {
+            // the producer died before marking its record, so the record (and any padding before it) is all zeros
+            final long t = getLongVolatile(TAIL_OFFSET);
+            next = h + 8;
+            while (next < t && UNSAFE.getIntVolatile(null, data + (next & mask)) == 0)
+                next += 8;
+        }
+        UNSAFE.putLongVolatile(null, address + HEAD_OFFSET, next);
+        stalledAt = -1;
+    }
+
+    /**
+     * Frees the record at {@code h}, after the element it holds has been read.
+     */
+    private void release(long h, int length) {
+        final int size = recordSize(length);
+        UNSAFE.setMemory(data + (h & mask), size, (byte) 0);
+        UNSAFE.putLongVolatile(null, address + HEAD_OFFSET, h + size);
+        dequeued++;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next() >= 0;
+    }
+
+    @Override
+    public int enqAll(byte[][] elements, int offset, int length) {
+        return Queues.enqAll(this, elements, offset, length);
+    }
+
+    @Override
+    public int drainTo(byte[][] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
+
+    /**
+     * Returns the number of elements in the queue. Must only be called by the consumer.
+     */
+    @Override
+    public int size() {
+        return (int) (getLongVolatile(ENQUEUED_OFFSET) - dequeued);
+    }
+
+    /**
+     * Marks the queue as closed, in the file, so that the consumer (possibly in another process) can tell that no more
+     * elements will be enqueued. The file remains mapped, so that the consumer may drain the queue; call
+     * {@link #unmap() unmap} to release the mapping.
+     */
+    public void close() {
+        UNSAFE.putIntVolatile(null, address + CLOSED_OFFSET, 1);
+    }
+
+    /**
+     * Releases the file's mapping right away rather than when the queue is garbage collected. The file, and the queue's
+     * contents, are left intact, and the queue may be reopened, in this process or another, with a new instance.
+     * This instance, however, must not be used once this method has been called, by this or any other strand, as doing
+     * so would access unmapped memory.
+     */
+    public void unmap() {
+        ((DirectBuffer) buffer).cleaner().clean();
+    }
+
+    public boolean isClosed() {
+        return UNSAFE.getIntVolatile(null, address + CLOSED_OFFSET) != 0;
+    }
+
+    /**
+     * Writes the queue's contents to the disk.
+     *
+     * @see MappedByteBuffer#force()
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    private int countRecords() {
+        int count = 0;
+        long h = getLongVolatile(HEAD_OFFSET);
+        final long t = getLongVolatile(TAIL_OFFSET);
+        while (h < t) {
+            final long p = h & mask;
+            final int len = UNSAFE.getIntVolatile(null, data + p);
+            if (len == 0)
+                break; // unpublished
+            if (len == PADDING)
+                h += capacity - p;
+            else if (len < 0)
+                h -= len; // reserved
+            else {
+                h += recordSize(len - 1);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void addEnqueued() {
+        long n;
+        do {
+            n = getLongVolatile(ENQUEUED_OFFSET);
+        } while (!UNSAFE.compareAndSwapLong(null, address + ENQUEUED_OFFSET, n, n + 1));
+    }
+
+    private long getLongVolatile(int offset) {
+        return UNSAFE.getLongVolatile(null, address + offset);
+    }
+    ////////////////////////////////////////////////////////////////////////
+    private static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+}
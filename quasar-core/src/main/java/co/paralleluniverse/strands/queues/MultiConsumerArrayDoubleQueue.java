@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded multi-producer, multi-consumer queue of {@code double}s.
+ * It may also be used as a {@link BasicSingleConsumerDoubleQueue} by a single consumer.
+ *
+ * @author pron
+ */
+public class MultiConsumerArrayDoubleQueue extends MultiConsumerArrayQueue<Double> implements BasicSingleConsumerDoubleQueue {
+    private final double[] array;
+
+    public MultiConsumerArrayDoubleQueue(int capacity, boolean displace) {
+        super(capacity, displace);
+        this.array = new double[this.capacity];
+    }
+
+    public MultiConsumerArrayDoubleQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    @Override
+    public boolean enq(double item) {
+        final long t = preEnq();
+        if (t < 0)
+            return false;
+        array[(int) t & mask] = item;
+        postEnq(t);
+        return true;
+    }
+
+    @Override
+    public boolean enq(Double item) {
+        if (item == null)
+            throw new IllegalArgumentException("null values not allowed");
+        return enq(item.doubleValue());
+    }
+
+    @Override
+    public Double poll() {
+        final int index = pollIndex();
+        return index >= 0 ? pollDouble(index) : null;
+    }
+
+    /**
+     * @throws NoSuchElementException if the queue is empty
+     */
+    @Override
+    public double pollDouble() {
+        final int index = pollIndex();
+        if (index < 0)
+            throw new NoSuchElementException();
+        return pollDouble(index);
+    }
+
+    /**
+     * Returns the element claimed by {@link #pollIndex() pollIndex}, and frees its slot.
+     */
+    public double pollDouble(int index) {
+        final double v = array[index];
+        postPoll(index);
+        return v;
+    }
+
+    @Override
+    void setValue(int index, Double value) {
+        array[index] = value.doubleValue();
+    }
+
+    @Override
+    void clearValue(int index) {
+    }
+}
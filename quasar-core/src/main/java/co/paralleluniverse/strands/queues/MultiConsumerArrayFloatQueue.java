@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded multi-producer, multi-consumer queue of {@code float}s.
+ * It may also be used as a {@link BasicSingleConsumerFloatQueue} by a single consumer.
+ *
+ * @author pron
+ */
+public class MultiConsumerArrayFloatQueue extends MultiConsumerArrayQueue<Float> implements BasicSingleConsumerFloatQueue {
+    private final float[] array;
+
+    public MultiConsumerArrayFloatQueue(int capacity, boolean displace) {
+        super(capacity, displace);
+        this.array = new float[this.capacity];
+    }
+
+    public MultiConsumerArrayFloatQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    @Override
+    public boolean enq(float item) {
+        final long t = preEnq();
+        if (t < 0)
+            return false;
+        array[(int) t & mask] = item;
+        postEnq(t);
+        return true;
+    }
+
+    @Override
+    public boolean enq(Float item) {
+        if (item == null)
+            throw new IllegalArgumentException("null values not allowed");
+        return enq(item.floatValue());
+    }
+
+    @Override
+    public Float poll() {
+        final int index = pollIndex();
+        return index >= 0 ? pollFloat(index) : null;
+    }
+
+    /**
+     * @throws NoSuchElementException if the queue is empty
+     */
+    @Override
+    public float pollFloat() {
+        final int index = pollIndex();
+        if (index < 0)
+            throw new NoSuchElementException();
+        return pollFloat(index);
+    }
+
+    /**
+     * Returns the element claimed by {@link #pollIndex() pollIndex}, and frees its slot.
+     */
+    public float pollFloat(int index) {
+        final float v = array[index];
+        postPoll(index);
+        return v;
+    }
+
+    @Override
+    void setValue(int index, Float value) {
+        array[index] = value.floatValue();
+    }
+
+    @Override
+    void clearValue(int index) {
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded multi-producer, multi-consumer queue of {@code int}s.
+ * It may also be used as a {@link BasicSingleConsumerIntQueue} by a single consumer.
+ *
+ * @author pron
+ */
+public class MultiConsumerArrayIntQueue extends MultiConsumerArrayQueue<Integer> implements BasicSingleConsumerIntQueue {
+    private final int[] array;
+
+    public MultiConsumerArrayIntQueue(int capacity, boolean displace) {
+        super(capacity, displace);
+        this.array = new int[this.capacity];
+    }
+
+    public MultiConsumerArrayIntQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    @Override
+    public boolean enq(int item) {
+        final long t = preEnq();
+        if (t < 0)
+            return false;
+        array[(int) t & mask] = item;
+        postEnq(t);
+        return true;
+    }
+
+    @Override
+    public boolean enq(Integer item) {
+        if (item == null)
+            throw new IllegalArgumentException("null values not allowed");
+        return enq(item.intValue());
+    }
+
+    @Override
+    public Integer poll() {
+        final int index = pollIndex();
+        return index >= 0 ? pollInt(index) : null;
+    }
+
+    /**
+     * @throws NoSuchElementException if the queue is empty
+     */
+    @Override
+    public int pollInt() {
+        final int index = pollIndex();
+        if (index < 0)
+            throw new NoSuchElementException();
+        return pollInt(index);
+    }
+
+    /**
+     * Returns the element claimed by {@link #pollIndex() pollIndex}, and frees its slot.
+     */
+    public int pollInt(int index) {
+        final int v = array[index];
+        postPoll(index);
+        return v;
+    }
+
+    @Override
+    void setValue(int index, Integer value) {
+        array[index] = value.intValue();
+    }
+
+    @Override
+    void clearValue(int index) {
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+/**
+ * A bounded multi-producer, multi-consumer object queue.
+ *
+ * @author pron
+ */
+public class MultiConsumerArrayObjectQueue<E> extends MultiConsumerArrayQueue<E> {
+    private final Object[] array;
+
+    public MultiConsumerArrayObjectQueue(int capacity, boolean displace) {
+        super(capacity, displace);
+        this.array = new Object[this.capacity];
+    }
+
+    public MultiConsumerArrayObjectQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    @Override
+    public boolean enq(E item) {
+        if (item == null)
+            throw new IllegalArgumentException("null values not allowed");
+        final long t = preEnq();
+        if (t < 0)
+            return false;
+        array[(int) t & mask] = item;
+        postEnq(t);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final int index = pollIndex();
+        return index >= 0 ? poll(index) : null;
+    }
+
+    /**
+     * Returns the element claimed by {@link #pollIndex() pollIndex}, and frees its slot.
+     */
+    public E poll(int index) {
+        final E v = (E) array[index];
+        array[index] = null;
+        postPoll(index);
+        return v;
+    }
+
+    @Override
+    void setValue(int index, E value) {
+        array[index] = value;
+    }
+
+    @Override
+    void clearValue(int index) {
+        array[index] = null;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import sun.misc.Unsafe;
+
+/**
+ * A bounded multi-producer, multi-consumer array queue.
+ * Based on Dmitry Vyukov's bounded MPMC queue: each slot carries a sequence number that tells producers when the slot
+ * is free, and consumers when it holds an element, so producers and consumers contend only on a CAS of the tail or
+ * head, respectively, and never on each other's slots.
+ *
+ * Consumers remove elements in two steps: {@link #pollIndex() pollIndex} claims the head element and returns its
+ * index, and the subclass's typed poll method, given that index, returns the element and frees its slot. This lets the
+ * primitive queues be consumed concurrently without boxing.
+ *
+ * @author pron
+ */
+public abstract class MultiConsumerArrayQueue<E> implements BasicQueue<E> {
+    final int capacity;
+    final int mask;
+    private final boolean displace;
+    private final long[] sequences;
+    volatile int p001, p002, p003, p004, p005, p006, p007;
+    volatile long head; // next element to be read
+    volatile long p101, p102, p103, p104, p105, p106, p107;
+    volatile long tail; // next element to be written
+    volatile long p201, p202, p203, p204, p205, p206, p207;
+
+    /**
+     * @param capacity the queue's capacity; will be rounded up to a power of 2, and no less than 2 (with a single slot,
+     *                 a published element's sequence would be mistaken for a free slot's)
+     * @param displace whether, when the queue is full, {@code enq} removes the oldest element to make room for the new
+     *                 one rather than fail (if a consumer has claimed the oldest element but not yet freed its slot,
+     *                 {@code enq} waits for it instead)
+     */
+    MultiConsumerArrayQueue(int capacity, boolean displace) {
+        // size is a power of 2
+        this.capacity = nextPowerOfTwo(Math.max(capacity, 2));
+        this.mask = this.capacity - 1;
+        this.displace = displace;
+        this.sequences = new long[this.capacity];
+        for (int i = 0; i < this.capacity; i++)
+            sequences[i] = i;
+    }
+
+    private static int nextPowerOfTwo(int v) {
+        assert v >= 0;
+        return 1 << (32 - Integer.numberOfLeadingZeros(v - 1));
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    abstract void setValue(int index, E value);
+
+    abstract void clearValue(int index);
+
+    /**
+     * Claims a slot for a new element.
+     *
+     * @return the slot's position, or -1 if the queue is full
+     */
+    final long preEnq() {
+        for (;;) {
+            final long t = tail;
+            final long seq = getSequence((int) t & mask);
+            if (seq == t) {
+                if (compareAndSetTail(t, t + 1))
+                    return t;
+            } else if (seq < t) { // full
+                if (!displace)
+                    return -1;
+                discard(t - capacity);
+            }
+            // otherwise, another producer has claimed the slot; retry
+        }
+    }
+
+    /**
+     * Publishes an element written to a slot returned by {@link #preEnq() preEnq}.
+     */
+    final void postEnq(long t) {
+        orderedSetSequence((int) t & mask, t + 1);
+    }
+
+    /**
+     * Claims the element at the head of the queue. The claimed element must then be retrieved, and its slot freed, by
+     * passing the returned index to the subclass's typed poll method.
+     *
+     * @return the index of the claimed element, or -1 if the queue is empty
+     */
+    public final int pollIndex() {
+        for (;;) {
+            final long h = head;
+            final long seq = getSequence((int) h & mask);
+            if (seq == h + 1) {
+                if (compareAndSetHead(h, h + 1))
+                    return (int) h & mask;
+            } else if (seq < h + 1) // empty, or the element has not been published yet
+                return -1;
+            // otherwise, another consumer has claimed the element; retry
+        }
+    }
+
+    /**
+     * Frees the slot of an element claimed by {@link #pollIndex() pollIndex}, after it has been read.
+     */
+    final void postPoll(int index) {
+        // the slot's current sequence is h + 1, where h is the position it was claimed at
+        orderedSetSequence(index, getSequence(index) - 1 + capacity);
+    }
+
+    /**
+     * Removes the element at position {@code h}, the one occupying the slot a displacing producer needs, but only if it
+     * is still at the head of the queue and has been published. If a consumer has already claimed it but has not yet
+     * freed its slot, nothing is removed, and the producer must wait for the consumer rather than displace the next
+     * element, which would not make room for it anyway.
+     */
+    private void discard(long h) {
+        final int index = (int) h & mask;
+        if (getSequence(index) == h + 1 && compareAndSetHead(h, h + 1)) {
+            clearValue(index);
+            postPoll(index);
+        }
+    }
+
+    /**
+     * Claims, with a single CAS of the tail, as many consecutive free slots as are available (up to {@code length}),
+     * and then writes and publishes the elements in order.
+     */
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (elements[offset + i] == null)
+                throw new IllegalArgumentException("null values not allowed");
+        }
+        int n = 0;
+        while (n < length) {
+            final long t = tail;
+            final long seq = getSequence((int) t & mask);
+            if (seq == t) {
+                // a slot's sequence only moves past its position once a producer has claimed it, so the slots found
+                // free here stay free until the CAS below claims them
+                final int max = Math.min(length - n, capacity);
+                int k = 1;
+                while (k < max && getSequence((int) (t + k) & mask) == t + k)
+                    k++;
+                if (compareAndSetTail(t, t + k)) {
+                    for (int i = 0; i < k; i++) {
+                        setValue((int) (t + i) & mask, elements[offset + n + i]);
+                        postEnq(t + i);
+                    }
+                    n += k;
+                }
+            } else if (seq < t) { // full
+                if (!displace)
+                    break;
+                discard(t - capacity);
+            }
+            // otherwise, another producer has claimed the slot; retry
+        }
+        return n;
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
+
+    /**
+     * Tests whether the queue has an element ready to be polled.
+     * When used by multiple consumers, a following poll might still find the queue empty.
+     */
+    public boolean hasNext() {
+        final long h = head;
+        return getSequence((int) h & mask) == h + 1;
+    }
+
+    @Override
+    public int size() {
+        final long s = tail - head;
+        return (int) (s < 0 ? 0 : s > capacity ? capacity : s);
+    }
+    ////////////////////////////////////////////////////////////////////////
+    static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final int base;
+    private static final int shift;
+    private static final long headOffset;
+    private static final long tailOffset;
+
+    static {
+        try {
+            headOffset = UNSAFE.objectFieldOffset(MultiConsumerArrayQueue.class.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset(MultiConsumerArrayQueue.class.getDeclaredField("tail"));
+
+            base = UNSAFE.arrayBaseOffset(long[].class);
+            int scale = UNSAFE.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            shift = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private boolean compareAndSetTail(long expect, long update) {
+        return UNSAFE.compareAndSwapLong(this, tailOffset, expect, update);
+    }
+
+    private boolean compareAndSetHead(long expect, long update) {
+        return UNSAFE.compareAndSwapLong(this, headOffset, expect, update);
+    }
+
+    private static long byteOffset(int i) {
+        return ((long) i << shift) + base;
+    }
+
+    private long getSequence(int i) {
+        return UNSAFE.getLongVolatile(sequences, byteOffset(i));
+    }
+
+    private void orderedSetSequence(int i, long value) {
+        UNSAFE.putOrderedLong(sequences, byteOffset(i), value);
+    }
+}
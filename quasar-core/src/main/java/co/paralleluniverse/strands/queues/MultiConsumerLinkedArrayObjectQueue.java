@@ -0,0 +1,348 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import sun.misc.Unsafe;
+
+/**
+ * An unbounded multi-producer, multi-consumer object queue, made of a linked list of fixed-size blocks.
+ *
+ * Producers and consumers claim slots in the tail and head blocks, respectively, by incrementing the block's enqueue
+ * or dequeue index. A consumer that claims a slot before its producer has written it marks the slot as taken, and the
+ * producer retries with the next slot.
+ *
+ * Blocks are recycled once the head moves past them: every thread registers as a user of the block it operates on,
+ * and the last user to leave a retired block resets it and returns it to a small pool, from which new tail blocks are
+ * taken.
+ *
+ * @author pron
+ */
+public class MultiConsumerLinkedArrayObjectQueue<E> implements BasicQueue<E> {
+    public static final int BLOCK_SIZE = 32;
+    private static final int POOL_SIZE = 4;
+    private static final Object TAKEN = new Object();
+    volatile Node head;
+    volatile Object p001, p002, p003, p004, p005, p006, p007, p008, p009, p010, p011, p012, p013, p014, p015;
+    volatile Node tail;
+    volatile Object p101, p102, p103, p104, p105, p106, p107, p108, p109, p110, p111, p112, p113, p114, p115;
+    private final AtomicReferenceArray<Node> pool = new AtomicReferenceArray<Node>(POOL_SIZE);
+
+    public MultiConsumerLinkedArrayObjectQueue() {
+        tail = head = new Node();
+    }
+
+    @Override
+    public int capacity() {
+        return -1;
+    }
+
+    @Override
+    public boolean enq(E item) {
+        if (item == null)
+            throw new IllegalArgumentException("null values not allowed");
+        for (;;) {
+            final Node t = acquireTail();
+            try {
+                final int i = t.claimEnq();
+                if (i >= 0) {
+                    if (t.casItem(i, null, item))
+                        return true;
+                    continue; // the slot has been taken by a consumer
+                }
+
+                // block is full
+                final Node n = t.next;
+                if (n == null) {
+                    final Node nn = newNode();
+                    nn.base = t.base + BLOCK_SIZE;
+                    nn.items[0] = item;
+                    nn.enqIndex = 1;
+                    if (t.casNext(null, nn)) {
+                        compareAndSetTail(t, nn);
+                        return true;
+                    }
+                    nn.reset();
+                    offer(nn);
+                } else
+                    compareAndSetTail(t, n);
+            } finally {
+                t.release();
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        for (;;) {
+            final Node h = acquireHead();
+            try {
+                final int i = h.claimDeq();
+                if (i >= 0) {
+                    final Object v = h.take(i);
+                    if (v != null)
+                        return (E) v;
+                    continue; // the slot has not been written yet, and the producer will retry
+                }
+                if (i == EMPTY)
+                    return null;
+
+                // block is exhausted
+                final Node n = h.next;
+                if (n == null)
+                    return null;
+                if (tail == h)
+                    compareAndSetTail(h, n);
+                if (compareAndSetHead(h, n))
+                    h.retire();
+            } finally {
+                h.release();
+            }
+        }
+    }
+
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        return Queues.enqAll(this, elements, offset, length);
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
+
+    /**
+     * Returns an estimate of the number of elements in the queue.
+     */
+    @Override
+    public int size() {
+        final Node h = head;
+        final long hpos = h.base + h.deqIndex;
+        final Node t = tail;
+        final long s = t.base + t.enqIndex - hpos;
+        return (int) (s < 0 ? 0 : s > Integer.MAX_VALUE ? Integer.MAX_VALUE : s);
+    }
+
+    private Node acquireHead() {
+        for (;;) {
+            final Node h = head;
+            if (h.acquire()) {
+                if (head == h)
+                    return h;
+                h.release();
+            }
+        }
+    }
+
+    private Node acquireTail() {
+        for (;;) {
+            final Node t = tail;
+            if (t.acquire()) {
+                if (tail == t)
+                    return t;
+                t.release();
+            }
+        }
+    }
+
+    private Node newNode() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (pool.get(i) != null) {
+                final Node n = pool.getAndSet(i, null);
+                if (n != null)
+                    return n;
+            }
+        }
+        return new Node();
+    }
+
+    private void offer(Node n) {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (pool.get(i) == null && pool.compareAndSet(i, null, n))
+                return;
+        }
+        // pool is full; leave n to the GC
+    }
+    private static final int EMPTY = -1;
+    private static final int EXHAUSTED = -2;
+    // Node.state: the number of users, plus the RETIRED bit once the head has moved past the node
+    private static final int RETIRED = 1 << 30;
+    private static final int RECYCLED = -1;
+
+    final class Node {
+        final Object[] items = new Object[BLOCK_SIZE];
+        long base; // position of the first slot in the queue
+        volatile int enqIndex;
+        volatile int deqIndex;
+        volatile Node next;
+        volatile int state;
+
+        /**
+         * @return the claimed slot, or -1 if the block is full
+         */
+        int claimEnq() {
+            for (;;) {
+                final int i = enqIndex;
+                if (i >= BLOCK_SIZE)
+                    return -1;
+                if (casEnqIndex(i, i + 1))
+                    return i;
+            }
+        }
+
+        /**
+         * @return the claimed slot, {@code EMPTY} if there are no elements to claim, or {@code EXHAUSTED} if all slots
+         *         in the block have been claimed
+         */
+        int claimDeq() {
+            for (;;) {
+                final int i = deqIndex;
+                if (i >= BLOCK_SIZE)
+                    return EXHAUSTED;
+                if (i >= enqIndex)
+                    return EMPTY;
+                if (casDeqIndex(i, i + 1))
+                    return i;
+            }
+        }
+
+        /**
+         * Takes the value out of a slot claimed by {@link #claimDeq() claimDeq}.
+         *
+         * @return the value, or {@code null} if the producer has not written it yet (in which case it never will)
+         */
+        Object take(int i) {
+            Object v = getItem(i);
+            if (v == null) {
+                if (casItem(i, null, TAKEN))
+                    return null;
+                v = getItem(i);
+            }
+            items[i] = TAKEN; // we're the slot's only consumer
+            return v;
+        }
+
+        boolean acquire() {
+            for (;;) {
+                final int s = state;
+                if (s < 0 || (s & RETIRED) != 0)
+                    return false;
+                if (casState(s, s + 1))
+                    return true;
+            }
+        }
+
+        void release() {
+            for (;;) {
+                final int s = state;
+                if (s == (RETIRED | 1)) {
+                    if (casState(s, RECYCLED)) {
+                        recycle();
+                        return;
+                    }
+                } else if (casState(s, s - 1))
+                    return;
+            }
+        }
+
+        void retire() {
+            for (;;) {
+                final int s = state;
+                if (casState(s, s | RETIRED))
+                    return;
+            }
+        }
+
+        private void recycle() {
+            reset();
+            state = 0;
+            offer(this);
+        }
+
+        void reset() {
+            for (int i = 0; i < BLOCK_SIZE; i++)
+                items[i] = null;
+            base = 0;
+            enqIndex = 0;
+            deqIndex = 0;
+            next = null;
+        }
+
+        Object getItem(int i) {
+            return UNSAFE.getObjectVolatile(items, byteOffset(i));
+        }
+
+        boolean casItem(int i, Object expected, Object update) {
+            return UNSAFE.compareAndSwapObject(items, byteOffset(i), expected, update);
+        }
+
+        boolean casNext(Node expected, Node update) {
+            return UNSAFE.compareAndSwapObject(this, nextOffset, expected, update);
+        }
+
+        boolean casEnqIndex(int expected, int update) {
+            return UNSAFE.compareAndSwapInt(this, enqIndexOffset, expected, update);
+        }
+
+        boolean casDeqIndex(int expected, int update) {
+            return UNSAFE.compareAndSwapInt(this, deqIndexOffset, expected, update);
+        }
+
+        boolean casState(int expected, int update) {
+            return UNSAFE.compareAndSwapInt(this, stateOffset, expected, update);
+        }
+    }
+    ////////////////////////////////////////////////////////////////////////
+    static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final long headOffset;
+    private static final long tailOffset;
+    private static final long nextOffset;
+    private static final long enqIndexOffset;
+    private static final long deqIndexOffset;
+    private static final long stateOffset;
+    private static final int base;
+    private static final int shift;
+
+    static {
+        try {
+            headOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.class.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.class.getDeclaredField("tail"));
+            nextOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.Node.class.getDeclaredField("next"));
+            enqIndexOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.Node.class.getDeclaredField("enqIndex"));
+            deqIndexOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.Node.class.getDeclaredField("deqIndex"));
+            stateOffset = UNSAFE.objectFieldOffset(MultiConsumerLinkedArrayObjectQueue.Node.class.getDeclaredField("state"));
+
+            base = UNSAFE.arrayBaseOffset(Object[].class);
+            int scale = UNSAFE.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            shift = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private boolean compareAndSetHead(Node expected, Node update) {
+        return UNSAFE.compareAndSwapObject(this, headOffset, expected, update);
+    }
+
+    private boolean compareAndSetTail(Node expected, Node update) {
+        return UNSAFE.compareAndSwapObject(this, tailOffset, expected, update);
+    }
+
+    private static long byteOffset(int i) {
+        return ((long) i << shift) + base;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import co.paralleluniverse.concurrent.util.UtilUnsafe;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import sun.misc.Unsafe;
+
+/**
+ * Support for primitive queues backed by a direct (possibly memory-mapped) {@link ByteBuffer} rather than a Java array.
+ * The queue's elements are accessed directly at the buffer's native address, and so are stored in the platform's
+ * native byte order, regardless of the buffer's {@link ByteBuffer#order() order}.
+ *
+ * @author pron
+ */
+final class OffHeapBuffers {
+    private static final Unsafe UNSAFE = UtilUnsafe.getUnsafe();
+    private static final long addressOffset;
+
+    static {
+        try {
+            addressOffset = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (Exception ex) {
+            throw new Error(ex);
+        }
+    }
+
+    /**
+     * Returns the native address of a direct buffer's first byte.
+     *
+     * @param elementSize the size, in bytes, of the elements to be stored in the buffer, to which it must be aligned
+     */
+    static long address(ByteBuffer buffer, int elementSize) {
+        if (!buffer.isDirect())
+            throw new IllegalArgumentException("Buffer " + buffer + " is not a direct buffer");
+        final long address = UNSAFE.getLong(buffer, addressOffset);
+        if ((address & (elementSize - 1)) != 0)
+            throw new IllegalArgumentException("Buffer " + buffer + " is not aligned to " + elementSize + " bytes");
+        return address;
+    }
+
+    /**
+     * Returns the capacity, in elements, of a queue backed by the given buffer: the largest power of 2 number of
+     * elements that fit in it.
+     */
+    static int capacity(ByteBuffer buffer, int elementSize) {
+        final int n = Integer.highestOneBit(buffer.capacity() / elementSize);
+        if (n == 0)
+            throw new IllegalArgumentException("Buffer " + buffer + " is too small");
+        return n;
+    }
+
+    private OffHeapBuffers() {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+/**
+ * Element-by-element implementations of the {@link BasicQueue} batch operations, for queues that cannot enqueue or
+ * remove a range of elements any more cheaply than one element at a time.
+ *
+ * @author pron
+ */
+final class Queues {
+    static <E> int enqAll(BasicQueue<E> queue, E[] elements, int offset, int length) {
+        int n = 0;
+        while (n < length && queue.enq(elements[offset + n]))
+            n++;
+        return n;
+    }
+
+    static <E> int drainTo(BasicQueue<E> queue, E[] array, int max) {
+        int n = 0;
+        E e;
+        while (n < max && (e = queue.poll()) != null)
+            array[n++] = e;
+        return n;
+    }
+
+    private Queues() {
+    }
+}
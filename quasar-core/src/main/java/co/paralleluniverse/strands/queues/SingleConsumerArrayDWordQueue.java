@@ -13,38 +13,63 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
  */
-abstract class SingleConsumerArrayDWordQueue<E> extends SingleConsumerArrayPrimitiveQueue<E>  {
-    private final long[] array;
+abstract class SingleConsumerArrayDWordQueue<E> extends SingleConsumerArrayPrimitiveQueue<E> {
+    private final Object array; // null if off-heap
+    private final long base; // address of the first element, relative to array
+    private final ByteBuffer buffer; // keeps the off-heap memory reachable
 
     public SingleConsumerArrayDWordQueue(int size) {
         super(size);
         this.array = new long[this.capacity];
+        this.base = UNSAFE.arrayBaseOffset(long[].class);
+        this.buffer = null;
+    }
+
+    /**
+     * @param buffer a direct buffer, which will hold the queue's elements; the queue's capacity is the largest power of
+     *               2 number of elements that fit in it
+     */
+    public SingleConsumerArrayDWordQueue(ByteBuffer buffer) {
+        super(OffHeapBuffers.capacity(buffer, 8));
+        this.array = null;
+        this.base = OffHeapBuffers.address(buffer, 8);
+        this.buffer = buffer;
+    }
+
+    private long byteOffset(int i) {
+        return base + ((long) i << 3);
     }
 
     long rawValue(int index) {
-        return array[index];
+        return UNSAFE.getLong(array, byteOffset(index));
     }
 
     @Override
     int arrayLength() {
-        return array.length;
+        return capacity;
     }
 
     public boolean enqRaw(long item) {
         final long i = preEnq();
         if (i < 0)
             return false;
-        array[(int) i & mask] = item; // no need for volatile semantics because postEnq does a volatile write (cas) which is then read in await value
+        setRaw(i, item);
         postEnq(i);
         return true;
     }
 
+    void setRaw(long i, long item) {
+        UNSAFE.putLong(array, byteOffset((int) i & mask), item); // no need for volatile semantics because postEnq does a volatile write which is then read in awaitValue
+    }
+
     @Override
     void copyValue(int to, int from) {
-        array[to] = array[from];
+        UNSAFE.putLong(array, byteOffset(to), UNSAFE.getLong(array, byteOffset(from)));
     }
 }
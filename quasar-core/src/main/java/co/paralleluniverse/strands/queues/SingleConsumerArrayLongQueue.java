@@ -13,6 +13,8 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
@@ -23,6 +25,14 @@ public class SingleConsumerArrayLongQueue extends SingleConsumerArrayDWordQueue<
         super(capacity);
     }
 
+    /**
+     * Creates a queue whose elements are stored off-heap, in the given direct (or memory-mapped) buffer.
+     * The queue's capacity is the largest power of 2 number of elements that fit in the buffer.
+     */
+    public SingleConsumerArrayLongQueue(ByteBuffer buffer) {
+        super(buffer);
+    }
+
     @Override
     public boolean enq(long item) {
         return enqRaw(item);
@@ -56,4 +66,36 @@ public class SingleConsumerArrayLongQueue extends SingleConsumerArrayDWordQueue<
         deq(n);
         return val;
     }
+
+    /**
+     * Enqueues elements from an array, claiming room for all of them with a single CAS.
+     *
+     * @return the number of elements enqueued, which is less than {@code length} if the queue fills up
+     */
+    public int enqAll(long[] elements, int offset, int length) {
+        int n = Math.min(length, capacity);
+        long t;
+        while ((t = preEnq(n)) < 0) {
+            if ((n = room(n - 1)) <= 0)
+                return 0;
+        }
+        for (int i = 0; i < n; i++)
+            setRaw(t + i, elements[offset + i]);
+        postEnq(t, n);
+        return n;
+    }
+
+    /**
+     * Removes up to {@code max} elements, storing them at the beginning of {@code array}.
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(long[] array, int max) {
+        final long h = head;
+        final int n = preDrain(max);
+        for (int i = 0; i < n; i++)
+            array[i] = longValue((int) (h + i) & mask);
+        postDrain(n);
+        return n;
+    }
 }
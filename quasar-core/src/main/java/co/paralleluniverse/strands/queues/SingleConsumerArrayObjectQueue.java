@@ -46,6 +46,23 @@ public class SingleConsumerArrayObjectQueue<E> extends SingleConsumerArrayQueue<
         return true;
     }
 
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (elements[offset + i] == null)
+                throw new IllegalArgumentException("null values not allowed");
+        }
+        int n = Math.min(length, capacity);
+        long t;
+        while ((t = preEnq(n)) < 0) {
+            if ((n = room(n - 1)) <= 0)
+                return 0;
+        }
+        for (int i = 0; i < n; i++)
+            orderedSet((int) (t + i) & mask, elements[offset + i]); // the consumer awaits each value
+        return n;
+    }
+
     @SuppressWarnings("empty-statement")
     @Override
     void awaitValue(long i) {
@@ -36,6 +36,16 @@ abstract class SingleConsumerArrayPrimitiveQueue<E> extends SingleConsumerArrayQ
             ;
     }
 
+    /**
+     * Publishes {@code n} consecutive elements, claimed with {@link #preEnq(int) preEnq(n)}, at once.
+     */
+    @SuppressWarnings("empty-statement")
+    final void postEnq(long i, int n) {
+        while (maxReadIndex != i)
+            ;
+        maxReadIndex = i + n;
+    }
+
     @SuppressWarnings("empty-statement")
     final void postEnq(long i) {
         if (true) {
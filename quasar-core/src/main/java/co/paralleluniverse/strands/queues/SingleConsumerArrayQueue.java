@@ -77,20 +77,56 @@ abstract class SingleConsumerArrayQueue<E> extends SingleConsumerQueue<E, Intege
     }
 
     final long preEnq() {
+        return preEnq(1);
+    }
+
+    /**
+     * Claims {@code n} consecutive slots with a single CAS.
+     *
+     * @return the position of the first slot, or -1 if there isn't room for {@code n} elements
+     */
+    final long preEnq(int n) {
         long t, w;
         do {
             t = tail;
-            w = t - capacity; // "wrap point"
+            w = t + n - capacity; // "wrap point"
 
-            if (cachedHead <= w) {
+            if (cachedHead < w) {
                 cachedHead = head; // only time a producer reads head. for this, head needs to be volatile. can we do better?
-                if (cachedHead <= w)
+                if (cachedHead < w)
                     return -1;
             }
-        } while (!compareAndSetTail(t, t + 1));
+        } while (!compareAndSetTail(t, t + n));
         return t;
     }
 
+    /**
+     * Returns how many of {@code n} elements there is currently room for.
+     */
+    final int room(int n) {
+        return (int) Math.min(n, capacity - (tail - head));
+    }
+
+    /**
+     * Returns how many of {@code max} elements can be removed by the consumer at once.
+     */
+    final int preDrain(int max) {
+        final long h = head;
+        if (h + max > cachedMaxReadIndex)
+            cachedMaxReadIndex = maxReadIndex();
+        return (int) Math.min(max, cachedMaxReadIndex - h);
+    }
+
+    /**
+     * Removes the first {@code n} elements, returned by {@link #preDrain(int) preDrain}, with a single write of the head.
+     */
+    final void postDrain(int n) {
+        final long h = head;
+        for (long i = h; i != h + n; i++)
+            clearValue(i);
+        head = h + n;
+    }
+
     @Override
     public void deq(Integer index) {
         deq(index.intValue());
@@ -115,16 +151,56 @@ abstract class SingleConsumerArrayQueue<E> extends SingleConsumerQueue<E, Intege
     }
     
     @Override
-    @SuppressWarnings("empty-statement")
     public Integer pk() {
+        final int index = pkIndex();
+        return index >= 0 ? Integer.valueOf(index) : null;
+    }
+
+    /**
+     * Like {@link #pk() pk}, but returns the head's index without boxing it, or -1 if the queue is empty.
+     */
+    public int pkIndex() {
         final long h = head;
         if (h >= cachedMaxReadIndex) {
             cachedMaxReadIndex = maxReadIndex();
             if (h >= cachedMaxReadIndex)
-                return null;
+                return -1;
         }
         awaitValue(h);
-        return Integer.valueOf((int) h & mask);
+        return (int) h & mask;
+    }
+
+    @Override
+    public E poll() {
+        final int index = pkIndex();
+        if (index < 0)
+            return null;
+        final E val = value(index);
+        deq(index);
+        return val;
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        final long h = head;
+        final int n = preDrain(max);
+        for (int i = 0; i < n; i++) {
+            awaitValue(h + i);
+            array[i] = value((int) (h + i) & mask);
+        }
+        postDrain(n);
+        return n;
+    }
+
+    @Override
+    public E peek() {
+        final int index = pkIndex();
+        return index >= 0 ? value(index) : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return pkIndex() < 0;
     }
 
     @Override
@@ -133,12 +209,9 @@ abstract class SingleConsumerArrayQueue<E> extends SingleConsumerQueue<E, Intege
         return s >= 0 ? Integer.valueOf(s) : null;
     }
 
-    @SuppressWarnings("empty-statement")
     public int succ(int index) {
-        if (index < 0) {
-            final Integer pk = pk();
-            return pk != null ? pk : -1;
-        }
+        if (index < 0)
+            return pkIndex();
         long n = intToLongIndex((int) (index + 1) & mask);
         if (n >= cachedMaxReadIndex) {
             cachedMaxReadIndex = maxReadIndex();
@@ -214,6 +287,39 @@ abstract class SingleConsumerArrayQueue<E> extends SingleConsumerQueue<E, Intege
         ((QueueIterator) iter).n = -1;
     }
 
+    @Override
+    public Cursor<E> cursor() {
+        return new IndexCursor();
+    }
+
+    private class IndexCursor implements Cursor<E> {
+        private int n = -1;
+
+        @Override
+        public boolean next() {
+            final int next = succ(n);
+            if (next < 0)
+                return false;
+            n = next;
+            return true;
+        }
+
+        @Override
+        public E value() {
+            return n >= 0 ? SingleConsumerArrayQueue.this.value(n) : null;
+        }
+
+        @Override
+        public void del() {
+            n = SingleConsumerArrayQueue.this.del(n);
+        }
+
+        @Override
+        public void reset() {
+            n = -1;
+        }
+    }
+
     private class QueueIterator implements Iterator<E> {
         private int n = -1;
 
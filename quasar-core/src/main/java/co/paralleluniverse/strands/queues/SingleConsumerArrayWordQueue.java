@@ -13,38 +13,63 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  * @author pron
  */
 abstract class SingleConsumerArrayWordQueue<E> extends SingleConsumerArrayPrimitiveQueue<E> {
-    private final int[] array;
+    private final Object array; // null if off-heap
+    private final long base; // address of the first element, relative to array
+    private final ByteBuffer buffer; // keeps the off-heap memory reachable
 
     public SingleConsumerArrayWordQueue(int size) {
         super(size);
         this.array = new int[this.capacity];
+        this.base = UNSAFE.arrayBaseOffset(int[].class);
+        this.buffer = null;
+    }
+
+    /**
+     * @param buffer a direct buffer, which will hold the queue's elements; the queue's capacity is the largest power of
+     *               2 number of elements that fit in it
+     */
+    public SingleConsumerArrayWordQueue(ByteBuffer buffer) {
+        super(OffHeapBuffers.capacity(buffer, 4));
+        this.array = null;
+        this.base = OffHeapBuffers.address(buffer, 4);
+        this.buffer = buffer;
+    }
+
+    private long byteOffset(int i) {
+        return base + ((long) i << 2);
     }
 
     int rawValue(int index) {
-        return array[index];
+        return UNSAFE.getInt(array, byteOffset(index));
     }
 
     @Override
     int arrayLength() {
-        return array.length;
+        return capacity;
     }
 
     public boolean enqRaw(int item) {
         final long i = preEnq();
         if (i < 0)
             return false;
-        array[(int) i & mask] = item; // no need for volatile semantics because postEnq does a volatile write (cas) which is then read in await value
+        setRaw(i, item);
         postEnq(i);
         return true;
     }
 
+    void setRaw(long i, int item) {
+        UNSAFE.putInt(array, byteOffset((int) i & mask), item); // no need for volatile semantics because postEnq does a volatile write which is then read in awaitValue
+    }
+
     @Override
     void copyValue(int to, int from) {
-        array[to] = array[from];
+        UNSAFE.putInt(array, byteOffset(to), UNSAFE.getInt(array, byteOffset(from)));
     }
 }
@@ -101,6 +101,45 @@ abstract class SingleConsumerLinkedArrayQueue<E> extends SingleConsumerQueue<E,
             return ep;
     }
 
+    @Override
+    public Cursor<E> cursor() {
+        return new PointerCursor();
+    }
+
+    private class PointerCursor implements Cursor<E> {
+        private final ElementPointer ep = new ElementPointer(null, 0);
+        private boolean reset = true;
+
+        @Override
+        public boolean next() {
+            if (reset) {
+                ep.n = head;
+                ep.i = headIndex;
+                if (current(ep) == null)
+                    return false;
+                reset = false;
+                return true;
+            }
+            return succ(ep) != null;
+        }
+
+        @Override
+        public E value() {
+            return !reset ? SingleConsumerLinkedArrayQueue.this.value(ep) : null;
+        }
+
+        @Override
+        public void del() {
+            if (SingleConsumerLinkedArrayQueue.this.del(ep) == null)
+                reset = true;
+        }
+
+        @Override
+        public void reset() {
+            reset = true;
+        }
+    }
+
     @SuppressWarnings("empty-statement")
     private ElementPointer current(ElementPointer ep) {
         final int blockSize = blockSize();
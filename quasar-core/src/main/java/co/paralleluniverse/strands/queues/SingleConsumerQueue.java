@@ -108,6 +108,16 @@ public abstract class SingleConsumerQueue<E, Node> extends AbstractCollection<E>
         return val;
     }
 
+    @Override
+    public int enqAll(E[] elements, int offset, int length) {
+        return Queues.enqAll(this, elements, offset, length);
+    }
+
+    @Override
+    public int drainTo(E[] array, int max) {
+        return Queues.drainTo(this, array, max);
+    }
+
     @Override
     public E element() {
         final E val = peek();
@@ -133,6 +143,72 @@ public abstract class SingleConsumerQueue<E, Node> extends AbstractCollection<E>
         ((QueueIterator) iter).n = null;
     }
 
+    /**
+     * Returns a new cursor, positioned before the first element in the queue.
+     * Unlike {@link #pk() pk}/{@link #succ(Object) succ}/{@link #del(Object) del}, which may allocate a node object on
+     * every step, a cursor can be used to repeatedly traverse the queue, and delete elements from it, without allocating.
+     * A cursor may only be used by the consumer.
+     */
+    public Cursor<E> cursor() {
+        return new NodeCursor();
+    }
+
+    /**
+     * A reusable position in a {@link SingleConsumerQueue}.
+     */
+    public interface Cursor<E> {
+        /**
+         * Moves the cursor to the next element in the queue (or to the first, if the cursor has just been reset).
+         *
+         * @return {@code true} if there is such an element; {@code false} if not, in which case the cursor is left in place.
+         */
+        boolean next();
+
+        /**
+         * Returns the element at the cursor's position, or {@code null} if the cursor is positioned before the first element.
+         */
+        E value();
+
+        /**
+         * Deletes the element at the cursor's position, and moves the cursor back, so that a following call to
+         * {@link #next() next} moves it to the element that has followed the deleted one.
+         */
+        void del();
+
+        /**
+         * Moves the cursor to before the first element in the queue.
+         */
+        void reset();
+    }
+
+    private class NodeCursor implements Cursor<E> {
+        private Node n;
+
+        @Override
+        public boolean next() {
+            final Node next = succ(n);
+            if (next == null)
+                return false;
+            n = next;
+            return true;
+        }
+
+        @Override
+        public E value() {
+            return n != null ? SingleConsumerQueue.this.value(n) : null;
+        }
+
+        @Override
+        public void del() {
+            n = SingleConsumerQueue.this.del(n);
+        }
+
+        @Override
+        public void reset() {
+            n = null;
+        }
+    }
+
     private class QueueIterator implements Iterator<E> {
         private Node n;
         private boolean hasNextCalled;
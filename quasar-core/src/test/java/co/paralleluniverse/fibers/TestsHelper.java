@@ -4,6 +4,10 @@
  */
 package co.paralleluniverse.fibers;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  *
  * @author pron
@@ -13,6 +17,20 @@ public class TestsHelper {
         t.resetState();
         return t.exec();
     }
+
+    /**
+     * Returns the contents of the given class's class file.
+     */
+    public static byte[] classBytes(Class<?> clazz) throws IOException {
+        final String name = clazz.getName();
+        try (InputStream is = clazz.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[1024];
+            for (int n; (n = is.read(buf)) > 0;)
+                baos.write(buf, 0, n);
+            return baos.toByteArray();
+        }
+    }
     
     private TestsHelper() {
     }
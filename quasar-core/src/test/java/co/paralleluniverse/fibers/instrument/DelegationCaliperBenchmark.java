@@ -0,0 +1,160 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import com.google.caliper.Benchmark;
+import com.google.caliper.runner.CaliperMain;
+
+/**
+ * Measures the per-call cost of a 10-deep chain of suspendable delegates, running in a fiber, when the delegates are
+ * trivial (and so get no frame), and when they aren't.
+ *
+ * Must be run with the Quasar agent.
+ *
+ * @author pron
+ */
+public class DelegationCaliperBenchmark extends Benchmark {
+    public static void main(String[] args) throws Exception {
+        CaliperMain.main(DelegationCaliperBenchmark.class, args);
+    }
+
+    public int timeTrivialDelegates(final int reps) throws Exception {
+        return run(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution {
+                int sum = 0;
+                for (int i = 0; i < reps; i++)
+                    sum += trivial1(i);
+                return sum;
+            }
+        });
+    }
+
+    public int timeFramedDelegates(final int reps) throws Exception {
+        return run(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution {
+                int sum = 0;
+                for (int i = 0; i < reps; i++)
+                    sum += framed1(i);
+                return sum;
+            }
+        });
+    }
+
+    private static int run(SuspendableCallable<Integer> target) throws Exception {
+        return new Fiber<Integer>(target).start().get();
+    }
+
+    static int bottom(int x) throws SuspendExecution {
+        if (x < 0)
+            Fiber.park(); // never happens
+        return x;
+    }
+
+    // trivial delegates: a single suspendable call and a return
+    static int trivial1(int x) throws SuspendExecution {
+        return trivial2(x);
+    }
+
+    static int trivial2(int x) throws SuspendExecution {
+        return trivial3(x);
+    }
+
+    static int trivial3(int x) throws SuspendExecution {
+        return trivial4(x);
+    }
+
+    static int trivial4(int x) throws SuspendExecution {
+        return trivial5(x);
+    }
+
+    static int trivial5(int x) throws SuspendExecution {
+        return trivial6(x);
+    }
+
+    static int trivial6(int x) throws SuspendExecution {
+        return trivial7(x);
+    }
+
+    static int trivial7(int x) throws SuspendExecution {
+        return trivial8(x);
+    }
+
+    static int trivial8(int x) throws SuspendExecution {
+        return trivial9(x);
+    }
+
+    static int trivial9(int x) throws SuspendExecution {
+        return trivial10(x);
+    }
+
+    static int trivial10(int x) throws SuspendExecution {
+        return bottom(x);
+    }
+
+    // the same, but the store into a local prevents the delegates from being recognized as trivial
+    static int framed1(int x) throws SuspendExecution {
+        int y = x;
+        return framed2(y);
+    }
+
+    static int framed2(int x) throws SuspendExecution {
+        int y = x;
+        return framed3(y);
+    }
+
+    static int framed3(int x) throws SuspendExecution {
+        int y = x;
+        return framed4(y);
+    }
+
+    static int framed4(int x) throws SuspendExecution {
+        int y = x;
+        return framed5(y);
+    }
+
+    static int framed5(int x) throws SuspendExecution {
+        int y = x;
+        return framed6(y);
+    }
+
+    static int framed6(int x) throws SuspendExecution {
+        int y = x;
+        return framed7(y);
+    }
+
+    static int framed7(int x) throws SuspendExecution {
+        int y = x;
+        return framed8(y);
+    }
+
+    static int framed8(int x) throws SuspendExecution {
+        int y = x;
+        return framed9(y);
+    }
+
+    static int framed9(int x) throws SuspendExecution {
+        int y = x;
+        return framed10(y);
+    }
+
+    static int framed10(int x) throws SuspendExecution {
+        int y = x;
+        return bottom(y);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.fibers.instrument.InstrumentationVerifier.Issue;
+import co.paralleluniverse.fibers.instrument.InstrumentationVerifier.IssueType;
+import co.paralleluniverse.fibers.instrument.InstrumentationVerifier.Report;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ *
+ * @author pron
+ */
+public class InstrumentationVerifierTest {
+    private InstrumentationVerifier verifier;
+
+    @Before
+    public void setUp() {
+        verifier = new InstrumentationVerifier(getClass().getClassLoader());
+    }
+
+    static class Good {
+        void foo() throws SuspendExecution {
+            bar();
+            Fiber.park();
+        }
+
+        void bar() throws SuspendExecution {
+            Fiber.park();
+        }
+
+        int baz() {
+            return 1;
+        }
+    }
+
+    static class Bad {
+        void notSuspendable() {
+            try {
+                suspendable();
+            } catch (SuspendExecution e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        void suspendable() throws SuspendExecution {
+            synchronized (this) {
+                Fiber.park();
+            }
+            blocking();
+        }
+
+        void blocking() throws SuspendExecution {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    static class NestedMonitors {
+        void nested(Object a, Object b) throws SuspendExecution {
+            synchronized (a) {
+                synchronized (b) {
+                    b.hashCode();
+                }
+                Fiber.park(); // the inner block's exception handler precedes this call in the class file
+            }
+            Fiber.park();
+        }
+    }
+
+    @Test
+    public void testGood() throws Exception {
+        verify("Good");
+        final Report report = verifier.getReport();
+
+        assertEquals(1, report.getClassCount());
+        assertEquals(2, report.getSuspendableMethodCount());
+        assertEquals(3, report.getSuspendableCallSiteCount());
+        assertTrue(report.getIssues().isEmpty());
+        assertEquals(1.0, report.getCoverage(), 0.0);
+        assertFalse(report.hasErrors());
+    }
+
+    @Test
+    public void testBad() throws Exception {
+        verify("Bad");
+        final Report report = verifier.getReport();
+
+        assertEquals(3, report.getSuspendableCallSiteCount());
+        assertEquals(1, report.getIssueCount(IssueType.UNINSTRUMENTED_CALLER));
+        assertEquals(1, report.getIssueCount(IssueType.MONITOR));
+        assertEquals(1, report.getIssueCount(IssueType.BLOCKING));
+        assertEquals(0, report.getIssueCount(IssueType.NOT_INSTRUMENTED));
+        assertEquals(2.0 / 3, report.getCoverage(), 1e-9);
+        assertTrue(report.hasErrors());
+
+        for (Issue issue : report.getIssues()) {
+            switch (issue.getType()) {
+                case UNINSTRUMENTED_CALLER:
+                    assertEquals("notSuspendable", issue.getMethodName());
+                    break;
+                case MONITOR:
+                    assertEquals("suspendable", issue.getMethodName());
+                    assertTrue(issue.getCallee().startsWith("co/paralleluniverse/fibers/Fiber#park"));
+                    break;
+                case BLOCKING:
+                    assertEquals("blocking", issue.getMethodName());
+                    assertTrue(issue.getCallee().startsWith("java/lang/Thread#sleep"));
+                    break;
+            }
+            assertTrue(issue.getLine() > 0);
+        }
+    }
+
+    @Test
+    public void testAllowMonitorsAndBlocking() throws Exception {
+        verifier.setAllowMonitors(true);
+        verifier.setAllowBlocking(true);
+        verify("Bad");
+        final Report report = verifier.getReport();
+
+        assertEquals(1, report.getIssueCount(IssueType.MONITOR));
+        assertEquals(1, report.getIssueCount(IssueType.BLOCKING));
+        assertTrue(report.hasErrors()); // still has an uninstrumented caller
+    }
+
+    @Test
+    public void testAheadOfTime() throws Exception {
+        verifier.setAheadOfTime(true);
+        verify("Good"); // the class file on disk hasn't been instrumented
+        final Report report = verifier.getReport();
+
+        assertEquals(3, report.getIssueCount(IssueType.NOT_INSTRUMENTED));
+        assertEquals(0.0, report.getCoverage(), 0.0);
+        assertTrue(report.hasErrors());
+    }
+
+    @Test
+    public void testNestedMonitors() throws Exception {
+        verify("NestedMonitors");
+        final Report report = verifier.getReport();
+
+        assertEquals(2, report.getSuspendableCallSiteCount());
+        assertEquals(1, report.getIssueCount(IssueType.MONITOR));
+    }
+
+    @Test
+    public void testInvokeDynamic() throws Exception {
+        verifier.setAheadOfTime(true);
+        verifier.verify(new ByteArrayInputStream(classWithInvokeDynamic()));
+        final Report report = verifier.getReport();
+
+        // the lambda creation site is not a suspendable call; the other invokedynamic site is
+        assertEquals(1, report.getSuspendableCallSiteCount());
+        assertEquals(1, report.getIssueCount(IssueType.NOT_INSTRUMENTED));
+        assertTrue(report.getIssues().get(0).getCallee().startsWith("invokedynamic dyn"));
+    }
+
+    private static byte[] classWithInvokeDynamic() {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, "test/Dyn", null, "java/lang/Object", null);
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "foo", "()V", null, new String[]{Classes.EXCEPTION_NAME});
+        mv.visitCode();
+        mv.visitInvokeDynamicInsn("dyn", "()V", new Handle(Opcodes.H_INVOKESTATIC, "test/Bootstrap", "bootstrap",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"));
+        mv.visitInvokeDynamicInsn("run", "()Ljava/lang/Runnable;", new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"));
+        mv.visitInsn(Opcodes.POP);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void verify(String nestedClass) throws Exception {
+        // we read the class file without loading the class, so the agent won't complain about Bad
+        try (InputStream is = getClass().getResourceAsStream(getClass().getSimpleName() + "$" + nestedClass + ".class")) {
+            verifier.verify(is);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import static co.paralleluniverse.fibers.TestsHelper.classBytes;
+import static co.paralleluniverse.fibers.TestsHelper.exec;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Check that suspendable lambdas (linked through invokedynamic) are instrumented and resumed without going through
+ * reflection, and without boxing their primitive arguments and locals.
+ *
+ * @author pron
+ */
+public class LambdaTest {
+    private final ArrayList<String> results = new ArrayList<String>();
+
+    interface SuspendableIntOp {
+        int apply(int x) throws SuspendExecution;
+    }
+
+    private static int applyTwice(SuspendableIntOp op, int x) throws SuspendExecution {
+        return op.apply(op.apply(x));
+    }
+
+    @Test
+    public void testLambdaBody() {
+        final String captured = "C";
+        Fiber co = new Fiber((String) null, null, (SuspendableRunnable) () -> {
+            results.add("A");
+            Fiber.park();
+            results.add(captured);
+            Fiber.park();
+            results.add("E");
+        });
+
+        exec(co);
+        results.add("B");
+        exec(co);
+        results.add("D");
+        exec(co);
+
+        assertEquals(Arrays.asList("A", "B", "C", "D", "E"), results);
+    }
+
+    @Test
+    public void testPrimitiveLambdaThroughSuspendableCall() {
+        final int[] res = new int[1];
+        Fiber co = new Fiber((String) null, null, (SuspendableRunnable) () -> {
+            final int k = 3;
+            res[0] = applyTwice(x -> {
+                long l = x * 10L;
+                Fiber.park();
+                assertNoReflectionFrames();
+                return (int) l + k;
+            }, 1);
+        });
+
+        int parks = 0;
+        while (!exec(co))
+            parks++;
+
+        assertEquals(2, parks);
+        assertEquals(133, res[0]);
+    }
+
+    @Test
+    public void testLambdaReturnValue() {
+        final ArrayList<Integer> values = new ArrayList<Integer>();
+        Fiber<Integer> co = new Fiber<Integer>((String) null, null, (SuspendableCallable<Integer>) () -> {
+            int sum = 0;
+            for (int i = 0; i < 3; i++) {
+                sum += i;
+                Fiber.park();
+                assertNoReflectionFrames();
+                values.add(sum);
+            }
+            return sum;
+        });
+
+        while (!exec(co))
+            ;
+
+        assertEquals(Arrays.asList(0, 1, 3), values);
+    }
+
+    @Test
+    public void testPrimitiveLambdaIsNotBoxed() throws Exception {
+        final Instrumentor instrumentor = new Instrumentor(getClass().getClassLoader(), DefaultSuspendableClassifier.instance());
+        final byte[] transformed = instrumentor.instrumentClass(getClass().getName().replace('.', '/'), classBytes(getClass()));
+
+        // the body of the SuspendableIntOp lambda takes (and returns) only ints
+        final Map<String, Integer> boxing = new HashMap<String, Integer>();
+        final boolean[] framed = new boolean[1];
+        new ClassReader(transformed).accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            public MethodVisitor visitMethod(int access, final String name, String desc, String signature, String[] exceptions) {
+                if (!name.startsWith("lambda$") || !desc.matches("\\(I+\\)I"))
+                    return null;
+                boxing.put(name, 0);
+                return new MethodVisitor(Opcodes.ASM5) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String mname, String mdesc, boolean itf) {
+                        if (owner.equals(Classes.STACK_NAME) && mname.equals("pushMethod"))
+                            framed[0] = true;
+                        if (owner.startsWith("java/lang/") && (mname.equals("valueOf") || mname.endsWith("Value")))
+                            boxing.put(name, boxing.get(name) + 1);
+                    }
+                };
+            }
+        }, 0);
+
+        assertEquals(1, boxing.size());
+        assertTrue("lambda body not instrumented", framed[0]);
+        assertEquals(boxing.toString(), 0, (int) boxing.values().iterator().next());
+    }
+
+    private static void assertNoReflectionFrames() {
+        // only look at the fiber's frames; the test itself is run by JUnit through reflection
+        for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
+            final String cn = ste.getClassName();
+            if (cn.equals(Fiber.class.getName()) && ste.getMethodName().equals("run1"))
+                return;
+            assertFalse(ste.toString(), cn.startsWith("java.lang.reflect.") || cn.startsWith("sun.reflect.") || cn.startsWith("java.lang.invoke."));
+        }
+        fail("Not running in a fiber");
+    }
+}
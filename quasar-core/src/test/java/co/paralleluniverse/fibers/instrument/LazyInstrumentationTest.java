@@ -0,0 +1,189 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import static co.paralleluniverse.fibers.TestsHelper.classBytes;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import org.junit.Test;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ *
+ * @author pron
+ */
+public class LazyInstrumentationTest {
+    static class Deferred {
+        void foo() throws SuspendExecution {
+            Fiber.park();
+        }
+
+        void bar() {
+        }
+    }
+
+    static class Lazy {
+        int compute(List<String> results, int x) throws SuspendExecution, InterruptedException {
+            int sum = 0;
+            for (int i = 0; i < 3; i++) {
+                results.add("before" + i);
+                Fiber.sleep(5);
+                sum += x + i;
+                results.add("after" + i);
+            }
+            return sum;
+        }
+    }
+
+    static class Base {
+        int calls;
+
+        void foo() throws SuspendExecution, InterruptedException {
+            calls++;
+            Fiber.sleep(5);
+        }
+    }
+
+    static class Sub extends Base {
+        int overrideCalls;
+
+        @Override
+        void foo() throws SuspendExecution, InterruptedException {
+            overrideCalls++;
+            super.foo();
+            Fiber.sleep(5);
+        }
+    }
+
+    /**
+     * Run in a separate JVM, with the agent's {@code l} option.
+     */
+    public static class LazyMain {
+        public static void main(String[] args) throws Exception {
+            check(!Retransform.isInstrumented(Lazy.class), "Lazy instrumented on load");
+            check(!Retransform.isInstrumented(LazyMain.class), "LazyMain instrumented on load");
+
+            final List<String> results = new ArrayList<String>();
+            final Fiber<Integer> fiber = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+                @Override
+                public Integer run() throws SuspendExecution, InterruptedException {
+                    return new Lazy().compute(results, 20);
+                }
+            }).start();
+
+            check(fiber.get() == 63, "result " + fiber.get());
+            check(results.equals(Arrays.asList("before0", "after0", "before1", "after1", "before2", "after2")), "results " + results);
+            check(Retransform.isInstrumented(Lazy.class), "Lazy not instrumented after run in fiber");
+
+            // the trap in Base.foo, reached through super, must not call the override again
+            final Sub sub = new Sub();
+            new Fiber<Void>(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    sub.foo();
+                }
+            }).start().join();
+            check(sub.overrideCalls == 1, "override called " + sub.overrideCalls + " times");
+            check(sub.calls == 1, "super called " + sub.calls + " times");
+            System.exit(0);
+        }
+
+        private static void check(boolean condition, String message) {
+            if (!condition) {
+                System.err.println("FAILED: " + message);
+                System.exit(1);
+            }
+        }
+    }
+
+    @Test
+    public void testLazyAgentEndToEnd() throws Exception {
+        String agent = null;
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-javaagent:")) {
+                final String jar = arg.substring("-javaagent:".length()).split("=")[0];
+                if (jar.contains("quasar"))
+                    agent = jar;
+            }
+        }
+        assumeTrue(agent != null);
+
+        final Process p = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-javaagent:" + agent + "=l",
+                "-cp", System.getProperty("java.class.path"),
+                LazyMain.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream is = p.getInputStream()) {
+            final byte[] buf = new byte[1024];
+            for (int n; (n = is.read(buf)) > 0;)
+                out.write(buf, 0, n);
+        }
+        assertEquals(out.toString(), 0, p.waitFor());
+    }
+
+    @Test
+    public void testDeferredClassIsTrapped() throws Exception {
+        final Instrumentor instrumentor = new Instrumentor(getClass().getClassLoader(), DefaultSuspendableClassifier.instance());
+        final String className = Deferred.class.getName().replace('.', '/');
+        final byte[] transformed = instrumentor.instrumentClass(className, classBytes(Deferred.class), true);
+
+        assertTrue(instrumentor.getMethodDatabase().getClassEntry(className).isDeferred());
+
+        final ArrayList<String> trapped = new ArrayList<String>();
+        final ArrayList<String> reinvoked = new ArrayList<String>();
+        final boolean[] annotated = new boolean[1];
+        new ClassReader(transformed).accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                if (desc.equals(InstrumentClass.ALREADY_INSTRUMENTED_NAME))
+                    annotated[0] = true;
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, final String name, String desc, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM5) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String mname, String mdesc, boolean itf) {
+                        if (owner.equals(LazyInstrumentation.NAME))
+                            trapped.add(name);
+                        if (opcode == Opcodes.INVOKESPECIAL && owner.equals(className) && mname.equals(name))
+                            reinvoked.add(name); // non-virtually, so that an override isn't called again
+                    }
+                };
+            }
+        }, 0);
+
+        assertFalse(annotated[0]);
+        assertEquals(Arrays.asList("foo"), trapped);
+        assertEquals(Arrays.asList("foo"), reinvoked);
+    }
+}
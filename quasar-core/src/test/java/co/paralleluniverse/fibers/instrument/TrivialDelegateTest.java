@@ -0,0 +1,141 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.fibers.instrument;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import static co.paralleluniverse.fibers.TestsHelper.classBytes;
+import static co.paralleluniverse.fibers.TestsHelper.exec;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Check that trivial delegating methods are not given a frame, and that they are still resumed correctly.
+ *
+ * @author pron
+ */
+public class TrivialDelegateTest {
+    static class Chain {
+        private final Chain next;
+        private Chain mutable;
+        final ArrayList<String> results = new ArrayList<String>();
+
+        Chain(Chain next) {
+            this.next = next;
+            this.mutable = next;
+        }
+
+        String delegate(String s, long x) throws SuspendExecution {
+            return next.bottom(s, x);
+        }
+
+        String delegateToDelegate(String s, long x) throws SuspendExecution {
+            return delegate(s, x);
+        }
+
+        void voidDelegate(String s) throws SuspendExecution {
+            bottom(s, 1);
+        }
+
+        String notDelegateStore(String s, long x) throws SuspendExecution {
+            String t = s;
+            return delegate(t, x);
+        }
+
+        String notDelegateMutableField(String s, long x) throws SuspendExecution {
+            return mutable.bottom(s, x);
+        }
+
+        String notDelegateCallBefore(String s, long x) throws SuspendExecution {
+            return delegate(s.trim(), x);
+        }
+
+        String notDelegateWorkAfter(String s, long x) throws SuspendExecution {
+            return delegate(s, x) + "!";
+        }
+
+        String bottom(String s, long x) throws SuspendExecution {
+            results.add(s);
+            Fiber.park();
+            results.add(s + x);
+            Fiber.park();
+            return s + s;
+        }
+    }
+
+    @Test
+    public void testDelegatesHaveNoFrames() throws Exception {
+        final Set<String> framed = framedMethods();
+
+        assertFalse(framed.contains("delegate"));
+        assertFalse(framed.contains("delegateToDelegate"));
+        assertFalse(framed.contains("voidDelegate"));
+        assertTrue(framed.contains("notDelegateStore"));
+        assertTrue(framed.contains("notDelegateMutableField"));
+        assertTrue(framed.contains("notDelegateCallBefore"));
+        assertTrue(framed.contains("notDelegateWorkAfter"));
+        assertTrue(framed.contains("bottom"));
+    }
+
+    @Test
+    public void testResumeThroughDelegates() {
+        final Chain chain = new Chain(new Chain(null));
+        final String[] res = new String[1];
+        Fiber co = new Fiber((String) null, null, new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution {
+                res[0] = chain.delegateToDelegate("a", 2);
+                chain.next.voidDelegate("b");
+                res[0] += chain.notDelegateWorkAfter("c", 3);
+            }
+        });
+
+        int parks = 0;
+        while (!exec(co))
+            parks++;
+
+        assertEquals(6, parks);
+        assertEquals("aacc!", res[0]);
+        assertEquals(Arrays.asList("a", "a2", "b", "b1", "c", "c3"), chain.next.results);
+    }
+
+    private Set<String> framedMethods() throws Exception {
+        final Instrumentor instrumentor = new Instrumentor(getClass().getClassLoader(), DefaultSuspendableClassifier.instance());
+        final byte[] transformed = instrumentor.instrumentClass(Chain.class.getName().replace('.', '/'), classBytes(Chain.class));
+
+        final Set<String> framed = new HashSet<String>();
+        new ClassReader(transformed).accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            public MethodVisitor visitMethod(int access, final String name, String desc, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM5) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String mname, String mdesc, boolean itf) {
+                        if (owner.equals(Classes.STACK_NAME) && mname.equals("pushMethod"))
+                            framed.add(name);
+                    }
+                };
+            }
+        }, 0);
+        return framed;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.queues.QueueCapacityExceededException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class ChannelMonitorTest {
+    private static class CountingMonitor extends ChannelMonitor {
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final Map<OverflowPolicy, AtomicInteger> overflows = new EnumMap<>(OverflowPolicy.class);
+        final AtomicInteger sojournSamples = new AtomicInteger();
+        final AtomicInteger queueLengthCalls = new AtomicInteger();
+        boolean unregistered;
+
+        CountingMonitor() {
+            for (OverflowPolicy p : OverflowPolicy.values())
+                overflows.put(p, new AtomicInteger());
+        }
+
+        @Override
+        protected void messagesSent(int n) {
+            sent.addAndGet(n);
+        }
+
+        @Override
+        protected void messagesReceived(int n) {
+            received.addAndGet(n);
+        }
+
+        @Override
+        protected void overflowPolicyApplied(OverflowPolicy policy) {
+            overflows.get(policy).incrementAndGet();
+        }
+
+        @Override
+        protected void messageSojourn(long nanos) {
+            assertTrue(nanos >= 0);
+            sojournSamples.incrementAndGet();
+        }
+
+        @Override
+        public void unregister() {
+            unregistered = true;
+        }
+
+        @Override
+        protected int getQueueLength() {
+            queueLengthCalls.incrementAndGet();
+            return super.getQueueLength();
+        }
+    }
+
+    @Test
+    public void testSendAndReceiveCounts() throws Exception {
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) Channels.<Integer>newChannel(-1);
+        final CountingMonitor mon = new CountingMonitor();
+        ch.setMonitor(mon);
+
+        for (int i = 0; i < 10000; i++)
+            ch.send(i);
+        assertThat(mon.sent.get(), is(10000L));
+        assertThat(mon.getQueueLength(), is(10000));
+
+        for (int i = 0; i < 5000; i++)
+            ch.receive();
+        ch.close();
+        final Integer[] batch = new Integer[100];
+        while (ch.receiveBatch(batch, batch.length) > 0)
+            ;
+        assertThat(mon.received.get(), is(10000L));
+        assertTrue(mon.sojournSamples.get() > 0);
+    }
+
+    @Test
+    public void testSamplingDoesNotTraverseQueue() throws Exception {
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) Channels.<Integer>newChannel(-1);
+        final CountingMonitor mon = new CountingMonitor();
+        ch.setMonitor(mon);
+
+        for (int i = 0; i < 10000; i++)
+            ch.send(i);
+        for (int i = 0; i < 10000; i++)
+            ch.receive();
+        assertTrue(mon.sojournSamples.get() > 0);
+        assertThat(mon.queueLengthCalls.get(), is(0));
+    }
+
+    @Test
+    public void testOverflowCounts() throws Exception {
+        final QueueChannel<Integer> displace = (QueueChannel<Integer>) Channels.<Integer>newChannel(4, OverflowPolicy.DISPLACE);
+        final CountingMonitor displaceMon = new CountingMonitor();
+        displace.setMonitor(displaceMon);
+        for (int i = 0; i < 10; i++)
+            displace.send(i);
+        assertThat(displaceMon.overflows.get(OverflowPolicy.DISPLACE).get(), is(6));
+        assertThat(displaceMon.sent.get(), is(10L));
+
+        final QueueChannel<Integer> th = (QueueChannel<Integer>) Channels.<Integer>newChannel(4, OverflowPolicy.THROW);
+        final CountingMonitor throwMon = new CountingMonitor();
+        th.setMonitor(throwMon);
+        for (int i = 0; i < 6; i++) {
+            try {
+                th.send(i);
+            } catch (QueueCapacityExceededException e) {
+            }
+        }
+        assertThat(throwMon.overflows.get(OverflowPolicy.THROW).get(), is(2));
+        assertThat(throwMon.sent.get(), is(4L));
+
+        final QueueChannel<Integer> drop = (QueueChannel<Integer>) Channels.<Integer>newChannel(4, OverflowPolicy.DROP);
+        final CountingMonitor dropMon = new CountingMonitor();
+        drop.setMonitor(dropMon);
+        drop.sendBatch(new Integer[]{1, 2, 3, 4, 5, 6}, 0, 6);
+        assertThat(dropMon.overflows.get(OverflowPolicy.DROP).get(), is(1));
+        assertThat(dropMon.sent.get(), is(4L));
+    }
+
+    @Test
+    public void testReplaceMonitor() throws Exception {
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) Channels.<Integer>newChannel(10);
+        final CountingMonitor mon1 = new CountingMonitor();
+        final CountingMonitor mon2 = new CountingMonitor();
+        ch.setMonitor(mon1);
+        ch.send(1);
+        ch.setMonitor(mon2);
+        assertTrue(mon1.unregistered);
+        ch.send(2);
+        assertThat(mon1.sent.get(), is(1L));
+        assertThat(mon2.sent.get(), is(1L));
+
+        try {
+            ((QueueChannel<Integer>) Channels.<Integer>newChannel(10)).setMonitor(mon2);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+}
@@ -22,9 +22,11 @@ import co.paralleluniverse.strands.SuspendableCallable;
 import co.paralleluniverse.strands.SuspendableRunnable;
 import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
 import co.paralleluniverse.strands.queues.QueueCapacityExceededException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import jsr166e.ForkJoinPool;
 import static org.hamcrest.CoreMatchers.*;
 import org.junit.After;
@@ -106,7 +108,9 @@ public class ChannelTest {
                     {5, OverflowPolicy.BLOCK, false, false},
                     {1, OverflowPolicy.BLOCK, false, false},
                     {-1, OverflowPolicy.THROW, true, false},
+                    {-1, OverflowPolicy.THROW, false, false},
                     {5, OverflowPolicy.DISPLACE, true, false},
+                    {5, OverflowPolicy.DISPLACE, false, false},
                     {0, OverflowPolicy.BLOCK, false, false},});
     }
 
@@ -515,8 +519,9 @@ public class ChannelTest {
     @Test
     public void testPrimitiveChannelClose() throws Exception {
         assumeThat(mailboxSize, not(equalTo(0)));
+        assumeTrue(singleConsumer || mailboxSize > 0); // unbounded primitive channels are single-consumer
 
-        final IntChannel ch = Channels.newIntChannel(mailboxSize, policy);
+        final IntChannel ch = Channels.newIntChannel(mailboxSize, policy, singleProducer, singleConsumer);
 
         Fiber fib = new Fiber("fiber", scheduler, new SuspendableRunnable() {
             @Override
@@ -552,6 +557,147 @@ public class ChannelTest {
         fib.join();
     }
 
+    @Test
+    public void testOffHeapPrimitiveChannel() throws Exception {
+        assumeThat(mailboxSize, greaterThan(1));
+        assumeThat(singleConsumer, is(true));
+        assumeThat(policy, not(equalTo(OverflowPolicy.THROW)));
+
+        final LongChannel ch = Channels.newLongChannel(ByteBuffer.allocateDirect(mailboxSize * 8), policy, singleProducer);
+
+        Fiber fib = new Fiber("fiber", scheduler, new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                long last = 0;
+                long m;
+                try {
+                    for (;;) {
+                        m = ch.receiveLong();
+                        assertThat(m, greaterThan(last)); // DISPLACE channels may skip
+                        last = m;
+                    }
+                } catch (QueueChannel.EOFException e) {
+                }
+                assertThat(last, is(100L));
+            }
+        }).start();
+
+        for (long i = 1; i <= 100; i++)
+            ch.send(i);
+        ch.close();
+
+        fib.join();
+    }
+
+    @Test
+    public void testMultipleConsumers() throws Exception {
+        assumeThat(singleConsumer, is(false));
+        assumeThat(policy, not(equalTo(OverflowPolicy.DISPLACE)));
+
+        final int numConsumers = 8;
+        final int numMessages = 1000;
+        final Channel<Integer> ch = newChannel();
+        final AtomicIntegerArray received = new AtomicIntegerArray(numMessages);
+
+        final Fiber[] consumers = new Fiber[numConsumers];
+        for (int i = 0; i < numConsumers; i++) {
+            consumers[i] = new Fiber("consumer-" + i, scheduler, new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    Integer m;
+                    while ((m = ch.receive()) != null)
+                        received.incrementAndGet(m);
+                }
+            }).start();
+        }
+
+        for (int i = 0; i < numMessages; i++) {
+            if (policy == OverflowPolicy.BLOCK)
+                ch.send(i);
+            else {
+                while (!ch.trySend(i))
+                    Thread.yield();
+            }
+        }
+        ch.close();
+
+        for (Fiber consumer : consumers)
+            consumer.join();
+        for (int i = 0; i < numMessages; i++)
+            assertThat(received.get(i), is(1));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        assumeThat(mailboxSize, not(equalTo(0)));
+        assumeThat(policy, is(OverflowPolicy.BLOCK));
+
+        final int numMessages = 100;
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) this.<Integer>newChannel();
+
+        final Fiber<Integer> fib = new Fiber<Integer>("fiber", scheduler, new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                final Integer[] ms = new Integer[7];
+                int expected = 0;
+                int n;
+                while ((n = ch.receiveBatch(ms, ms.length)) > 0) {
+                    assertThat(n, lessThan(ms.length + 1));
+                    for (int i = 0; i < n; i++)
+                        assertThat(ms[i], is(expected++));
+                }
+                assertTrue(ch.isClosed());
+                return expected;
+            }
+        }).start();
+
+        final Integer[] batch = new Integer[10];
+        for (int i = 0; i < numMessages; i += batch.length) {
+            for (int j = 0; j < batch.length; j++)
+                batch[j] = i + j;
+            ch.sendBatch(batch, 0, batch.length);
+        }
+        ch.close();
+
+        assertThat(fib.get(), is(numMessages));
+    }
+
+    @Test
+    public void testWaitStrategy() throws Exception {
+        assumeThat(mailboxSize, not(equalTo(0)));
+        assumeThat(policy, is(OverflowPolicy.BLOCK));
+
+        final int numMessages = 100;
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) this.<Integer>newChannel();
+        final ChannelWaitStrategy ws = ChannelWaitStrategy.adaptive(1000, 0);
+        ch.setWaitStrategy(ws);
+
+        final Fiber<Integer> fib = new Fiber<Integer>("fiber", scheduler, new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int expected = 0;
+                Integer m;
+                while ((m = ch.receive()) != null)
+                    assertThat(m, is(expected++));
+                return expected;
+            }
+        }).start();
+
+        // nothing arrives while the receiver spins, so it parks, and halves its spins
+        Thread.sleep(100);
+        assertThat(ws.getParks(), is(1L));
+        assertThat(ws.getSpins(), is(500));
+
+        for (int i = 0; i < numMessages; i++)
+            ch.send(i);
+        ch.close();
+
+        assertThat(fib.get(), is(numMessages));
+        assertThat(ws.getSpinHits() + ws.getYieldHits() + ws.getParks(), greaterThan(1L));
+        assertThat(ws.getSpins(), greaterThan(15));
+        assertThat(ws.getSpins(), lessThan(1001));
+    }
+
     @Test
     public void testTopic() throws Exception {
         final Channel<String> channel1 = newChannel();
@@ -0,0 +1,78 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import static co.paralleluniverse.common.test.Matchers.*;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class ChannelWaitStrategyTest {
+    @Test
+    public void testAdaptiveSpins() {
+        final ChannelWaitStrategy ws = ChannelWaitStrategy.adaptive(1000, 0);
+        assertThat(ws.getSpins(), is(1000));
+
+        ws.parked();
+        assertThat(ws.getSpins(), is(500));
+        for (int i = 0; i < 20; i++)
+            ws.parked();
+        assertThat(ws.getSpins(), is(16)); // never down to 0, or it could never grow again
+
+        ws.spun();
+        assertThat(ws.getSpins(), is(32));
+        for (int i = 0; i < 20; i++)
+            ws.spun();
+        assertThat(ws.getSpins(), is(1000));
+
+        ws.parked();
+        ws.yielded();
+        assertThat(ws.getSpins(), is(1000));
+        assertThat(ws.getParks(), is(22L));
+        assertThat(ws.getSpinHits(), is(21L));
+        assertThat(ws.getYieldHits(), is(1L));
+    }
+
+    @Test
+    public void testAdaptiveSpinsBelowFloor() {
+        final ChannelWaitStrategy ws = ChannelWaitStrategy.adaptive(4, 0);
+        ws.parked();
+        ws.parked();
+        ws.parked();
+        assertThat(ws.getSpins(), is(4));
+    }
+
+    @Test
+    public void testFixedSpins() {
+        final ChannelWaitStrategy ws = ChannelWaitStrategy.spinYieldPark(1000, 0);
+        ws.parked();
+        assertThat(ws.getSpins(), is(1000));
+    }
+
+    @Test
+    public void testTimedReceiveStopsSpinning() throws Exception {
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) Channels.<Integer>newChannel(10, OverflowPolicy.BLOCK);
+        ch.setWaitStrategy(ChannelWaitStrategy.spinYieldPark(Integer.MAX_VALUE, Integer.MAX_VALUE));
+
+        final long start = System.nanoTime();
+        assertThat(ch.receiveFromThread(20, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(lessThan(1000L)));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.FiberScheduler;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import jsr166e.ForkJoinPool;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author pron
+ */
+public class MappedFileChannelTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    final FiberScheduler scheduler = new FiberScheduler(new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+
+    @Test
+    public void testSendReceive() throws Exception {
+        final MappedFileChannel ch = Channels.newMappedFileChannel(folder.newFile(), 256, OverflowPolicy.BLOCK);
+
+        final Fiber<Integer> fib = new Fiber<Integer>("fiber", scheduler, new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int n = 0;
+                byte[] m;
+                while ((m = ch.receive()) != null) {
+                    assertThat((int) m[0], is(n % 100));
+                    n++;
+                }
+                return n;
+            }
+        }).start();
+
+        // the channel blocks when the ring is full
+        for (int i = 0; i < 1000; i++)
+            ch.send(new byte[]{(byte) (i % 100), 1, 2, 3, 4, 5, 6});
+        ch.close();
+
+        assertThat(fib.get(), is(1000));
+    }
+
+    @Test
+    public void testReceiveFromAnotherMapping() throws Exception {
+        final File file = folder.newFile();
+        final MappedFileChannel receiver = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW);
+        final MappedFileChannel sender = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW);
+
+        final Fiber<Integer> fib = new Fiber<Integer>("fiber", scheduler, new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int n = 0;
+                while (receiver.receive() != null)
+                    n++;
+                return n;
+            }
+        }).start();
+
+        // the receiver isn't signalled by the sender, so it must find the messages (and the close) by polling
+        Thread.sleep(50);
+        for (int i = 0; i < 10; i++)
+            sender.send(new byte[]{(byte) i});
+        Thread.sleep(50);
+        sender.close();
+
+        assertThat(fib.get(1, TimeUnit.SECONDS), is(10));
+    }
+
+    @Test
+    public void testPollInterval() throws Exception {
+        final File file = folder.newFile();
+        final MappedFileChannel receiver = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW, 1, TimeUnit.HOURS);
+        final MappedFileChannel sender = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW);
+
+        final Fiber<byte[]> fib = new Fiber<byte[]>("fiber", scheduler, new SuspendableCallable<byte[]>() {
+            @Override
+            public byte[] run() throws SuspendExecution, InterruptedException {
+                return receiver.receive();
+            }
+        }).start();
+
+        Thread.sleep(50);
+        sender.send(new byte[]{1});
+        Thread.sleep(100);
+        assertFalse(fib.isDone()); // the receiver won't look at the file again for an hour
+
+        receiver.close(); // wakes the receiver
+        assertThat(fib.get(1, TimeUnit.SECONDS), equalTo(new byte[]{1}));
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        final File file = folder.newFile();
+        final MappedFileChannel ch1 = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW);
+        ch1.send("hello".getBytes());
+        ch1.send("world".getBytes());
+        ch1.force();
+
+        final MappedFileChannel ch2 = Channels.newMappedFileChannel(file, 1024, OverflowPolicy.THROW);
+        assertThat(new String(ch2.tryReceive()), is("hello"));
+        assertThat(new String(ch2.tryReceive()), is("world"));
+        assertThat(ch2.tryReceive(), is(nullValue()));
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        final MappedFileChannel ch1 = Channels.newMappedFileChannel(folder.newFile(), 1024, OverflowPolicy.THROW);
+        final MappedFileChannel ch2 = Channels.newMappedFileChannel(folder.newFile(), 1024, OverflowPolicy.THROW);
+
+        final Fiber<String> fib = new Fiber<String>("fiber", scheduler, new SuspendableCallable<String>() {
+            @Override
+            public String run() throws SuspendExecution, InterruptedException {
+                final SelectAction<byte[]> sa = Selector.select(Selector.receive(ch1), Selector.receive(ch2));
+                assertThat(sa.index(), is(1));
+                return new String(sa.message());
+            }
+        }).start();
+
+        Thread.sleep(50);
+        ch2.send("hello".getBytes());
+
+        assertThat(fib.get(), is("hello"));
+    }
+
+    @Test
+    public void testReceiveTimeout() throws Exception {
+        final MappedFileChannel ch = Channels.newMappedFileChannel(folder.newFile(), 1024, OverflowPolicy.THROW);
+
+        final Fiber fib = new Fiber("fiber", scheduler, new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                assertThat(ch.receive(35, TimeUnit.MILLISECONDS), is(nullValue()));
+                assertThat(ch.receive(500, TimeUnit.MILLISECONDS), is(notNullValue()));
+            }
+        }).start();
+
+        Thread.sleep(100);
+        ch.send(new byte[]{1});
+        fib.join();
+    }
+}
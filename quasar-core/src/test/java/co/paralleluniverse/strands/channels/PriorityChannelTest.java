@@ -0,0 +1,140 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class PriorityChannelTest {
+    private static final class Task {
+        final int priority;
+        final String name;
+
+        Task(int priority, String name) {
+            this.priority = priority;
+            this.name = name;
+        }
+    }
+    private static final Comparator<Task> BY_PRIORITY = new Comparator<Task>() {
+        @Override
+        public int compare(Task x, Task y) {
+            return Integer.compare(x.priority, y.priority);
+        }
+    };
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        final Channel<Integer> ch = Channels.newPriorityChannel(-1, OverflowPolicy.THROW);
+        for (int x : new int[]{5, 3, 9, 1, 7, 3})
+            ch.send(x);
+        ch.close();
+
+        for (int x : new int[]{1, 3, 3, 5, 7, 9})
+            assertThat(ch.receive(), is(x));
+        assertThat(ch.receive(), is(nullValue()));
+    }
+
+    @Test
+    public void testFifoWithinPriority() throws Exception {
+        final Channel<Task> ch = Channels.newPriorityChannel(-1, OverflowPolicy.THROW, BY_PRIORITY);
+        ch.send(new Task(2, "a"));
+        ch.send(new Task(1, "b"));
+        ch.send(new Task(2, "c"));
+        ch.send(new Task(1, "d"));
+
+        assertThat(ch.receive().name, is("b"));
+        assertThat(ch.receive().name, is("d"));
+        assertThat(ch.receive().name, is("a"));
+        assertThat(ch.receive().name, is("c"));
+        assertThat(ch.tryReceive(), is(nullValue()));
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        final Channel<Integer> ch = Channels.newPriorityChannel(2, OverflowPolicy.DROP);
+        ch.send(3);
+        ch.send(2);
+        ch.send(1); // dropped
+        assertThat(ch.receive(), is(2));
+        ch.send(1);
+        assertThat(ch.receive(), is(1));
+        assertThat(ch.receive(), is(3));
+    }
+
+    @Test
+    public void testReceiveInFiber() throws Exception {
+        final Channel<Integer> ch = Channels.newPriorityChannel(-1, OverflowPolicy.THROW);
+        final Fiber<Integer> fiber = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                return ch.receive();
+            }
+        }).start();
+
+        Thread.sleep(50);
+        ch.send(42);
+        assertThat(fiber.get(5, TimeUnit.SECONDS), is(42));
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        final Channel<Integer> never = Channels.newChannel(1);
+        final Channel<Integer> ch = Channels.newPriorityChannel(-1, OverflowPolicy.THROW);
+        ch.send(2);
+        ch.send(1);
+
+        SelectAction<Integer> sa = Selector.select(Selector.receive(never), Selector.receive(ch));
+        assertThat(sa.index(), is(1));
+        assertThat(sa.message(), is(1));
+        sa = Selector.select(Selector.receive(never), Selector.receive(ch));
+        assertThat(sa.message(), is(2));
+    }
+
+    @Test
+    public void testPrimitiveChannels() throws Exception {
+        final IntChannel ic = Channels.newPriorityIntChannel(-1, OverflowPolicy.THROW);
+        final LongChannel lc = Channels.newPriorityLongChannel(-1, OverflowPolicy.THROW);
+        final FloatChannel fc = Channels.newPriorityFloatChannel(-1, OverflowPolicy.THROW);
+        final DoubleChannel dc = Channels.newPriorityDoubleChannel(-1, OverflowPolicy.THROW);
+        for (int x : new int[]{4, -2, 8, 0}) {
+            ic.send(x);
+            lc.send(x);
+            fc.send(x);
+            dc.send(x);
+        }
+
+        for (int x : new int[]{-2, 0, 4, 8}) {
+            assertThat(ic.receiveInt(), is(x));
+            assertThat(lc.receiveLong(), is((long) x));
+            assertThat(fc.receiveFloat(), is((float) x));
+            assertThat(dc.receiveDouble(), is((double) x));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDisplaceUnsupported() {
+        Channels.newPriorityChannel(4, OverflowPolicy.DISPLACE);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import com.google.common.base.Function;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class RateLimitedSendPortTest {
+    private static final Function<String, Character> FIRST_CHAR = new Function<String, Character>() {
+        @Override
+        public Character apply(String s) {
+            return s.charAt(0);
+        }
+    };
+
+    @Test
+    public void testRate() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(100);
+        final SendPort<Integer> port = Channels.rateLimited(ch, 100, 10);
+
+        final Fiber<Long> sender = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                final long start = System.nanoTime();
+                for (int i = 0; i < 30; i++)
+                    port.send(i);
+                return System.nanoTime() - start;
+            }
+        }).start();
+
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(sender.get(5, TimeUnit.SECONDS));
+        assertTrue("elapsed: " + elapsed, elapsed >= 180); // a burst of 10, then 20 more at 10ms intervals
+        assertTrue("elapsed: " + elapsed, elapsed < 2000);
+        for (int i = 0; i < 30; i++)
+            assertThat(ch.tryReceive(), is(i));
+    }
+
+    @Test
+    public void testTrySend() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(100);
+        final SendPort<Integer> port = Channels.rateLimited(ch, 1, 3);
+
+        for (int i = 0; i < 3; i++)
+            assertThat(port.trySend(i), is(true));
+        assertThat(port.trySend(3), is(false));
+        assertThat(port.send(3, 10, TimeUnit.MILLISECONDS), is(false));
+    }
+
+    @Test
+    public void testTrySendDoesNotConsumePermitWhenTargetIsFull() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(1, Channels.OverflowPolicy.THROW);
+        final SendPort<Integer> port = Channels.rateLimited(ch, 1, 2);
+
+        assertThat(port.trySend(1), is(true));
+        assertThat(port.trySend(2), is(false)); // the channel is full
+        ch.receive();
+        assertThat(port.trySend(2), is(true));
+    }
+
+    @Test
+    public void testKeysAreLimitedSeparately() throws Exception {
+        final Channel<String> ch = Channels.newChannel(100);
+        final SendPort<String> port = Channels.rateLimited(ch, FIRST_CHAR, 1, 2);
+
+        assertThat(port.trySend("a1"), is(true));
+        assertThat(port.trySend("a2"), is(true));
+        assertThat(port.trySend("a3"), is(false));
+        assertThat(port.trySend("b1"), is(true));
+        assertThat(port.trySend("b2"), is(true));
+        assertThat(port.trySend("b3"), is(false));
+        assertThat(((RateLimitedSendPort<String>) port).bucketCount(), is(2));
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(100);
+        final Channel<Integer> never = Channels.newChannel(1);
+        final SendPort<Integer> port = Channels.rateLimited(ch, 20, 1);
+
+        final Fiber<Long> selector = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                final long start = System.nanoTime();
+                for (int i = 0; i < 5; i++) {
+                    final SelectAction<Integer> sa = Selector.select(Selector.send(port, i), Selector.receive(never));
+                    assertThat(sa.index(), is(0));
+                }
+                return System.nanoTime() - start;
+            }
+        }).start();
+
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(selector.get(5, TimeUnit.SECONDS));
+        assertTrue("elapsed: " + elapsed, elapsed >= 180); // one immediately, then 4 more at 50ms intervals
+        for (int i = 0; i < 5; i++)
+            assertThat(ch.tryReceive(), is(i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalRate() throws Exception {
+        Channels.rateLimited(Channels.newChannel(1), 0, 1);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class ReceiveSelectorTest {
+    private static List<Channel<Integer>> newChannels(int n) {
+        final List<Channel<Integer>> channels = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            channels.add(Channels.<Integer>newChannel(16, OverflowPolicy.BLOCK));
+        return channels;
+    }
+
+    @Test
+    public void testTrySelect() throws Exception {
+        final List<Channel<Integer>> channels = newChannels(4);
+        final ReceiveSelector<Integer> selector = new ReceiveSelector<>(channels);
+
+        assertThat(selector.trySelect(), is(nullValue()));
+        channels.get(2).send(5);
+        final SelectAction<Integer> sa = selector.trySelect();
+        assertThat(sa.message(), is(5));
+        assertThat(sa.index(), is(2));
+        assertTrue(sa.port() == channels.get(2));
+        assertThat(selector.trySelect(), is(nullValue()));
+    }
+
+    @Test
+    public void testMessagesSentBeforeConstruction() throws Exception {
+        final List<Channel<Integer>> channels = newChannels(4);
+        channels.get(3).send(7);
+        final ReceiveSelector<Integer> selector = new ReceiveSelector<>(channels);
+        assertThat(selector.select(100, TimeUnit.MILLISECONDS).message(), is(7));
+        assertThat(selector.select(10, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testFairness() throws Exception {
+        final List<Channel<Integer>> channels = newChannels(2);
+        final ReceiveSelector<Integer> selector = new ReceiveSelector<>(channels);
+        for (int i = 0; i < 4; i++) {
+            channels.get(0).send(i);
+            channels.get(1).send(i);
+        }
+        int[] counts = new int[2];
+        for (int i = 0; i < 4; i++)
+            counts[selector.trySelect().index()]++;
+        assertThat(counts[0], is(2));
+        assertThat(counts[1], is(2));
+    }
+
+    @Test
+    public void testClosedPort() throws Exception {
+        final List<Channel<Integer>> channels = newChannels(2);
+        final ReceiveSelector<Integer> selector = new ReceiveSelector<>(channels);
+        channels.get(1).close();
+        final SelectAction<Integer> sa = selector.select(100, TimeUnit.MILLISECONDS);
+        assertThat(sa.index(), is(1));
+        assertThat(sa.message(), is(nullValue()));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final List<Channel<Integer>> channels = newChannels(2);
+        final ReceiveSelector<Integer> selector1 = new ReceiveSelector<>(channels);
+        final ReceiveSelector<Integer> selector2 = new ReceiveSelector<>(channels); // registered on each call
+        channels.get(0).send(1);
+        assertThat(selector2.select(100, TimeUnit.MILLISECONDS).message(), is(1));
+
+        selector1.close();
+        final ReceiveSelector<Integer> selector3 = new ReceiveSelector<>(channels);
+        channels.get(1).send(2);
+        assertThat(selector3.select(100, TimeUnit.MILLISECONDS).message(), is(2));
+    }
+
+    @Test
+    public void testAbandonedGroupReleasesRegistration() throws Exception {
+        final QueueChannel<Integer> ch = (QueueChannel<Integer>) Channels.<Integer>newChannel(16, OverflowPolicy.BLOCK);
+        final ReceiveSelector.Key<Integer> key = new ReceiveSelector.Key<>(null, null);
+        WeakReference<ReceivePortGroup<Integer>> group = new WeakReference<>(new ReceivePortGroup<>(ch));
+        assertFalse(ch.setSelectionKey(key));
+
+        // the group is never closed
+        for (int i = 0; i < 100 && group.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(group.get(), is(nullValue()));
+        ch.send(1); // the channel has no live selector to notify
+        assertTrue(ch.setSelectionKey(key));
+    }
+
+    @Test
+    public void testManyProducers() throws Exception {
+        final int nChannels = 64;
+        final int messages = 1000;
+        final List<Channel<Integer>> channels = newChannels(nChannels);
+        final ReceiveSelector<Integer> selector = new ReceiveSelector<>(channels);
+
+        final Fiber<Long> consumer = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                long sum = 0;
+                for (int i = 0; i < nChannels * messages; i++)
+                    sum += selector.select().message();
+                return sum;
+            }
+        }).start();
+
+        for (int c = 0; c < nChannels; c++) {
+            final Channel<Integer> ch = channels.get(c);
+            new Fiber(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    for (int i = 0; i < messages; i++)
+                        ch.send(i);
+                }
+            }).start();
+        }
+
+        assertThat(consumer.get(), is((long) nChannels * messages * (messages - 1) / 2));
+    }
+}
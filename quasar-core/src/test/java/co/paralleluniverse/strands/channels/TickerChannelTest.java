@@ -19,6 +19,7 @@ import co.paralleluniverse.fibers.Fiber;
 import co.paralleluniverse.fibers.FiberScheduler;
 import co.paralleluniverse.fibers.SuspendExecution;
 import co.paralleluniverse.strands.Strand;
+import co.paralleluniverse.strands.SuspendableCallable;
 import co.paralleluniverse.strands.SuspendableRunnable;
 import java.util.Arrays;
 import jsr166e.ForkJoinPool;
@@ -135,4 +136,52 @@ public class TickerChannelTest {
         t4.join();
         System.out.println("t4: " + t4);
     }
+
+    @Test
+    public void testLostMessageCount() throws Exception {
+        final Channel<Integer> sch = Channels.newChannel(bufferSize, Channels.OverflowPolicy.DISPLACE);
+        final int capacity = ((QueueChannel<Integer>) sch).capacity();
+        final TickerChannelConsumer<Integer> ch1 = (TickerChannelConsumer<Integer>) Channels.newTickerConsumerFor(sch);
+
+        for (int i = 0; i < 100; i++)
+            sch.send(i);
+        final TickerChannelConsumer<Integer> ch2 = (TickerChannelConsumer<Integer>) Channels.newTickerConsumerFor(sch);
+
+        // ch1 has been lapped; ch2 starts at the oldest message in the buffer
+        for (int i = 100 - capacity; i < 100; i++) {
+            assertThat(ch1.tryReceive(), is(i));
+            assertThat(ch2.tryReceive(), is(i));
+        }
+        assertThat(ch1.tryReceive(), is(nullValue()));
+        assertThat(ch1.getLostMessageCount(), is((long) (100 - capacity)));
+        assertThat(ch2.getLostMessageCount(), is(0L));
+    }
+
+    @Test
+    public void testReceiveBatch() throws Exception {
+        final Channel<Integer> sch = Channels.newChannel(128, Channels.OverflowPolicy.DISPLACE);
+        final TickerChannelConsumer<Integer> ch = (TickerChannelConsumer<Integer>) Channels.newTickerConsumerFor(sch);
+
+        Fiber<Integer> fib = new Fiber<Integer>(scheduler, new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                final Integer[] ms = new Integer[16];
+                int received = 0;
+                int n;
+                while ((n = ch.receiveBatch(ms, ms.length)) > 0) {
+                    for (int i = 0; i < n; i++)
+                        assertThat(ms[i], is(received + i));
+                    received += n;
+                }
+                return received;
+            }
+        }).start();
+
+        for (int i = 0; i < 100; i++)
+            sch.send(i);
+        sch.close();
+
+        assertThat(fib.get(), is(100));
+        assertThat(ch.getLostMessageCount(), is(0L));
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class TimerChannelTest {
+    @Test
+    public void testTimer() throws Exception {
+        final long start = System.nanoTime();
+        final LongReceivePort timer = Channels.timer(50, TimeUnit.MILLISECONDS);
+        assertThat(timer.tryReceive(), is(nullValue()));
+
+        assertThat(timer.receiveLong(), is(1L));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(timer.receive(), is(nullValue()));
+        assertThat(timer.isClosed(), is(true));
+    }
+
+    @Test
+    public void testTickerInFiber() throws Exception {
+        final LongReceivePort ticker = Channels.ticker(10, TimeUnit.MILLISECONDS);
+        final Fiber<Long> fiber = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                long last = 0;
+                for (int i = 0; i < 10; i++) {
+                    final long tick = ticker.receiveLong();
+                    assertTrue(tick > last);
+                    last = tick;
+                }
+                return last;
+            }
+        }).start();
+
+        final long last = fiber.get(5, TimeUnit.SECONDS);
+        assertTrue(last >= 10);
+        ticker.close();
+        assertThat(ticker.receive(), is(nullValue()));
+    }
+
+    @Test
+    public void testMissedTicksAreCoalesced() throws Exception {
+        final LongReceivePort ticker = Channels.ticker(5, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+
+        final long tick = ticker.receiveLong(); // only the latest tick is kept
+        assertTrue("tick: " + tick, tick >= 15);
+        final long next = ticker.receiveLong(1, TimeUnit.SECONDS);
+        assertTrue("tick: " + tick + " next: " + next, next > tick);
+        ticker.close();
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        final Channel<Long> never = Channels.newChannel(1);
+        final LongReceivePort ticker = Channels.ticker(10, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            final SelectAction<Long> sa = Selector.select(Selector.receive(never), Selector.receive(ticker));
+            assertThat(sa.index(), is(1));
+            assertTrue(sa.message() > 0);
+        }
+        ticker.close();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.queues.QueueCapacityExceededException;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class TopicTest {
+    @Test
+    public void testBlockedSubscriberDoesNotDelayOthers() throws Exception {
+        final Channel<Integer> slow = Channels.newChannel(1, OverflowPolicy.BLOCK);
+        final Channel<Integer> fast = Channels.newChannel(10, OverflowPolicy.BLOCK);
+        final Topic<Integer> topic = new Topic<>();
+        topic.subscribe(slow);
+        topic.subscribe(fast);
+
+        topic.send(1);
+        final Fiber publisher = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                topic.send(2); // blocks on slow
+            }
+        }).start();
+
+        assertThat(fast.receive(), is(1));
+        assertThat(fast.receive(100, TimeUnit.MILLISECONDS), is(2));
+        assertThat(slow.receive(), is(1));
+        publisher.join();
+        assertThat(slow.receive(), is(2));
+    }
+
+    @Test
+    public void testSubscriberOverflowPolicies() throws Exception {
+        final Channel<Integer> drop = Channels.newChannel(2, OverflowPolicy.DROP);
+        final Channel<Integer> th = Channels.newChannel(2, OverflowPolicy.THROW);
+        final Channel<Integer> unbounded = Channels.newChannel(-1);
+        final Topic<Integer> topic = new Topic<>();
+        topic.subscribe(th);
+        topic.subscribe(drop);
+        topic.subscribe(unbounded);
+
+        topic.send(1);
+        topic.send(2);
+        try {
+            topic.send(3);
+            fail();
+        } catch (QueueCapacityExceededException e) {
+        }
+        for (int i = 1; i <= 3; i++)
+            assertThat(unbounded.tryReceive(), is(i));
+        assertThat(drop.tryReceive(), is(1));
+        assertThat(drop.tryReceive(), is(2));
+        assertThat(drop.tryReceive(), is(nullValue()));
+    }
+
+    @Test
+    public void testTrySendAndTimedSend() throws Exception {
+        final Channel<Integer> small = Channels.newChannel(1, OverflowPolicy.BLOCK);
+        final Channel<Integer> big = Channels.newChannel(10, OverflowPolicy.BLOCK);
+        final Topic<Integer> topic = new Topic<>();
+        topic.subscribe(small);
+        topic.subscribe(big);
+
+        assertTrue(topic.trySend(1));
+        assertFalse(topic.trySend(2));
+        assertFalse(topic.send(3, 20, TimeUnit.MILLISECONDS));
+        assertThat(big.tryReceive(), is(1));
+        assertThat(big.tryReceive(), is(2));
+        assertThat(big.tryReceive(), is(3));
+
+        assertThat(small.tryReceive(), is(1));
+        assertTrue(topic.send(4, 20, TimeUnit.MILLISECONDS));
+        assertThat(small.tryReceive(), is(4));
+    }
+
+    @Test
+    public void testUnsubscribe() throws Exception {
+        final Channel<Integer> ch1 = Channels.newChannel(10);
+        final Channel<Integer> ch2 = Channels.newChannel(10);
+        final Topic<Integer> topic = new Topic<>();
+        topic.subscribe(ch1);
+        topic.subscribe(ch2);
+        topic.subscribe(ch1);
+        topic.send(1);
+        topic.unsubscribe(ch1);
+        topic.send(2);
+
+        assertThat(ch1.tryReceive(), is(1));
+        assertThat(ch1.tryReceive(), is(nullValue()));
+        assertThat(ch2.tryReceive(), is(1));
+        assertThat(ch2.tryReceive(), is(2));
+    }
+
+    @Test
+    public void testSharedRing() throws Exception {
+        final int messages = 500;
+        final Topic<Integer> topic = new Topic<>(64);
+        final ReceivePort<Integer> sub1 = topic.subscribe();
+        final ReceivePort<Integer> sub2 = topic.subscribe();
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                int count = 0;
+                Integer m;
+                while ((m = sub1.receive()) != null) {
+                    assertThat(m, is(count));
+                    count++;
+                }
+                return count;
+            }
+        }).start();
+
+        for (int i = 0; i < messages; i++) {
+            topic.send(i);
+            if (i % 16 == 15)
+                Thread.sleep(5); // let sub1 keep up
+        }
+        topic.close();
+
+        assertThat(consumer.get(), is(messages));
+        int received = 0;
+        while (sub2.tryReceive() != null)
+            received++;
+        assertThat(received, is(64)); // sub2 has fallen behind by more than the ring's size
+        assertThat(((TickerChannelConsumer<Integer>) sub2).getLostMessageCount(), is((long) messages - 64));
+    }
+
+    @Test
+    public void testLateSubscriberReceivesOnlyNewMessages() throws Exception {
+        final Topic<Integer> topic = new Topic<>(64);
+        final ReceivePort<Integer> early = topic.subscribe();
+        topic.send(1);
+        topic.send(2);
+
+        final ReceivePort<Integer> late = topic.subscribe();
+        assertThat(late.tryReceive(), is(nullValue()));
+        topic.send(3);
+
+        assertThat(early.tryReceive(), is(1));
+        assertThat(early.tryReceive(), is(2));
+        assertThat(early.tryReceive(), is(3));
+        assertThat(late.tryReceive(), is(3));
+        assertThat(late.tryReceive(), is(nullValue()));
+        assertThat(((TickerChannelConsumer<Integer>) late).getLostMessageCount(), is(0L));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Strand;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class TransferChannelTest {
+    /**
+     * Many producers and consumers, threads and fibers, rendezvous on the same channel, both through the elimination
+     * arena and through the queue. Every message must be received exactly once.
+     */
+    @Test
+    public void testManyProducersAndConsumers() throws Exception {
+        final int producers = 4;
+        final int consumers = 4;
+        final int messages = 20000; // per producer
+        final TransferChannel<Integer> ch = new TransferChannel<>();
+        final ConcurrentHashMap<Integer, Boolean> received = new ConcurrentHashMap<>();
+        final AtomicInteger duplicates = new AtomicInteger();
+
+        final List<Strand> strands = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            final SuspendableRunnable consumer = new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    Integer m;
+                    while ((m = ch.receive()) != null) {
+                        if (received.put(m, Boolean.TRUE) != null)
+                            duplicates.incrementAndGet();
+                    }
+                }
+            };
+            strands.add(i % 2 == 0 ? Strand.of(new Thread(Strand.toRunnable(consumer))) : new Fiber(consumer));
+        }
+        final List<Strand> producerStrands = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            final int base = i * messages;
+            final SuspendableRunnable producer = new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    for (int j = 0; j < messages; j++)
+                        ch.send(base + j);
+                }
+            };
+            producerStrands.add(i % 2 == 0 ? Strand.of(new Thread(Strand.toRunnable(producer))) : new Fiber(producer));
+        }
+        strands.addAll(producerStrands);
+        for (Strand s : strands)
+            s.start();
+
+        for (Strand s : producerStrands)
+            s.join();
+        ch.close();
+        for (Strand s : strands)
+            s.join();
+
+        assertThat(duplicates.get(), is(0));
+        assertThat(received.size(), is(producers * messages));
+    }
+
+    @Test
+    public void testTrySendMatchesWaitingThread() throws Exception {
+        final TransferChannel<String> ch = new TransferChannel<>();
+        final Thread receiver = new Thread(Strand.toRunnable(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                assertThat(ch.receive(), is("hello"));
+            }
+        }));
+        receiver.start();
+
+        boolean sent = false;
+        for (int i = 0; !sent && i < 1000; i++) {
+            sent = ch.trySend("hello");
+            if (!sent)
+                Thread.sleep(1);
+        }
+        assertThat(sent, is(true));
+        receiver.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(receiver.isAlive(), is(false));
+    }
+}
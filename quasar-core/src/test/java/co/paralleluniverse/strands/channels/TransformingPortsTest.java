@@ -0,0 +1,219 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels;
+
+import co.paralleluniverse.common.util.Function2;
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class TransformingPortsTest {
+    private static final Function<Integer, String> TO_STRING = new Function<Integer, String>() {
+        @Override
+        public String apply(Integer x) {
+            return "x" + x;
+        }
+    };
+    private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+        @Override
+        public boolean apply(Integer x) {
+            return x % 2 == 0;
+        }
+    };
+    private static final Function2<Integer, Integer, Integer> SUM = new Function2<Integer, Integer, Integer>() {
+        @Override
+        public Integer apply(Integer x, Integer y) {
+            return x + y;
+        }
+    };
+
+    private static Channel<Integer> newChannel(int... messages) {
+        final Channel<Integer> ch = Channels.newChannel(-1);
+        for (int m : messages)
+            ch.trySend(m);
+        return ch;
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        final Channel<Integer> ch = newChannel(1, 2);
+        final ReceivePort<String> port = Channels.map(ch, TO_STRING);
+        assertThat(port.receive(), is("x1"));
+        assertThat(port.tryReceive(), is("x2"));
+        assertThat(port.tryReceive(), is(nullValue()));
+        ch.close();
+        assertThat(port.receive(), is(nullValue()));
+        assertTrue(port.isClosed());
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        final Channel<Integer> ch = newChannel(1, 2, 3, 4, 5);
+        final ReceivePort<Integer> port = Channels.filter(ch, EVEN);
+        assertThat(port.receive(), is(2));
+        assertThat(port.receive(10, TimeUnit.MILLISECONDS), is(4));
+        assertThat(port.tryReceive(), is(nullValue()));
+        assertThat(port.receive(10, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testFlatMap() throws Exception {
+        final Channel<Integer> ch = newChannel(1, 3, 2);
+        ch.close();
+        final ReceivePort<Integer> port = Channels.flatMap(ch, new Function<Integer, ReceivePort<Integer>>() {
+            @Override
+            public ReceivePort<Integer> apply(Integer n) {
+                final Channel<Integer> c = Channels.newChannel(-1);
+                for (int i = 0; i < n; i++)
+                    c.trySend(n);
+                c.close();
+                return c;
+            }
+        });
+        for (int m : new int[]{1, 3, 3, 3, 2, 2})
+            assertThat(port.receive(), is(m));
+        assertThat(port.receive(), is(nullValue()));
+        assertTrue(port.isClosed());
+    }
+
+    @Test
+    public void testZip() throws Exception {
+        final Channel<Integer> ch1 = newChannel(1, 2);
+        final Channel<Integer> ch2 = newChannel(10);
+        final ReceivePort<Integer> port = Channels.zip(ch1, ch2, SUM);
+        assertThat(port.receive(), is(11));
+        assertThat(port.tryReceive(), is(nullValue())); // 2 is held until ch2 has a message
+        ch2.send(20);
+        assertThat(port.tryReceive(), is(22));
+        ch1.close();
+        assertThat(port.receive(), is(nullValue()));
+
+        final ReceivePort<String> port3 = Channels.zip(Arrays.asList(newChannel(1), newChannel(2), newChannel(3)), new Function<Object[], String>() {
+            @Override
+            public String apply(Object[] ms) {
+                return Arrays.toString(ms);
+            }
+        });
+        assertThat(port3.receive(), is("[1, 2, 3]"));
+    }
+
+    @Test
+    public void testFold() throws Exception {
+        final Channel<Integer> ch = newChannel(1, 2, 3);
+        final ReceivePort<Integer> port = Channels.fold(ch, 0, SUM);
+        assertThat(port.tryReceive(), is(nullValue()));
+        assertThat(port.receive(10, TimeUnit.MILLISECONDS), is(nullValue()));
+        ch.send(4);
+        ch.close();
+        assertThat(port.receive(), is(10));
+        assertThat(port.receive(), is(nullValue()));
+        assertTrue(port.isClosed());
+    }
+
+    @Test
+    public void testTake() throws Exception {
+        final Channel<Integer> ch = newChannel(1, 2, 3);
+        final ReceivePort<Integer> port = Channels.take(ch, 2);
+        assertThat(port.receive(), is(1));
+        assertThat(port.receive(), is(2));
+        assertTrue(port.isClosed());
+        assertThat(port.receive(), is(nullValue()));
+        assertThat(ch.receive(), is(3));
+    }
+
+    @Test
+    public void testTakeReturnsReservationWhenReceiveThrows() throws Exception {
+        final ReceivePort<Integer> failing = Channels.map(newChannel(1, 2), new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x) {
+                if (x == 1)
+                    throw new IllegalStateException();
+                return x;
+            }
+        });
+        final ReceivePort<Integer> port = Channels.take(failing, 1);
+        try {
+            port.receive();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertFalse(port.isClosed());
+        assertThat(port.receive(), is(2));
+        assertTrue(port.isClosed());
+    }
+
+    @Test
+    public void testNullTimeUnit() throws Exception {
+        // as with the other ports, a null unit means no timeout
+        assertThat(Channels.zip(newChannel(1), newChannel(2), SUM).receive(0, null), is(3));
+
+        final Channel<Integer> ch1 = newChannel(1, 2);
+        ch1.close();
+        assertThat(Channels.fold(ch1, 0, SUM).receive(0, null), is(3));
+
+        final Channel<Integer> ch2 = newChannel(5);
+        ch2.close();
+        final ReceivePort<Integer> port = Channels.flatMap(ch2, new Function<Integer, ReceivePort<Integer>>() {
+            @Override
+            public ReceivePort<Integer> apply(Integer n) {
+                return newChannel(n);
+            }
+        });
+        assertThat(port.receive(0, null), is(5));
+    }
+
+    @Test
+    public void testSendPorts() throws Exception {
+        final Channel<String> ch = Channels.newChannel(-1);
+        final SendPort<Integer> port = Channels.mapSend(Channels.filterSend(ch, new Predicate<String>() {
+            @Override
+            public boolean apply(String s) {
+                return !s.equals("x2");
+            }
+        }), TO_STRING);
+        for (int i = 1; i <= 3; i++)
+            port.send(i);
+        assertThat(ch.tryReceive(), is("x1"));
+        assertThat(ch.tryReceive(), is("x3"));
+        assertThat(ch.tryReceive(), is(nullValue()));
+    }
+
+    @Test
+    public void testPipelineInFiber() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(16);
+        final ReceivePort<Integer> sum = Channels.fold(Channels.filter(Channels.take(ch, 100), EVEN), 0, SUM);
+
+        final Fiber<Integer> consumer = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                return sum.receive();
+            }
+        }).start();
+
+        for (int i = 0; i < 100; i++)
+            ch.send(i);
+        assertThat(consumer.get(), is(49 * 50));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.disruptor;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import com.lmax.disruptor.EventFactory;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class DisruptorChannelTest {
+    private static class Event {
+        long value;
+        long doubled;
+    }
+    private static final EventFactory<Event> FACTORY = new EventFactory<Event>() {
+        @Override
+        public Event newInstance() {
+            return new Event();
+        }
+    };
+
+    @Test
+    public void testClaimAndReceive() throws Exception {
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 4, true);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+
+        assertThat(consumer.tryReceive(), is(nullValue()));
+        for (int i = 0; i < 4; i++) {
+            final long seq = ch.tryClaim();
+            assertThat(seq, is((long) i));
+            ch.get(seq).value = i;
+            ch.publish(seq);
+        }
+        assertThat(ch.tryClaim(), is(-1L)); // full
+
+        for (int i = 0; i < 4; i++)
+            assertThat(consumer.receive().value, is((long) i));
+        for (int i = 4; i < 7; i++)
+            assertThat(ch.tryClaim(), is((long) i));
+        assertThat(ch.tryClaim(), is(-1L)); // the last received event has not been released
+        assertThat(consumer.tryReceive(), is(nullValue()));
+        assertThat(ch.tryClaim(), is(7L));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 4, false);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+        final long seq = ch.claim();
+        ch.get(seq).value = 7;
+        ch.publish(seq);
+        ch.close();
+
+        assertThat(ch.tryClaim(), is(-1L));
+        assertThat(consumer.isClosed(), is(false));
+        assertThat(consumer.receive().value, is(7L));
+        assertThat(consumer.receive(), is(nullValue()));
+        assertThat(consumer.receive(10, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(consumer.isClosed(), is(true));
+    }
+
+    @Test
+    public void testCloseWakesBlockedPublisher() throws Exception {
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 2, false);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+        ch.publish(ch.claim());
+        ch.publish(ch.claim());
+
+        final Fiber<Long> publisher = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                return ch.claim(); // the buffer is full, and nothing is received
+            }
+        }).start();
+
+        Thread.sleep(50);
+        assertFalse(publisher.isDone());
+        ch.close();
+        assertThat(publisher.get(1, TimeUnit.SECONDS), is(-1L));
+    }
+
+    @Test
+    public void testBatchReceive() throws Exception {
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 8, true);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+        final long hi = ch.claim(5);
+        for (long s = hi - 4; s <= hi; s++)
+            ch.get(s).value = s;
+        ch.publish(hi - 4, hi);
+
+        final Event[] batch = new Event[3];
+        assertThat(consumer.receive(batch), is(3));
+        for (int i = 0; i < 3; i++)
+            assertThat(batch[i].value, is((long) i));
+        assertThat(consumer.receive(batch), is(2));
+        assertThat(batch[0].value, is(3L));
+        assertThat(batch[1].value, is(4L));
+
+        ch.close();
+        assertThat(consumer.receive(batch), is(0));
+    }
+
+    @Test
+    public void testPipelineOfFibers() throws Exception {
+        final int events = 10000;
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 16, true);
+        final DisruptorReceiveChannel<Event> doubler = ch.newReceiveChannel();
+        final DisruptorReceiveChannel<Event> summer = ch.newReceiveChannel(doubler);
+
+        final Fiber doublerFiber = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                Event e;
+                while ((e = doubler.receive()) != null)
+                    e.doubled = e.value * 2;
+            }
+        }).start();
+
+        final Fiber<Long> summerFiber = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                final Event[] batch = new Event[8];
+                long sum = 0;
+                long last = -1;
+                int n;
+                while ((n = summer.receive(batch)) > 0) {
+                    for (int i = 0; i < n; i++) {
+                        assertThat(batch[i].value, is(last + 1));
+                        assertThat(batch[i].doubled, is(batch[i].value * 2)); // processed by the doubler first
+                        last = batch[i].value;
+                        sum += batch[i].doubled;
+                    }
+                }
+                return sum;
+            }
+        }).start();
+
+        final Fiber producer = new Fiber(new SuspendableRunnable() {
+            @Override
+            public void run() throws SuspendExecution, InterruptedException {
+                for (int i = 0; i < events; i++) {
+                    final long seq = ch.claim(); // blocks when the consumers fall behind
+                    ch.get(seq).value = i;
+                    ch.publish(seq);
+                }
+                ch.close();
+            }
+        }).start();
+
+        producer.join();
+        doublerFiber.join();
+        assertThat(summerFiber.get(), is((long) events * (events - 1)));
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int producers = 4;
+        final int events = 2500;
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 8, false);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+
+        final Fiber<Long> consumerFiber = new Fiber<Long>(new SuspendableCallable<Long>() {
+            @Override
+            public Long run() throws SuspendExecution, InterruptedException {
+                long sum = 0;
+                for (int i = 0; i < producers * events; i++)
+                    sum += consumer.receive().value;
+                return sum;
+            }
+        }).start();
+
+        final Fiber[] ps = new Fiber[producers];
+        for (int p = 0; p < producers; p++) {
+            ps[p] = new Fiber(new SuspendableRunnable() {
+                @Override
+                public void run() throws SuspendExecution, InterruptedException {
+                    for (int i = 0; i < events; i++) {
+                        final long seq = ch.claim();
+                        ch.get(seq).value = i;
+                        ch.publish(seq);
+                    }
+                }
+            }).start();
+        }
+        for (Fiber p : ps)
+            p.join();
+        assertThat(consumerFiber.get(5, TimeUnit.SECONDS), is((long) producers * events * (events - 1) / 2));
+    }
+
+    @Test
+    public void testClosedConsumerDoesNotHoldUpPublisher() throws Exception {
+        final DisruptorChannel<Event> ch = new DisruptorChannel<>(FACTORY, 2, true);
+        final DisruptorReceiveChannel<Event> consumer = ch.newReceiveChannel();
+        ch.publish(ch.claim());
+        ch.publish(ch.claim());
+        assertThat(ch.tryClaim(), is(-1L));
+
+        consumer.close();
+        assertThat(ch.tryClaim(), is(2L));
+        assertThat(consumer.receive(), is(nullValue()));
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.dataflow;
+
+import co.paralleluniverse.common.util.Function2;
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import com.google.common.base.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author pron
+ */
+public class VarTest {
+    private static Var<Integer> plus(Var<Integer> a, Var<Integer> b, final AtomicInteger count) {
+        return Var.combine(a, b, new Function2<Integer, Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x, Integer y) {
+                count.incrementAndGet();
+                return x + y;
+            }
+        });
+    }
+
+    private static Var<Integer> times(Var<Integer> a, final int k, final AtomicInteger count) {
+        return Var.map(a, new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x) {
+                count.incrementAndGet();
+                return x * k;
+            }
+        });
+    }
+
+    @Test
+    public void testDerivedIsLazy() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final Var<Integer> a = new Var<>(1);
+        final Var<Integer> b = times(a, 10, count);
+
+        assertThat(count.get(), is(0));
+        assertThat(b.get(), is(10));
+        assertThat(count.get(), is(1));
+
+        a.set(2);
+        a.set(3);
+        assertThat(count.get(), is(1)); // not recomputed until requested
+        assertThat(b.get(), is(30));
+        assertThat(b.get(), is(30));
+        assertThat(count.get(), is(2));
+    }
+
+    @Test
+    public void testRecomputeOnlyOnChange() throws Exception {
+        final AtomicInteger countB = new AtomicInteger();
+        final AtomicInteger countC = new AtomicInteger();
+        final Var<Integer> a = new Var<>(3);
+        final Var<Integer> b = Var.map(a, new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x) {
+                countB.incrementAndGet();
+                return x % 2;
+            }
+        });
+        final Var<Integer> c = times(b, 10, countC);
+
+        assertThat(c.get(), is(10));
+        a.set(5); // b's value doesn't change, so c isn't recomputed
+        assertThat(c.get(), is(10));
+        assertThat(countB.get(), is(2));
+        assertThat(countC.get(), is(1));
+
+        a.set(5); // same value; nothing is marked stale
+        assertThat(c.get(), is(10));
+        assertThat(countB.get(), is(2));
+    }
+
+    @Test
+    public void testGlitchFree() throws Exception {
+        // the diamond a -> b, a -> c, (b, c) -> d
+        final AtomicInteger count = new AtomicInteger();
+        final Var<Integer> a = new Var<>(1);
+        final Var<Integer> b = times(a, 1, new AtomicInteger());
+        final Var<Integer> c = times(a, -1, new AtomicInteger());
+        final Var<Integer> d = plus(b, c, count);
+        final Var<Integer> e = Var.combine(Arrays.asList(d, a), new Function<Object[], Integer>() {
+            @Override
+            public Integer apply(Object[] xs) {
+                assertThat((Integer) xs[0], is(0)); // never an inconsistent view of b and c
+                return (Integer) xs[1];
+            }
+        });
+
+        final Fiber<List<Integer>> waiter = new Fiber<List<Integer>>(new SuspendableCallable<List<Integer>>() {
+            @Override
+            public List<Integer> run() throws SuspendExecution, InterruptedException {
+                final List<Integer> values = new ArrayList<>();
+                for (int i = 0; i < 3; i++)
+                    values.add(e.getNext());
+                return values;
+            }
+        }).start();
+
+        for (int i = 2; i <= 4; i++) {
+            Thread.sleep(20);
+            a.set(i);
+        }
+        assertThat(waiter.get(5, TimeUnit.SECONDS), is(equalTo(Arrays.asList(2, 3, 4))));
+        assertThat(d.get(), is(0));
+        assertThat(count.get(), is(4)); // once initially, then once per update, never with only one input changed
+    }
+
+    @Test
+    public void testUnconnectedVarsDoNotShareLock() throws Exception {
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Var<Integer> a = new Var<>(1);
+        final Var<Integer> slow = Var.map(a, new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x) {
+                computing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return x;
+            }
+        });
+
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                slow.tryGet(); // holds a's lock while computing
+            }
+        });
+        t.start();
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+
+        // vars unconnected to a don't wait for the computation
+        final Var<Integer> b = new Var<>(1);
+        final Var<Integer> c = times(b, 2, new AtomicInteger());
+        b.set(2);
+        assertThat(c.tryGet(), is(4));
+
+        release.countDown();
+        t.join();
+        assertThat(slow.get(), is(1));
+    }
+
+    @Test
+    public void testConnectingGraphs() throws Exception {
+        final int n = 8;
+        final List<Var<Integer>> sources = new ArrayList<>();
+        final List<Var<Integer>> doubled = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            sources.add(new Var<>(0));
+            doubled.add(times(sources.get(i), 2, new AtomicInteger()));
+        }
+        final Thread[] setters = new Thread[n];
+        for (int i = 0; i < n; i++) {
+            final Var<Integer> source = sources.get(i);
+            setters[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 1; j <= 10000; j++)
+                        source.set(j);
+                }
+            });
+            setters[i].start();
+        }
+
+        // merge the graphs, pairwise, while they are updated
+        final List<Var<Integer>> sums = new ArrayList<>(doubled);
+        while (sums.size() > 1) {
+            final List<Var<Integer>> next = new ArrayList<>();
+            for (int i = 0; i < sums.size(); i += 2)
+                next.add(plus(sums.get(i), sums.get(i + 1), new AtomicInteger()));
+            sums.clear();
+            sums.addAll(next);
+        }
+
+        for (Thread t : setters)
+            t.join();
+        assertThat(sums.get(0).get(), is(n * 2 * 10000));
+    }
+
+    @Test
+    public void testGetWaitsForValue() throws Exception {
+        final Var<Integer> a = new Var<>();
+        final Var<Integer> b = new Var<>(1);
+        final Var<Integer> c = plus(a, b, new AtomicInteger());
+        assertThat(c.isSet(), is(false));
+        assertThat(c.tryGet(), is(nullValue()));
+
+        final Fiber<Integer> waiter = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                return c.get();
+            }
+        }).start();
+        Thread.sleep(50);
+        assertThat(waiter.isDone(), is(false));
+
+        a.set(41);
+        assertThat(waiter.get(5, TimeUnit.SECONDS), is(42));
+        assertThat(c.isSet(), is(true));
+    }
+
+    @Test
+    public void testGetNextTimeout() throws Exception {
+        final Var<Integer> a = new Var<>(1);
+        try {
+            a.getNext(20, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException e) {
+        }
+    }
+
+    @Test
+    public void testExceptionIsThrownToWaiter() throws Exception {
+        final Var<Integer> a = new Var<>(1);
+        final Var<Integer> b = Var.map(a, new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer x) {
+                if (x < 0)
+                    throw new IllegalArgumentException("negative");
+                return x;
+            }
+        });
+
+        final Fiber<Integer> waiter = new Fiber<Integer>(new SuspendableCallable<Integer>() {
+            @Override
+            public Integer run() throws SuspendExecution, InterruptedException {
+                try {
+                    b.getNext();
+                    return 0;
+                } catch (IllegalArgumentException e) {
+                    return 1;
+                }
+            }
+        }).start();
+        Thread.sleep(50);
+        a.set(-1);
+        assertThat(waiter.get(5, TimeUnit.SECONDS), is(1));
+
+        a.set(2);
+        assertThat(b.get(), is(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCannotSetDerived() throws Exception {
+        final Var<Integer> a = new Var<>(1);
+        times(a, 2, new AtomicInteger()).set(3);
+    }
+}
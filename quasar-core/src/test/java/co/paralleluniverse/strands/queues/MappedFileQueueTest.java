@@ -0,0 +1,233 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author pron
+ */
+public class MappedFileQueueTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] message(int i, int length) {
+        final byte[] m = new byte[length];
+        for (int j = 0; j < length; j++)
+            m[j] = (byte) (i + j);
+        return m;
+    }
+
+    @Test
+    public void testEmptyQueue() throws Exception {
+        final MappedFileQueue queue = new MappedFileQueue(folder.newFile(), 1024);
+        assertThat(queue.byteCapacity(), is(1024));
+        assertThat(queue.capacity(), is(1024));
+        assertThat(queue.size(), is(0));
+        assertFalse(queue.hasNext());
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testFifo() throws Exception {
+        final MappedFileQueue queue = new MappedFileQueue(folder.newFile(), 1024);
+        // each message takes up a 16-byte record
+        for (int i = 0; i < 64; i++)
+            assertTrue(queue.enq(message(i, 5 + i % 8)));
+        assertFalse(queue.enq(message(0, 0)));
+        assertThat(queue.size(), is(64));
+
+        for (int i = 0; i < 64; i++)
+            assertThat(queue.poll(), equalTo(message(i, 5 + i % 8)));
+        assertThat(queue.poll(), is(nullValue()));
+        assertThat(queue.size(), is(0));
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        final MappedFileQueue queue = new MappedFileQueue(folder.newFile(), 256);
+        // message lengths that don't divide the ring, so records are padded at its end
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(queue.enq(message(i, i % 50)));
+            assertTrue(queue.enq(message(-i, 20)));
+            assertTrue(queue.hasNext());
+            assertThat(queue.poll(), equalTo(message(i, i % 50)));
+            assertThat(queue.poll(), equalTo(message(-i, 20)));
+        }
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        final File file = folder.newFile();
+        final MappedFileQueue queue1 = new MappedFileQueue(file, 1024);
+        for (int i = 0; i < 10; i++)
+            queue1.enq(message(i, 10));
+        assertThat(queue1.poll(), equalTo(message(0, 10)));
+        queue1.force();
+
+        final MappedFileQueue queue2 = new MappedFileQueue(file, 1024);
+        assertThat(queue2.size(), is(9));
+        for (int i = 1; i < 10; i++)
+            assertThat(queue2.poll(), equalTo(message(i, 10)));
+        assertThat(queue2.poll(), is(nullValue()));
+
+        // both map the same file
+        queue1.enq(message(100, 10));
+        assertThat(queue2.poll(), equalTo(message(100, 10)));
+        queue1.close();
+        assertTrue(queue2.isClosed());
+    }
+
+    @Test
+    public void testPollInPlace() throws Exception {
+        final MappedFileQueue queue = new MappedFileQueue(folder.newFile(), 256);
+        final byte[][] read = new byte[1][];
+        final MappedFileQueue.Reader reader = new MappedFileQueue.Reader() {
+            @Override
+            public void read(ByteBuffer element) {
+                assertTrue(element.isReadOnly());
+                read[0] = new byte[element.remaining()];
+                element.get(read[0]);
+            }
+        };
+
+        assertFalse(queue.poll(reader));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(queue.enq(message(i, i % 50)));
+            assertTrue(queue.poll(reader));
+            assertThat(read[0], equalTo(message(i, i % 50)));
+            assertThat(queue.size(), is(0));
+        }
+        assertFalse(queue.poll(reader));
+    }
+
+    @Test
+    public void testUnmap() throws Exception {
+        final File file = folder.newFile();
+        final MappedFileQueue queue1 = new MappedFileQueue(file, 1024);
+        queue1.enq(message(1, 10));
+        queue1.unmap();
+
+        final MappedFileQueue queue2 = new MappedFileQueue(file, 1024);
+        assertThat(queue2.poll(), equalTo(message(1, 10)));
+        queue2.unmap();
+    }
+
+    @Test(expected = IOException.class)
+    public void testCapacityMismatch() throws Exception {
+        final File file = folder.newFile();
+        new MappedFileQueue(file, 1024);
+        new MappedFileQueue(file, 2048);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMessageTooLarge() throws Exception {
+        new MappedFileQueue(folder.newFile(), 256).enq(new byte[200]);
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final MappedFileQueue queue = new MappedFileQueue(folder.newFile(), 4096);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        final byte[] m = new byte[1 + i % 20];
+                        m[0] = (byte) id;
+                        while (!queue.enq(m))
+                            Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        final int[] received = new int[producers];
+        while (remaining.get() > 0) {
+            final byte[] m = queue.poll();
+            if (m == null) {
+                Thread.yield();
+                continue;
+            }
+            final int id = m[0];
+            assertThat(m.length, is(1 + received[id] % 20)); // each producer's messages are in order
+            received[id]++;
+            remaining.decrementAndGet();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testReservedRecordIsSkippedWhenAbandoned() throws Exception {
+        testAbandonedRecord(true);
+    }
+
+    @Test
+    public void testUnmarkedRecordIsSkippedWhenAbandoned() throws Exception {
+        testAbandonedRecord(false);
+    }
+
+    private void testAbandonedRecord(boolean marked) throws Exception {
+        final File file = folder.newFile();
+        final MappedFileQueue queue = new MappedFileQueue(file, 1024, 50, TimeUnit.MILLISECONDS);
+        queue.enq(message(0, 10));
+        abandonRecord(file, 16, marked);
+        queue.enq(message(1, 10));
+
+        assertThat(queue.poll(), equalTo(message(0, 10)));
+        assertThat(queue.poll(), is(nullValue())); // the record may yet be published
+        Thread.sleep(100);
+        assertThat(queue.poll(), equalTo(message(1, 10)));
+        assertThat(queue.poll(), is(nullValue()));
+        assertThat(queue.size(), is(0));
+    }
+
+    /**
+     * Claims a record of the given size, as a producer that dies before publishing it would.
+     *
+     * @param marked whether the producer has marked the record as reserved before dying
+     */
+    private static void abandonRecord(File file, int size, boolean marked) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()).order(ByteOrder.nativeOrder());
+            final long t = buffer.getLong(MappedFileQueue.TAIL_OFFSET);
+            if (marked)
+                buffer.putInt(MappedFileQueue.HEADER_SIZE + (int) t, -size);
+            buffer.putLong(MappedFileQueue.TAIL_OFFSET, t + size);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.queues;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ *
+ * @author pron
+ */
+@RunWith(Parameterized.class)
+public class MultiConsumerQueueTest {
+    final BasicQueue<Integer> queue;
+
+    public MultiConsumerQueueTest(int queueType) {
+        switch (queueType) {
+            case 1:
+                this.queue = new MultiConsumerArrayObjectQueue<Integer>(16);
+                break;
+            case 2:
+                this.queue = new MultiConsumerLinkedArrayObjectQueue<Integer>();
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{1}, {2}});
+    }
+
+    @Test
+    public void testEmptyQueue() {
+        assertThat(queue.size(), is(0));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testFifo() {
+        final int n = queue.capacity() > 0 ? queue.capacity() : 1000;
+        for (int i = 0; i < n; i++)
+            assertTrue(queue.enq(i));
+        if (queue.capacity() > 0)
+            assertFalse(queue.enq(n));
+
+        assertThat(queue.size(), is(n));
+        for (int i = 0; i < n; i++)
+            assertThat(queue.poll(), is(i));
+        assertThat(queue.poll(), is(nullValue()));
+        assertThat(queue.size(), is(0));
+    }
+
+    @Test
+    public void testInterleaved() {
+        // runs through many blocks/laps with a short queue
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(queue.enq(i));
+            assertTrue(queue.enq(-i));
+            assertThat(queue.poll(), is(i));
+            assertThat(queue.poll(), is(-i));
+        }
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testEnqAllDrainTo() {
+        final Integer[] in = new Integer[20];
+        for (int i = 0; i < in.length; i++)
+            in[i] = i;
+
+        final int n = queue.enqAll(in, 0, 20);
+        assertThat(n, is(queue.capacity() > 0 ? queue.capacity() : 20));
+        final Integer[] out = new Integer[20];
+        assertThat(queue.drainTo(out, 20), is(n));
+        assertThat(out[n - 1], is(n - 1));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void testDisplaceWaitsForStalledConsumer() throws Exception {
+        final MultiConsumerArrayObjectQueue<Integer> q = new MultiConsumerArrayObjectQueue<Integer>(4, true);
+        for (int i = 0; i < 4; i++)
+            assertTrue(q.enq(i));
+
+        // a consumer claims the oldest element, and stalls before freeing its slot
+        final int index = q.pollIndex();
+        assertThat(index, is(not(-1)));
+
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                q.enq(4);
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive()); // waiting for the consumer rather than displacing the rest of the queue
+
+        assertThat(q.poll(index), is(0));
+        producer.join();
+
+        for (int i = 1; i <= 4; i++)
+            assertThat(q.poll(), is(i));
+        assertThat(q.poll(), is(nullValue()));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testPrimitivePollEmpty() {
+        new MultiConsumerArrayIntQueue(16).pollInt();
+    }
+
+    @Test
+    public void testMultipleProducersAndConsumers() throws Exception {
+        testMultipleProducersAndConsumers(1);
+    }
+
+    @Test
+    public void testMultipleBatchProducersAndConsumers() throws Exception {
+        testMultipleProducersAndConsumers(7);
+    }
+
+    private void testMultipleProducersAndConsumers(final int batch) throws Exception {
+        final int producers = 4;
+        final int consumers = 4;
+        final int perProducer = 100000;
+        final AtomicIntegerArray received = new AtomicIntegerArray(producers * perProducer);
+        final AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        final AtomicInteger outOfOrder = new AtomicInteger();
+
+        final Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Integer[] elements = new Integer[perProducer];
+                    for (int i = 0; i < perProducer; i++)
+                        elements[i] = base + i;
+                    for (int i = 0; i < perProducer;) {
+                        final int n = batch == 1
+                                ? (queue.enq(elements[i]) ? 1 : 0)
+                                : queue.enqAll(elements, i, Math.min(batch, perProducer - i));
+                        if (n == 0)
+                            Thread.yield();
+                        i += n;
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final int[] last = new int[producers];
+                    Arrays.fill(last, -1);
+                    while (remaining.get() > 0) {
+                        final Integer m = queue.poll();
+                        if (m == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        received.incrementAndGet(m);
+                        remaining.decrementAndGet();
+
+                        // each consumer sees each producer's elements in order
+                        final int p = m / perProducer;
+                        if (m <= last[p])
+                            outOfOrder.incrementAndGet();
+                        last[p] = m;
+                    }
+                }
+            });
+        }
+
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        for (int i = 0; i < received.length(); i++)
+            assertThat(received.get(i), is(1));
+        assertThat(outOfOrder.get(), is(0));
+        assertThat(queue.poll(), is(nullValue()));
+    }
+}
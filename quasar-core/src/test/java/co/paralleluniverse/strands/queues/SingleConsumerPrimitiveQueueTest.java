@@ -13,6 +13,7 @@
  */
 package co.paralleluniverse.strands.queues;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -22,6 +23,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.junit.Assume.*;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -55,6 +57,10 @@ public class SingleConsumerPrimitiveQueueTest {
                 this.wordQueue = new SingleConsumerLinkedArrayIntQueue();
                 this.dwordQueue = new SingleConsumerLinkedArrayDoubleQueue();
                 break;
+            case 4:
+                this.wordQueue = new SingleConsumerArrayIntQueue(ByteBuffer.allocateDirect(64));
+                this.dwordQueue = new SingleConsumerArrayDoubleQueue(ByteBuffer.allocateDirect(128));
+                break;
             default:
                 throw new AssertionError();
         }
@@ -62,7 +68,7 @@ public class SingleConsumerPrimitiveQueueTest {
 
     @Parameterized.Parameters
     public static Collection<Object[]> data() {
-        return Arrays.asList(new Object[][]{{1}, {2}, {3}});
+        return Arrays.asList(new Object[][]{{1}, {2}, {3}, {4}});
     }
 
     @Test
@@ -383,6 +389,59 @@ public class SingleConsumerPrimitiveQueueTest {
         }
     }
 
+    @Test
+    public void testPrimitiveEnqAllDrainTo() {
+        assumeTrue(wordQueue instanceof SingleConsumerArrayIntQueue);
+        final SingleConsumerArrayIntQueue intQueue = (SingleConsumerArrayIntQueue) wordQueue;
+        final SingleConsumerArrayDoubleQueue doubleQueue = (SingleConsumerArrayDoubleQueue) dwordQueue;
+
+        assertThat(intQueue.enqAll(new int[]{0, 1, 2, 3}, 1, 3), is(3));
+        assertThat(intQueue.enqAll(new int[20], 0, 20), is(intQueue.capacity() - 3));
+        final int[] ints = new int[4];
+        assertThat(intQueue.drainTo(ints, 4), is(4));
+        assertThat(ints, is(equalTo(new int[]{1, 2, 3, 0})));
+        assertThat(intQueue.size(), is(intQueue.capacity() - 4));
+
+        assertThat(doubleQueue.enqAll(new double[]{1.2, 2.3, 3.4}, 0, 3), is(3));
+        final double[] doubles = new double[5];
+        assertThat(doubleQueue.drainTo(doubles, 5), is(3));
+        assertThat(doubles[2], is(3.4));
+        testEmptyQueue(doubleQueue);
+    }
+
+    @Test
+    public void testCircularBufferEnqAllDrainTo() {
+        final CircularIntBuffer buffer = new CircularIntBuffer(8, false);
+        assertThat(buffer.enqAll(new int[]{1, 2, 3, 4, 5}, 0, 5), is(5));
+        final int[] ints = new int[10];
+        assertThat(buffer.drainTo(ints, 3), is(3));
+        assertThat(ints[2], is(3));
+        assertThat(buffer.drainTo(ints, 10), is(2));
+        assertThat(ints[1], is(5));
+        assertThat(buffer.drainTo(ints, 10), is(0));
+    }
+
+    @Test
+    public void testOffHeapCircularBuffer() {
+        final CircularLongBuffer buffer = new CircularLongBuffer(ByteBuffer.allocateDirect(8 * 8 + 4), true);
+        assertThat(buffer.capacity(), is(8));
+        for (long i = 0; i < 20; i++)
+            buffer.enq(i);
+        final long[] longs = new long[8];
+        assertThat(buffer.drainTo(longs, 8), is(8));
+        assertThat(longs[0], is(12L));
+        assertThat(longs[7], is(19L));
+    }
+
+    @Test
+    public void testOffHeapRequiresDirectBuffer() {
+        try {
+            new SingleConsumerArrayIntQueue(ByteBuffer.allocate(64));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
     private static <E> List<E> list(Queue<E> queue) {
         return new ArrayList<>(queue);
     }
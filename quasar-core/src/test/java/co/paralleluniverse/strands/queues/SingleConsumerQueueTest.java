@@ -228,6 +228,96 @@ public class SingleConsumerQueueTest {
         assertThat(list(queue), is(equalTo(list("one"))));
     }
 
+    @Test
+    public void testCursorDel() {
+        int j = 1;
+        int k = 1;
+
+        for (int i = 0; i < 9; i++)
+            queue.offer("x" + (j++));
+
+        final SingleConsumerQueue.Cursor<String> cursor = queue.cursor();
+        while (cursor.next()) {
+            if ((k++) % 2 == 0)
+                cursor.del();
+        }
+
+        assertThat(list(queue), is(equalTo(list("x1", "x3", "x5", "x7", "x9"))));
+
+        for (int i = 0; i < 4; i++)
+            queue.offer("x" + (j++));
+
+        k = 1;
+        cursor.reset();
+        while (cursor.next()) {
+            if ((k++) % 2 != 0)
+                cursor.del();
+        }
+
+        assertThat(list(queue), is(equalTo(list("x3", "x7", "x10", "x12"))));
+    }
+
+    @Test
+    public void testCursorDelFirst() {
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+
+        final SingleConsumerQueue.Cursor<String> cursor = queue.cursor();
+        assertThat(cursor.value(), is(nullValue()));
+        assertTrue(cursor.next());
+        assertThat(cursor.value(), is("one"));
+        cursor.del();
+        assertThat(cursor.value(), is(nullValue()));
+        assertTrue(cursor.next());
+        assertThat(cursor.value(), is("two"));
+        cursor.del();
+
+        assertThat(list(queue), is(equalTo(list("three"))));
+    }
+
+    @Test
+    public void testCursorStaysAtEnd() {
+        queue.offer("one");
+
+        final SingleConsumerQueue.Cursor<String> cursor = queue.cursor();
+        assertTrue(cursor.next());
+        assertFalse(cursor.next());
+        assertThat(cursor.value(), is("one"));
+
+        queue.offer("two");
+        assertTrue(cursor.next());
+        assertThat(cursor.value(), is("two"));
+        cursor.del();
+
+        assertThat(list(queue), is(equalTo(list("one"))));
+        cursor.reset();
+        assertTrue(cursor.next());
+        cursor.del();
+        assertFalse(cursor.next());
+        testEmptyQueue();
+    }
+
+    @Test
+    public void testEnqAllDrainTo() {
+        final String[] in = new String[20];
+        for (int i = 0; i < in.length; i++)
+            in[i] = "x" + i;
+
+        final int n = queue.enqAll(in, 2, 18);
+        assertThat(n, is(queue.capacity() > 0 ? Math.min(18, queue.capacity()) : 18));
+        assertThat(queue.size(), is(n));
+        assertThat(queue.peek(), is("x2"));
+
+        final String[] out = new String[20];
+        assertThat(queue.drainTo(out, 5), is(5));
+        assertThat(Arrays.asList(out).subList(0, 5), is(equalTo(list("x2", "x3", "x4", "x5", "x6"))));
+        assertThat(queue.drainTo(out, 20), is(n - 5));
+        assertThat(out[n - 6], is("x" + (n + 1)));
+        testEmptyQueue();
+        assertThat(queue.drainTo(out, 20), is(0));
+    }
+
     private static <E> List<E> list(Queue<E> queue) {
         return new ArrayList<>(queue);
     }
@@ -0,0 +1,183 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.reactivestreams;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.FiberScheduler;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.Strand;
+import co.paralleluniverse.strands.SuspendableRunnable;
+import co.paralleluniverse.strands.channels.ReceivePort;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Publisher} that publishes the messages received from a {@link ReceivePort}.
+ *
+ * As the port's messages can only be received once, the publisher accepts a single subscriber. The messages are
+ * received, and passed to the subscriber, by a fiber, which parks when the subscriber has no outstanding demand, so that
+ * no more messages are taken from the port than have been requested, and messages back up in the port (whose own
+ * overflow policy then applies to its senders). The demand is consumed in batches: the fiber delivers as many messages
+ * as were requested before it updates the outstanding demand. Because the fiber only learns that the port has been closed
+ * by receiving from it, {@code onComplete} is only signaled while there is outstanding demand.
+ *
+ * @author pron
+ */
+public class ChannelPublisher<T> implements Publisher<T> {
+    private final ReceivePort<T> channel;
+    private final FiberScheduler scheduler;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * @param channel   the port whose messages are published
+     * @param scheduler the scheduler of the delivering fiber, or {@code null} for the default scheduler
+     */
+    public ChannelPublisher(ReceivePort<T> channel, FiberScheduler scheduler) {
+        this.channel = channel;
+        this.scheduler = scheduler;
+    }
+
+    public ChannelPublisher(ReceivePort<T> channel) {
+        this(channel, null);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException(); // required by the spec
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(CANCELLED);
+            subscriber.onError(new IllegalStateException("Publisher " + this + " only supports a single subscriber"));
+            return;
+        }
+        new ChannelSubscription<T>(channel, subscriber, scheduler).start();
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelPublisher{" + channel + '}';
+    }
+
+    private static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private static class ChannelSubscription<T> implements Subscription, SuspendableRunnable {
+        private final ReceivePort<T> channel;
+        private final Subscriber<? super T> subscriber;
+        private final Fiber<Void> fiber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean illegalRequest; // a non-positive request, to be reported by the fiber
+
+        ChannelSubscription(ReceivePort<T> channel, Subscriber<? super T> subscriber, FiberScheduler scheduler) {
+            this.channel = channel;
+            this.subscriber = subscriber;
+            this.fiber = scheduler != null ? new Fiber<Void>(scheduler, this) : new Fiber<Void>(this);
+        }
+
+        void start() {
+            fiber.start();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                illegalRequest = true;
+                cancel0();
+                return;
+            }
+            for (;;) {
+                final long d = demand.get();
+                if (d == Long.MAX_VALUE)
+                    return;
+                long r = d + n;
+                if (r < 0)
+                    r = Long.MAX_VALUE; // overflow; the demand is unbounded
+                if (demand.compareAndSet(d, r)) {
+                    if (d == 0)
+                        Strand.unpark(fiber, this);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancel0();
+        }
+
+        private void cancel0() {
+            if (!cancelled) {
+                cancelled = true;
+                fiber.interrupt(); // if the fiber is blocked on the channel, it must not take another message
+            }
+        }
+
+        @Override
+        public void run() throws SuspendExecution {
+            subscriber.onSubscribe(this);
+            try {
+                for (;;) {
+                    final long n = awaitDemand();
+                    if (n == 0)
+                        break;
+                    final boolean unbounded = n == Long.MAX_VALUE;
+                    long delivered = 0;
+                    while ((unbounded || delivered < n) && !cancelled) {
+                        final T m = channel.receive();
+                        if (m == null) {
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(m);
+                        delivered++;
+                    }
+                    if (!unbounded)
+                        demand.addAndGet(-delivered);
+                }
+            } catch (InterruptedException e) {
+                // cancelled
+            } catch (Throwable t) {
+                if (!cancelled) {
+                    cancelled = true;
+                    subscriber.onError(t);
+                }
+                return;
+            }
+            if (illegalRequest)
+                subscriber.onError(new IllegalArgumentException("The number of requested elements must be positive"));
+        }
+
+        private long awaitDemand() throws SuspendExecution {
+            for (;;) {
+                if (cancelled)
+                    return 0;
+                final long d = demand.get();
+                if (d > 0)
+                    return d;
+                Strand.park(this);
+            }
+        }
+    }
+}
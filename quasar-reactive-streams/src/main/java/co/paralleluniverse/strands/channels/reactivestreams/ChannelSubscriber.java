@@ -0,0 +1,135 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.reactivestreams;
+
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.channels.Channel;
+import co.paralleluniverse.strands.channels.Channels;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.channels.ReceivePort;
+import java.util.concurrent.TimeUnit;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Subscriber} that buffers the elements it is given in a channel, from which they are received through the
+ * {@link ReceivePort} interface.
+ *
+ * The subscriber initially requests as many elements as the buffer can hold, and then requests more as the buffered
+ * elements are received, in batches of half the buffer's size, so that it never requests more than it has room for.
+ * The port is closed when the publisher completes; if the publisher fails, {@code receive} throws a
+ * {@link ProducerException} once the buffered elements have been received. Closing the port cancels the subscription.
+ *
+ * Like any receive port, this one must only be used by a single receiver.
+ *
+ * @author pron
+ */
+public class ChannelSubscriber<T> implements Subscriber<T>, ReceivePort<T> {
+    private final Channel<T> channel;
+    private final int bufferSize;
+    private final int batchSize;
+    private volatile Subscription subscription;
+    private volatile Throwable error;
+    private int consumed; // since the last request
+
+    /**
+     * @param bufferSize the number of elements that may be requested, and buffered, at any one time
+     */
+    public ChannelSubscriber(int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        this.channel = Channels.newChannel(bufferSize, OverflowPolicy.THROW, false, true);
+        this.bufferSize = bufferSize;
+        this.batchSize = Math.max(1, bufferSize / 2);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (s == null)
+            throw new NullPointerException(); // required by the spec
+        if (subscription != null) {
+            s.cancel(); // only one subscription at a time
+            return;
+        }
+        subscription = s;
+        s.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(T element) {
+        if (element == null)
+            throw new NullPointerException(); // required by the spec
+        if (!channel.trySend(element)) {
+            // the publisher has sent more elements than requested
+            subscription.cancel();
+            onError(new IllegalStateException("Publisher has sent more elements than requested"));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (t == null)
+            throw new NullPointerException(); // required by the spec
+        error = t;
+        channel.close();
+    }
+
+    @Override
+    public void onComplete() {
+        channel.close();
+    }
+
+    @Override
+    public T receive() throws SuspendExecution, InterruptedException {
+        return consumed(channel.receive());
+    }
+
+    @Override
+    public T tryReceive() {
+        return consumed(channel.tryReceive());
+    }
+
+    @Override
+    public T receive(long timeout, TimeUnit unit) throws SuspendExecution, InterruptedException {
+        return consumed(channel.receive(timeout, unit));
+    }
+
+    private T consumed(T m) {
+        if (m == null) {
+            final Throwable t = error;
+            if (t != null && channel.isClosed())
+                throw new ProducerException(t);
+            return null;
+        }
+        if (++consumed >= batchSize) {
+            final int n = consumed;
+            consumed = 0;
+            subscription.request(n);
+        }
+        return m;
+    }
+
+    @Override
+    public void close() {
+        final Subscription s = subscription;
+        if (s != null)
+            s.cancel();
+        channel.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return channel.isClosed();
+    }
+}
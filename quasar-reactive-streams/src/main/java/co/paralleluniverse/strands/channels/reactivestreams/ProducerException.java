@@ -0,0 +1,25 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.reactivestreams;
+
+/**
+ * Thrown when receiving from a port whose producer has failed.
+ *
+ * @author pron
+ */
+public class ProducerException extends RuntimeException {
+    public ProducerException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.reactivestreams;
+
+import co.paralleluniverse.strands.channels.Channel;
+import co.paralleluniverse.strands.channels.Channels;
+import co.paralleluniverse.strands.channels.Channels.OverflowPolicy;
+import co.paralleluniverse.strands.channels.ReceivePort;
+import co.paralleluniverse.strands.channels.SendPort;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+/**
+ * Adapters between channels and <a href="http://www.reactive-streams.org/">Reactive Streams</a>.
+ *
+ * @author pron
+ */
+public final class ReactiveStreams {
+    /**
+     * Returns a publisher of the messages received from the given port. The publisher accepts a single subscriber.
+     *
+     * @see ChannelPublisher
+     */
+    public static <T> Publisher<T> toPublisher(ReceivePort<T> channel) {
+        return new ChannelPublisher<T>(channel);
+    }
+
+    /**
+     * Returns a send port whose messages are passed to the given subscriber as it requests them. Senders block when
+     * {@code bufferSize} messages are waiting for the subscriber's demand.
+     */
+    public static <T> SendPort<T> subscriberToSendPort(Subscriber<? super T> subscriber, int bufferSize) {
+        final Channel<T> channel = Channels.newChannel(bufferSize, OverflowPolicy.BLOCK, false, true);
+        new ChannelPublisher<T>(channel).subscribe(subscriber);
+        return channel;
+    }
+
+    /**
+     * Subscribes to the given publisher, and returns a port from which its elements may be received. No more than
+     * {@code bufferSize} elements are requested at a time.
+     *
+     * @see ChannelSubscriber
+     */
+    public static <T> ReceivePort<T> subscribe(int bufferSize, Publisher<T> publisher) {
+        final ChannelSubscriber<T> subscriber = new ChannelSubscriber<T>(bufferSize);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private ReactiveStreams() {
+    }
+}
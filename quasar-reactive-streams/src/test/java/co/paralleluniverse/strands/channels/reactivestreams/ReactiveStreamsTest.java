@@ -0,0 +1,233 @@
+/*
+ * Quasar: lightweight threads and actors for the JVM.
+ * Copyright (C) 2013, Parallel Universe Software Co. All rights reserved.
+ *
+ * This program and the accompanying materials are dual-licensed under
+ * either the terms of the Eclipse Public License v1.0 as published by
+ * the Eclipse Foundation
+ *
+ *   or (per the licensee's choosing)
+ *
+ * under the terms of the GNU Lesser General Public License version 3.0
+ * as published by the Free Software Foundation.
+ */
+package co.paralleluniverse.strands.channels.reactivestreams;
+
+import co.paralleluniverse.fibers.Fiber;
+import co.paralleluniverse.fibers.SuspendExecution;
+import co.paralleluniverse.strands.SuspendableCallable;
+import co.paralleluniverse.strands.channels.Channel;
+import co.paralleluniverse.strands.channels.Channels;
+import co.paralleluniverse.strands.channels.ReceivePort;
+import co.paralleluniverse.strands.channels.SendPort;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ *
+ * @author pron
+ */
+public class ReactiveStreamsTest {
+    /**
+     * Records the signals it receives in a queue; requests nothing by itself.
+     */
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+        final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(Integer t) {
+            signals.add(t);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            signals.add(t);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add("complete");
+        }
+
+        Object next() throws InterruptedException {
+            return signals.poll(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static RecordingSubscriber subscribe(Publisher<Integer> publisher) throws InterruptedException {
+        final RecordingSubscriber s = new RecordingSubscriber();
+        publisher.subscribe(s);
+        for (int i = 0; s.subscription == null && i < 500; i++)
+            Thread.sleep(10);
+        assertThat(s.subscription, is(notNullValue()));
+        return s;
+    }
+
+    @Test
+    public void testPublisherHonorsDemand() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(100);
+        for (int i = 0; i < 10; i++)
+            ch.send(i);
+        ch.close();
+
+        final RecordingSubscriber s = subscribe(ReactiveStreams.toPublisher(ch));
+        s.subscription.request(3);
+        for (int i = 0; i < 3; i++)
+            assertThat(s.next(), is((Object) i));
+        assertThat(s.signals.poll(50, TimeUnit.MILLISECONDS), is(nullValue()));
+
+        s.subscription.request(Long.MAX_VALUE);
+        for (int i = 3; i < 10; i++)
+            assertThat(s.next(), is((Object) i));
+        assertThat(s.next(), is((Object) "complete"));
+    }
+
+    @Test
+    public void testPublisherRejectsSecondSubscriber() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(10);
+        final Publisher<Integer> p = ReactiveStreams.toPublisher(ch);
+        subscribe(p);
+
+        final RecordingSubscriber second = subscribe(p);
+        assertThat(second.next(), is(instanceOf(IllegalStateException.class)));
+        ch.close();
+    }
+
+    @Test
+    public void testPublisherIllegalRequest() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(10);
+        final RecordingSubscriber s = subscribe(ReactiveStreams.toPublisher(ch));
+        s.subscription.request(0);
+        assertThat(s.next(), is(instanceOf(IllegalArgumentException.class)));
+    }
+
+    @Test
+    public void testPublisherCancel() throws Exception {
+        final Channel<Integer> ch = Channels.newChannel(10);
+        final RecordingSubscriber s = subscribe(ReactiveStreams.toPublisher(ch));
+        s.subscription.request(10);
+        ch.send(1);
+        assertThat(s.next(), is((Object) 1));
+        s.subscription.cancel();
+        Thread.sleep(50);
+        ch.send(2);
+        assertThat(s.signals.poll(50, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void testSendPortBackpressure() throws Exception {
+        final RecordingSubscriber s = new RecordingSubscriber();
+        final SendPort<Integer> port = ReactiveStreams.subscriberToSendPort(s, 2);
+
+        assertThat(port.trySend(1), is(true));
+        assertThat(port.trySend(2), is(true));
+        assertThat(port.trySend(3), is(false)); // no demand, buffer full
+
+        for (int i = 0; s.subscription == null && i < 500; i++)
+            Thread.sleep(10);
+        s.subscription.request(2);
+        assertThat(s.next(), is((Object) 1));
+        assertThat(s.next(), is((Object) 2));
+        port.close();
+        s.subscription.request(1); // completion is signaled once there's demand
+        assertThat(s.next(), is((Object) "complete"));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final int messages = 1000;
+        final Channel<Integer> source = Channels.newChannel(16);
+        final ReceivePort<Integer> sink = ReactiveStreams.subscribe(8, ReactiveStreams.toPublisher(source));
+
+        final Fiber<List<Integer>> consumer = new Fiber<List<Integer>>(new SuspendableCallable<List<Integer>>() {
+            @Override
+            public List<Integer> run() throws SuspendExecution, InterruptedException {
+                final List<Integer> received = new ArrayList<>();
+                Integer m;
+                while ((m = sink.receive()) != null)
+                    received.add(m);
+                return received;
+            }
+        }).start();
+
+        for (int i = 0; i < messages; i++)
+            source.send(i);
+        source.close();
+
+        final List<Integer> received = consumer.get(10, TimeUnit.SECONDS);
+        assertThat(received.size(), is(messages));
+        for (int i = 0; i < messages; i++)
+            assertThat(received.get(i), is(i));
+        assertThat(sink.isClosed(), is(true));
+    }
+
+    @Test
+    public void testSubscriberRequestsInBatches() throws Exception {
+        final List<Long> requests = new ArrayList<>();
+        final ChannelSubscriber<Integer> sink = new ChannelSubscriber<>(4);
+        sink.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                requests.add(n);
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        assertThat(requests, is(equalTo((List<Long>) list(4L))));
+
+        for (int i = 0; i < 4; i++)
+            sink.onNext(i);
+        assertThat(sink.tryReceive(), is(0));
+        assertThat(requests, is(equalTo((List<Long>) list(4L))));
+        assertThat(sink.tryReceive(), is(1));
+        assertThat(requests, is(equalTo((List<Long>) list(4L, 2L))));
+    }
+
+    @Test
+    public void testSubscriberError() throws Exception {
+        final ChannelSubscriber<Integer> sink = new ChannelSubscriber<>(4);
+        sink.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        sink.onNext(1);
+        sink.onError(new RuntimeException("boom"));
+
+        assertThat(sink.receive(), is(1));
+        try {
+            sink.receive();
+            fail();
+        } catch (ProducerException e) {
+            assertThat(e.getCause().getMessage(), is("boom"));
+        }
+    }
+
+    private static List<Long> list(Long... xs) {
+        final List<Long> l = new ArrayList<>();
+        for (Long x : xs)
+            l.add(x);
+        return l;
+    }
+}